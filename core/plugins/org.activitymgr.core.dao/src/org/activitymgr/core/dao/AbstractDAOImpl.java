@@ -38,6 +38,7 @@ import org.apache.log4j.Logger;
 
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import com.google.inject.name.Named;
 
 public class AbstractDAOImpl {
 	
@@ -45,10 +46,26 @@ public class AbstractDAOImpl {
 	/** Logger */
 	protected static Logger log = Logger.getLogger(AbstractDAOImpl.class);
 	
+	/** Default JDBC fetch size used by streaming requests */
+	public static final int DEFAULT_FETCH_SIZE = 500;
+	
+	/** Default JDBC batch size used by bulk writes */
+	public static final int DEFAULT_BATCH_SIZE = 200;
+	
 	/** Transaction provider */
 	@Inject
 	private Provider<Connection> tx;
 	
+	/** JDBC fetch size used by streaming requests */
+	@Inject(optional = true)
+	@Named(CoreDAOModule.FETCH_SIZE)
+	private int fetchSize = DEFAULT_FETCH_SIZE;
+	
+	/** JDBC batch size used by bulk writes */
+	@Inject(optional = true)
+	@Named(CoreDAOModule.BATCH_SIZE)
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	
 	/**
 	 * @return the active connection.
 	 */
@@ -56,6 +73,77 @@ public class AbstractDAOImpl {
 		return tx.get();
 	}
 
+	/**
+	 * Prepares a statement on the active connection.
+	 * <p>
+	 * When the connection pool pools the prepared statements (see
+	 * <code>DataSourceHelper</code>), the statement is reused by the next
+	 * borrowers of the physical connection ; it must be closed once used
+	 * (which releases it to the pool).
+	 * </p>
+	 * 
+	 * @param sql
+	 *            the SQL request.
+	 * @return the prepared statement.
+	 * @throws SQLException
+	 *             thrown if a SQL exception occurs.
+	 */
+	protected PreparedStatement prepareStatement(String sql) throws SQLException {
+		return tx().prepareStatement(sql);
+	}
+
+	/**
+	 * @return the JDBC fetch size used by streaming requests.
+	 */
+	protected int getFetchSize() {
+		return fetchSize;
+	}
+
+	/**
+	 * @return the maximum number of rows sent in a single JDBC batch by bulk
+	 *         writes.
+	 */
+	protected int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Prepares a statement which result is meant to be streamed (forward only
+	 * and read only cursor, configured fetch size).
+	 * <p>
+	 * With MySQL, rows are only streamed if the <code>useCursorFetch</code>
+	 * connection property is enabled.
+	 * </p>
+	 * 
+	 * @param sql
+	 *            the SQL request.
+	 * @return the prepared statement.
+	 * @throws SQLException
+	 *             thrown if a SQL exception occurs.
+	 */
+	protected PreparedStatement prepareStreamingStatement(String sql) throws SQLException {
+		return prepareStreamingStatement(tx(), sql);
+	}
+
+	/**
+	 * Prepares a streaming statement on a given connection (see
+	 * {@link #prepareStreamingStatement(String)}).
+	 * 
+	 * @param con
+	 *            the connection.
+	 * @param sql
+	 *            the SQL request.
+	 * @return the prepared statement.
+	 * @throws SQLException
+	 *             thrown if a SQL exception occurs.
+	 */
+	protected PreparedStatement prepareStreamingStatement(Connection con, String sql) throws SQLException {
+		PreparedStatement pStmt = con.prepareStatement(sql,
+				ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		pStmt.setFetchSize(fetchSize);
+		return pStmt;
+	}
+
 	/**
 	 * Tries to close in a last attempt the {@link Statement}.
 	 * 
@@ -86,8 +174,7 @@ public class AbstractDAOImpl {
 	
 	protected <T> T wrapFailure(String finalMessage, Exception fail) throws DAOException {
 		log.info("SQL failure", fail); //$NON-NLS-1$
-		new DAOException(finalMessage, fail); //$NON-NLS-1$
-		return null;
+		throw new DAOException(finalMessage, fail);
 	}
 	
 	protected <T> T critical(Exception fail) throws DAOException {
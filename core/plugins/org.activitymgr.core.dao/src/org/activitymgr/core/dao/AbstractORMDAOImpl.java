@@ -35,6 +35,7 @@ import java.sql.SQLException;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.activitymgr.core.dto.Collaborator;
 import org.activitymgr.core.dto.Task;
@@ -127,6 +128,19 @@ public abstract class AbstractORMDAOImpl<TYPE> extends AbstractDAOImpl implement
 		}
 	}
 
+	@Override
+	public Stream<TYPE> stream(String[] whereClauseAttributeNames,
+			Object[] whereClauseAttributeValues, Object[] orderByClauseItems)
+			throws DAOException {
+		try {
+			return wrapped.stream(tx(),
+					whereClauseAttributeNames, whereClauseAttributeValues,
+					orderByClauseItems, getFetchSize());
+		} catch (SQLException e) {
+			throw new DAOException(null, e);
+		}
+	}
+
 	@Override
 	public TYPE update(TYPE value) throws DAOException {
 		try {
@@ -145,6 +159,33 @@ public abstract class AbstractORMDAOImpl<TYPE> extends AbstractDAOImpl implement
 		}
 	}
 
+	@Override
+	public TYPE[] insertAll(TYPE[] values) throws DAOException {
+		try {
+			return wrapped.insertAll(tx(), values, getBatchSize());
+		} catch (SQLException e) {
+			throw new DAOException(null, e);
+		}
+	}
+
+	@Override
+	public TYPE[] updateAll(TYPE[] values) throws DAOException {
+		try {
+			return wrapped.updateAll(tx(), values, getBatchSize());
+		} catch (SQLException e) {
+			throw new DAOException(null, e);
+		}
+	}
+
+	@Override
+	public int deleteAll(TYPE[] values) throws DAOException {
+		try {
+			return wrapped.deleteAll(tx(), values, getBatchSize());
+		} catch (SQLException e) {
+			throw new DAOException(null, e);
+		}
+	}
+
 	@Override
 	public long countAll() throws DAOException {
 		try {
@@ -225,6 +266,36 @@ public abstract class AbstractORMDAOImpl<TYPE> extends AbstractDAOImpl implement
 			boolean insertWhereClause, 
 			String orderByClause)
 			throws SQLException {
+		return buildIntervalRequest(request, contributor, task,
+				new IntervalRequestHelper(fromDate, toDate), insertWhereClause,
+				orderByClause);
+	}
+
+	/**
+	 * Builds a interval request (a request that handles a date interval).
+	 * 
+	 * @param request
+	 *            the request buffer.
+	 * @param contributor
+	 *            the contributor to consider (optionnal).
+	 * @param task
+	 *            the task to consider (optionnal).
+	 * @param interval
+	 *            the interval to consider.
+	 * @param insertWhereClause
+	 *            <code>true</code> if a <code>where</code> keyword must be
+	 *            inserted.
+	 * @param orderByClause
+	 *            the order by clause.
+	 * @return the request.
+	 * @throws SQLException
+	 *             thrown if a SQL exception occurs.
+	 */
+	protected PreparedStatement buildIntervalRequest(StringBuilder request,
+			Collaborator contributor, Task task, IntervalRequestHelper interval,
+			boolean insertWhereClause, 
+			String orderByClause)
+			throws SQLException {
 		
 		PreparedStatement pStmt;
 		if (contributor != null) {
@@ -237,7 +308,6 @@ public abstract class AbstractORMDAOImpl<TYPE> extends AbstractDAOImpl implement
 			insertWhereClause = false;
 			request.append("ctb_task=tsk_id and (tsk_id=? or tsk_path like ?)");
 		}
-		IntervalRequestHelper interval = new IntervalRequestHelper(fromDate, toDate);
 		if (interval.hasIntervalCriteria()) {
 			request.append(insertWhereClause ? " where " : " and ");
 			insertWhereClause = false;
@@ -250,7 +320,7 @@ public abstract class AbstractORMDAOImpl<TYPE> extends AbstractDAOImpl implement
 		}
 		// Execute request
 		log.debug("request : " + request);
-		pStmt = tx().prepareStatement(request.toString()); //$NON-NLS-1$
+		pStmt = prepareStatement(request.toString()); //$NON-NLS-1$
 		int paramIdx = 1;
 		if (contributor != null) {
 			pStmt.setLong(paramIdx++, contributor.getId());
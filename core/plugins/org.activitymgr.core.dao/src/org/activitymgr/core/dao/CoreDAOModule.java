@@ -40,6 +40,7 @@ import org.activitymgr.core.impl.dao.ContributionDAOImpl;
 import org.activitymgr.core.impl.dao.CoreDAOImpl;
 import org.activitymgr.core.impl.dao.DTOFactoryImpl;
 import org.activitymgr.core.impl.dao.DurationDAOImpl;
+import org.activitymgr.core.impl.dao.InMemoryReportDAOImpl;
 import org.activitymgr.core.impl.dao.ReportCfgDAOImpl;
 import org.activitymgr.core.impl.dao.ReportDAOImpl;
 import org.activitymgr.core.impl.dao.TaskDAOImpl;
@@ -48,12 +49,54 @@ import org.activitymgr.core.orm.IDAO;
 
 import com.google.inject.Binder;
 import com.google.inject.Inject;
+import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
 
 public class CoreDAOModule implements Module {
+
+	/**
+	 * Name of the optional constant giving the JDBC fetch size used by
+	 * streaming requests (see {@link AbstractDAOImpl#getFetchSize()}).
+	 */
+	public static final String FETCH_SIZE = "activitymgr.dao.fetchSize";
+	
+	/**
+	 * Name of the optional constant giving the JDBC batch size used by bulk
+	 * writes (see {@link AbstractDAOImpl#getBatchSize()}).
+	 */
+	public static final String BATCH_SIZE = "activitymgr.dao.batchSize";
+	
+	/**
+	 * Name of the optional constant selecting the report engine
+	 * ({@link #SQL_REPORT_ENGINE} or {@link #IN_MEMORY_REPORT_ENGINE}).
+	 */
+	public static final String REPORT_ENGINE = "activitymgr.dao.reportEngine";
+	
+	/** Report engine computing the reports in the database (default) */
+	public static final String SQL_REPORT_ENGINE = "sql";
+	
+	/** Report engine computing the reports in memory */
+	public static final String IN_MEMORY_REPORT_ENGINE = "memory";
+	
+	/**
+	 * Name of the optional constant giving the number of requests used to
+	 * build a report concurrently (one per task sub tree, <code>1</code> by
+	 * default, which disables the parallel mode). The parallel mode also
+	 * requires a {@link #REPORT_DATA_SOURCE} binding.
+	 */
+	public static final String REPORT_PARALLELISM = "activitymgr.dao.reportParallelism";
+
+	/**
+	 * Name of the optional {@link javax.sql.DataSource} binding giving the
+	 * connections used by the parallel reports. It should be a dedicated
+	 * pool, bounded by the report parallelism and with a short wait time : the
+	 * report is built with a single request if no connection is available.
+	 */
+	public static final String REPORT_DATA_SOURCE = "activitymgr.dao.reportDataSource";
 	
 	<T> Provider<IDAO<T>> createInjectedProvider(
 				DAOFactory factory, 
@@ -133,7 +176,23 @@ public class CoreDAOModule implements Module {
 	    
 	    // Other DAOs
 	    binder.bind(IReportDAO.class)
-	    	.to(ReportDAOImpl.class)
+	    	.toProvider(new Provider<IReportDAO>() {
+	    		
+	    		@Inject(optional = true)
+	    		@Named(REPORT_ENGINE)
+	    		String reportEngine = SQL_REPORT_ENGINE;
+	    		
+	    		@Inject
+	    		Injector injector;
+	    		
+	    		@Override
+	    		public IReportDAO get() {
+	    			Class<? extends IReportDAO> reportDAOClass = IN_MEMORY_REPORT_ENGINE.equals(reportEngine)
+	    					? InMemoryReportDAOImpl.class
+	    					: ReportDAOImpl.class;
+	    			return injector.getInstance(reportDAOClass);
+	    		}
+	    	})
 	    	.in(Singleton.class);
 	}
 	
@@ -3,11 +3,13 @@ package org.activitymgr.core.dao;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.activitymgr.core.dto.Collaborator;
 import org.activitymgr.core.dto.Contribution;
 import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.dto.misc.TaskContributionsSums;
+import org.activitymgr.core.util.EpochDays;
 
 public interface IContributionDAO extends IDAO<Contribution> {
 
@@ -27,6 +29,46 @@ public interface IContributionDAO extends IDAO<Contribution> {
 	Contribution[] getContributions(Collaborator contributor, Task task,
 			Calendar fromDate, Calendar toDate) throws DAOException;
 
+	/**
+	 * @param contributor
+	 *            le collaborateur associé aux contributions.
+	 * @param task
+	 *            la tache associée aux contributions, toutes si 'null'.
+	 * @param fromDay
+	 *            le jour de départ (voir {@link EpochDays}).
+	 * @param toDay
+	 *            le jour de fin. (inclus)
+	 * @return la liste des contributions associées aux paramétres spécifiés.
+	 * @throws DAOException
+	 *             levé en cas d'incident technique d'accès à la base.
+	 */
+	Contribution[] getContributions(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws DAOException;
+
+	/**
+	 * Streams the contributions matching the given parameters (same criteria
+	 * and order as
+	 * {@link #getContributions(Collaborator, Task, Calendar, Calendar)}).
+	 * <p>
+	 * The contributions are read on the fly from the database ; the returned
+	 * stream must be closed once consumed.
+	 * </p>
+	 * 
+	 * @param contributor
+	 *            le collaborateur associé aux contributions.
+	 * @param task
+	 *            la tache associée aux contributions, toutes si 'null'.
+	 * @param fromDate
+	 *            la date de départ.
+	 * @param toDate
+	 *            la date de fin. (incluse)
+	 * @return the contributions stream.
+	 * @throws DAOException
+	 *             levé en cas d'incident technique d'accès à la base.
+	 */
+	Stream<Contribution> streamContributions(Collaborator contributor,
+			Task task, Calendar fromDate, Calendar toDate) throws DAOException;
+
 	/**
 	 * @param contributor
 	 *            le collaborateur associé aux contributions.
@@ -43,6 +85,22 @@ public interface IContributionDAO extends IDAO<Contribution> {
 	int getContributionsCount(Collaborator contributor, Task task,
 			Calendar fromDate, Calendar toDate) throws DAOException;
 
+	/**
+	 * @param contributor
+	 *            le collaborateur associé aux contributions.
+	 * @param task
+	 *            la tache associée aux contributions.
+	 * @param fromDay
+	 *            le jour de départ (voir {@link EpochDays}).
+	 * @param toDay
+	 *            le jour de fin.
+	 * @return le nombre de contributions.
+	 * @throws DAOException
+	 *             levé en cas d'incident technique d'accès à la base.
+	 */
+	int getContributionsCount(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws DAOException;
+
 	/**
 	 * Calcule le total des contributions associée aux paramétres spécifiés.
 	 * 
@@ -59,6 +117,22 @@ public interface IContributionDAO extends IDAO<Contribution> {
 	long getContributionsSum(Collaborator contributor, Task task,
 			Calendar fromDate, Calendar toDate) throws DAOException;
 
+	/**
+	 * Calcule le total des contributions associée aux paramétres spécifiés.
+	 * 
+	 * @param contributor
+	 *            le collaborateur associé aux contributions (facultatif).
+	 * @param fromDay
+	 *            le jour de départ (voir {@link EpochDays}).
+	 * @param toDay
+	 *            le jour de fin.
+	 * @return la seomme des contributions.
+	 * @throws DAOException
+	 *             levé en cas d'incident technique d'accès à la base.
+	 */
+	long getContributionsSum(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws DAOException;
+
 	/**
 	 * The sub tasks sums (consumed, ...) for a given task (when
 	 * <code>taskId</code> is specified) or a set of tasks specified by their
@@ -88,8 +162,75 @@ public interface IContributionDAO extends IDAO<Contribution> {
 
 	/**
 	 * Returns the contributions interval.
+	 * <p>
+	 * The interval is read in the contributions sums (see
+	 * {@link #updateTasksSums(Contribution, long, int)}).
+	 * </p>
 	 * @param taskPath the optional task path to filter the contributions.
 	 * @return the contributions interval.
 	 */
 	Calendar[] getContributionsInterval(String taskPath);
+
+	/**
+	 * Updates the pre-aggregated sums (<code>CONTRIBUTION_SUMS</code>) of the
+	 * contribution task and of its parent tasks.
+	 * <p>
+	 * Must be invoked in the same transaction as the contribution
+	 * creation, update or deletion.
+	 * </p>
+	 * 
+	 * @param contribution
+	 *            the contribution.
+	 * @param consumedDelta
+	 *            the value to add to the consumed sums.
+	 * @param countDelta
+	 *            the value to add to the contributions counts.
+	 * @throws DAOException
+	 *             thrown if a technical error occurs.
+	 */
+	void updateTasksSums(Contribution contribution, long consumedDelta,
+			int countDelta) throws DAOException;
+
+	/**
+	 * Updates the pre-aggregated sums for a set of contributions that are
+	 * created or removed together (the deltas of the contributions are merged
+	 * so that each sum is only updated once).
+	 * 
+	 * @param contributions
+	 *            the contributions.
+	 * @param sign
+	 *            <code>1</code> if the contributions are created,
+	 *            <code>-1</code> if they are removed.
+	 * @throws DAOException
+	 *             thrown if a technical error occurs.
+	 */
+	void updateTasksSums(Contribution[] contributions, int sign)
+			throws DAOException;
+
+	/**
+	 * Adds (or subtracts) the pre-aggregated sums of a task to the sums of
+	 * its parent tasks.
+	 * <p>
+	 * Used when a task is moved : the sums are subtracted from the former
+	 * parents before the move and added to the new ones afterwards.
+	 * </p>
+	 * 
+	 * @param taskId
+	 *            the task identifier.
+	 * @param subtract
+	 *            <code>true</code> to subtract the sums.
+	 * @throws DAOException
+	 *             thrown if a technical error occurs.
+	 */
+	void propagateTaskSums(long taskId, boolean subtract) throws DAOException;
+
+	/**
+	 * Rebuilds the whole <code>CONTRIBUTION_SUMS</code> table from the
+	 * contributions (requires an up to date <code>TASK_CLOSURE</code> table).
+	 * 
+	 * @return the number of generated entries.
+	 * @throws DAOException
+	 *             thrown if a technical error occurs.
+	 */
+	int rebuildTasksSums() throws DAOException;
 }
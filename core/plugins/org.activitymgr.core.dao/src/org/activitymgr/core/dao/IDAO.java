@@ -2,6 +2,7 @@ package org.activitymgr.core.dao;
 
 import java.io.OutputStream;
 import java.sql.ResultSet;
+import java.util.stream.Stream;
 
 public interface IDAO<TYPE> {
 
@@ -25,10 +26,38 @@ public interface IDAO<TYPE> {
 			Object[] whereClauseAttributeValues, Object[] orderByClauseItems,
 			int maxRows) throws DAOException;
 
+	/**
+	 * Streams the DTOs matching the given criteria without loading them all
+	 * in memory.
+	 * <p>
+	 * The returned stream must be closed once consumed.
+	 * </p>
+	 */
+	public Stream<TYPE> stream(String[] whereClauseAttributeNames,
+			Object[] whereClauseAttributeValues, Object[] orderByClauseItems)
+			throws DAOException;
+
 	public TYPE update(TYPE value) throws DAOException;
 
 	public TYPE insert(TYPE value) throws DAOException;
 
+	/**
+	 * Inserts the given DTOs using JDBC batches (the generated identifiers
+	 * are set on the DTOs).
+	 */
+	public TYPE[] insertAll(TYPE[] values) throws DAOException;
+
+	/**
+	 * Updates the given DTOs using JDBC batches.
+	 */
+	public TYPE[] updateAll(TYPE[] values) throws DAOException;
+
+	/**
+	 * Deletes the given DTOs using JDBC batches and returns the deleted rows
+	 * count.
+	 */
+	public int deleteAll(TYPE[] values) throws DAOException;
+
 	public long countAll() throws DAOException;
 
 	public long count(String[] whereClauseAttributeNames,
@@ -5,6 +5,7 @@ import java.util.Calendar;
 import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.dto.report.Report;
 import org.activitymgr.core.dto.report.ReportIntervalType;
+import org.activitymgr.core.dto.report.ReportStatistics;
 
 public interface IReportDAO {
 
@@ -38,4 +39,11 @@ public interface IReportDAO {
 			boolean contributorCentricMode, long[] contributorIds,
 			String[] orderContributorsBy);
 
+	/**
+	 * Computes the tables statistics used to estimate the reports cost.
+	 * 
+	 * @return the statistics.
+	 */
+	ReportStatistics getStatistics();
+
 }
@@ -4,6 +4,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.activitymgr.core.dto.Collaborator;
 import org.activitymgr.core.dto.Task;
@@ -45,6 +46,22 @@ public interface ITaskDAO extends IDAO<Task> {
 	 */
 	Task getFirstTaskMatching(String filter);
 
+	/**
+	 * Streams the tasks in tree order (each task is immediately followed by
+	 * its sub tasks) using a single request.
+	 * <p>
+	 * The returned stream must be closed once consumed.
+	 * </p>
+	 * 
+	 * @param parentTask
+	 *            the parent task whose descendants are streamed (all the tasks
+	 *            are streamed if <code>null</code>).
+	 * @return the tasks stream.
+	 * @throws DAOException
+	 *             thrown if a technical error occurs.
+	 */
+	Stream<Task> streamTasksInTreeOrder(Task parentTask) throws DAOException;
+
 	
 	/**
 	 * Retourn la liste des taches correspondant au filtre de recherche
@@ -75,15 +92,97 @@ public interface ITaskDAO extends IDAO<Task> {
 			Calendar toDate) throws DAOException;
 
 	/**
-	 * Génère un nouveau numéro de tache pour un chemin donné.
+	 * Génère un nouveau numéro de tache pour une tache parent donnée.
+	 * <p>
+	 * Le numéro est obtenu par incrémentation du compteur de la tache parent
+	 * (<code>TASK_SEQUENCE</code>), dont la ligne reste verrouillée jusqu'à
+	 * la fin de la transaction courante : les créations concurrentes sous
+	 * une même tache sont sérialisées, y compris entre plusieurs JVM.
+	 * </p>
 	 * 
-	 * @param path
-	 *            le chemin considéré.
+	 * @param parentTask
+	 *            la tache parent (<code>null</code> pour une tache racine).
 	 * @return le numéro généré.
 	 * @throws DAOException
 	 *             levé en cas d'incident technique d'accès à la base.
 	 */
-	byte newTaskNumber(String path) throws DAOException;
+	byte newTaskNumber(Task parentTask) throws DAOException;
+
+	/**
+	 * Crée les compteurs des numéros de sous-taches de taches nouvellement
+	 * insérées (à 0).
+	 * <p>
+	 * Les compteurs étant créés avec les taches, l'attribution d'un numéro
+	 * n'a pas à les insérer : sous InnoDB, des premières insertions
+	 * concurrentes dans un même intervalle d'index provoquent un verrou
+	 * mortel, qui annule toute la transaction.
+	 * </p>
+	 * 
+	 * @param tasks
+	 *            les taches.
+	 * @throws DAOException
+	 *             levé en cas d'incident technique d'accès à la base.
+	 */
+	void createTaskSequences(Task[] tasks) throws DAOException;
+
+	/**
+	 * Recale les compteurs des numéros de sous-taches de taches sur leurs
+	 * nombres de sous-taches (après une renumérotation ou un import).
+	 * 
+	 * @param parentTasks
+	 *            les taches parent (<code>null</code> pour les taches
+	 *            racines).
+	 * @throws DAOException
+	 *             levé en cas d'incident technique d'accès à la base.
+	 */
+	void rebuildTaskSequences(Task[] parentTasks) throws DAOException;
+
+	/**
+	 * Supprime les compteurs des numéros de sous-taches d'une tache et de
+	 * ses sous-taches (à tous les niveaux).
+	 * 
+	 * @param task
+	 *            la tache.
+	 * @throws DAOException
+	 *             levé en cas d'incident technique d'accès à la base.
+	 */
+	void deleteTaskSequences(Task task) throws DAOException;
+
+	/**
+	 * Verrouille une tache jusqu'à la fin de la transaction courante
+	 * (<code>select ... for update</code>).
+	 * <p>
+	 * Permet de sérialiser les modifications des sous-taches d'une tache
+	 * entre transactions (et entre JVM).
+	 * </p>
+	 * 
+	 * @param taskId
+	 *            l'identifiant de la tache.
+	 * @return la tache lue en base (<code>null</code> si elle n'existe pas).
+	 * @throws DAOException
+	 *             levé en cas d'incident technique d'accès à la base.
+	 */
+	Task lockTask(long taskId) throws DAOException;
+
+	/**
+	 * Moves all the sub tasks of a task (at any depth) under a new full path.
+	 * <p>
+	 * The paths are rewritten with a single request : the
+	 * <code>oldFullPath</code> prefix of the sub tasks paths is replaced by
+	 * <code>newFullPath</code>. The tasks themselves (i.e. the root of the
+	 * moved sub tree) are not updated by this method. No other task must
+	 * have a path starting with <code>newFullPath</code>.
+	 * </p>
+	 * 
+	 * @param oldFullPath
+	 *            the current full path of the sub tree root.
+	 * @param newFullPath
+	 *            the new full path of the sub tree root.
+	 * @return the number of moved sub tasks.
+	 * @throws DAOException
+	 *             thrown if a technical error occurs.
+	 */
+	int moveSubTasks(String oldFullPath, String newFullPath) throws DAOException;
 
 	/**
  	 * Compute the task sums for a given task (when
@@ -121,4 +220,48 @@ public interface ITaskDAO extends IDAO<Task> {
 	 * @throws DAOException
 	 */
 	Map<String, Task> getAllParents(Collection<Task> tasks) throws DAOException;
+
+	/**
+	 * Updates the <code>TASK_CLOSURE</code> entries of a task and of all its
+	 * sub tasks.
+	 * <p>
+	 * Must be invoked once the task (and its sub tasks) have been created or
+	 * moved in the <code>TASK</code> table.
+	 * </p>
+	 *
+	 * @param task
+	 *            the task.
+	 * @throws DAOException
+	 *             thrown if a technical error occurs.
+	 */
+	void updateTaskClosure(Task task) throws DAOException;
+
+	/**
+	 * Updates the <code>TASK_CLOSURE</code> entries of a moved task and of
+	 * all its sub tasks.
+	 * <p>
+	 * The entries internal to the moved sub tree are kept ; only the links
+	 * with the former ancestors are removed and the links with the new ones
+	 * inserted (with two set based requests). Must be invoked once the task
+	 * (and its sub tasks) have been moved in the <code>TASK</code> table.
+	 * </p>
+	 *
+	 * @param task
+	 *            the moved task.
+	 * @param newParentTask
+	 *            the new parent task (<code>null</code> for a root task).
+	 * @throws DAOException
+	 *             thrown if a technical error occurs.
+	 */
+	void moveTaskClosure(Task task, Task newParentTask) throws DAOException;
+
+	/**
+	 * Rebuilds the whole <code>TASK_CLOSURE</code> table from the tasks
+	 * paths.
+	 *
+	 * @return the number of inserted closure entries.
+	 * @throws DAOException
+	 *             thrown if a technical error occurs.
+	 */
+	int rebuildTasksClosure() throws DAOException;
 }
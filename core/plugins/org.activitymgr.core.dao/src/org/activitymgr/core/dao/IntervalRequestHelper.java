@@ -2,47 +2,45 @@ package org.activitymgr.core.dao;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 
+import org.activitymgr.core.util.DateHelper;
+import org.activitymgr.core.util.EpochDays;
+
 public class IntervalRequestHelper {
 	
-	/** Formatteur de date */
-	private static final SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd"); //$NON-NLS-1$
-
-	private Calendar fromDate;
-
-	private Calendar toDate;
+	private Integer fromDateKey;
 
-	private String fromDateStr;
-
-	private String toDateStr;
+	private Integer toDateKey;
 
 	public IntervalRequestHelper(Calendar fromDate, Calendar toDate) {
-		this.fromDate = fromDate;
-		this.toDate = toDate;
-		this.fromDateStr = fromDate != null ? sdf.format(fromDate.getTime())
-				: null;
-		this.toDateStr = toDate != null ? sdf.format(toDate.getTime()) : null;
+		this.fromDateKey = fromDate != null ? DateHelper.toDateKey(fromDate) : null;
+		this.toDateKey = toDate != null ? DateHelper.toDateKey(toDate) : null;
+	}
+
+	public IntervalRequestHelper(int fromEpochDay, int toEpochDay) {
+		this.fromDateKey = EpochDays.toDateKey(fromEpochDay);
+		this.toDateKey = EpochDays.toDateKey(toEpochDay);
 	}
 
 	public boolean hasIntervalCriteria() {
-		return fromDate != null || toDate != null;
+		return fromDateKey != null || toDateKey != null;
 	}
 	
 	public void appendIntervalCriteria(StringBuilder request) {
 		if (hasIntervalCriteria()) {
-			request.append("(ctb_year*10000 + ( ctb_month*100 + ctb_day ))");
+			// The date key column is indexed (range scan)
+			request.append("ctb_date_key");
 			// If both dates are specified
-			if (fromDate != null && toDate != null) {
-				if (!fromDateStr.equals(toDateStr)) {
+			if (fromDateKey != null && toDateKey != null) {
+				if (!fromDateKey.equals(toDateKey)) {
 					request.append(" between ? and ?");
 				} else {
 					request.append(" = ?");
 				}
 			}
 			// Else if only 'from' specified (toDate == null)
-			else if (fromDate != null) {
+			else if (fromDateKey != null) {
 				request.append(" >= ?");
 			}
 			// Else if only 'to' specified (fromDate == null)
@@ -56,21 +54,21 @@ public class IntervalRequestHelper {
 		int index = startIdx;
 		if (hasIntervalCriteria()) {
 			// If both dates are specified
-			if (fromDate != null && toDate != null) {
-				if (!fromDateStr.equals(toDateStr)) {
-					pStmt.setString(index++, fromDateStr);
-					pStmt.setString(index++, toDateStr);
+			if (fromDateKey != null && toDateKey != null) {
+				if (!fromDateKey.equals(toDateKey)) {
+					pStmt.setInt(index++, fromDateKey);
+					pStmt.setInt(index++, toDateKey);
 				} else {
-					pStmt.setString(index++, fromDateStr);
+					pStmt.setInt(index++, fromDateKey);
 				}
 			}
 			// Else if only 'from' specified (toDate == null)
-			else if (fromDate != null) {
-				pStmt.setString(index++, fromDateStr);
+			else if (fromDateKey != null) {
+				pStmt.setInt(index++, fromDateKey);
 			}
 			// Else if only 'to' specified (fromDate == null)
 			else {
-				pStmt.setString(index++, toDateStr);
+				pStmt.setInt(index++, toDateKey);
 			}
 		}
 		return index;
@@ -3,15 +3,17 @@ package org.activitymgr.core.impl.dao;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
-import java.util.GregorianCalendar;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.activitymgr.core.dao.AbstractORMDAOImpl;
 import org.activitymgr.core.dao.DAOException;
@@ -21,22 +23,36 @@ import org.activitymgr.core.dto.Collaborator;
 import org.activitymgr.core.dto.Contribution;
 import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.dto.misc.TaskContributionsSums;
+import org.activitymgr.core.orm.StreamHelper;
+import org.activitymgr.core.util.DateHelper;
+import org.activitymgr.core.util.DbHelper;
 
 public class ContributionDAOImpl extends AbstractORMDAOImpl<Contribution> implements
 		IContributionDAO {
 
+	/** CONTRIBUTION_SUMS primary key order of the deltas */
+	private static final Comparator<long[]> SUMS_KEY_ORDER = Comparator
+			.<long[]> comparingLong(delta -> delta[0])
+			.thenComparingLong(delta -> delta[1])
+			.thenComparingLong(delta -> delta[2]);
+
 	@Override
 	public Contribution[] getContributions(Collaborator contributor, Task task,
 			Calendar fromDate, Calendar toDate) throws DAOException {
-		// Build the request
-		String orderBy = "ctb_year, ctb_month, ctb_day, ctb_contributor";
-		if (task != null) {
-			orderBy += ", tsk_path, tsk_number";
-		}
-		
+		return getContributions(contributor, task, new IntervalRequestHelper(fromDate, toDate));
+	}
+
+	@Override
+	public Contribution[] getContributions(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws DAOException {
+		return getContributions(contributor, task, new IntervalRequestHelper(fromDay, toDay));
+	}
+
+	private Contribution[] getContributions(Collaborator contributor, Task task,
+			IntervalRequestHelper interval) throws DAOException {
 		try(PreparedStatement pStmt = buildContributionsRequest(task, contributor, 
-					fromDate, toDate,
-					getColumnNamesRequestFragment(null), orderBy)) {
+					interval,
+					getColumnNamesRequestFragment(null), getContributionsOrderBy(task))) {
 
 			// Exécution de la requête
 			ResultSet rs = pStmt.executeQuery();
@@ -53,12 +69,51 @@ public class ContributionDAOImpl extends AbstractORMDAOImpl<Contribution> implem
 		}
 	}
 
+	@Override
+	public Stream<Contribution> streamContributions(Collaborator contributor,
+			Task task, Calendar fromDate, Calendar toDate) throws DAOException {
+		PreparedStatement pStmt = null;
+		try {
+			pStmt = buildContributionsRequest(task, contributor, 
+					new IntervalRequestHelper(fromDate, toDate),
+					getColumnNamesRequestFragment(null), getContributionsOrderBy(task));
+			pStmt.setFetchSize(getFetchSize());
+			// The statement is closed with the stream
+			Stream<Contribution> result = StreamHelper.stream(pStmt, rs -> read(rs, 1));
+			pStmt = null;
+			return result;
+		} catch (SQLException e) {
+			return critical(e, "CONTRIBUTIONS_SELECTION_FAILURE"); //$NON-NLS-1$
+		} finally {
+			lastAttemptToClose(pStmt);
+		}
+	}
+
+	private static String getContributionsOrderBy(Task task) {
+		String orderBy = "ctb_date_key, ctb_contributor";
+		if (task != null) {
+			orderBy += ", tsk_path, tsk_number";
+		}
+		return orderBy;
+	}
+
 
 	@Override
 	public long getContributionsSum(Collaborator contributor, Task task,
 			Calendar fromDate, Calendar toDate) throws DAOException {
+		return getContributionsSum(contributor, task, new IntervalRequestHelper(fromDate, toDate));
+	}
+
+	@Override
+	public long getContributionsSum(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws DAOException {
+		return getContributionsSum(contributor, task, new IntervalRequestHelper(fromDay, toDay));
+	}
+
+	private long getContributionsSum(Collaborator contributor, Task task,
+			IntervalRequestHelper interval) throws DAOException {
 		try(PreparedStatement pStmt = buildContributionsRequest(task, contributor, 
-				fromDate, toDate, 
+				interval, 
 				"sum(ctb_duration)", null)) { //$NON-NLS-1$
 			return executeRequired(pStmt).getLong(1);
 		} catch (SQLException e) {
@@ -70,8 +125,19 @@ public class ContributionDAOImpl extends AbstractORMDAOImpl<Contribution> implem
 	@Override
 	public int getContributionsCount(Collaborator contributor, Task task,
 			Calendar fromDate, Calendar toDate) throws DAOException {
+		return getContributionsCount(contributor, task, new IntervalRequestHelper(fromDate, toDate));
+	}
+
+	@Override
+	public int getContributionsCount(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws DAOException {
+		return getContributionsCount(contributor, task, new IntervalRequestHelper(fromDay, toDay));
+	}
+
+	private int getContributionsCount(Collaborator contributor, Task task,
+			IntervalRequestHelper interval) throws DAOException {
 		try(PreparedStatement pStmt = buildContributionsRequest(task, contributor, 
-				fromDate, toDate, 
+				interval, 
 				"count(ctb_duration)", null)) { //$NON-NLS-1$
 
 			return executeRequired(pStmt).getInt(1);
@@ -90,30 +156,27 @@ public class ContributionDAOImpl extends AbstractORMDAOImpl<Contribution> implem
 		}
 
 		Map<Long, TaskContributionsSums> result = new HashMap<Long, TaskContributionsSums>();
-		IntervalRequestHelper interval = new IntervalRequestHelper(fromDate, toDate);
 		
-		// Prepare the request
+		// Prepare the request (sums are read from the pre-aggregated
+		// sums table : whole months are read from the month entries,
+		// the remaining days from the day entries)
+		List<Integer> params = new ArrayList<Integer>();
 		StringBuilder request = new StringBuilder(
-				"select pt.tsk_id, pt.tsk_number, sum(ctb_duration), count(ctb_duration) ");
+				"select pt.tsk_id, pt.tsk_number, sum(csm_sum), sum(csm_count) ");
 		request.append("from TASK pt");
-		request.append(" left join (TASK lt left join CONTRIBUTION on (ctb_task=lt.tsk_id");
-		if (interval.hasIntervalCriteria()) {
-			request.append(" and ");
-			interval.appendIntervalCriteria(request);
-		}
+		request.append(" left join CONTRIBUTION_SUMS on (csm_task=pt.tsk_id and ");
+		appendSumsIntervalCriteria(request, params, fromDate, toDate);
 		request.append(")");
-		
-		request.append(") on (pt.tsk_id=lt.tsk_id or lt.tsk_path like concat(pt.tsk_path, pt.tsk_number, '%'))");
 		request.append(" where ");
 		request.append(taskId != null ? "pt.tsk_id" : "pt.tsk_path");
 		request.append(" = ? group by pt.tsk_id order by pt.tsk_number");
 
 
-		try(PreparedStatement pStmt = tx().prepareStatement(request.toString())) {
+		try(PreparedStatement pStmt = prepareStatement(request.toString())) {
 
 			int paramIdx = 1;
-			if (interval.hasIntervalCriteria()) {
-				paramIdx = interval.bindParameters(paramIdx, pStmt);
+			for (Integer param : params) {
+				pStmt.setInt(paramIdx++, param);
 			}
 			if (taskId != null) {
 				pStmt.setLong(paramIdx++, taskId);
@@ -139,6 +202,319 @@ public class ContributionDAOImpl extends AbstractORMDAOImpl<Contribution> implem
 					taskId != null ? taskId : tasksPath);
 		}
 	}
+
+	/**
+	 * Appends the <code>CONTRIBUTION_SUMS</code> criteria matching a given
+	 * date interval.
+	 * <p>
+	 * Whole months of the interval are matched by the month entries (day 0),
+	 * partial months by the day entries.
+	 * </p>
+	 * 
+	 * @param request
+	 *            the request to complete.
+	 * @param params
+	 *            the request parameters list to complete.
+	 * @param fromDate
+	 *            start of the interval (optional).
+	 * @param toDate
+	 *            end of the interval (optional).
+	 */
+	private static void appendSumsIntervalCriteria(StringBuilder request,
+			List<Integer> params, Calendar fromDate, Calendar toDate) {
+		// Inverted interval
+		if (fromDate != null && toDate != null
+				&& DateHelper.toDateKey(fromDate) > DateHelper.toDateKey(toDate)) {
+			request.append("false"); //$NON-NLS-1$
+			return;
+		}
+		List<String> criteria = new ArrayList<String>();
+		Integer fromMonth = fromDate != null ? toMonthKey(fromDate) : null;
+		Integer toMonth = toDate != null ? toMonthKey(toDate) : null;
+		boolean sameMonth = fromMonth != null && fromMonth.equals(toMonth);
+		boolean partialFromMonth = fromDate != null
+				&& fromDate.get(Calendar.DATE) != 1;
+		boolean partialToMonth = toDate != null
+				&& toDate.get(Calendar.DATE) != toDate.getActualMaximum(Calendar.DATE);
+
+		// Partial months
+		if (partialFromMonth) {
+			criteria.add("(csm_month=? and csm_day between ? and ?)"); //$NON-NLS-1$
+			params.add(fromMonth);
+			params.add(fromDate.get(Calendar.DATE));
+			params.add(sameMonth ? toDate.get(Calendar.DATE) : 31);
+		}
+		if (partialToMonth && !(sameMonth && partialFromMonth)) {
+			criteria.add("(csm_month=? and csm_day between 1 and ?)"); //$NON-NLS-1$
+			params.add(toMonth);
+			params.add(toDate.get(Calendar.DATE));
+		}
+
+		// Whole months
+		Integer firstMonth = partialFromMonth ? Integer.valueOf(nextMonthKey(fromMonth)) : fromMonth;
+		Integer lastMonth = partialToMonth ? Integer.valueOf(previousMonthKey(toMonth)) : toMonth;
+		if (firstMonth == null || lastMonth == null || firstMonth <= lastMonth) {
+			StringBuilder monthCriteria = new StringBuilder("(csm_day=0"); //$NON-NLS-1$
+			if (firstMonth != null) {
+				monthCriteria.append(" and csm_month>=?"); //$NON-NLS-1$
+				params.add(firstMonth);
+			}
+			if (lastMonth != null) {
+				monthCriteria.append(" and csm_month<=?"); //$NON-NLS-1$
+				params.add(lastMonth);
+			}
+			criteria.add(monthCriteria.append(")").toString()); //$NON-NLS-1$
+		}
+
+		// Empty interval
+		if (criteria.isEmpty()) {
+			request.append("false"); //$NON-NLS-1$
+		} else {
+			request.append("(").append(String.join(" or ", criteria)).append(")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	private static int toMonthKey(Calendar date) {
+		return date.get(Calendar.YEAR) * 100 + date.get(Calendar.MONTH) + 1;
+	}
+
+	private static int nextMonthKey(int monthKey) {
+		return monthKey % 100 == 12 ? (monthKey / 100 + 1) * 100 + 1 : monthKey + 1;
+	}
+
+	private static int previousMonthKey(int monthKey) {
+		return monthKey % 100 == 1 ? (monthKey / 100 - 1) * 100 + 12 : monthKey - 1;
+	}
+
+	@Override
+	public void updateTasksSums(Contribution contribution, long consumedDelta,
+			int countDelta) throws DAOException {
+		int monthKey = contribution.getYear() * 100 + contribution.getMonth();
+		List<long[]> deltas = new ArrayList<long[]>();
+		for (long taskId : getAncestors(contribution.getTaskId(), true)) {
+			deltas.add(new long[] { taskId, monthKey, 0, consumedDelta, countDelta });
+			deltas.add(new long[] { taskId, monthKey, contribution.getDay(), consumedDelta, countDelta });
+		}
+		applyTasksSumsDeltas(deltas);
+	}
+
+	@Override
+	public void updateTasksSums(Contribution[] contributions, int sign)
+			throws DAOException {
+		Map<Long, List<Long>> ancestorsByTask = new HashMap<Long, List<Long>>();
+		Map<List<Long>, long[]> deltasByKey = new LinkedHashMap<List<Long>, long[]>();
+		for (Contribution contribution : contributions) {
+			List<Long> ancestors = ancestorsByTask.get(contribution.getTaskId());
+			if (ancestors == null) {
+				ancestors = getAncestors(contribution.getTaskId(), true);
+				ancestorsByTask.put(contribution.getTaskId(), ancestors);
+			}
+			long monthKey = contribution.getYear() * 100 + contribution.getMonth();
+			for (long taskId : ancestors) {
+				for (long day : new long[] { 0, contribution.getDay() }) {
+					List<Long> key = Arrays.asList(taskId, monthKey, day);
+					long[] delta = deltasByKey.get(key);
+					if (delta == null) {
+						delta = new long[] { taskId, monthKey, day, 0, 0 };
+						deltasByKey.put(key, delta);
+					}
+					delta[3] += sign * contribution.getDurationId();
+					delta[4] += sign;
+				}
+			}
+		}
+		applyTasksSumsDeltas(new ArrayList<long[]>(deltasByKey.values()));
+	}
+
+	@Override
+	public void propagateTaskSums(long taskId, boolean subtract)
+			throws DAOException {
+		List<Long> ancestors = getAncestors(taskId, false);
+		if (ancestors.isEmpty()) {
+			return;
+		}
+		try (PreparedStatement pStmt = prepareStatement(
+				"select csm_month, csm_day, csm_sum, csm_count from CONTRIBUTION_SUMS where csm_task=?")) { //$NON-NLS-1$
+			pStmt.setLong(1, taskId);
+			ResultSet rs = pStmt.executeQuery();
+			int sign = subtract ? -1 : 1;
+			List<long[]> deltas = new ArrayList<long[]>();
+			while (rs.next()) {
+				for (long ancestor : ancestors) {
+					deltas.add(new long[] { ancestor, rs.getInt(1), rs.getInt(2),
+							sign * rs.getLong(3), sign * rs.getInt(4) });
+				}
+			}
+			applyTasksSumsDeltas(deltas);
+		} catch (SQLException e) {
+			critical(e, "TASK_SUMS_UPDATE_FAILURE"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * @param taskId
+	 *            the task identifier.
+	 * @param includeSelf
+	 *            whether the task itself must be returned.
+	 * @return the parent tasks identifiers.
+	 */
+	private List<Long> getAncestors(long taskId, boolean includeSelf) {
+		try (PreparedStatement pStmt = prepareStatement(
+				"select tcl_ancestor from TASK_CLOSURE where tcl_descendant=?" //$NON-NLS-1$
+				+ (includeSelf ? "" : " and tcl_depth>0"))) { //$NON-NLS-1$ //$NON-NLS-2$
+			pStmt.setLong(1, taskId);
+			ResultSet rs = pStmt.executeQuery();
+			List<Long> result = new ArrayList<Long>();
+			while (rs.next()) {
+				result.add(rs.getLong(1));
+			}
+			return result;
+		} catch (SQLException e) {
+			return critical(e, "TASK_SUMS_UPDATE_FAILURE"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Applies a list of deltas to the <code>CONTRIBUTION_SUMS</code> table.
+	 * <p>
+	 * The entries are created and updated by a single atomic request
+	 * (<code>insert ... on duplicate key update</code> with MySQL,
+	 * <code>merge</code> with HSQLDB) : two transactions adding the first
+	 * contribution of a day under a shared ancestor would otherwise both
+	 * insert the entry, and the second one would fail on the primary key.
+	 * H2 has no such request ; the entries that a concurrent transaction
+	 * has created meanwhile are updated again. The deltas are applied in
+	 * the primary key order so that concurrent transactions lock the
+	 * entries in the same order.
+	 * </p>
+	 * 
+	 * @param deltas
+	 *            the deltas (task, month, day, consumed, count).
+	 * @throws DAOException
+	 *             thrown if a SQL error occurs.
+	 */
+	private void applyTasksSumsDeltas(List<long[]> deltas) throws DAOException {
+		if (deltas.isEmpty()) {
+			return;
+		}
+		deltas.sort(SUMS_KEY_ORDER);
+		try (PreparedStatement cleanup = prepareStatement(
+				"delete from CONTRIBUTION_SUMS where csm_task=? and csm_month=? and csm_day=? and csm_count=0")) { //$NON-NLS-1$
+			String upsert = getSumsUpsertRequest();
+			if (upsert != null) {
+				try (PreparedStatement pStmt = prepareStatement(upsert)) {
+					for (long[] delta : deltas) {
+						for (int j = 0; j < delta.length; j++) {
+							pStmt.setLong(j + 1, delta[j]);
+						}
+						pStmt.addBatch();
+					}
+					pStmt.executeBatch();
+				}
+			} else {
+				for (long[] delta : deltas) {
+					applyTasksSumsDelta(delta);
+				}
+			}
+
+			// Remove empty entries
+			boolean cleanups = false;
+			for (long[] delta : deltas) {
+				if (delta[4] < 0) {
+					cleanup.setLong(1, delta[0]);
+					cleanup.setLong(2, delta[1]);
+					cleanup.setLong(3, delta[2]);
+					cleanup.addBatch();
+					cleanups = true;
+				}
+			}
+			if (cleanups) {
+				cleanup.executeBatch();
+			}
+		} catch (SQLException e) {
+			critical(e, "TASK_SUMS_UPDATE_FAILURE"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Applies a delta to the <code>CONTRIBUTION_SUMS</code> table without
+	 * atomic request (update, or insert if the entry does not exist, or
+	 * update again if a concurrent transaction has inserted it meanwhile).
+	 * 
+	 * @param delta
+	 *            the delta (task, month, day, consumed, count).
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	private void applyTasksSumsDelta(long[] delta) throws SQLException {
+		try (PreparedStatement update = prepareStatement(
+					"update CONTRIBUTION_SUMS set csm_sum=csm_sum+?, csm_count=csm_count+?" //$NON-NLS-1$
+					+ " where csm_task=? and csm_month=? and csm_day=?"); //$NON-NLS-1$
+				PreparedStatement insert = prepareStatement(
+					"insert into CONTRIBUTION_SUMS (csm_task, csm_month, csm_day, csm_sum, csm_count) values (?, ?, ?, ?, ?)")) { //$NON-NLS-1$
+			update.setLong(1, delta[3]);
+			update.setLong(2, delta[4]);
+			update.setLong(3, delta[0]);
+			update.setLong(4, delta[1]);
+			update.setLong(5, delta[2]);
+			if (update.executeUpdate() > 0) {
+				return;
+			}
+			for (int j = 0; j < delta.length; j++) {
+				insert.setLong(j + 1, delta[j]);
+			}
+			try {
+				insert.executeUpdate();
+			} catch (SQLException e) {
+				if (!DbHelper.isUniqueKeyViolation(e) || update.executeUpdate() == 0) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the request that atomically adds a delta to a
+	 *         <code>CONTRIBUTION_SUMS</code> entry, creating it if needed
+	 *         (<code>null</code> if the database has no such request).
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	private String getSumsUpsertRequest() throws SQLException {
+		String dbName = tx().getMetaData().getDatabaseProductName().toLowerCase();
+		if (dbName.contains("hsql")) { //$NON-NLS-1$
+			return "merge into CONTRIBUTION_SUMS using (values (cast(? as integer), cast(? as integer)," //$NON-NLS-1$
+					+ " cast(? as integer), cast(? as bigint), cast(? as integer)))" //$NON-NLS-1$
+					+ " as delta (tsk, mth, dy, sm, cnt)" //$NON-NLS-1$
+					+ " on csm_task=delta.tsk and csm_month=delta.mth and csm_day=delta.dy" //$NON-NLS-1$
+					+ " when matched then update set csm_sum=csm_sum+delta.sm, csm_count=csm_count+delta.cnt" //$NON-NLS-1$
+					+ " when not matched then insert values (delta.tsk, delta.mth, delta.dy, delta.sm, delta.cnt)"; //$NON-NLS-1$
+		} else if (dbName.contains("h2")) { //$NON-NLS-1$
+			return null;
+		} else {
+			return "insert into CONTRIBUTION_SUMS (csm_task, csm_month, csm_day, csm_sum, csm_count) values (?, ?, ?, ?, ?)" //$NON-NLS-1$
+					+ " on duplicate key update csm_sum=csm_sum+values(csm_sum), csm_count=csm_count+values(csm_count)"; //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public int rebuildTasksSums() throws DAOException {
+		String select = "select tcl_ancestor, ctb_year*100+ctb_month, %s, sum(ctb_duration), count(ctb_duration)" //$NON-NLS-1$
+				+ " from CONTRIBUTION join TASK_CLOSURE on tcl_descendant=ctb_task" //$NON-NLS-1$
+				+ " group by tcl_ancestor, ctb_year, ctb_month%s"; //$NON-NLS-1$
+		String insert = "insert into CONTRIBUTION_SUMS (csm_task, csm_month, csm_day, csm_sum, csm_count) "; //$NON-NLS-1$
+		try (Statement stmt = tx().createStatement()) {
+			stmt.executeUpdate("delete from CONTRIBUTION_SUMS"); //$NON-NLS-1$
+			// Month entries
+			int count = stmt.executeUpdate(insert + String.format(select, "0", "")); //$NON-NLS-1$ //$NON-NLS-2$
+			// Day entries
+			count += stmt.executeUpdate(insert + String.format(select, "ctb_day", ", ctb_day")); //$NON-NLS-1$ //$NON-NLS-2$
+			return count;
+		} catch (SQLException e) {
+			return critical(e, "TASK_SUMS_UPDATE_FAILURE"); //$NON-NLS-1$
+		}
+	}
+
 	/**
 	 * Builds a request that selects contributions using a given task,
 	 * contributor and date interval.
@@ -151,17 +527,15 @@ public class ContributionDAOImpl extends AbstractORMDAOImpl<Contribution> implem
 	 *            a parent task of the contributions tasks.
 	 * @param contributor
 	 *            the contributor.
-	 * @param fromDate
-	 *            start date of the interval.
-	 * @param toDate
-	 *            end date of the interval.
+	 * @param interval
+	 *            the date interval.
 	 * @param fieldsToSelect
 	 *            fields to select.
 	 * @return
 	 * @throws SQLException
 	 */
 	private PreparedStatement buildContributionsRequest(Task task,
-			Collaborator contributor, Calendar fromDate, Calendar toDate,
+			Collaborator contributor, IntervalRequestHelper interval,
 			String fieldsToSelect, String orderBy) throws SQLException {
 		// Préparation de la requête
 		StringBuilder request = new StringBuilder("select ")
@@ -170,15 +544,15 @@ public class ContributionDAOImpl extends AbstractORMDAOImpl<Contribution> implem
 		if (task != null) {
 			request.append(", TASK");
 		}
-		return buildIntervalRequest(request, contributor, task, fromDate,
-				toDate, true, orderBy);
+		return buildIntervalRequest(request, contributor, task, interval,
+				true, orderBy);
 	}
 
 
 	@Override
 	public Collection<Integer> getContributionYears() {
 		String query = "select distinct(ctb_year) as year from CONTRIBUTION order by year";
-		try(PreparedStatement pStmt = tx().prepareStatement(query)) {
+		try(PreparedStatement pStmt = prepareStatement(query)) {
 
 			// Exécution de le requête et extraction du résultat
 			ResultSet rs = pStmt.executeQuery();
@@ -198,47 +572,33 @@ public class ContributionDAOImpl extends AbstractORMDAOImpl<Contribution> implem
 	@Override
 	public Calendar[] getContributionsInterval(String taskPath) {
 		boolean filterByTaskPath = taskPath != null && !"".equals(taskPath);
-		// Build the SQL request
-		String query = "select count(*), " //$NON-NLS-1$
-				+ " min(ctb_year*10000+ctb_month*100+ctb_day)," //$NON-NLS-1$
-				+ " max(ctb_year*10000+ctb_month*100+ctb_day)" //$NON-NLS-1$
-				+ " from CONTRIBUTION"; //$NON-NLS-1$
-		if (filterByTaskPath) {
-			query += " join TASK on ctb_task=tsk_id where tsk_path like ? or concat(tsk_path, tsk_number)=?";
-		}
-		
+		// The bounds are read in the days sums of the task (or of the root
+		// tasks) instead of scanning the contributions
+		String query = "select min(csm_month*100+csm_day), max(csm_month*100+csm_day)" //$NON-NLS-1$
+				+ " from CONTRIBUTION_SUMS join TASK on csm_task=tsk_id" //$NON-NLS-1$
+				+ " where csm_day>0 and " //$NON-NLS-1$
+				+ (filterByTaskPath ? "concat(tsk_path, tsk_number)=?" : "tsk_path=''"); //$NON-NLS-1$ //$NON-NLS-2$
 
-		try(PreparedStatement pStmt = tx().prepareStatement(query)) {
-			SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
-			
+		try(PreparedStatement pStmt = prepareStatement(query)) {
 			if (filterByTaskPath) {
-				pStmt.setString(1, taskPath + '%');
-				pStmt.setString(2, taskPath);
+				pStmt.setString(1, taskPath);
 			}
 			// Exécution de le requête et extraction du résultat
 			Calendar[] result = null;
 			ResultSet rs = pStmt.executeQuery();
 			if (rs.next()) {
-				int contributionsCount = rs.getInt(1);
+				int min = rs.getInt(1);
 				// If there is no contribution, simply return null
-				if (contributionsCount > 0) {
-					
-					// Else parse the result
+				if (!rs.wasNull()) {
 					result = new Calendar[2];
-					
-					
-					result[0] = new GregorianCalendar();
-					result[0].setTime(sdf.parse(rs.getString(2)));
-	
-					result[1] = new GregorianCalendar();
-					result[1].setTime(sdf.parse(rs.getString(3)));
+					result[0] = DateHelper.fromDateKey(min);
+					result[1] = DateHelper.fromDateKey(rs.getInt(2));
 				}
 			}
 
-
 			// Retour du résultat
 			return result;
-		} catch (SQLException | ParseException e) {
+		} catch (SQLException e) {
 			return critical(e);
 		}
 	}
@@ -0,0 +1,404 @@
+package org.activitymgr.core.impl.dao;
+
+import java.io.StringWriter;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.activitymgr.core.dao.DAOException;
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.dto.Task;
+import org.activitymgr.core.dto.misc.TaskSums;
+import org.activitymgr.core.dto.report.Report;
+import org.activitymgr.core.dto.report.ReportIntervalType;
+import org.activitymgr.core.orm.query.InStatement;
+import org.activitymgr.core.util.DateHelper;
+import org.activitymgr.core.util.EpochDays;
+import org.activitymgr.core.util.Strings;
+import org.apache.log4j.Logger;
+
+/**
+ * In memory report engine.
+ * <p>
+ * Unlike {@link ReportDAOImpl}, the database is only asked for the report
+ * tasks, the contributors and the raw contributions of the report interval
+ * (without any join on the task tree, nor <code>group by</code> or
+ * <code>order by</code> clause). The contributions are loaded once into
+ * primitive columns (activity index, contributor index, epoch day,
+ * duration), then aggregated with a hash table. As the tasks and the
+ * contributors are loaded in the report order, the report items are ordered
+ * by sorting the (few) aggregated keys only.
+ * </p>
+ * <p>
+ * The produced reports are the same as those produced by the SQL engine.
+ * </p>
+ */
+public class InMemoryReportDAOImpl extends ReportDAOImpl {
+
+	/** Logger */
+	private static Logger log = Logger.getLogger(InMemoryReportDAOImpl.class);
+
+	@Override
+	public Report buildReport(Calendar start, ReportIntervalType intervalType,
+			int intervalCount, Task rootTask, int taskDepth,
+			boolean onlyKeepTasksWithContributions, boolean byContributor,
+			boolean contributorCentricMode, long[] contributorIds,
+			String[] orderContributorsBy) {
+		long startTime = System.currentTimeMillis();
+		try {
+			/*
+			 * Retrieve task tree (activity tasks are indexed by their
+			 * position in the report)
+			 */
+			String rootPath = rootTask != null ? rootTask.getFullPath() : ""; //$NON-NLS-1$
+			int activityPathLength = taskDepth*2 + rootPath.length();
+			boolean byActivity = (taskDepth > 0);
+			List<TaskSums> orderedTasks = loadReportTasks(rootTask, taskDepth,
+					new HashMap<Long, Integer>());
+			LongIntMap activityIndexes = byActivity ? loadActivityIndexes(
+					rootTask, orderedTasks, activityPathLength) : null;
+			int activitiesCount = Math.max(1, orderedTasks.size());
+
+			/*
+			 * Retrieve contributors (indexed by their position in the report)
+			 */
+			Collaborator[] contributors = null;
+			LongIntMap contributorIndexes = null;
+			if (byContributor) {
+				contributors = loadContributors(contributorIds, orderContributorsBy);
+				contributorIndexes = new LongIntMap(contributors.length);
+				for (int i = 0; i < contributors.length; i++) {
+					contributorIndexes.put(contributors[i].getId(), i);
+				}
+			}
+			int contributorsCount = byContributor ? Math.max(1, contributors.length) : 1;
+
+			/*
+			 * Interval computation (interval index of each day of the report)
+			 */
+			Calendar end = (Calendar) start.clone();
+			end.add(intervalType.getIntType(), intervalCount);
+			end.add(Calendar.DATE, -1);
+			LocalDate startDay = LocalDate.of(start.get(Calendar.YEAR),
+					start.get(Calendar.MONTH) + 1, start.get(Calendar.DATE));
+			LocalDate endDay = LocalDate.of(end.get(Calendar.YEAR),
+					end.get(Calendar.MONTH) + 1, end.get(Calendar.DATE));
+			long startEpochDay = startDay.toEpochDay();
+			int[] intervalIndexes = new int[(int) (endDay.toEpochDay() - startEpochDay) + 1];
+			LocalDate day = startDay;
+			for (int i = 0; i < intervalIndexes.length; i++) {
+				switch (intervalType) {
+				case DAY:
+					intervalIndexes[i] = i;
+					break;
+				case WEEK:
+					intervalIndexes[i] = i / 7;
+					break;
+				case MONTH:
+					intervalIndexes[i] = (day.getYear() - startDay.getYear()) * 12
+							+ day.getMonthValue() - startDay.getMonthValue();
+					break;
+				case YEAR:
+					intervalIndexes[i] = day.getYear() - startDay.getYear();
+				}
+				day = day.plusDays(1);
+			}
+
+			/*
+			 * Load contributions into columns
+			 */
+			IntColumn activityColumn = new IntColumn();
+			IntColumn contributorColumn = new IntColumn();
+			IntColumn dayColumn = new IntColumn();
+			IntColumn durationColumn = new IntColumn();
+			StringWriter sw = new StringWriter();
+			sw.append("select ctb_task, ctb_contributor, ctb_date_key, ctb_duration from CONTRIBUTION"); //$NON-NLS-1$
+			if (rootTask != null) {
+				sw.append(" join TASK_CLOSURE roottcl on (roottcl.tcl_descendant=ctb_task and roottcl.tcl_ancestor=?)"); //$NON-NLS-1$
+			}
+			sw.append(" where ctb_date_key between ? and ?"); //$NON-NLS-1$
+			if (contributorIds != null && contributorIds.length > 0) {
+				sw.append(" and ctb_contributor in ("); //$NON-NLS-1$
+				for (int i=0; i<contributorIds.length; i++) {
+					sw.append(i > 0 ? ", ?" : "?"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				sw.append(")"); //$NON-NLS-1$
+			}
+			try (PreparedStatement pStmt = prepareStreamingStatement(sw.toString())) {
+				int idx = 1;
+				if (rootTask != null) {
+					pStmt.setLong(idx++, rootTask.getId());
+				}
+				pStmt.setInt(idx++, DateHelper.toDateKey(start));
+				pStmt.setInt(idx++, DateHelper.toDateKey(end));
+				if (contributorIds != null) {
+					for (long contributorId : contributorIds) {
+						pStmt.setLong(idx++, contributorId);
+					}
+				}
+				ResultSet rs = pStmt.executeQuery();
+				while (rs.next()) {
+					int activityIdx = byActivity ? activityIndexes.get(rs.getLong(1)) : 0;
+					int contributorIdx = byContributor ? contributorIndexes.get(rs.getLong(2)) : 0;
+					if (activityIdx >= 0 && contributorIdx >= 0) {
+						int dateKey = rs.getInt(3);
+						activityColumn.add(activityIdx);
+						contributorColumn.add(contributorIdx);
+						dayColumn.add((int) (EpochDays.ofDateKey(dateKey) - startEpochDay));
+						durationColumn.add(rs.getInt(4));
+					}
+				}
+			}
+
+			/*
+			 * Aggregation (one slot per activity / contributor couple)
+			 */
+			LongIntMap slots = new LongIntMap(64);
+			long[] sums = new long[64 * intervalCount];
+			int slotsCount = 0;
+			for (int i = 0; i < activityColumn.size; i++) {
+				long key = (long) activityColumn.values[i] * contributorsCount
+						+ contributorColumn.values[i];
+				int slot = slots.get(key);
+				if (slot < 0) {
+					slot = slotsCount++;
+					slots.put(key, slot);
+					if (slotsCount * intervalCount > sums.length) {
+						sums = Arrays.copyOf(sums, sums.length * 2);
+					}
+				}
+				sums[slot * intervalCount + intervalIndexes[dayColumn.values[i]]] += durationColumn.values[i];
+			}
+
+			/*
+			 * Sort the aggregated keys in the report order (order key in the
+			 * high bits, slot in the low ones)
+			 */
+			boolean contributorFirst = byContributor && byActivity && contributorCentricMode;
+			long[] orderedSlots = new long[slotsCount];
+			int n = 0;
+			for (int i = 0; i < slots.keys.length; i++) {
+				if (slots.values[i] >= 0) {
+					long key = slots.keys[i];
+					long activityIdx = key / contributorsCount;
+					long contributorIdx = key % contributorsCount;
+					long orderKey = contributorFirst
+							? contributorIdx * activitiesCount + activityIdx
+							: key;
+					orderedSlots[n++] = (orderKey << 32) | slots.values[i];
+				}
+			}
+			Arrays.sort(orderedSlots);
+
+			/*
+			 * Report build
+			 */
+			Report report = new Report(start, intervalType, intervalCount, rootTask, taskDepth, byContributor, contributorCentricMode);
+			addReportTasks(report, rootPath, orderedTasks);
+			// In task centric mode (or without contributors which is equivalent),
+			// rows without contributions are inserted for leaf tasks
+			boolean addEmptyRows = !onlyKeepTasksWithContributions
+					&& byActivity && (!contributorCentricMode || !byContributor);
+			int cursor = 0;
+			// Like the SQL engine, if no contribution is found, the first
+			// task is skipped
+			int taskIdx = orderedSlots.length == 0 ? 1 : 0;
+			while (cursor < orderedSlots.length || (addEmptyRows && taskIdx < orderedTasks.size())) {
+				long orderKey = cursor < orderedSlots.length ? orderedSlots[cursor] >>> 32 : -1;
+				int activityIdx = (int) (contributorFirst ? orderKey % activitiesCount : orderKey / contributorsCount);
+				if (addEmptyRows && (cursor == orderedSlots.length || taskIdx < activityIdx)) {
+					if (orderedTasks.get(taskIdx).isLeaf()) {
+						report.addRow(null, taskIdx);
+					}
+					taskIdx++;
+					continue;
+				}
+				int contributorIdx = (int) (contributorFirst ? orderKey / activitiesCount : orderKey % contributorsCount);
+				Collaborator contributor = byContributor ? contributors[contributorIdx] : null;
+				int rowIdx = report.addRow(contributor, byActivity ? activityIdx : -1);
+				int offset = (int) orderedSlots[cursor] * intervalCount;
+				for (int i = 0; i < intervalCount; i++) {
+					if (sums[offset + i] != 0) {
+						report.addToContributionSum(rowIdx, i, sums[offset + i]);
+					}
+				}
+				cursor++;
+				taskIdx = activityIdx + 1;
+			}
+			log.debug("Report built in memory in " + (System.currentTimeMillis() - startTime) + " ms (" //$NON-NLS-1$ //$NON-NLS-2$
+					+ activityColumn.size + " contributions, " + slotsCount + " items)"); //$NON-NLS-1$ //$NON-NLS-2$
+			return report;
+
+		} catch (SQLException e) {
+			log.info("Unexpected SQL error", e); //$NON-NLS-1$
+			throw new DAOException(
+					Strings.getString("Unexpected SQL error"), e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Computes the activity index (i.e. the index in the ordered report tasks
+	 * list) of all the tasks of the report.
+	 *
+	 * @param rootTask
+	 *            the report root task (optional).
+	 * @param orderedTasks
+	 *            the ordered report tasks.
+	 * @param activityPathLength
+	 *            the full path length of the activity tasks.
+	 * @return the activity indexes by task identifier.
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	private LongIntMap loadActivityIndexes(Task rootTask,
+			List<TaskSums> orderedTasks, int activityPathLength)
+			throws SQLException {
+		Map<String, Integer> activityIndexesByFullPath = new HashMap<String, Integer>();
+		for (int i = 0; i < orderedTasks.size(); i++) {
+			activityIndexesByFullPath.put(orderedTasks.get(i).getTask().getFullPath(), i);
+		}
+		LongIntMap activityIndexes = new LongIntMap(orderedTasks.size());
+		String request = "select tsk_id, tsk_path, tsk_number from TASK"; //$NON-NLS-1$
+		if (rootTask != null) {
+			request += " join TASK_CLOSURE roottcl on (roottcl.tcl_descendant=tsk_id and roottcl.tcl_ancestor=?)"; //$NON-NLS-1$
+		}
+		try (PreparedStatement pStmt = prepareStreamingStatement(request)) {
+			if (rootTask != null) {
+				pStmt.setLong(1, rootTask.getId());
+			}
+			ResultSet rs = pStmt.executeQuery();
+			while (rs.next()) {
+				// Tasks that are deeper than the activity tasks are
+				// associated to their activity ancestor
+				String fullPath = rs.getString(2) + rs.getString(3);
+				Integer activityIdx = activityIndexesByFullPath.get(
+						fullPath.length() > activityPathLength
+								? fullPath.substring(0, activityPathLength)
+								: fullPath);
+				if (activityIdx != null) {
+					activityIndexes.put(rs.getLong(1), activityIdx);
+				}
+			}
+		}
+		return activityIndexes;
+	}
+
+	/**
+	 * Loads the report contributors in the report order.
+	 *
+	 * @param contributorIds
+	 *            contributor identifiers (optional).
+	 * @param orderContributorsBy
+	 *            fields to use to order contributors (optional).
+	 * @return the ordered contributors.
+	 */
+	private Collaborator[] loadContributors(long[] contributorIds,
+			String[] orderContributorsBy) {
+		Object[] orderBy = orderContributorsBy != null
+				&& orderContributorsBy.length > 0 ? orderContributorsBy
+				: new Object[] { "id" }; //$NON-NLS-1$
+		if (contributorIds != null && contributorIds.length > 0) {
+			Object[] ids = new Object[contributorIds.length];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = contributorIds[i];
+			}
+			return collaboratorDAO.select(new String[] { "id" }, //$NON-NLS-1$
+					new Object[] { new InStatement(ids) }, orderBy, -1);
+		} else {
+			return collaboratorDAO.select(null, null, orderBy, -1);
+		}
+	}
+
+	/**
+	 * Growable <code>int</code> column.
+	 */
+	private static class IntColumn {
+
+		private int[] values = new int[1024];
+
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+	}
+
+	/**
+	 * Open addressing <code>long</code> to (positive) <code>int</code> hash
+	 * map.
+	 */
+	private static class LongIntMap {
+
+		private long[] keys;
+
+		private int[] values;
+
+		private int size;
+
+		LongIntMap(int expectedSize) {
+			int capacity = 16;
+			while (capacity < expectedSize * 2) {
+				capacity <<= 1;
+			}
+			keys = new long[capacity];
+			values = new int[capacity];
+			Arrays.fill(values, -1);
+		}
+
+		/**
+		 * @return the value associated to the key or <code>-1</code>.
+		 */
+		int get(long key) {
+			int mask = keys.length - 1;
+			for (int i = hash(key) & mask; values[i] >= 0; i = (i + 1) & mask) {
+				if (keys[i] == key) {
+					return values[i];
+				}
+			}
+			return -1;
+		}
+
+		void put(long key, int value) {
+			if ((size + 1) * 2 > keys.length) {
+				long[] oldKeys = keys;
+				int[] oldValues = values;
+				keys = new long[oldKeys.length * 2];
+				values = new int[oldKeys.length * 2];
+				Arrays.fill(values, -1);
+				size = 0;
+				for (int i = 0; i < oldKeys.length; i++) {
+					if (oldValues[i] >= 0) {
+						put(oldKeys[i], oldValues[i]);
+					}
+				}
+			}
+			int mask = keys.length - 1;
+			int i = hash(key) & mask;
+			while (values[i] >= 0 && keys[i] != key) {
+				i = (i + 1) & mask;
+			}
+			if (values[i] < 0) {
+				size++;
+			}
+			keys[i] = key;
+			values[i] = value;
+		}
+
+		private static int hash(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+
+	}
+
+}
@@ -1,16 +1,33 @@
 package org.activitymgr.core.impl.dao;
 
 import java.io.StringWriter;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
 
 import org.activitymgr.core.dao.AbstractDAOImpl;
+import org.activitymgr.core.dao.CoreDAOModule;
 import org.activitymgr.core.dao.DAOException;
 import org.activitymgr.core.dao.ICollaboratorDAO;
 import org.activitymgr.core.dao.IReportDAO;
@@ -20,12 +37,14 @@ import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.dto.misc.TaskSums;
 import org.activitymgr.core.dto.report.Report;
 import org.activitymgr.core.dto.report.ReportIntervalType;
-import org.activitymgr.core.dto.report.ReportItem;
+import org.activitymgr.core.dto.report.ReportStatistics;
 import org.activitymgr.core.util.DateHelper;
+import org.activitymgr.core.util.EpochDays;
 import org.activitymgr.core.util.Strings;
 import org.apache.log4j.Logger;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 public class ReportDAOImpl extends AbstractDAOImpl implements IReportDAO {
 
@@ -33,10 +52,29 @@ public class ReportDAOImpl extends AbstractDAOImpl implements IReportDAO {
 	private static Logger log = Logger.getLogger(ReportDAOImpl.class);
 	
 	@Inject
-	private ITaskDAO taskDAO;
+	protected ITaskDAO taskDAO;
 	
 	@Inject
-	private ICollaboratorDAO collaboratorDAO;
+	protected ICollaboratorDAO collaboratorDAO;
+
+	/**
+	 * Report parallelism (<code>1</code> means that the reports are built
+	 * with a single request).
+	 */
+	@Inject(optional = true)
+	@Named(CoreDAOModule.REPORT_PARALLELISM)
+	private int parallelism = 1;
+
+	/**
+	 * Data source giving the connections used by the parallel mode (the
+	 * parallel mode is disabled if no data source is bound).
+	 */
+	@Inject(optional = true)
+	@Named(CoreDAOModule.REPORT_DATA_SOURCE)
+	private DataSource dataSource;
+
+	/** Time given to the partitions to stop once the report is built (s) */
+	private static final int PARTITIONS_TERMINATION_TIMEOUT = 10;
 	
 
 	@Override
@@ -45,111 +83,357 @@ public class ReportDAOImpl extends AbstractDAOImpl implements IReportDAO {
 			boolean onlyKeepTasksWithContributions, boolean byContributor,
 			boolean contributorCentricMode, long[] contributorIds,
 			String[] orderContributorsBy) {		
-		
-		/*
-		 * Retrieve contributors
-		 */
-		PreparedStatement pStmt = null;
-		ResultSet rs = null;
 		try {
 			/*
 			 * Retrieve task tree
 			 */
 			String rootPath = rootTask != null ? rootTask.getFullPath() : "";
-			int activityPathLength = taskDepth*2 + (rootPath != null ? rootPath.length() : 0);
-			Map<Long, TaskSums> tasksByIdCache = new HashMap<Long, TaskSums>();
-			Map<String, TaskSums> tasksByFullPathCache = new HashMap<String, TaskSums>();
-			List<TaskSums> orderedTasks = new ArrayList<TaskSums>();
-			// Register sub tasks
-			if (taskDepth > 0) {
-				StringWriter request = new StringWriter()
-					.append("select ")
-					.append("sum(leaftask.tsk_budget), sum(leaftask.tsk_initial_cons), sum(leaftask.tsk_todo), (count(leaftask.tsk_id)-1), ")
-					.append(taskDAO.getColumnNamesRequestFragment("activitytask"))
-					.append(" from TASK activitytask, TASK leaftask ")
-					.append("where ")
-					.append("(leaftask.tsk_id=activitytask.tsk_id or leaftask.tsk_path like concat(activitytask.tsk_path, activitytask.tsk_number, '%')) ");
-				if (rootPath != null) {
-					request.append("and concat(activitytask.tsk_path, activitytask.tsk_number) like ? ");
+			Map<Long, Integer> taskIndexesById = new HashMap<Long, Integer>();
+			List<TaskSums> orderedTasks = loadReportTasks(rootTask, taskDepth,
+					taskIndexesById);
+	
+			/*
+			 * Retrieve contributions
+			 */
+			boolean byActivity = (taskDepth > 0);
+			ReportRequest request = new ReportRequest(start, intervalType,
+					intervalCount, rootPath, taskDepth, byContributor,
+					contributorCentricMode, contributorIds,
+					orderContributorsBy, taskIndexesById);
+			Report report = new Report(start, intervalType, intervalCount, rootTask, taskDepth, byContributor, contributorCentricMode);
+			addReportTasks(report, rootPath, orderedTasks);
+			ReportAssembler assembler = new ReportAssembler(report,
+					byActivity, byContributor, contributorCentricMode,
+					onlyKeepTasksWithContributions);
+			List<TaskSums> partitions = getPartitions(rootPath, orderedTasks,
+					byActivity, byContributor, contributorCentricMode);
+			if (partitions.size() <= 1
+					|| !buildPartitions(request, partitions, assembler)) {
+				// Exécution de la requête (rows are streamed)
+				try (PreparedStatement pStmt = request.prepare(tx(),
+						rootTask != null ? rootTask.getId() : null)) {
+					ResultSet rs = pStmt.executeQuery();
+					Map<Long, Collaborator> collaboratorsMap = new HashMap<Long, Collaborator>();
+					// The row is reused as it is not retained by the assembler
+					ReportRow row = new ReportRow();
+					while (rs.next()) {
+						assembler.add(request.read(rs, collaboratorsMap, row));
+					}
 				}
-				request.append("and length(activitytask.tsk_path)<=? ")
-					.append("group by activitytask.tsk_id ");
-				request.append("order by ");
-				// This helps to ensure parent tasks will be sorted before children tasks
-				appendOrderByTaskPathFragment(request, "activitytask", taskDepth);
-				pStmt = tx().prepareStatement(request.toString());
-				int paramIdx = 1;
-				if (rootPath != null) {
-					pStmt.setString(paramIdx++, rootPath + "%");
+			}
+			assembler.finish();
+			return report;
+
+		} catch (SQLException e) {
+			log.info("Unexpected SQL error", e); //$NON-NLS-1$
+			throw new DAOException(
+					Strings.getString("Unexpected SQL error"), e); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public ReportStatistics getStatistics() {
+		ReportStatistics statistics = new ReportStatistics();
+		try {
+			try (PreparedStatement pStmt = prepareStatement("select count(*), min(ctb_date_key), max(ctb_date_key) from CONTRIBUTION")) { //$NON-NLS-1$
+				ResultSet rs = pStmt.executeQuery();
+				if (rs.next()) {
+					statistics.setContributionsCount(rs.getLong(1));
+					statistics.setFirstDateKey(rs.getInt(2));
+					statistics.setLastDateKey(rs.getInt(3));
 				}
-				
-				pStmt.setInt(paramIdx++, activityPathLength-2);
-				rs = pStmt.executeQuery();
-				
+			}
+			try (PreparedStatement pStmt = prepareStatement("select count(*) from COLLABORATOR")) { //$NON-NLS-1$
+				ResultSet rs = pStmt.executeQuery();
+				if (rs.next()) {
+					statistics.setCollaboratorsCount(rs.getLong(1));
+				}
+			}
+			// Tasks count by depth (a task path holds 2 characters by level)
+			try (PreparedStatement pStmt = prepareStatement("select length(tsk_path), count(*) from TASK group by length(tsk_path)")) { //$NON-NLS-1$
+				ResultSet rs = pStmt.executeQuery();
+				long[] tasksCountByDepth = new long[0];
 				while (rs.next()) {
-					TaskSums sums = new TaskSums();
-					sums.setBudgetSum(rs.getLong(1));
-					sums.setInitiallyConsumedSum(rs.getLong(2));
-					sums.setTodoSum(rs.getLong(3));
-					Task task = taskDAO.read(rs, 5);
-					boolean isActivityTask = task.getFullPath().length() == activityPathLength;
-					boolean hasNoChild = rs.getLong(4) == 0;
-					// Task without any child or activity task are considered leaf
-					sums.setLeaf(hasNoChild || isActivityTask);
-					sums.setTask(task);
-					tasksByIdCache.put(task.getId(), sums);
-					tasksByFullPathCache.put(task.getFullPath(), sums);
-					orderedTasks.add(sums);
-					//System.out.println(sums.getTask().getFullPath() + " - " + sums.getTask().getName() + " - " + sums.getBudgetSum() + " - leaf : " + sums.isLeaf());
+					int depth = rs.getInt(1) / 2 + 1;
+					if (depth > tasksCountByDepth.length) {
+						tasksCountByDepth = Arrays.copyOf(tasksCountByDepth, depth);
+					}
+					tasksCountByDepth[depth - 1] = rs.getLong(2);
 				}
-				// Close the statement
-				pStmt.close();
-				pStmt = null;
+				statistics.setTasksCountByDepth(tasksCountByDepth);
 			}
-	
+			return statistics;
+		} catch (SQLException e) {
+			log.info("Unexpected SQL error", e); //$NON-NLS-1$
+			throw new DAOException(
+					Strings.getString("Unexpected SQL error"), e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns the partitions that can be computed concurrently : the sub
+	 * trees of the report root task (or the root tasks).
+	 * <p>
+	 * Partitions are only used if the parallel mode is enabled, if the merged
+	 * partitions order matches the report order (the report rows must be
+	 * sorted by task first) and if the current transaction is read only (the
+	 * partitions connections would not see its uncommitted modifications).
+	 * </p>
+	 * 
+	 * @return the partitions in the report order (empty if the report must
+	 *         be computed with a single request).
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	private List<TaskSums> getPartitions(String rootPath,
+			List<TaskSums> orderedTasks, boolean byActivity,
+			boolean byContributor, boolean contributorCentricMode)
+			throws SQLException {
+		List<TaskSums> partitions = new ArrayList<TaskSums>();
+		if (parallelism > 1 && dataSource != null && byActivity
+				&& (!byContributor || !contributorCentricMode)
+				&& tx().isReadOnly()) {
+			for (TaskSums task : orderedTasks) {
+				if (task.getTask().getFullPath().length() == rootPath.length() + 2) {
+					partitions.add(task);
+				}
+			}
+		}
+		return partitions;
+	}
+
+	/**
+	 * Computes the partitions concurrently, each one with its own connection.
+	 * <p>
+	 * The connections are acquired by the current thread (so that they may
+	 * be tracked like the current transaction, to cancel their statements for
+	 * instance) without waiting longer than the data source allows. The
+	 * partitions are merged in order as soon as they are available. As the
+	 * current transaction is read only, only the committed contributions are
+	 * visible from both the current transaction and the partitions
+	 * connections.
+	 * </p>
+	 * 
+	 * @return <code>false</code> if no connection was available (the report
+	 *         must then be computed with a single request).
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	private boolean buildPartitions(ReportRequest request,
+			List<TaskSums> partitions, ReportAssembler assembler)
+			throws SQLException {
+		List<Connection> connections = acquireConnections(Math.min(
+				parallelism, partitions.size()));
+		if (connections.isEmpty()) {
+			return false;
+		}
+		BlockingQueue<Connection> available = new LinkedBlockingQueue<Connection>(connections);
+		Set<Statement> statements = Collections.synchronizedSet(Collections
+				.newSetFromMap(new IdentityHashMap<Statement, Boolean>()));
+		ExecutorService executor = newExecutor(connections.size());
+		List<Future<List<ReportRow>>> futures = new ArrayList<Future<List<ReportRow>>>();
+		try {
+			for (TaskSums partition : partitions) {
+				long partitionId = partition.getTask().getId();
+				futures.add(executor.submit(() -> {
+					Connection con = available.take();
+					try (PreparedStatement pStmt = request.prepare(con, partitionId)) {
+						statements.add(pStmt);
+						List<ReportRow> rows = new ArrayList<ReportRow>();
+						ResultSet rs = pStmt.executeQuery();
+						Map<Long, Collaborator> collaboratorsMap = new HashMap<Long, Collaborator>();
+						while (rs.next()) {
+							rows.add(request.read(rs, collaboratorsMap, new ReportRow()));
+						}
+						return rows;
+					} finally {
+						available.add(con);
+					}
+				}));
+			}
+			for (Future<List<ReportRow>> future : futures) {
+				for (ReportRow row : future.get()) {
+					assembler.add(row);
+				}
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DAOException("Report build interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			throw new DAOException(cause.getMessage(), cause);
+		} finally {
+			// Stop the remaining partitions (if the report build failed)
+			for (Future<List<ReportRow>> future : futures) {
+				future.cancel(true);
+			}
+			cancel(statements);
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(PARTITIONS_TERMINATION_TIMEOUT, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			release(connections);
+		}
+	}
+
+	/**
+	 * Acquires the partitions connections.
+	 * 
+	 * @param count
+	 *            the wanted connections count.
+	 * @return the acquired connections (possibly less than requested if the
+	 *         data source has no more available connection).
+	 */
+	private List<Connection> acquireConnections(int count) {
+		List<Connection> connections = new ArrayList<Connection>(count);
+		try {
+			while (connections.size() < count) {
+				connections.add(dataSource.getConnection());
+			}
+		} catch (SQLException e) {
+			log.debug("No more connection available for the report partitions", e); //$NON-NLS-1$
+		}
+		return connections;
+	}
+
+	private static void cancel(Set<Statement> statements) {
+		List<Statement> toCancel;
+		synchronized (statements) {
+			toCancel = new ArrayList<Statement>(statements);
+		}
+		for (Statement stmt : toCancel) {
+			try {
+				if (!stmt.isClosed()) {
+					stmt.cancel();
+				}
+			} catch (SQLException e) {
+				log.debug("Statement cancellation failure", e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private static void release(List<Connection> connections) {
+		for (Connection con : connections) {
+			try {
+				// Read only
+				if (!con.getAutoCommit()) {
+					con.rollback();
+				}
+				con.close();
+			} catch (SQLException e) {
+				log.debug("Connection release failure", e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private static ExecutorService newExecutor(int threads) {
+		AtomicInteger counter = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "report-partition-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Contributions request.
+	 */
+	private class ReportRequest {
+		
+		private final int startDay;
+		private final ReportIntervalType intervalType;
+		private final int taskDepth;
+		private final boolean byContributor;
+		private final boolean contributorCentricMode;
+		private final long[] contributorIds;
+		private final String[] orderContributorsBy;
+		private final Map<Long, Integer> taskIndexesById;
+		private final int activityPathLength;
+		private final int startYear;
+		private final int startMonth;
+		private final int startDate;
+		private final int endDate;
+		private final int collaboratorFieldsIndex;
+
+		ReportRequest(Calendar start, ReportIntervalType intervalType,
+				int intervalCount, String rootPath, int taskDepth,
+				boolean byContributor, boolean contributorCentricMode,
+				long[] contributorIds, String[] orderContributorsBy,
+				Map<Long, Integer> taskIndexesById) {
+			this.startDay = EpochDays.of(start);
+			this.intervalType = intervalType;
+			this.taskDepth = taskDepth;
+			this.byContributor = byContributor;
+			this.contributorCentricMode = contributorCentricMode;
+			this.contributorIds = contributorIds;
+			this.orderContributorsBy = orderContributorsBy;
+			this.taskIndexesById = taskIndexesById;
+			this.activityPathLength = taskDepth*2 + rootPath.length();
+
 			/*
 			 * Interval computation
 			 */
-			int startYear = start.get(Calendar.YEAR);
-			int startMonth = start.get(Calendar.MONTH) + 1;
-			int startDay = start.get(Calendar.DATE);
-			int startDate = startYear*10000+startMonth*100+startDay;
+			startYear = start.get(Calendar.YEAR);
+			startMonth = start.get(Calendar.MONTH) + 1;
+			startDate = DateHelper.toDateKey(start);
 			
 			Calendar end = (Calendar) start.clone();
 			end.add(intervalType.getIntType(), intervalCount);
 			end.add(Calendar.DATE, -1);
-			int endYear = end.get(Calendar.YEAR);
-			int endMonth = end.get(Calendar.MONTH) + 1;
-			int endDay = end.get(Calendar.DATE);
-			int endDate = endYear*10000+endMonth*100+endDay;
-		
-			/*
-			 * Retrieve contributions
-			 */
+			endDate = DateHelper.toDateKey(end);
+
+			// Collaborator fields follow the activity, the date fields and
+			// the sum
+			int idx = taskDepth > 0 ? 2 : 1;
+			switch (intervalType) {
+			case WEEK:
+			case DAY:
+				idx++;
+			case MONTH:
+				idx++;
+			case YEAR :
+				idx++;
+			}
+			collaboratorFieldsIndex = idx + 1;
+		}
+
+		/**
+		 * Prepares the request.
+		 * 
+		 * @param con
+		 *            the connection to use.
+		 * @param subTreeRootId
+		 *            the identifier of the task which sub tree must be
+		 *            included (optional).
+		 * @return the prepared statement.
+		 * @throws SQLException
+		 *             thrown if a SQL error occurs.
+		 */
+		PreparedStatement prepare(Connection con, Long subTreeRootId) throws SQLException {
 			boolean byActivity = (taskDepth > 0);
 			// Prepare the request
 			StringWriter sw = new StringWriter();
 			sw.append("select ");
-			int collaboratorFieldsIndex = 1;
-			// SELECT
+			// SELECT (the collaborator fields follow these columns)
 			if (byActivity) {
 				sw.append("activity.tsk_id, ");
-				collaboratorFieldsIndex++;
 			}
 			switch (intervalType) {
 			case WEEK:
 			case DAY:
 				sw.append("ctb_day, ");
-				collaboratorFieldsIndex++;
 			case MONTH:
 				sw.append("ctb_month, ");
-				collaboratorFieldsIndex++;
 			case YEAR :
 				sw.append("ctb_year, ");
-				collaboratorFieldsIndex++;
 			}
 			sw.append("sum(ctb_duration)");
-			collaboratorFieldsIndex++;
 			// Append contributor if needed
 			if (byContributor) {
 				sw.append(", ");
@@ -161,20 +445,21 @@ public class ReportDAOImpl extends AbstractDAOImpl implements IReportDAO {
 			}
 			
 			sw.append("\nfrom TASK as ctbtask ");
+			if (subTreeRootId != null) {
+				sw.append("\n\tjoin TASK_CLOSURE as roottcl on (roottcl.tcl_descendant = ctbtask.tsk_id and roottcl.tcl_ancestor = ?) ");
+			}
 			sw.append("\n\tleft join CONTRIBUTION on ctbtask.tsk_id = ctb_task ");
 			if (byContributor) {
 				sw.append("\n\tleft join COLLABORATOR on clb_id = ctb_contributor ");
 			}
 			if (byActivity) {
-				sw.append("\n\tleft join TASK as activity on (ctbtask.tsk_id=activity.tsk_id or left(ctbtask.tsk_path, ?) = concat(activity.tsk_path, activity.tsk_number)) ");
+				sw.append("\n\tleft join TASK_CLOSURE as activitytcl on activitytcl.tcl_descendant = ctbtask.tsk_id ");
+				sw.append("\n\tleft join TASK as activity on activity.tsk_id = activitytcl.tcl_ancestor ");
 			}
 
 			// WHERE
 			sw.append("\nwhere true ");
 			// Filter 
-			if (rootTask != null) {
-				sw.append("and (ctbtask.tsk_id=? or left(ctbtask.tsk_path, ?) = ?) ");
-			}
 			if (contributorIds != null && contributorIds.length > 0) {
 				sw.append("and ctb_contributor in (");
 				for (int i=0; i<contributorIds.length; i++) {
@@ -200,7 +485,7 @@ public class ReportDAOImpl extends AbstractDAOImpl implements IReportDAO {
 				}
 				sw.append(") ");
 			}
-			sw.append("and (ctb_year*10000+ctb_month*100+ctb_day) between ? and ?");
+			sw.append("and ctb_date_key between ? and ?");
 			// GROUP BY
 			sw.append("\ngroup by ctb_year");
 			if (byContributor) {
@@ -261,15 +546,10 @@ public class ReportDAOImpl extends AbstractDAOImpl implements IReportDAO {
 			//System.out.println(sql);
 			
 			// Build the request
-			pStmt = tx().prepareStatement(sql);
+			PreparedStatement pStmt = prepareStreamingStatement(con, sql);
 			int idx = 1;
-			if (byActivity) {
-				pStmt.setInt(idx++, activityPathLength);
-			}
-			if (rootTask != null) {
-				pStmt.setLong(idx++, rootTask.getId());
-				pStmt.setInt(idx++, rootPath.length());
-				pStmt.setString(idx++, rootPath);
+			if (subTreeRootId != null) {
+				pStmt.setLong(idx++, subTreeRootId);
 			}
 			if (contributorIds != null && contributorIds.length > 0) {
 				for (Long contributorId : contributorIds) {
@@ -280,148 +560,234 @@ public class ReportDAOImpl extends AbstractDAOImpl implements IReportDAO {
 				pStmt.setInt(idx++, activityPathLength-2);
 				pStmt.setInt(idx++, activityPathLength-2);
 			}
-			pStmt.setLong(idx++, startDate);
-			pStmt.setLong(idx++, endDate);
+			pStmt.setInt(idx++, startDate);
+			pStmt.setInt(idx++, endDate);
+			return pStmt;
+		}
 
-			// Exécution de la requête
-			int orderedTaskIndex = 0;
-			rs = pStmt.executeQuery();
-			Report report = new Report(start, intervalType, intervalCount, rootTask, taskDepth, byContributor, contributorCentricMode);
-			ReportItem reportItem = null;
-			Map<Long, Collaborator> collaboratorsMap = new HashMap<Long, Collaborator>();
-			while (rs.next()) {
-				Collaborator contributor = null;
-				TaskSums contributedTask = null;
-				idx = 1;
-				if (byActivity) {
-					long id = rs.getLong(idx++);
-					contributedTask = tasksByIdCache.get(id);
+		/**
+		 * Reads a request row.
+		 * 
+		 * @param rs
+		 *            the result set.
+		 * @param collaboratorsMap
+		 *            the already read collaborators.
+		 * @param row
+		 *            the row to fill.
+		 * @return the row.
+		 * @throws SQLException
+		 *             thrown if a SQL error occurs.
+		 */
+		ReportRow read(ResultSet rs, Map<Long, Collaborator> collaboratorsMap, ReportRow row) throws SQLException {
+			int idx = 1;
+			if (taskDepth > 0) {
+				long id = rs.getLong(idx++);
+				row.taskIdx = taskIndexesById.get(id);
+			}
+			if (byContributor) {
+				long id = rs.getLong(collaboratorFieldsIndex);
+				Collaborator contributor = collaboratorsMap.get(id);
+				if (contributor == null) {
+					contributor = collaboratorDAO.read(rs, collaboratorFieldsIndex);
+					collaboratorsMap.put(id, contributor);
 				}
-				if (byContributor) {
-					long id = rs.getLong(collaboratorFieldsIndex);
-					contributor = collaboratorsMap.get(id);
-					if (contributor == null) {
-						contributor = collaboratorDAO.read(rs, collaboratorFieldsIndex);
-						collaboratorsMap.put(id, contributor);
-					}
+				row.contributor = contributor;
+			}
+
+			// Read date
+			int year = 0;
+			int month = 1;
+			int day = 1;
+			switch (intervalType) {
+			case WEEK:
+			case DAY:
+				day = rs.getInt(idx++);
+			case MONTH:
+				month = rs.getInt(idx++);
+			case YEAR :
+				year = rs.getInt(idx++);
+			}
+			
+			// Compute index
+			switch (intervalType) {
+			case WEEK:
+			case DAY:
+				row.intervalIdx = EpochDays.of(year, month, day) - startDay;
+				if (intervalType == ReportIntervalType.WEEK) {
+					row.intervalIdx = row.intervalIdx/7;
 				}
-				// See whether a new item must be created
-				boolean newItem = false;
-				if (reportItem == null) {
-					newItem = true;
-				} else {
-					if (byActivity && !contributedTask.equals(reportItem.getContributedTask())) {
-						newItem = true;
-					}
-					if (byContributor && !reportItem.getContributor().equals(contributor)) {
-						newItem = true;
-					}
+				break;
+			case MONTH:
+				row.intervalIdx = (year-startYear)*12 + month - startMonth;
+				break;
+			case YEAR :
+				row.intervalIdx = year-startYear;
+			}
+			row.sum = rs.getLong(idx++);
+			return row;
+		}
+
+	}
+
+	/**
+	 * Contributions request row.
+	 */
+	private static class ReportRow {
+		private int taskIdx = -1;
+		private Collaborator contributor;
+		private int intervalIdx;
+		private long sum;
+	}
+
+	/**
+	 * Builds the report rows from the ordered request rows.
+	 */
+	private class ReportAssembler {
+
+		private final Report report;
+		private final boolean onlyKeepTasksWithContributions;
+		private final boolean byActivity;
+		private final boolean byContributor;
+		private final boolean contributorCentricMode;
+		private int orderedTaskIndex = 0;
+		private int rowIdx = -1;
+		private int rowTaskIdx = -1;
+		private Collaborator rowContributor = null;
+
+		ReportAssembler(Report report, boolean byActivity,
+				boolean byContributor, boolean contributorCentricMode,
+				boolean onlyKeepTasksWithContributions) {
+			this.report = report;
+			this.byActivity = byActivity;
+			this.byContributor = byContributor;
+			this.contributorCentricMode = contributorCentricMode;
+			this.onlyKeepTasksWithContributions = onlyKeepTasksWithContributions;
+		}
+
+		void add(ReportRow row) {
+			Collaborator contributor = row.contributor;
+			int taskIdx = row.taskIdx;
+			// See whether a new row must be created
+			boolean newRow = false;
+			if (rowIdx < 0) {
+				newRow = true;
+			} else {
+				if (byActivity && taskIdx != rowTaskIdx) {
+					newRow = true;
 				}
-				if (newItem) {
-					// If no task is present, simply create a report item
-					if (!byActivity) {
-						reportItem = new ReportItem(report, contributor, null);
-					}
-					else {
-						// If in task centric mode (or without contributors which is equivalent), may have to insert rows without contributions
-						// before adding new report line
-						if (!onlyKeepTasksWithContributions
-								&& orderedTasks.size() > 0
-								&& (!contributorCentricMode || !byContributor)) {
-							if (!contributedTask.equals(orderedTasks.get(orderedTaskIndex))) {
-								// If the last report item was about the same task, we must skeep the corresponding value
-								// in the ordered task list
-								if (reportItem != null && reportItem.getContributedTask().equals(orderedTasks.get(orderedTaskIndex))) {
-									orderedTaskIndex++;
-								}
-								// Add empty rows (empty means without contributions, but these rows may be associated
-								// to budgets for example).
-								TaskSums cursor = null;
-								while (!(cursor = orderedTasks.get(orderedTaskIndex)).equals(contributedTask)) {
-									if (cursor.isLeaf()) {
-										Task[] tasks = buildTasksList(rootPath,
-												tasksByFullPathCache, cursor.getTask().getFullPath());
-										new ReportItem(report, null, cursor,
-												tasks);
-									}
-									orderedTaskIndex++;
-								}
+				if (byContributor && !rowContributor.equals(contributor)) {
+					newRow = true;
+				}
+			}
+			if (newRow) {
+				// If in task centric mode (or without contributors which is equivalent), may have to insert rows without contributions
+				// before adding new report line
+				if (byActivity && !onlyKeepTasksWithContributions
+						&& report.getTaskCount() > 0
+						&& (!contributorCentricMode || !byContributor)) {
+					if (taskIdx != orderedTaskIndex) {
+						// If the last report row was about the same task, we must skeep the corresponding value
+						// in the ordered task list
+						if (rowIdx >= 0 && rowTaskIdx == orderedTaskIndex) {
+							orderedTaskIndex++;
+						}
+						// Add empty rows (empty means without contributions, but these rows may be associated
+						// to budgets for example).
+						while (orderedTaskIndex != taskIdx) {
+							if (report.getTask(orderedTaskIndex).isLeaf()) {
+								report.addRow(null, orderedTaskIndex);
 							}
+							orderedTaskIndex++;
 						}
-						// Add report item
-						Task[] tasks = buildTasksList(rootPath,
-								tasksByFullPathCache, contributedTask.getTask()
-										.getFullPath());
-						reportItem = new ReportItem(report, contributor,
-								contributedTask, tasks);
-					}
-				}
-				
-				// Read date
-				int year = 0;
-				int month = 1;
-				int day = 1;
-				switch (intervalType) {
-				case WEEK:
-				case DAY:
-					day = rs.getInt(idx++);
-				case MONTH:
-					month = rs.getInt(idx++);
-				case YEAR :
-					year = rs.getInt(idx++);
-				}
-				
-				// Compute index
-				int intervalIdx = 0;
-				switch (intervalType) {
-				case WEEK:
-				case DAY:
-					Calendar date = Calendar.getInstance(start.getTimeZone());
-					date.set(Calendar.DATE, day);
-					date.set(Calendar.MONTH, month-1);
-					date.set(Calendar.YEAR, year);
-					intervalIdx = DateHelper.countDaysBetween(start, date);
-					if (intervalType == ReportIntervalType.WEEK) {
-						intervalIdx = intervalIdx/7;
 					}
-					break;
-				case MONTH:
-					intervalIdx = (year-startYear)*12 + month - startMonth;
-					break;
-				case YEAR :
-					intervalIdx = year-startYear;
 				}
-
-				// Register contribution
-				reportItem.addToContributionSum(intervalIdx, rs.getLong(idx++));
+				// Add report row
+				rowIdx = report.addRow(contributor, byActivity ? taskIdx : -1);
+				rowTaskIdx = taskIdx;
+				rowContributor = contributor;
 			}
 
+			// Register contribution
+			report.addToContributionSum(rowIdx, row.intervalIdx, row.sum);
+		}
+
+		void finish() {
 			// Empty rows may have to be added at the end of the report (only in task centric mode or equivalent) 
 			if (!onlyKeepTasksWithContributions && byActivity
 					&& (!contributorCentricMode || !byContributor)) {
-				while (++orderedTaskIndex < orderedTasks.size()) {
-					TaskSums cursor = orderedTasks.get(orderedTaskIndex);
-					if (cursor.isLeaf()) {
-						Task[] tasks = buildTasksList(rootPath,
-								tasksByFullPathCache, cursor.getTask().getFullPath());
-						new ReportItem(report, null, cursor, tasks);
+				while (++orderedTaskIndex < report.getTaskCount()) {
+					if (report.getTask(orderedTaskIndex).isLeaf()) {
+						report.addRow(null, orderedTaskIndex);
 					}
 				}
 			}
+		}
 
-			// Fermeture du ResultSet
-			pStmt.close();
-			pStmt = null;
-			
-			return report;
+	}
 
-		} catch (SQLException e) {
-			log.info("Unexpected SQL error", e); //$NON-NLS-1$
-			throw new DAOException(
-					Strings.getString("Unexpected SQL error"), e); //$NON-NLS-1$
-		} finally {
-			lastAttemptToClose(pStmt);
+	/**
+	 * Loads the tasks of a report (tasks which depth is lower or equal to the
+	 * activity depth), parent tasks being sorted before their children.
+	 * 
+	 * @param rootTask
+	 *            the report root task (optional).
+	 * @param taskDepth
+	 *            the activity depth.
+	 * @param taskIndexesById
+	 *            the map to fill with the loaded tasks indexes (in the
+	 *            returned list) by identifier.
+	 * @return the ordered tasks.
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	protected List<TaskSums> loadReportTasks(Task rootTask, int taskDepth,
+			Map<Long, Integer> taskIndexesById) throws SQLException {
+		String rootPath = rootTask != null ? rootTask.getFullPath() : "";
+		int activityPathLength = taskDepth*2 + rootPath.length();
+		List<TaskSums> orderedTasks = new ArrayList<TaskSums>();
+		if (taskDepth > 0) {
+			StringWriter request = new StringWriter()
+				.append("select ")
+				.append("sum(leaftask.tsk_budget), sum(leaftask.tsk_initial_cons), sum(leaftask.tsk_todo), (count(leaftask.tsk_id)-1), ")
+				.append(taskDAO.getColumnNamesRequestFragment("activitytask"))
+				.append(" from TASK activitytask");
+			if (rootTask != null) {
+				request.append(" join TASK_CLOSURE roottcl on (roottcl.tcl_descendant=activitytask.tsk_id and roottcl.tcl_ancestor=?)");
+			}
+			request.append(" join TASK_CLOSURE leaftcl on leaftcl.tcl_ancestor=activitytask.tsk_id")
+				.append(" join TASK leaftask on leaftask.tsk_id=leaftcl.tcl_descendant ")
+				.append("where length(activitytask.tsk_path)<=? ")
+				.append("group by activitytask.tsk_id ");
+			request.append("order by ");
+			// This helps to ensure parent tasks will be sorted before children tasks
+			appendOrderByTaskPathFragment(request, "activitytask", taskDepth);
+			try (PreparedStatement pStmt = prepareStreamingStatement(request.toString())) {
+				int paramIdx = 1;
+				if (rootTask != null) {
+					pStmt.setLong(paramIdx++, rootTask.getId());
+				}
+				
+				pStmt.setInt(paramIdx++, activityPathLength-2);
+				ResultSet rs = pStmt.executeQuery();
+				
+				while (rs.next()) {
+					TaskSums sums = new TaskSums();
+					sums.setBudgetSum(rs.getLong(1));
+					sums.setInitiallyConsumedSum(rs.getLong(2));
+					sums.setTodoSum(rs.getLong(3));
+					Task task = taskDAO.read(rs, 5);
+					boolean isActivityTask = task.getFullPath().length() == activityPathLength;
+					boolean hasNoChild = rs.getLong(4) == 0;
+					// Task without any child or activity task are considered leaf
+					sums.setLeaf(hasNoChild || isActivityTask);
+					sums.setTask(task);
+					taskIndexesById.put(task.getId(), orderedTasks.size());
+					orderedTasks.add(sums);
+					//System.out.println(sums.getTask().getFullPath() + " - " + sums.getTask().getName() + " - " + sums.getBudgetSum() + " - leaf : " + sums.isLeaf());
+				}
+			}
 		}
+		return orderedTasks;
 	}
 
 	private void appendOrderByTaskPathFragment(StringWriter request,
@@ -433,21 +799,33 @@ public class ReportDAOImpl extends AbstractDAOImpl implements IReportDAO {
 		request.append("')");
 	}
 
-	private Task[] buildTasksList(String rootPath,
-			Map<String, TaskSums> tasksByFullPathCache, String fullpath) {
-		int depth = (fullpath.length() - rootPath.length()) / 2;
-		Task[] tasks = null;
-		if (depth > 0) {
-			tasks = new Task[depth - 1];
-			for (int i = 0; i < depth - 1; i++) {
-				tasks[i] = tasksByFullPathCache.get(
-						fullpath.substring(0, (i + 1) * 2 + rootPath.length()))
-						.getTask();
-			}
-		} else {
-			tasks = new Task[0];
+	/**
+	 * Registers the report tasks, in the same order as the given list (the
+	 * task indexes in the report are the indexes in the list).
+	 * <p>
+	 * As parent tasks are sorted before their children, the parent of a task
+	 * is the last registered task of the upper depth : no path lookup is
+	 * required.
+	 * </p>
+	 * 
+	 * @param report
+	 *            the report.
+	 * @param rootPath
+	 *            the report root task full path.
+	 * @param orderedTasks
+	 *            the ordered report tasks.
+	 */
+	protected void addReportTasks(Report report, String rootPath,
+			List<TaskSums> orderedTasks) {
+		int[] lastTaskByDepth = new int[report.getTaskDepth() + 1];
+		for (TaskSums task : orderedTasks) {
+			int depth = (task.getTask().getFullPath().length() - rootPath.length()) / 2;
+			int parentIdx = depth > 1 ? lastTaskByDepth[depth - 1] : -1;
+			int taskIdx = report.addTask(task, parentIdx);
+			if (depth > 0) {
+				lastTaskByDepth[depth] = taskIdx;
+			}
 		}
-		return tasks;
 	}
 
 }
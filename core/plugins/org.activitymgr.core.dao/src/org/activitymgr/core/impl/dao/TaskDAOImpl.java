@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -20,6 +21,8 @@ import org.activitymgr.core.dto.Collaborator;
 import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.dto.misc.TaskSearchFilter;
 import org.activitymgr.core.dto.misc.TaskSums;
+import org.activitymgr.core.orm.StreamHelper;
+import org.activitymgr.core.util.DbHelper;
 import org.activitymgr.core.util.StringHelper;
 import org.apache.log4j.Logger;
 
@@ -31,6 +34,12 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 
 	/** Logger */
 	private static Logger log = Logger.getLogger(TaskDAOImpl.class);
+
+	/** Root tasks counter key (tasks identifiers start at 1) */
+	private static final long ROOT_SEQUENCE_KEY = 0;
+
+	/** Maximum number of attempts to create a counter */
+	private static final int MAX_SEQUENCE_ATTEMPTS = 3;
 	
 	@Override
 	public int getSubTasksCount(long parentTaskId) throws DAOException {
@@ -40,7 +49,7 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 				+ " left join TASK as subTask" //$NON-NLS-1$ 
 				+ " on subTask.tsk_path = concat(theTask.tsk_path, theTask.tsk_number)" //$NON-NLS-1$ 
 				+ " where theTask.tsk_id=? group by theTask.tsk_id"; //$NON-NLS-1$ 
-		try(PreparedStatement pStmt = tx().prepareStatement(query)) { 
+		try(PreparedStatement pStmt = prepareStatement(query)) { 
 			pStmt.setLong(1, parentTaskId);
 
 			// Préparation du résultat
@@ -65,7 +74,7 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 			+ "   and (filteredTask.tsk_name like ? or filteredTask.tsk_code like ?)" //$NON-NLS-1$
 			+ " order by subtask.tsk_number"; //$NON-NLS-1$
 
-		try(PreparedStatement pStmt = tx().prepareStatement(query)) {
+		try(PreparedStatement pStmt = prepareStatement(query)) {
 			
 			// Request preparation
 			pStmt.setString(1, parentTaskPath);
@@ -89,6 +98,29 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 		}
 	}
 
+	@Override
+	public Stream<Task> streamTasksInTreeOrder(Task parentTask) throws DAOException {
+		PreparedStatement pStmt = null;
+		try {
+			// The full path order is the tree (depth first) order
+			pStmt = prepareStreamingStatement("select " + getColumnNamesRequestFragment(null) //$NON-NLS-1$
+					+ " from TASK" //$NON-NLS-1$
+					+ (parentTask != null ? " where tsk_path like ?" : "") //$NON-NLS-1$ //$NON-NLS-2$
+					+ " order by concat(tsk_path, tsk_number)"); //$NON-NLS-1$
+			if (parentTask != null) {
+				pStmt.setString(1, parentTask.getFullPath() + "%"); //$NON-NLS-1$
+			}
+			// The statement is closed with the stream
+			Stream<Task> result = StreamHelper.stream(pStmt, rs -> read(rs, 1));
+			pStmt = null;
+			return result;
+		} catch (SQLException e) {
+			return critical(e);
+		} finally {
+			lastAttemptToClose(pStmt);
+		}
+	}
+
 	@Override
 	public Task getFirstTaskMatching(String filter) {
 		// select  distinct st.TSK_ID, st.TSK_PATH, st.TSK_NUMBER, st.TSK_CODE from task st inner join TASK t on left(concat(t.tsk_path, t.tsk_number), length(concat(st.tsk_path, st.tsk_number))) = concat(st.tsk_path, st.tsk_number) where st.tsk_path='01090304' and t.tsk_name like concat('%', 'CCAP', '%') order by st.tsk_number; 
@@ -96,7 +128,7 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 			+ " from TASK as t" //$NON-NLS-1$
 			+ " where t.tsk_name like ? or t.tsk_code like ?" //$NON-NLS-1$
 			+ " order by t.tsk_path, t.tsk_number"; //$NON-NLS-1$
-		try(PreparedStatement pStmt = tx().prepareStatement(query)) {
+		try(PreparedStatement pStmt = prepareStatement(query)) {
 
 			// Request preparation
 			String sqlFilter = "%" + filter + "%";  //$NON-NLS-1$  //$NON-NLS-2$
@@ -152,7 +184,7 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 		// Préparation de la requête
 		log.debug("Search request: " + query); //$NON-NLS-1$
 		
-		try(PreparedStatement pStmt = tx().prepareStatement(query)) {
+		try(PreparedStatement pStmt = prepareStatement(query)) {
 
 			String parameter = null;
 			switch (filter.getCriteriaIndex()) {
@@ -229,21 +261,165 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 
 
 	@Override
-	public byte newTaskNumber(String path) throws DAOException {
+	public byte newTaskNumber(Task parentTask) throws DAOException {
+		long parentId = parentTask != null ? parentTask.getId() : ROOT_SEQUENCE_KEY;
+		String path = parentTask != null ? parentTask.getFullPath() : ""; //$NON-NLS-1$
+		try {
+			for (int attempt = 1; ; attempt++) {
+				// Incrémentation du compteur de la tache parent (la ligne
+				// reste verrouillée jusqu'à la fin de la transaction)
+				try (PreparedStatement pStmt = prepareStatement(
+						"update TASK_SEQUENCE set tsq_number=tsq_number+1 where tsq_parent=?")) { //$NON-NLS-1$
+					pStmt.setLong(1, parentId);
+					if (pStmt.executeUpdate() > 0) {
+						return readTaskSequence(parentId);
+					}
+				}
+				// Le compteur n'existe pas encore (tache créée avant les
+				// compteurs) : il est créé à partir du plus grand numéro.
+				// Si une transaction concurrente le crée au même moment,
+				// l'insertion échoue sur la clé primaire et le compteur est
+				// incrémenté à nouveau (ce qui attend la fin de la
+				// transaction concurrente). Un verrou mortel (SQL state
+				// 40001) n'est pas rejoué, InnoDB annulant alors toute la
+				// transaction.
+				byte number = (byte) (getMaxTaskNumber(path) + 1);
+				try (PreparedStatement pStmt = prepareStatement(
+						"insert into TASK_SEQUENCE (tsq_parent, tsq_number) values (?, ?)")) { //$NON-NLS-1$
+					pStmt.setLong(1, parentId);
+					pStmt.setInt(2, number & 0xFF);
+					pStmt.executeUpdate();
+					return number;
+				} catch (SQLException e) {
+					if (attempt >= MAX_SEQUENCE_ATTEMPTS || !DbHelper.isUniqueKeyViolation(e)) {
+						throw e;
+					}
+					log.debug("Task sequence " + parentId + " concurrently created, retrying"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+		} catch (SQLException e) {
+			return critical(e, "TASK_NUMBER_COMPUTATION_FAILURE", path); //$NON-NLS-1$
+		}
+	}
 
-		// Recherche du max
-		try(PreparedStatement pStmt = tx().prepareStatement(
+	/**
+	 * Lit la valeur du compteur des numéros de sous-taches d'une tache.
+	 * 
+	 * @param parentId
+	 *            l'identifiant de la tache parent.
+	 * @return le dernier numéro attribué.
+	 * @throws SQLException
+	 *             levé en cas d'incident technique d'accès à la base.
+	 */
+	private byte readTaskSequence(long parentId) throws SQLException {
+		try (PreparedStatement pStmt = prepareStatement(
+				"select tsq_number from TASK_SEQUENCE where tsq_parent=?")) { //$NON-NLS-1$
+			pStmt.setLong(1, parentId);
+			byte number = (byte) executeRequired(pStmt).getInt(1);
+			log.debug("  => number= : " + number); //$NON-NLS-1$
+			return number;
+		}
+	}
+
+	/**
+	 * Recherche le plus grand numéro des sous-taches d'une tache.
+	 * 
+	 * @param path
+	 *            le chemin complet de la tache parent.
+	 * @return le plus grand numéro (0 si la tache n'a pas de sous-tache).
+	 * @throws SQLException
+	 *             levé en cas d'incident technique d'accès à la base.
+	 */
+	private byte getMaxTaskNumber(String path) throws SQLException {
+		try (PreparedStatement pStmt = prepareStatement(
 				"select max(tsk_number) from TASK where tsk_path=?")) { //$NON-NLS-1$
-			
 			pStmt.setString(1, path);
-			String maxStr = executeRequired(pStmt).getString(1);
-			byte max = maxStr != null ? StringHelper.toByte(maxStr) : 0;
-			log.debug("  => max= : " + max); //$NON-NLS-1$
+			String max = executeRequired(pStmt).getString(1);
+			return max != null ? StringHelper.toByte(max) : 0;
+		}
+	}
 
-			// Retour du résultat
-			return (byte) (max + 1);
+	@Override
+	public void createTaskSequences(Task[] tasks) throws DAOException {
+		try (PreparedStatement pStmt = prepareStatement(
+				"insert into TASK_SEQUENCE (tsq_parent, tsq_number) values (?, 0)")) { //$NON-NLS-1$
+			int count = 0;
+			for (Task task : tasks) {
+				pStmt.setLong(1, task.getId());
+				pStmt.addBatch();
+				if (++count % getBatchSize() == 0) {
+					pStmt.executeBatch();
+				}
+			}
+			if (count % getBatchSize() != 0) {
+				pStmt.executeBatch();
+			}
+		} catch (SQLException e) {
+			critical(e, "TASK_SEQUENCE_UPDATE_FAILURE"); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public void rebuildTaskSequences(Task[] parentTasks) throws DAOException {
+		try (PreparedStatement pStmt = prepareStatement(
+				"update TASK_SEQUENCE set tsq_number=" //$NON-NLS-1$
+				+ "(select count(*) from TASK where tsk_path=?) where tsq_parent=?")) { //$NON-NLS-1$
+			int count = 0;
+			for (Task parentTask : parentTasks) {
+				pStmt.setString(1, parentTask != null ? parentTask.getFullPath() : ""); //$NON-NLS-1$
+				pStmt.setLong(2, parentTask != null ? parentTask.getId() : ROOT_SEQUENCE_KEY);
+				pStmt.addBatch();
+				if (++count % getBatchSize() == 0) {
+					pStmt.executeBatch();
+				}
+			}
+			if (count % getBatchSize() != 0) {
+				pStmt.executeBatch();
+			}
 		} catch (SQLException e) {
-			return critical(e, "TASK_NUMBER_COMPUTATION_FAILURE"); //$NON-NLS-1$
+			critical(e, "TASK_SEQUENCE_UPDATE_FAILURE"); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public void deleteTaskSequences(Task task) throws DAOException {
+		try (PreparedStatement pStmt = prepareStatement(
+				"delete from TASK_SEQUENCE where tsq_parent in" //$NON-NLS-1$
+				+ " (select tcl_descendant from TASK_CLOSURE where tcl_ancestor=?)")) { //$NON-NLS-1$
+			pStmt.setLong(1, task.getId());
+			int count = pStmt.executeUpdate();
+			log.debug("  => " + count + " task sequences deleted"); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (SQLException e) {
+			critical(e, "TASK_SEQUENCE_UPDATE_FAILURE"); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public Task lockTask(long taskId) throws DAOException {
+		try(PreparedStatement pStmt = prepareStatement(
+				"select " + getColumnNamesRequestFragment(null) //$NON-NLS-1$
+				+ " from TASK where tsk_id=? for update")) { //$NON-NLS-1$
+			pStmt.setLong(1, taskId);
+			ResultSet rs = pStmt.executeQuery();
+			return rs.next() ? read(rs, 1) : null;
+		} catch (SQLException e) {
+			return critical(e, "TASK_LOCK_FAILURE", taskId); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public int moveSubTasks(String oldFullPath, String newFullPath)
+			throws DAOException {
+		try (PreparedStatement pStmt = prepareStatement(
+				"update TASK set tsk_path=concat(?, substr(tsk_path, ?)) where tsk_path like ?")) { //$NON-NLS-1$
+			pStmt.setString(1, newFullPath);
+			pStmt.setInt(2, oldFullPath.length() + 1);
+			pStmt.setString(3, oldFullPath + "%"); //$NON-NLS-1$
+			int count = pStmt.executeUpdate();
+			log.debug("  => " + count + " sub tasks moved from '" + oldFullPath + "' to '" + newFullPath + "'"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			return count;
+		} catch (SQLException e) {
+			return critical(e, "SUB_TASKS_MOVE_FAILURE"); //$NON-NLS-1$
 		}
 	}
 
@@ -261,7 +437,9 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 				.append(" sum(leaftask.tsk_todo),")
 				.append(" count(leaftask.tsk_id), ")
 				.append(getColumnNamesRequestFragment("maintask"))
-				.append(" from TASK maintask, TASK leaftask ")
+				.append(" from TASK maintask")
+				.append(" join TASK_CLOSURE on tcl_ancestor=maintask.tsk_id")
+				.append(" join TASK leaftask on leaftask.tsk_id=tcl_descendant ")
 				.append("where ");
 		
 		if (taskId != null) { // Task id case
@@ -270,12 +448,10 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 			request.append("maintask.tsk_path=?");
 		}
 		
-		// XXX should be left join
-		request.append(" and (maintask.tsk_id=leaftask.tsk_id or leaftask.tsk_path like concat(maintask.tsk_path, maintask.tsk_number, '%'))")
-			.append(" group by maintask.tsk_id ")
+		request.append(" group by maintask.tsk_id ")
 			.append(" order by maintask.tsk_number");
 		
-		try(PreparedStatement pStmt = tx().prepareStatement(request.toString())) {
+		try(PreparedStatement pStmt = prepareStatement(request.toString())) {
 			
 			if (taskId != null) {
 				pStmt.setLong(1, taskId);
@@ -306,7 +482,7 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 	
 	@Override
 	public int getMaxTaskDepthUnder(String path) throws DAOException {
-		try(PreparedStatement pStmt = tx().prepareStatement(
+		try(PreparedStatement pStmt = prepareStatement(
 				"select (max(length(tsk_path))/2+1) from TASK where tsk_path like ?")) {
 			// Préparation de la requête
 			pStmt.setString(1, path + "%");
@@ -348,7 +524,7 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 				+ expecteds.stream().map(it -> "?").collect(Collectors.joining(","))
 				+ ")";
 		
-		try(PreparedStatement pStmt = tx().prepareStatement(query)) {
+		try(PreparedStatement pStmt = prepareStatement(query)) {
 			int pIndex = 1;
 			for (String path: expecteds) {
 				pStmt.setString(pIndex++, path);
@@ -366,4 +542,123 @@ public class TaskDAOImpl extends AbstractORMDAOImpl<Task> implements ITaskDAO {
 		}
 	}
 
+	@Override
+	public void updateTaskClosure(Task task) throws DAOException {
+		rebuildClosure(task);
+	}
+
+	@Override
+	public void moveTaskClosure(Task task, Task newParentTask)
+			throws DAOException {
+		try (PreparedStatement select = prepareStatement(
+					"select tcl_ancestor from TASK_CLOSURE where tcl_descendant=? and tcl_depth>0"); //$NON-NLS-1$
+				PreparedStatement delete = prepareStatement(
+					"delete from TASK_CLOSURE where tcl_ancestor=?" //$NON-NLS-1$
+					+ " and tcl_descendant in (select tsk_id from TASK where tsk_id=? or tsk_path like ?)"); //$NON-NLS-1$
+				PreparedStatement insert = prepareStatement(
+					"insert into TASK_CLOSURE (tcl_ancestor, tcl_descendant, tcl_depth)" //$NON-NLS-1$
+					+ " select parent.tcl_ancestor, sub.tcl_descendant, parent.tcl_depth + sub.tcl_depth + 1" //$NON-NLS-1$
+					+ " from TASK_CLOSURE parent, TASK_CLOSURE sub" //$NON-NLS-1$
+					+ " where parent.tcl_descendant=? and sub.tcl_ancestor=?")) { //$NON-NLS-1$
+
+			// Remove the links with the former ancestors (still registered
+			// in the closure)
+			select.setLong(1, task.getId());
+			List<Long> formerAncestorIds = new ArrayList<Long>();
+			ResultSet rs = select.executeQuery();
+			while (rs.next()) {
+				formerAncestorIds.add(rs.getLong(1));
+			}
+			String subTasksPath = task.getFullPath() + "%"; //$NON-NLS-1$
+			for (long formerAncestorId : formerAncestorIds) {
+				delete.setLong(1, formerAncestorId);
+				delete.setLong(2, task.getId());
+				delete.setString(3, subTasksPath);
+				delete.addBatch();
+			}
+			if (!formerAncestorIds.isEmpty()) {
+				delete.executeBatch();
+			}
+
+			// Link the sub tree with its new ancestors
+			if (newParentTask != null) {
+				insert.setLong(1, newParentTask.getId());
+				insert.setLong(2, task.getId());
+				int count = insert.executeUpdate();
+				log.debug("  => " + count + " closure entries inserted"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		} catch (SQLException e) {
+			critical(e, "TASK_CLOSURE_UPDATE_FAILURE"); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public int rebuildTasksClosure() throws DAOException {
+		return rebuildClosure(null);
+	}
+
+	/**
+	 * Rebuilds the closure entries of a sub tree (or of the whole tree if no
+	 * root task is specified) from the tasks paths.
+	 *
+	 * @param rootTask
+	 *            the sub tree root task or <code>null</code>.
+	 * @return the number of inserted closure entries.
+	 */
+	private int rebuildClosure(Task rootTask) {
+		String filter = rootTask != null ? " where tsk_id=? or tsk_path like ?" : ""; //$NON-NLS-1$ //$NON-NLS-2$
+		try (PreparedStatement select = prepareStatement(
+					"select tsk_id, concat(tsk_path, tsk_number) from TASK" + filter //$NON-NLS-1$
+					+ " order by tsk_path, tsk_number"); //$NON-NLS-1$
+				PreparedStatement delete = prepareStatement(
+					rootTask != null
+						? "delete from TASK_CLOSURE where tcl_descendant in (select tsk_id from TASK" + filter + ")" //$NON-NLS-1$ //$NON-NLS-2$
+						: "delete from TASK_CLOSURE"); //$NON-NLS-1$
+				PreparedStatement insert = prepareStatement(
+					"insert into TASK_CLOSURE (tcl_ancestor, tcl_descendant, tcl_depth) values (?, ?, ?)")) { //$NON-NLS-1$
+
+			// Ancestors of the sub tree are needed too
+			Map<String, Long> idsByFullPath = new HashMap<String, Long>();
+			if (rootTask != null) {
+				for (Task parent : getAllParents(Collections.singletonList(rootTask)).values()) {
+					idsByFullPath.put(parent.getFullPath(), parent.getId());
+				}
+				String subTasksPath = rootTask.getFullPath() + "%"; //$NON-NLS-1$
+				select.setLong(1, rootTask.getId());
+				select.setString(2, subTasksPath);
+				delete.setLong(1, rootTask.getId());
+				delete.setString(2, subTasksPath);
+			}
+
+			// Remove previous entries
+			delete.executeUpdate();
+
+			// Parents are sorted before their children
+			int count = 0;
+			ResultSet rs = select.executeQuery();
+			while (rs.next()) {
+				long id = rs.getLong(1);
+				String fullPath = rs.getString(2);
+				idsByFullPath.put(fullPath, id);
+				for (int depth = 0; depth < fullPath.length() / 2; depth++) {
+					Long ancestorId = idsByFullPath.get(fullPath.substring(0, fullPath.length() - depth * 2));
+					if (ancestorId != null) {
+						insert.setLong(1, ancestorId);
+						insert.setLong(2, id);
+						insert.setInt(3, depth);
+						insert.addBatch();
+						if (++count % 500 == 0) {
+							insert.executeBatch();
+						}
+					}
+				}
+			}
+			insert.executeBatch();
+			log.debug("Task closure entries : " + count); //$NON-NLS-1$
+			return count;
+		} catch (SQLException e) {
+			return critical(e, "TASK_CLOSURE_UPDATE_FAILURE"); //$NON-NLS-1$
+		}
+	}
+
 }
\ No newline at end of file
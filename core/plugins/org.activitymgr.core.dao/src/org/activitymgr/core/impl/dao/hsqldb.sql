@@ -1,6 +1,9 @@
 drop table if exists REPORT_CONFIG;
+drop table if exists CONTRIBUTION_SUMS;
 drop table if exists CONTRIBUTION;
 drop table if exists DURATION;
+drop table if exists TASK_SEQUENCE;
+drop table if exists TASK_CLOSURE;
 drop table if exists TASK;
 drop table if exists COLLABORATOR;
 
@@ -37,6 +40,31 @@ create index TSK_PATH_IDX on TASK (TSK_PATH);
 create unique index TSK_PATH_NUMBER_IDX on TASK (TSK_PATH, TSK_NUMBER);
 create unique index TSK_PATH_CODE_IDX on TASK (TSK_PATH, TSK_CODE);
 
+-- ------------------------------------------------------------
+-- Fermeture transitive de l'arbre des taches
+-- ------------------------------------------------------------
+create table TASK_CLOSURE (
+	TCL_ANCESTOR     integer not null,
+	TCL_DESCENDANT   integer not null,
+	TCL_DEPTH        integer not null,
+    constraint TCL_PK primary key (TCL_ANCESTOR, TCL_DESCENDANT),
+    constraint TCL_ANCESTOR_FK foreign key (TCL_ANCESTOR) references TASK (TSK_ID) on delete cascade,
+    constraint TCL_DESCENDANT_FK foreign key (TCL_DESCENDANT) references TASK (TSK_ID) on delete cascade
+);
+create index TCL_DESCENDANT_IDX on TASK_CLOSURE (TCL_DESCENDANT, TCL_DEPTH);
+
+-- ------------------------------------------------------------
+-- Compteurs des numeros de sous-taches par tache parent
+-- (TSQ_PARENT : 0 pour les taches racines ; les compteurs sont crees
+-- avec les taches)
+-- ------------------------------------------------------------
+create table TASK_SEQUENCE (
+	TSQ_PARENT       integer not null,
+	TSQ_NUMBER       integer not null,
+    constraint TSQ_PK primary key (TSQ_PARENT)
+);
+insert into TASK_SEQUENCE (TSQ_PARENT, TSQ_NUMBER) values (0, 0);
+
 -- ------------------------------------------------------------
 -- Durees
 -- ------------------------------------------------------------
@@ -53,6 +81,7 @@ create table CONTRIBUTION (
 	CTB_YEAR          integer not null,
 	CTB_MONTH         integer not null,
 	CTB_DAY           integer not null,
+	CTB_DATE_KEY      integer not null,
 	CTB_CONTRIBUTOR   integer not null,
 	CTB_TASK          integer not null,
 	CTB_DURATION      integer not null,
@@ -64,6 +93,21 @@ create table CONTRIBUTION (
 create index CTB_CONTRIBUTOR_IDX on CONTRIBUTION (CTB_CONTRIBUTOR);
 create index CTB_TASK_IDX on CONTRIBUTION (CTB_TASK);
 create index CTB_DURATION_IDX on CONTRIBUTION (CTB_DURATION);
+create index CTB_DATE_KEY_IDX on CONTRIBUTION (CTB_DATE_KEY, CTB_CONTRIBUTOR, CTB_TASK, CTB_DURATION);
+
+-- ------------------------------------------------------------
+-- Cumuls des contributions par tache (et taches parentes)
+-- CSM_MONTH : annee*100 + mois, CSM_DAY : jour (0 pour le mois)
+-- ------------------------------------------------------------
+create table CONTRIBUTION_SUMS (
+	CSM_TASK          integer not null,
+	CSM_MONTH         integer not null,
+	CSM_DAY           integer not null,
+	CSM_SUM           bigint  not null,
+	CSM_COUNT         integer not null,
+    constraint CSM_PK primary key (CSM_TASK, CSM_MONTH, CSM_DAY),
+    constraint CSM_TASK_FK foreign key (CSM_TASK) references TASK (TSK_ID) on delete cascade
+);
 
 -- ------------------------------------------------------------
 -- Report configurations
@@ -1,6 +1,9 @@
 drop table if exists REPORT_CONFIG;
+drop table if exists CONTRIBUTION_SUMS;
 drop table if exists CONTRIBUTION;
 drop table if exists DURATION;
+drop table if exists TASK_SEQUENCE;
+drop table if exists TASK_CLOSURE;
 drop table if exists TASK;
 drop table if exists COLLABORATOR;
 
@@ -41,6 +44,31 @@ create table TASK (
     	unique (TSK_PATH, TSK_CODE) 
 ) engine=innodb;
 
+-- ------------------------------------------------------------
+-- Fermeture transitive de l'arbre des taches
+-- ------------------------------------------------------------
+create table TASK_CLOSURE (
+	TCL_ANCESTOR     integer(8) not null,
+	TCL_DESCENDANT   integer(8) not null,
+	TCL_DEPTH        integer(3) not null,
+    index TCL_DESCENDANT_IDX (TCL_DESCENDANT, TCL_DEPTH),
+    constraint TCL_PK primary key (TCL_ANCESTOR, TCL_DESCENDANT),
+    constraint TCL_ANCESTOR_FK foreign key (TCL_ANCESTOR) references TASK (TSK_ID) on delete cascade,
+    constraint TCL_DESCENDANT_FK foreign key (TCL_DESCENDANT) references TASK (TSK_ID) on delete cascade
+) engine=innodb;
+
+-- ------------------------------------------------------------
+-- Compteurs des numeros de sous-taches par tache parent
+-- (TSQ_PARENT : 0 pour les taches racines ; les compteurs sont crees
+-- avec les taches)
+-- ------------------------------------------------------------
+create table TASK_SEQUENCE (
+	TSQ_PARENT       integer(8) not null,
+	TSQ_NUMBER       integer(3) not null,
+    constraint TSQ_PK primary key (TSQ_PARENT)
+) engine=innodb;
+insert into TASK_SEQUENCE (TSQ_PARENT, TSQ_NUMBER) values (0, 0);
+
 -- ------------------------------------------------------------
 -- Durees
 -- ------------------------------------------------------------
@@ -57,18 +85,34 @@ create table CONTRIBUTION (
 	CTB_YEAR          integer(4) not null,
 	CTB_MONTH         integer(2) not null,
 	CTB_DAY           integer(2) not null,
+	CTB_DATE_KEY      integer(8) not null,
 	CTB_CONTRIBUTOR   integer(3) not null,
 	CTB_TASK          integer(8) not null,
 	CTB_DURATION      integer(3) not null,
     index CTB_CONTRIBUTOR_IDX (CTB_CONTRIBUTOR),
     index CTB_TASK_IDX (CTB_TASK),
     index CTB_DURATION_IDX (CTB_DURATION),
+    index CTB_DATE_KEY_IDX (CTB_DATE_KEY, CTB_CONTRIBUTOR, CTB_TASK, CTB_DURATION),
     constraint CTB_PK primary key (CTB_YEAR, CTB_MONTH, CTB_DAY, CTB_CONTRIBUTOR, CTB_TASK),
     constraint CTB_CONTRIBUTOR_FK foreign key (CTB_CONTRIBUTOR) references COLLABORATOR (CLB_ID),
     constraint CTB_TASK_FK foreign key (CTB_TASK) references TASK (TSK_ID),
     constraint CTB_DURATION_FK foreign key (CTB_DURATION) references DURATION (DUR_ID)
 ) engine=innodb;
 
+-- ------------------------------------------------------------
+-- Cumuls des contributions par tache (et taches parentes)
+-- CSM_MONTH : annee*100 + mois, CSM_DAY : jour (0 pour le mois)
+-- ------------------------------------------------------------
+create table CONTRIBUTION_SUMS (
+	CSM_TASK          integer(8) not null,
+	CSM_MONTH         integer(6) not null,
+	CSM_DAY           integer(2) not null,
+	CSM_SUM           bigint     not null,
+	CSM_COUNT         integer(8) not null,
+    constraint CSM_PK primary key (CSM_TASK, CSM_MONTH, CSM_DAY),
+    constraint CSM_TASK_FK foreign key (CSM_TASK) references TASK (TSK_ID) on delete cascade
+) engine=innodb;
+
 --------------------------------------------------------------
 -- Report configurations
 --------------------------------------------------------------
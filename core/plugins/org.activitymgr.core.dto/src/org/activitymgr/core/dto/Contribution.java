@@ -34,6 +34,8 @@ import org.activitymgr.core.orm.annotation.Column;
 import org.activitymgr.core.orm.annotation.ColumnNamePrefix;
 import org.activitymgr.core.orm.annotation.PrimaryKey;
 import org.activitymgr.core.orm.annotation.Table;
+import org.activitymgr.core.util.DateHelper;
+import org.activitymgr.core.util.EpochDays;
 
 /**
  * Contribution d'un collaborateur à une tache.
@@ -54,6 +56,10 @@ public class Contribution {
 	@PrimaryKey
 	private int day;
 
+	/** Clé de date (yyyyMMdd) déduite de l'année, du mois et du jour */
+	@Column("DATE_KEY")
+	private int dateKey;
+
 	/** Identifiant du collaborateur */
 	@PrimaryKey
 	@Column("CONTRIBUTOR")
@@ -148,6 +154,7 @@ public class Contribution {
 	 */
 	public void setDay(int day) {
 		this.day = day;
+		updateDateKey();
 	}
 
 	/**
@@ -165,6 +172,7 @@ public class Contribution {
 	 */
 	public void setMonth(int month) {
 		this.month = month;
+		updateDateKey();
 	}
 
 	/**
@@ -182,6 +190,21 @@ public class Contribution {
 	 */
 	public void setYear(int year) {
 		this.year = year;
+		updateDateKey();
+	}
+
+	/**
+	 * @return la clé de date de la contribution (entier yyyyMMdd).
+	 */
+	public int getDateKey() {
+		return dateKey;
+	}
+
+	/**
+	 * Met à jour la clé de date.
+	 */
+	private void updateDateKey() {
+		dateKey = DateHelper.toDateKey(year, month, day);
 	}
 
 	/**
@@ -196,6 +219,26 @@ public class Contribution {
 		setDay(date.get(Calendar.DAY_OF_MONTH));
 	}
 
+	/**
+	 * Définit le jour associé à la contribution.
+	 * 
+	 * @param epochDay
+	 *            le nouveau jour (voir {@link EpochDays}).
+	 */
+	public void setEpochDay(int epochDay) {
+		int dateKey = EpochDays.toDateKey(epochDay);
+		setYear(dateKey / 10000);
+		setMonth((dateKey / 100) % 100);
+		setDay(dateKey % 100);
+	}
+
+	/**
+	 * @return le jour associé à la contribution (voir {@link EpochDays}).
+	 */
+	public int getEpochDay() {
+		return EpochDays.of(year, month, day);
+	}
+
 	/**
 	 * @return la date associée à la contribution.
 	 */
@@ -2,9 +2,12 @@ package org.activitymgr.core.dto.report;
 
 import java.io.StringWriter;
 import java.text.SimpleDateFormat;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.activitymgr.core.dto.Collaborator;
@@ -12,11 +15,36 @@ import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.dto.misc.TaskSums;
 import org.activitymgr.core.util.StringHelper;
 
+/**
+ * Report.
+ * <p>
+ * The report data is stored in a compact form :
+ * <ul>
+ * <li>the report tasks are stored in a table indexed by an <code>int</code>,
+ * the ancestors of a task being given by the <code>int</code> array of the
+ * parent indexes (no task list is built per row),</li>
+ * <li>each row is given by its task index and its contributor,</li>
+ * <li>the contribution sums are stored in a <code>long[rows * intervals]</code>
+ * matrix, split into blocks of {@link #BLOCK_ROWS} rows so that it never has
+ * to be copied when rows are added.</li>
+ * </ul>
+ * {@link ReportItem} instances are views over a row of that storage.
+ * </p>
+ */
 public class Report {
 	
 	private static final String NON_REPEATED_AMOUNT = "-.--";
 
-	private final Collection<Calendar> dates = new ArrayList<Calendar>();
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** Rows count of a contribution sums block (power of 2) */
+	private static final int BLOCK_ROWS = 256;
+
+	private static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_ROWS);
+
+	private final Calendar start;
+
+	private Collection<Calendar> dates;
 	
 	private final ReportIntervalType intervalType;
 	
@@ -24,27 +52,55 @@ public class Report {
 	
 	private final int taskDepth;
 	
-	private final List<ReportItem> items = new ArrayList<ReportItem>();
-	
 	private final boolean byContributor;
 	
 	private final boolean isContributorCentric;
 
 	private int intervalCount;
 
+	/** Report tasks */
+	private TaskSums[] tasks = new TaskSums[INITIAL_CAPACITY];
+
+	/** Parent task index of each task (<code>-1</code> for top tasks) */
+	private int[] taskParents = new int[INITIAL_CAPACITY];
+
+	private int taskCount;
+
+	/** Task index of each row (<code>-1</code> if the report is not by task) */
+	private int[] rowTasks = new int[INITIAL_CAPACITY];
+
+	/** Contributor of each row */
+	private Collaborator[] rowContributors = new Collaborator[INITIAL_CAPACITY];
+
+	private int rowCount;
+
+	/** Contribution sums blocks (row after row in each block) */
+	private long[][] sums = new long[INITIAL_CAPACITY][];
+
+	/** Rows views */
+	private final List<ReportItem> items = new AbstractList<ReportItem>() {
+		@Override
+		public ReportItem get(int index) {
+			if (index < 0 || index >= rowCount) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", size: " + rowCount);
+			}
+			return new ReportItem(Report.this, index);
+		}
+
+		@Override
+		public int size() {
+			return rowCount;
+		}
+	};
+
 	public Report(Calendar start, ReportIntervalType intervalType, int intervalCount, Task rootTask, int taskDepth, boolean byContributor, boolean isContributorCentric) {
+		this.start = (Calendar) start.clone();
 		this.intervalType = intervalType;
 		this.rootTask = rootTask;
 		this.taskDepth = taskDepth;
 		this.byContributor = byContributor;
 		this.isContributorCentric = isContributorCentric;
 		this.intervalCount = intervalCount;
-		Calendar date = (Calendar) start.clone();
-		for (int i=0; i<intervalCount; i++) {
-			Calendar d = (Calendar) date.clone();
-			dates.add(d);
-			date.add(intervalType.getIntType(), 1);
-		}
 	}
 	
 	public int getIntervalCount() {
@@ -59,6 +115,9 @@ public class Report {
 		return intervalType;
 	}
 	
+	/**
+	 * @return the report rows (views over the report data).
+	 */
 	public List<ReportItem> getItems() {
 		return items;
 	}
@@ -71,14 +130,171 @@ public class Report {
 		return isContributorCentric;
 	}
 
-	protected void add(ReportItem item) {
-		items.add(item);
-	}
-
+	/**
+	 * @return the intervals start dates (built on demand).
+	 */
 	public Collection<Calendar> getDates() {
+		if (dates == null) {
+			List<Calendar> list = new ArrayList<Calendar>(intervalCount);
+			Calendar date = (Calendar) start.clone();
+			for (int i=0; i<intervalCount; i++) {
+				list.add((Calendar) date.clone());
+				date.add(intervalType.getIntType(), 1);
+			}
+			dates = Collections.unmodifiableList(list);
+		}
 		return dates;
 	}
 
+	/**
+	 * Adds a task to the report tasks table.
+	 * <p>
+	 * Parent tasks must be added before their children.
+	 * </p>
+	 * 
+	 * @param task
+	 *            the task and its sums.
+	 * @param parentIdx
+	 *            the index of the parent task (<code>-1</code> for top tasks).
+	 * @return the task index.
+	 */
+	public int addTask(TaskSums task, int parentIdx) {
+		if (parentIdx >= taskCount) {
+			throw new IllegalArgumentException("Unknown parent task index : " + parentIdx);
+		}
+		if (taskCount == tasks.length) {
+			tasks = Arrays.copyOf(tasks, taskCount * 2);
+			taskParents = Arrays.copyOf(taskParents, taskCount * 2);
+		}
+		tasks[taskCount] = task;
+		taskParents[taskCount] = parentIdx;
+		return taskCount++;
+	}
+
+	/**
+	 * @return the report tasks count.
+	 */
+	public int getTaskCount() {
+		return taskCount;
+	}
+
+	/**
+	 * @param taskIdx
+	 *            the task index.
+	 * @return the task and its sums.
+	 */
+	public TaskSums getTask(int taskIdx) {
+		return tasks[taskIdx];
+	}
+
+	/**
+	 * @param taskIdx
+	 *            the task index.
+	 * @return the index of the parent task (<code>-1</code> for top tasks).
+	 */
+	public int getParentTaskIndex(int taskIdx) {
+		return taskParents[taskIdx];
+	}
+
+	/**
+	 * Adds a row.
+	 * 
+	 * @param contributor
+	 *            the contributor (optional).
+	 * @param taskIdx
+	 *            the contributed task index (<code>-1</code> if the report is
+	 *            not by task).
+	 * @return the row index.
+	 */
+	public int addRow(Collaborator contributor, int taskIdx) {
+		if (taskIdx >= taskCount) {
+			throw new IllegalArgumentException("Unknown task index : " + taskIdx);
+		}
+		if (rowCount == rowTasks.length) {
+			int capacity = rowCount * 2;
+			rowTasks = Arrays.copyOf(rowTasks, capacity);
+			rowContributors = Arrays.copyOf(rowContributors, capacity);
+		}
+		int block = rowCount >>> BLOCK_SHIFT;
+		if (block == sums.length) {
+			sums = Arrays.copyOf(sums, block * 2);
+		}
+		if (sums[block] == null) {
+			// The first block is only as large as required
+			sums[block] = new long[(block == 0 ? INITIAL_CAPACITY : BLOCK_ROWS) * intervalCount];
+		} else if (block == 0 && rowCount * intervalCount == sums[0].length) {
+			sums[0] = Arrays.copyOf(sums[0], Math.min(rowCount * 2, BLOCK_ROWS) * intervalCount);
+		}
+		rowTasks[rowCount] = taskIdx;
+		rowContributors[rowCount] = contributor;
+		return rowCount++;
+	}
+
+	/**
+	 * @param rowIdx
+	 *            the row index.
+	 * @return the contributed task index (<code>-1</code> if the report is
+	 *         not by task).
+	 */
+	public int getRowTaskIndex(int rowIdx) {
+		return rowTasks[rowIdx];
+	}
+
+	/**
+	 * @param rowIdx
+	 *            the row index.
+	 * @return the row contributor.
+	 */
+	public Collaborator getRowContributor(int rowIdx) {
+		return rowContributors[rowIdx];
+	}
+
+	/**
+	 * @param rowIdx
+	 *            the row index.
+	 * @param dateIdx
+	 *            the interval index.
+	 * @return the contributions sum.
+	 */
+	public long getContributionSum(int rowIdx, int dateIdx) {
+		return sums[rowIdx >>> BLOCK_SHIFT][(rowIdx & (BLOCK_ROWS - 1)) * intervalCount + dateIdx];
+	}
+
+	/**
+	 * Adds a duration to a contributions sum.
+	 * 
+	 * @param rowIdx
+	 *            the row index.
+	 * @param dateIdx
+	 *            the interval index.
+	 * @param duration
+	 *            the duration to add.
+	 */
+	public void addToContributionSum(int rowIdx, int dateIdx, long duration) {
+		if (dateIdx < 0 || dateIdx >= intervalCount) {
+			throw new IndexOutOfBoundsException("Interval index: " + dateIdx);
+		}
+		sums[rowIdx >>> BLOCK_SHIFT][(rowIdx & (BLOCK_ROWS - 1)) * intervalCount + dateIdx] += duration;
+	}
+
+	/**
+	 * @param rowIdx
+	 *            the row index.
+	 * @return the tasks of the row, from the top task to the contributed task.
+	 */
+	List<Task> getRowTasks(int rowIdx) {
+		int taskIdx = rowTasks[rowIdx];
+		int depth = 0;
+		for (int i = taskIdx; i >= 0; i = taskParents[i]) {
+			depth++;
+		}
+		Task[] result = new Task[depth];
+		for (int i = taskIdx; i >= 0; i = taskParents[i]) {
+			result[--depth] = tasks[i].getTask();
+		}
+		return Arrays.asList(result);
+	}
+
 	private static final int TASK_PATH_PAD = 15;
 	private static final int TASK_NAME_PAD = 15;
 	private static final int BUDGET_NAME_PAD = 7;
@@ -133,7 +349,7 @@ public class Report {
 					appendCellLeft(sw, NON_REPEATED_AMOUNT, INITIALLY_CONSUMMED_NAME_PAD);
 				}
 			}
-			for (int i=0; i<dates.size(); i++) {
+			for (int i=0; i<intervalCount; i++) {
 				sums[i] += item.getContributionSum(i);
 				appendCellLeft(sw, StringHelper.hundredthToEntry(item.getContributionSum(i)), CONTRIBUTION_PAD);
 			}
@@ -167,7 +383,7 @@ public class Report {
 			appendCellLeft(sw, StringHelper.hundredthToEntry(budgetSum), BUDGET_NAME_PAD);
 			appendCellLeft(sw, StringHelper.hundredthToEntry(initiallyConsumedSum), INITIALLY_CONSUMMED_NAME_PAD);
 		}
-		for (int i=0; i<dates.size(); i++) {
+		for (int i=0; i<intervalCount; i++) {
 			appendCellLeft(sw, StringHelper.hundredthToEntry(sums[i]), CONTRIBUTION_PAD);
 		}
 		if (taskDepth > 0 && !isContributorCentric) {
@@ -229,7 +445,7 @@ public class Report {
 			break;
 		}
 		SimpleDateFormat sdf = new SimpleDateFormat(format);
-		for (Calendar date : dates) {
+		for (Calendar date : getDates()) {
 			appendCellLeft(sw, sdf.format(date.getTime()), CONTRIBUTION_PAD);
 		}
 		if (taskDepth > 0 && !isContributorCentric) {
@@ -0,0 +1,82 @@
+package org.activitymgr.core.dto.report;
+
+/**
+ * Report cost estimate.
+ */
+public class ReportEstimate {
+
+	/** Estimated rows count */
+	private final long rowCount;
+
+	/** Columns count */
+	private final int columnCount;
+
+	/** Estimated count of contributions to read */
+	private final long contributionCount;
+
+	/** Estimated generation time (in milliseconds) */
+	private final long duration;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param rowCount
+	 *            the estimated rows count.
+	 * @param columnCount
+	 *            the columns count.
+	 * @param contributionCount
+	 *            the estimated count of contributions to read.
+	 * @param duration
+	 *            the estimated generation time (in milliseconds).
+	 */
+	public ReportEstimate(long rowCount, int columnCount,
+			long contributionCount, long duration) {
+		this.rowCount = rowCount;
+		this.columnCount = columnCount;
+		this.contributionCount = contributionCount;
+		this.duration = duration;
+	}
+
+	/**
+	 * @return the estimated rows count.
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return the columns count.
+	 */
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	/**
+	 * @return the estimated cells count.
+	 */
+	public long getCellCount() {
+		return rowCount * columnCount;
+	}
+
+	/**
+	 * @return the estimated count of contributions to read.
+	 */
+	public long getContributionCount() {
+		return contributionCount;
+	}
+
+	/**
+	 * @return the estimated generation time (in milliseconds).
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	@Override
+	public String toString() {
+		return "ReportEstimate[rows=" + rowCount + ", columns=" + columnCount
+				+ ", contributions=" + contributionCount + ", duration="
+				+ duration + "ms]";
+	}
+
+}
@@ -1,58 +1,59 @@
 package org.activitymgr.core.dto.report;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 
 import org.activitymgr.core.dto.Collaborator;
 import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.dto.misc.TaskSums;
 
+/**
+ * Report row view.
+ * <p>
+ * The row data is stored in the {@link Report} ; views may be created on
+ * demand and are never retained by the report.
+ * </p>
+ */
 public class ReportItem {
 	
-	private final Collaborator contributor;
+	private final Report report;
 	
-	private final Collection<Task> tasks = new ArrayList<Task>();
-	
-	private final TaskSums contributedTask;
+	private final int rowIdx;
 
-	private final long[] contributionSums;
-	
-	public ReportItem(Report parent, Collaborator contributor,
-			TaskSums contributedTask, Task... parentTasks) {
-		contributionSums = new long[parent.getIntervalCount()];
-		if (parentTasks != null && (parentTasks.length > parent.getTaskDepth())) {
-			throw new IllegalStateException("Invalid task count, expected : " + parent.getTaskDepth() + ", actual:" + parentTasks.length);
-		}
-		if (parentTasks != null) {
-			this.tasks.addAll(Arrays.asList(parentTasks));
-		}
-		if (contributedTask != null) {
-			this.tasks.add(contributedTask.getTask());
-		}
-		this.contributor = contributor;
-		this.contributedTask = contributedTask;
-		parent.add(this);
+	ReportItem(Report report, int rowIdx) {
+		this.report = report;
+		this.rowIdx = rowIdx;
 	}
 	
 	public long getContributionSum(int dateIdx) {
-		return contributionSums[dateIdx];
+		return report.getContributionSum(rowIdx, dateIdx);
 	}
 	
 	public void addToContributionSum(int dateIdx, long duration) {
-		contributionSums[dateIdx] += duration;
+		report.addToContributionSum(rowIdx, dateIdx, duration);
 	}
 
+	/**
+	 * @return the tasks of the row, from the top task to the contributed task
+	 *         (built on demand).
+	 */
 	public Collection<Task> getTasks() {
-		return tasks;
+		return report.getRowTasks(rowIdx);
 	}
 
 	public Collaborator getContributor() {
-		return contributor;
+		return report.getRowContributor(rowIdx);
 	}
 
 	public TaskSums getContributedTask() {
-		return contributedTask;
+		int taskIdx = report.getRowTaskIndex(rowIdx);
+		return taskIdx >= 0 ? report.getTask(taskIdx) : null;
+	}
+
+	/**
+	 * @return the row index in the report.
+	 */
+	public int getRowIndex() {
+		return rowIdx;
 	}
 
 }
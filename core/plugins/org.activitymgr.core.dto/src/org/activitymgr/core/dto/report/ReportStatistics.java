@@ -0,0 +1,133 @@
+package org.activitymgr.core.dto.report;
+
+/**
+ * Tables statistics used to estimate the cost of a report.
+ * <p>
+ * The statistics are approximate : they are computed once and reused for a
+ * while, so that no request is performed on the contributions table each
+ * time a report configuration is changed.
+ * </p>
+ */
+public class ReportStatistics {
+
+	/** Contributions count */
+	private long contributionsCount;
+
+	/** First contribution day key (<code>0</code> if there is no contribution) */
+	private int firstDateKey;
+
+	/** Last contribution day key (<code>0</code> if there is no contribution) */
+	private int lastDateKey;
+
+	/** Collaborators count */
+	private long collaboratorsCount;
+
+	/** Tasks count by depth (the first item gives the count of root tasks) */
+	private long[] tasksCountByDepth = new long[0];
+
+	/** Statistics computation date */
+	private long timestamp = System.currentTimeMillis();
+
+	/**
+	 * @return the contributions count.
+	 */
+	public long getContributionsCount() {
+		return contributionsCount;
+	}
+
+	/**
+	 * @param contributionsCount
+	 *            the contributions count.
+	 */
+	public void setContributionsCount(long contributionsCount) {
+		this.contributionsCount = contributionsCount;
+	}
+
+	/**
+	 * @return the first contribution day key (<code>0</code> if there is no
+	 *         contribution).
+	 */
+	public int getFirstDateKey() {
+		return firstDateKey;
+	}
+
+	/**
+	 * @param firstDateKey
+	 *            the first contribution day key.
+	 */
+	public void setFirstDateKey(int firstDateKey) {
+		this.firstDateKey = firstDateKey;
+	}
+
+	/**
+	 * @return the last contribution day key (<code>0</code> if there is no
+	 *         contribution).
+	 */
+	public int getLastDateKey() {
+		return lastDateKey;
+	}
+
+	/**
+	 * @param lastDateKey
+	 *            the last contribution day key.
+	 */
+	public void setLastDateKey(int lastDateKey) {
+		this.lastDateKey = lastDateKey;
+	}
+
+	/**
+	 * @return the collaborators count.
+	 */
+	public long getCollaboratorsCount() {
+		return collaboratorsCount;
+	}
+
+	/**
+	 * @param collaboratorsCount
+	 *            the collaborators count.
+	 */
+	public void setCollaboratorsCount(long collaboratorsCount) {
+		this.collaboratorsCount = collaboratorsCount;
+	}
+
+	/**
+	 * @return the tasks tree depth.
+	 */
+	public int getMaxTaskDepth() {
+		return tasksCountByDepth.length;
+	}
+
+	/**
+	 * @param depth
+	 *            the depth (<code>1</code> for root tasks).
+	 * @return the tasks count at that depth.
+	 */
+	public long getTasksCount(int depth) {
+		return depth >= 1 && depth <= tasksCountByDepth.length ? tasksCountByDepth[depth - 1] : 0;
+	}
+
+	/**
+	 * @param tasksCountByDepth
+	 *            the tasks count by depth (the first item gives the count of
+	 *            root tasks).
+	 */
+	public void setTasksCountByDepth(long[] tasksCountByDepth) {
+		this.tasksCountByDepth = tasksCountByDepth;
+	}
+
+	/**
+	 * @return the statistics computation date.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return "ReportStatistics[contributions=" + contributionsCount
+				+ ", from=" + firstDateKey + ", to=" + lastDateKey
+				+ ", collaborators=" + collaboratorsCount + ", maxTaskDepth="
+				+ tasksCountByDepth.length + "]";
+	}
+
+}
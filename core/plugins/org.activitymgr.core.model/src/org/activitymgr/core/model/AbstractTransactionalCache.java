@@ -0,0 +1,215 @@
+package org.activitymgr.core.model;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+/**
+ * Base class of the model caches whose invalidation is bound to the
+ * transactions.
+ * <p>
+ * The connection of a transaction that modifies the cached data is
+ * registered as a pending writer until {@link #transactionEnded(Connection)}
+ * is called by the transaction owner (after the commit or the rollback, see
+ * {@link ModelCaches}). While a writer is pending, nothing is cached (a
+ * transaction could otherwise cache uncommitted data that is rolled back
+ * afterwards, or the data it reads before the concurrent commit), and the
+ * cache is invalidated again once the transaction is ended.
+ * </p>
+ * <p>
+ * The cached data is read in the database with the data version returned by
+ * {@link #getVersion()} ; it may only be cached if
+ * {@link #isCacheable(long)} still returns <code>true</code> afterwards. The
+ * cache state is guarded by the cache instance lock.
+ * </p>
+ * <p>
+ * The cached DTOs are shared : they are copied (see {@link #copy(Object)})
+ * before being returned so that they may be modified by their users.
+ * </p>
+ */
+public abstract class AbstractTransactionalCache {
+
+	/** Transaction provider */
+	@Inject
+	private Provider<Connection> tx;
+
+	/** Data version */
+	private long version;
+
+	/** Pending writers */
+	private final Set<Connection> writers = Collections.newSetFromMap(new IdentityHashMap<Connection, Boolean>());
+
+	/** Hits counter */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** Misses counter */
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @return the current data version.
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Invalidates the cache and registers the current transaction as a pending
+	 * writer.
+	 */
+	public void invalidate() {
+		Connection con = tx.get();
+		synchronized (this) {
+			writers.add(con);
+			version++;
+			clear();
+		}
+	}
+
+	/**
+	 * Notifies the end (commit or rollback) of a transaction. Invalidates the
+	 * cache if the transaction has modified the cached data.
+	 *
+	 * @param con
+	 *            the transaction.
+	 */
+	public synchronized void transactionEnded(Connection con) {
+		if (writers.remove(con)) {
+			version++;
+			clear();
+		}
+	}
+
+	/**
+	 * @param version
+	 *            the data version read before reading the data in the
+	 *            database.
+	 * @return <code>true</code> if the data may be cached (the caller must
+	 *         hold the cache lock).
+	 */
+	protected boolean isCacheable(long version) {
+		return version == this.version && writers.isEmpty();
+	}
+
+	/**
+	 * Clears the cached data (called with the cache lock).
+	 */
+	protected abstract void clear();
+
+	/**
+	 * Records a cache hit or miss.
+	 *
+	 * @param hit
+	 *            <code>true</code> for a hit.
+	 */
+	protected void hitOrMiss(boolean hit) {
+		(hit ? hits : misses).incrementAndGet();
+	}
+
+	/**
+	 * @return the number of requests served from the cache.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of requests that had to be served by the database.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the hit ratio (in percent).
+	 */
+	public int getHitRatio() {
+		long h = hits.get();
+		long m = misses.get();
+		return h + m > 0 ? (int) (h * 100 / (h + m)) : 0;
+	}
+
+	/**
+	 * Resets the statistics.
+	 */
+	public void resetStatistics() {
+		hits.set(0);
+		misses.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[hits=" + hits.get()
+				+ ", misses=" + misses.get() + ", hitRatio=" + getHitRatio()
+				+ "%, version=" + getVersion() + "]";
+	}
+
+	/**
+	 * @param dto
+	 *            the DTO to copy.
+	 * @return a copy of the DTO (of the same class, which may be a DTO
+	 *         extension).
+	 */
+	@SuppressWarnings("unchecked")
+	protected static <DTO> DTO copy(DTO dto) {
+		Copier copier = COPIERS.get(dto.getClass());
+		try {
+			Object copy = copier.constructor.newInstance();
+			for (Field field : copier.fields) {
+				field.set(copy, field.get(dto));
+			}
+			return (DTO) copy;
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** DTO copiers by DTO class */
+	private static final ClassValue<Copier> COPIERS = new ClassValue<Copier>() {
+		@Override
+		protected Copier computeValue(Class<?> type) {
+			try {
+				Constructor<?> constructor = type.getDeclaredConstructor();
+				constructor.setAccessible(true);
+				List<Field> fields = new ArrayList<Field>();
+				for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+					for (Field field : c.getDeclaredFields()) {
+						if (!Modifier.isStatic(field.getModifiers())) {
+							field.setAccessible(true);
+							fields.add(field);
+						}
+					}
+				}
+				return new Copier(constructor, fields.toArray(new Field[fields.size()]));
+			} catch (NoSuchMethodException e) {
+				throw new IllegalStateException("No default constructor on class '" + type.getName() + "'", e);
+			}
+		}
+	};
+
+	/**
+	 * DTO copier.
+	 */
+	private static class Copier {
+
+		private final Constructor<?> constructor;
+
+		private final Field[] fields;
+
+		Copier(Constructor<?> constructor, Field[] fields) {
+			this.constructor = constructor;
+			this.fields = fields;
+		}
+
+	}
+
+}
@@ -1,13 +1,133 @@
 package org.activitymgr.core.model;
 
+import org.activitymgr.core.dao.AbstractDAOImpl;
 import org.activitymgr.core.dao.CoreDAOModule;
 import org.activitymgr.core.model.impl.ModelMgrImpl;
+import org.activitymgr.core.util.XLSXWriter;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Singleton;
 
 public class CoreModelModule extends AbstractModule {
 
+	/**
+	 * Name of the optional integer constant giving the JDBC batch size used
+	 * by bulk writes (contributions, imports).
+	 */
+	public static final String DAO_BATCH_SIZE = CoreDAOModule.BATCH_SIZE;
+
+	/** Default JDBC batch size */
+	public static final int DEFAULT_DAO_BATCH_SIZE = AbstractDAOImpl.DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Name of the optional string constant selecting the report engine
+	 * ({@link #SQL_REPORT_ENGINE} or {@link #IN_MEMORY_REPORT_ENGINE}).
+	 */
+	public static final String REPORT_ENGINE = CoreDAOModule.REPORT_ENGINE;
+
+	/** Report engine computing the reports in the database (default) */
+	public static final String SQL_REPORT_ENGINE = CoreDAOModule.SQL_REPORT_ENGINE;
+
+	/** Report engine computing the reports in memory */
+	public static final String IN_MEMORY_REPORT_ENGINE = CoreDAOModule.IN_MEMORY_REPORT_ENGINE;
+
+	/**
+	 * Name of the optional integer constant giving the number of requests used
+	 * to build a report concurrently (<code>1</code> disables the parallel
+	 * mode, which also requires a {@link #REPORT_DATA_SOURCE} binding).
+	 */
+	public static final String REPORT_PARALLELISM = CoreDAOModule.REPORT_PARALLELISM;
+
+	/** Default report parallelism (serial mode) */
+	public static final int DEFAULT_REPORT_PARALLELISM = 1;
+
+	/**
+	 * Name of the optional {@link javax.sql.DataSource} binding giving the
+	 * connections used by the parallel reports.
+	 */
+	public static final String REPORT_DATA_SOURCE = CoreDAOModule.REPORT_DATA_SOURCE;
+
+	/**
+	 * Name of the optional integer constant giving the maximum number of
+	 * cached reports (<code>0</code> disables the cache).
+	 */
+	public static final String REPORT_CACHE_SIZE = "activitymgr.model.reportCacheSize";
+
+	/** Default maximum number of cached reports */
+	public static final int DEFAULT_REPORT_CACHE_SIZE = ReportCache.DEFAULT_SIZE;
+
+	/**
+	 * Name of the optional integer constant giving the cached reports max age
+	 * (in seconds).
+	 */
+	public static final String REPORT_CACHE_MAX_AGE = "activitymgr.model.reportCacheMaxAge";
+
+	/** Default cached reports max age (in seconds) */
+	public static final int DEFAULT_REPORT_CACHE_MAX_AGE = ReportCache.DEFAULT_MAX_AGE;
+
+	/**
+	 * Name of the optional integer constant giving the max age (in seconds) of
+	 * the tables statistics used to estimate the reports cost.
+	 */
+	public static final String REPORT_STATISTICS_MAX_AGE = "activitymgr.model.reportStatisticsMaxAge";
+
+	/** Default tables statistics max age (in seconds) */
+	public static final int DEFAULT_REPORT_STATISTICS_MAX_AGE = ReportCostEstimator.DEFAULT_STATISTICS_MAX_AGE;
+
+	/**
+	 * Name of the optional integer constant giving the maximum number of
+	 * columns of a report, whatever its output format (HTML, CSV, XLSX...).
+	 */
+	public static final String REPORT_MAX_COLUMNS = "activitymgr.model.reportMaxColumns";
+
+	/** Default maximum number of columns of a report (the XLSX limit) */
+	public static final int DEFAULT_REPORT_MAX_COLUMNS = XLSXWriter.MAX_COLUMNS;
+
+	/**
+	 * Name of the optional integer constant giving the maximum number of
+	 * cached tasks (<code>0</code> disables the cache).
+	 */
+	public static final String TASK_CACHE_SIZE = "activitymgr.model.taskCacheSize";
+
+	/** Default maximum number of cached tasks */
+	public static final int DEFAULT_TASK_CACHE_SIZE = TaskCache.DEFAULT_SIZE;
+
+	/**
+	 * Name of the optional integer constant giving the cached tasks max age
+	 * (in seconds).
+	 */
+	public static final String TASK_CACHE_MAX_AGE = "activitymgr.model.taskCacheMaxAge";
+
+	/** Default cached tasks max age (in seconds) */
+	public static final int DEFAULT_TASK_CACHE_MAX_AGE = TaskCache.DEFAULT_MAX_AGE;
+
+	/**
+	 * Name of the optional boolean constant enabling the collaborators and
+	 * durations cache.
+	 */
+	public static final String REFERENCE_DATA_CACHE_ENABLED = "activitymgr.model.referenceDataCacheEnabled";
+
+	/** Default collaborators and durations cache activation */
+	public static final boolean DEFAULT_REFERENCE_DATA_CACHE_ENABLED = true;
+
+	/**
+	 * Name of the optional integer constant giving the collaborators and
+	 * durations cache max age (in seconds).
+	 */
+	public static final String REFERENCE_DATA_CACHE_MAX_AGE = "activitymgr.model.referenceDataCacheMaxAge";
+
+	/** Default collaborators and durations cache max age (in seconds) */
+	public static final int DEFAULT_REFERENCE_DATA_CACHE_MAX_AGE = ReferenceDataCache.DEFAULT_MAX_AGE;
+
+	/**
+	 * Name of the optional integer constant giving the time (in seconds) to
+	 * wait for a task sub tree lock.
+	 */
+	public static final String TASK_LOCK_TIMEOUT = "activitymgr.model.taskLockTimeout";
+
+	/** Default task sub tree lock timeout (in seconds) */
+	public static final int DEFAULT_TASK_LOCK_TIMEOUT = TaskLocks.DEFAULT_TIMEOUT;
+
 //	public static interface IPostInjectionListener {
 //		
 //		void afterInjection() throws Exception;
@@ -23,6 +143,23 @@ public class CoreModelModule extends AbstractModule {
 		// Bind core ModelManager
 		bind(IModelMgr.class).to(ModelMgrImpl.class).in(Singleton.class);
 		
+		// Bind reports cache
+		bind(ReportCache.class).in(Singleton.class);
+		
+		// Bind report columns computers factory
+		bind(ReportColumnComputerFactory.class).in(Singleton.class);
+		
+		// Bind report cost estimator
+		bind(ReportCostEstimator.class).in(Singleton.class);
+		
+		// Bind model caches
+		bind(TaskCache.class).in(Singleton.class);
+		bind(ReferenceDataCache.class).in(Singleton.class);
+		bind(ModelCaches.class).in(Singleton.class);
+		
+		// Bind task tree locks
+		bind(TaskLocks.class).in(Singleton.class);
+		
 		// Bind post injection listeners
 //		bindListener(Matchers.any(), new TypeListener() {
 //			@Override
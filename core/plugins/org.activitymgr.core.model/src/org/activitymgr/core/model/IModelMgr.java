@@ -46,7 +46,10 @@ import org.activitymgr.core.dto.misc.IntervalContributions;
 import org.activitymgr.core.dto.misc.TaskSearchFilter;
 import org.activitymgr.core.dto.misc.TaskSums;
 import org.activitymgr.core.dto.report.Report;
+import org.activitymgr.core.dto.report.ReportEstimate;
 import org.activitymgr.core.dto.report.ReportIntervalType;
+import org.activitymgr.core.util.EpochDays;
+import org.activitymgr.core.util.ISheetWriter;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.xml.sax.SAXException;
 
@@ -118,6 +121,28 @@ public interface IModelMgr {
 	Contribution createContribution(Contribution contribution,
 			boolean updateEstimatedTimeToComlete) throws ModelException;
 
+	/**
+	 * Crée un ensemble de contributions (typiquement la saisie d'une
+	 * semaine).
+	 * 
+	 * <p>
+	 * Les contributions sont toutes validées avant la première écriture
+	 * (chaque tâche et chaque durée n'est contrôlée qu'une fois), puis
+	 * insérées par lots JDBC.
+	 * </p>
+	 * 
+	 * @param contributions
+	 *            les contributions à créer.
+	 * @param updateEstimatedTimeToComlete
+	 *            booléen indiquant si le reste à faire doit être décrémenté.
+	 * @return les contributions après création.
+	 * @throws ModelException
+	 *             levé dans la cas ou une tache de destination ne peut
+	 *             recevoir de contribution ou si une durée est invalide.
+	 */
+	Contribution[] createContributions(Contribution[] contributions,
+			boolean updateEstimatedTimeToComlete) throws ModelException;
+
 	/**
 	 * Crée une durée.
 	 * 
@@ -205,6 +230,26 @@ public interface IModelMgr {
 	 */
 	void exportToXML(OutputStream out) throws IOException;
 
+	/**
+	 * Exporte le contenu de la base dans un fichier XML, éventuellement
+	 * compressé (gzip).
+	 * 
+	 * <p>
+	 * Les taches et les contributions sont lues au fil de l'eau et le flux
+	 * est écrit par blocs, ce qui permet d'exporter des bases volumineuses
+	 * à mémoire constante. Le flux n'est pas fermé.
+	 * </p>
+	 * 
+	 * @param out
+	 *            le flux dans lequel est généré le flux XML.
+	 * @param gzip
+	 *            booléen indiquant si le flux doit être compressé.
+	 * @throws IOException
+	 *             levé en cas d'incident I/O lors de l'écriture sur le flux
+	 *             de sortie.
+	 */
+	void exportToXML(OutputStream out, boolean gzip) throws IOException;
+
 	/**
 	 * Tells whether the given task is leaf or not.
 	 * 
@@ -297,6 +342,21 @@ public interface IModelMgr {
 	Contribution[] getContributions(Collaborator contributor, Task task,
 			Calendar fromDate, Calendar toDate) throws ModelException;
 
+	/**
+	 * @param contributor
+	 *            le collaborateur associé aux contributions.
+	 * @param task
+	 *            la tache associée aux contributions.
+	 * @param fromDay
+	 *            le jour de départ (voir {@link EpochDays}).
+	 * @param toDay
+	 *            le jour de fin.
+	 * @return la liste des contributions associées aux paramétres spécifiés.
+	 * @throws ModelException
+	 */
+	Contribution[] getContributions(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws ModelException;
+
 	/**
 	 * Calcule le nombre des contributions associée aux paramétres spécifiés.
 	 * 
@@ -319,6 +379,25 @@ public interface IModelMgr {
 	int getContributionsCount(Collaborator contributor, Task task,
 			Calendar fromDate, Calendar toDate) throws ModelException;
 
+	/**
+	 * Calcule le nombre des contributions associée aux paramétres spécifiés.
+	 * 
+	 * @param task
+	 *            la tâche associée aux contributions (facultative).
+	 * @param contributor
+	 *            le collaborateur associé aux contributions (facultatif).
+	 * @param fromDay
+	 *            le jour de départ (voir {@link EpochDays}).
+	 * @param toDay
+	 *            le jour de fin.
+	 * @return le nombre de contributions.
+	 * @throws ModelException
+	 *             levé en cas d'incohérence des données en entrée avec le
+	 *             modèle.
+	 */
+	int getContributionsCount(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws ModelException;
+
 	/**
 	 * Calcule le total des contributions associée aux paramétres spécifiés.
 	 * 
@@ -336,6 +415,23 @@ public interface IModelMgr {
 	long getContributionsSum(Collaborator contributor, Task task,
 			Calendar fromDate, Calendar toDate) throws ModelException;
 
+	/**
+	 * Calcule le total des contributions associée aux paramétres spécifiés.
+	 * 
+	 * @param task
+	 *            the task of the contributions to select (or parent task).
+	 * @param contributor
+	 *            le collaborateur associé aux contributions (facultatif).
+	 * @param fromDay
+	 *            le jour de départ (voir {@link EpochDays}).
+	 * @param toDay
+	 *            le jour de fin.
+	 * @return la seomme des contributions.
+	 * @throws ModelException
+	 */
+	long getContributionsSum(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws ModelException;
+
 	/**
 	 * @param task
 	 *            la tache associée aux contributions.
@@ -387,6 +483,27 @@ public interface IModelMgr {
 			Task task, Calendar fromDate, Calendar toDate)
 			throws ModelException;
 
+	/**
+	 * Retourne les contributions associées à une tache, un collaborateur et à
+	 * un interval de jours donnés (sans conversion de date par contribution).
+	 * 
+	 * @param contributor
+	 *            le collaborateur associé aux contributions.
+	 * @param task
+	 *            la tache associée aux contributions (optionel).
+	 * @param fromDay
+	 *            le jour de départ (voir {@link EpochDays}).
+	 * @param toDay
+	 *            le jour de fin.
+	 * @return la liste des contributions.
+	 * @throws ModelException
+	 *             levé dans le cas ou le jour de fin spécifié est antérieur au
+	 *             jour de début spécifié.
+	 * @see #getIntervalContributions(Collaborator, Task, Calendar, Calendar)
+	 */
+	IntervalContributions getIntervalContributions(Collaborator contributor,
+			Task task, int fromDay, int toDay) throws ModelException;
+
 	/**
 	 * @param task
 	 *            la tache dont on veut connaitre la tache parent.
@@ -560,6 +677,35 @@ public interface IModelMgr {
 	 */
 	void importFromXML(InputStream in) throws IOException,
 			ParserConfigurationException, SAXException, ModelException;
+
+	/**
+	 * Importe le contenu d'un fichier XML.
+	 * 
+	 * <p>
+	 * En mode différé (<code>staged</code>), les références (logins, chemins
+	 * de taches) sont résolues et les données validées en mémoire, puis
+	 * écrites par lots JDBC ; l'avancement et le débit de l'import sont
+	 * tracés. Ce mode est adapté aux volumineux fichiers et doit être
+	 * utilisé dans une transaction annulée en cas d'erreur.
+	 * </p>
+	 * 
+	 * @param in
+	 *            le flux depuis lequel est lu le flux XML.
+	 * @param staged
+	 *            booléen indiquant si l'import doit être réalisé en mode
+	 *            différé.
+	 * @throws IOException
+	 *             levé en cas d'incident I/O lors de la lecture sur le flux
+	 *             d'entrée
+	 * @throws ParserConfigurationException
+	 *             levé en cas de mauvaise configuration du parser XML.
+	 * @throws SAXException
+	 *             levé en cas d'erreur de mauvais format du fichier XML.
+	 * @throws ModelException
+	 *             levé en cas d'incohérence des données lors de l'import
+	 */
+	void importFromXML(InputStream in, boolean staged) throws IOException,
+			ParserConfigurationException, SAXException, ModelException;
 	
 	/**
 	 * Imports several tasks under a given parent task.
@@ -668,6 +814,29 @@ public interface IModelMgr {
 	 */
 	void moveUpTask(Task task) throws ModelException;
 
+	/**
+	 * Reconstruit la fermeture de l'arborescence des taches (table
+	 * TASK_CLOSURE) à partir des chemins des taches.
+	 * <p>
+	 * Permet d'initialiser la table après migration d'une base existante ou
+	 * de la réparer.
+	 * </p>
+	 * 
+	 * @return le nombre d'entrées générées.
+	 */
+	int rebuildTasksClosure();
+
+	/**
+	 * Reconstruit les cumuls pré-calculés des contributions par tache (table
+	 * CONTRIBUTION_SUMS).
+	 * <p>
+	 * La fermeture de l'arborescence des taches doit être à jour.
+	 * </p>
+	 * 
+	 * @return le nombre d'entrées générées.
+	 */
+	int rebuildContributionsSums();
+
 	/**
 	 * Supprime un collaborateur.
 	 * 
@@ -1042,6 +1211,202 @@ public interface IModelMgr {
 			boolean includeTotals, boolean dryRun)
 			throws ModelException;
 
+	/**
+	 * Builds a report and streams it in Excel 2007 format (<code>.xlsx</code>).
+	 * <p>
+	 * Unlike {@link #buildReport(Calendar, ReportIntervalType, Integer, Long, int, boolean, boolean, boolean, long[], String[], boolean, boolean)}
+	 * the workbook is not built in memory (rows are written as they are
+	 * computed) and the report is not limited to 256 columns.
+	 * </p>
+	 * 
+	 * @param start
+	 *            the start date to consider [Optional].
+	 * @param intervalType
+	 *            the interval type (days, weeks, months, years) [Required].
+	 * @param intervalCount
+	 *            the interval count to cover [Optional].
+	 * @param rootTaskId
+	 *            the root task identifier [Optional].
+	 * @param taskDepth
+	 *            the task depth to consider [Required].
+	 * @param onlyKeepTasksWithContributions
+	 *            <code>true</code> if the report must only keep tasks with
+	 *            contributions.
+	 * @param byContributor
+	 *            <code>true</code> if the report must decline contributions by
+	 *            contributors.
+	 * @param contributorCentricMode
+	 *            <code>true</code> if the report must be ordered by
+	 *            contributors and then by tasks or the inverse.
+	 * @param contributorIds
+	 *            contributor identifiers (optional).
+	 * @param columnIds
+	 *            the column identifiers to user.
+	 * @param includeTotals
+	 *            <code>true</code> to include a column with row sums and a row
+	 *            with columns sums.
+	 * @param dryRun
+	 *            <code>true</code> to perform a dry run test (report is not
+	 *            generated in such case).
+	 * @param out
+	 *            the output stream (not closed, ignored in dry run mode).
+	 * @throws ModelException
+	 *             if start date is not specified and no contribution exist in
+	 *             the database.
+	 * @throws IOException
+	 *             thrown if an I/O error occurs.
+	 */
+	void buildXLSXReport(Calendar start, ReportIntervalType intervalType,
+			Integer intervalCount, Long rootTaskId, int taskDepth,
+			boolean onlyKeepTasksWithContributions, boolean byContributor,
+			boolean contributorCentricMode, long[] contributorIds,
+			String[] columnIds, boolean includeTotals, boolean dryRun,
+			OutputStream out) throws ModelException, IOException;
+
+	/**
+	 * Builds a report and streams it in Excel 2007 format (<code>.xlsx</code>).
+	 * 
+	 * @param start
+	 *            the start date to consider [Optional].
+	 * @param intervalType
+	 *            the interval type (days, weeks, months, years) [Required].
+	 * @param intervalCount
+	 *            the interval count to cover [Optional].
+	 * @param rootTaskId
+	 *            the root task identifier [Optional].
+	 * @param taskDepth
+	 *            the task depth to consider [Required].
+	 * @param onlyKeepTasksWithContributions
+	 *            <code>true</code> if the report must only keep tasks with
+	 *            contributions.
+	 * @param byContributor
+	 *            <code>true</code> if the report must decline contributions by
+	 *            contributors.
+	 * @param contributorCentricMode
+	 *            <code>true</code> if the report must be ordered by
+	 *            contributors and then by tasks or the inverse.
+	 * @param contributorIds
+	 *            contributor identifiers (optional).
+	 * @param columns
+	 *            the column computers to use.
+	 * @param orderContributorsBy
+	 *            fields to use to order contributors (ignored if
+	 *            <code>byContributor</code> is <code>false</code>).
+	 * @param includeTotals
+	 *            <code>true</code> to include a column with row sums and a row
+	 *            with columns sums.
+	 * @param dryRun
+	 *            <code>true</code> to perform a dry run test (report is not
+	 *            generated in such case).
+	 * @param out
+	 *            the output stream (not closed, ignored in dry run mode).
+	 * @throws ModelException
+	 *             if start date is not specified and no contribution exist in
+	 *             the database.
+	 * @throws IOException
+	 *             thrown if an I/O error occurs.
+	 * @see #buildXLSXReport(Calendar, ReportIntervalType, Integer, Long, int, boolean, boolean, boolean, long[], String[], boolean, boolean, OutputStream)
+	 */
+	void buildXLSXReport(Calendar start, ReportIntervalType intervalType,
+			Integer intervalCount, Long rootTaskId, int taskDepth,
+			boolean onlyKeepTasksWithContributions, boolean byContributor,
+			boolean contributorCentricMode, long[] contributorIds,
+			IReportColumnComputer[] columns, String[] orderContributorsBy,
+			boolean includeTotals, boolean dryRun, OutputStream out)
+			throws ModelException, IOException;
+
+	/**
+	 * Builds a report and writes it row by row (no intermediate workbook is
+	 * built).
+	 * 
+	 * @param start
+	 *            the start date to consider [Optional].
+	 * @param intervalType
+	 *            the interval type (days, weeks, months, years) [Required].
+	 * @param intervalCount
+	 *            the interval count to cover [Optional].
+	 * @param rootTaskId
+	 *            the root task identifier [Optional].
+	 * @param taskDepth
+	 *            the task depth to consider [Required].
+	 * @param onlyKeepTasksWithContributions
+	 *            <code>true</code> if the report must only keep tasks with
+	 *            contributions.
+	 * @param byContributor
+	 *            <code>true</code> if the report must decline contributions by
+	 *            contributors.
+	 * @param contributorCentricMode
+	 *            <code>true</code> if the report must be ordered by
+	 *            contributors and then by tasks or the inverse.
+	 * @param contributorIds
+	 *            contributor identifiers (optional).
+	 * @param columnIds
+	 *            the column identifiers to user.
+	 * @param includeTotals
+	 *            <code>true</code> to include a column with row sums and a row
+	 *            with columns sums.
+	 * @param out
+	 *            the sheet writer (no row is written if the report parameters
+	 *            are invalid).
+	 * @throws ModelException
+	 *             if start date is not specified and no contribution exist in
+	 *             the database.
+	 * @throws IOException
+	 *             thrown if an I/O error occurs.
+	 */
+	void buildReport(Calendar start, ReportIntervalType intervalType,
+			Integer intervalCount, Long rootTaskId, int taskDepth,
+			boolean onlyKeepTasksWithContributions, boolean byContributor,
+			boolean contributorCentricMode, long[] contributorIds,
+			String[] columnIds, boolean includeTotals, ISheetWriter out)
+			throws ModelException, IOException;
+
+	/**
+	 * Estimates the cost of a report built in Excel 2007 format.
+	 * <p>
+	 * The report parameters are validated as in a dry run, but the estimate
+	 * is computed from cached tables statistics : the contributions table is
+	 * not requested (the estimate is therefore approximate).
+	 * </p>
+	 * 
+	 * @param start
+	 *            the start date to consider [Optional]. If omitted, the first
+	 *            contribution in the database will be considered.
+	 * @param intervalType
+	 *            the interval type (days, weeks, months, years) [Required].
+	 * @param intervalCount
+	 *            the interval count to cover [Optional]. If omitted, the last
+	 *            contribution in the database will be considered.
+	 * @param rootTaskId
+	 *            the root task identifier [Optional].
+	 * @param taskDepth
+	 *            the task depth to consider [Required].
+	 * @param onlyKeepTasksWithContributions
+	 *            <code>true</code> if the report must only keep tasks with
+	 *            contributions.
+	 * @param byContributor
+	 *            <code>true</code> if the report must decline contributions by
+	 *            contributors.
+	 * @param contributorCentricMode
+	 *            <code>true</code> if the report must be ordered by
+	 *            contributors and then by tasks or the inverse.
+	 * @param contributorIds
+	 *            contributor identifiers (optional).
+	 * @param columnCount
+	 *            the count of columns preceding the contributions columns.
+	 * @param includeTotals
+	 *            <code>true</code> if the report includes a column with row
+	 *            sums.
+	 * @return the estimate.
+	 * @throws ModelException
+	 *             if the report parameters are not valid.
+	 */
+	ReportEstimate estimateReport(Calendar start,
+			ReportIntervalType intervalType, Integer intervalCount,
+			Long rootTaskId, int taskDepth,
+			boolean onlyKeepTasksWithContributions, boolean byContributor,
+			boolean contributorCentricMode, long[] contributorIds,
+			int columnCount, boolean includeTotals) throws ModelException;
 
 	/**
 	 * Returns the max task tree depth under a given task.
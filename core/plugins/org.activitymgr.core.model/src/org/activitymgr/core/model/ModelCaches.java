@@ -0,0 +1,78 @@
+package org.activitymgr.core.model;
+
+import java.sql.Connection;
+
+import com.google.inject.Inject;
+
+/**
+ * Model caches facade.
+ * <p>
+ * The transaction owners (the transactional wrappers of the model manager)
+ * must call {@link #transactionEnded(Connection)} once a transaction is
+ * committed or rolled back, so that the caches invalidated by this
+ * transaction may be used again.
+ * </p>
+ */
+public class ModelCaches {
+
+	/** Tasks cache */
+	@Inject
+	private TaskCache taskCache;
+
+	/** Collaborators and durations cache */
+	@Inject
+	private ReferenceDataCache referenceDataCache;
+
+	/** Reports cache */
+	@Inject
+	private ReportCache reportCache;
+
+	/**
+	 * Notifies the end (commit or rollback) of a transaction.
+	 *
+	 * @param con
+	 *            the transaction.
+	 */
+	public void transactionEnded(Connection con) {
+		taskCache.transactionEnded(con);
+		referenceDataCache.transactionEnded(con);
+		reportCache.transactionEnded(con);
+	}
+
+	/**
+	 * @return the tasks cache.
+	 */
+	public TaskCache getTaskCache() {
+		return taskCache;
+	}
+
+	/**
+	 * @return the collaborators and durations cache.
+	 */
+	public ReferenceDataCache getReferenceDataCache() {
+		return referenceDataCache;
+	}
+
+	/**
+	 * @return the reports cache.
+	 */
+	public ReportCache getReportCache() {
+		return reportCache;
+	}
+
+	/**
+	 * Resets the caches statistics.
+	 */
+	public void resetStatistics() {
+		taskCache.resetStatistics();
+		referenceDataCache.resetStatistics();
+		reportCache.resetStatistics();
+	}
+
+	@Override
+	public String toString() {
+		return "ModelCaches[" + taskCache + ", " + referenceDataCache + ", "
+				+ reportCache + "]";
+	}
+
+}
@@ -0,0 +1,229 @@
+package org.activitymgr.core.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.activitymgr.core.dao.ICollaboratorDAO;
+import org.activitymgr.core.dao.IDurationDAO;
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.dto.Duration;
+import org.activitymgr.core.orm.query.AscendantOrderByClause;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Reference data (collaborators and durations) cache.
+ * <p>
+ * The whole <code>COLLABORATOR</code> and <code>DURATION</code> tables are
+ * loaded in an immutable snapshot, which is replaced as a whole when a
+ * collaborator or a duration is modified. The invalidation is bound to the
+ * transactions (see {@link AbstractTransactionalCache}) : while a writer is
+ * pending, no snapshot is available and the data must be read in the
+ * database.
+ * </p>
+ * <p>
+ * The snapshot age is also bounded, as the modifications performed by other
+ * JVMs (other web nodes sharing the database) do not invalidate the cache :
+ * a collaborator deactivated on another node is seen as such once the
+ * snapshot has expired.
+ * </p>
+ */
+public class ReferenceDataCache extends AbstractTransactionalCache {
+
+	/** Default snapshot max age (in seconds) */
+	public static final int DEFAULT_MAX_AGE = 30;
+
+	/** Cache activation */
+	@Inject(optional = true)
+	@Named(CoreModelModule.REFERENCE_DATA_CACHE_ENABLED)
+	private boolean enabled = CoreModelModule.DEFAULT_REFERENCE_DATA_CACHE_ENABLED;
+
+	/** Snapshot max age (in seconds) */
+	@Inject(optional = true)
+	@Named(CoreModelModule.REFERENCE_DATA_CACHE_MAX_AGE)
+	private int maxAge = DEFAULT_MAX_AGE;
+
+	/** Collaborators DAO */
+	@Inject
+	private ICollaboratorDAO collaboratorDAO;
+
+	/** Durations DAO */
+	@Inject
+	private IDurationDAO durationDAO;
+
+	/** Current snapshot */
+	private Snapshot snapshot;
+
+	/**
+	 * Returns the current snapshot, loading it if required.
+	 *
+	 * @return the snapshot or <code>null</code> if the cache is disabled or if
+	 *         a writer is pending.
+	 */
+	public Snapshot getSnapshot() {
+		if (!enabled) {
+			return null;
+		}
+		long version;
+		synchronized (this) {
+			if (snapshot != null
+					&& System.currentTimeMillis() - snapshot.timestamp > maxAge * 1000l) {
+				snapshot = null;
+			}
+			if (snapshot != null) {
+				hitOrMiss(true);
+				return snapshot;
+			}
+			hitOrMiss(false);
+			version = getVersion();
+			if (!isCacheable(version)) {
+				return null;
+			}
+		}
+		Snapshot loaded = new Snapshot(collaboratorDAO.selectAll(),
+				durationDAO.select(null, null, new Object[] { new AscendantOrderByClause("id") }, -1));
+		synchronized (this) {
+			if (isCacheable(version)) {
+				snapshot = loaded;
+			}
+		}
+		return loaded;
+	}
+
+	@Override
+	protected void clear() {
+		snapshot = null;
+	}
+
+	/**
+	 * Collaborators and durations snapshot.
+	 * <p>
+	 * The returned DTOs are copies.
+	 * </p>
+	 */
+	public static class Snapshot {
+
+		/** Loading time */
+		private final long timestamp = System.currentTimeMillis();
+
+		/** Collaborators by identifier */
+		private final Map<Long, Collaborator> collaboratorsById = new HashMap<Long, Collaborator>();
+
+		/** Collaborators by login */
+		private final Map<String, Collaborator> collaboratorsByLogin = new HashMap<String, Collaborator>();
+
+		/**
+		 * Sorted collaborators lists, loaded on demand (the sort order is the
+		 * database one)
+		 */
+		private final Map<String, Collaborator[]> sortedCollaborators = new ConcurrentHashMap<String, Collaborator[]>();
+
+		/** Durations (sorted by identifier) */
+		private final Duration[] durations;
+
+		/** Durations by identifier */
+		private final Map<Long, Duration> durationsById = new HashMap<Long, Duration>();
+
+		Snapshot(Collaborator[] collaborators, Duration[] durations) {
+			for (Collaborator collaborator : collaborators) {
+				collaboratorsById.put(collaborator.getId(), collaborator);
+				collaboratorsByLogin.put(collaborator.getLogin(), collaborator);
+			}
+			this.durations = durations;
+			for (Duration duration : durations) {
+				durationsById.put(duration.getId(), duration);
+			}
+		}
+
+		/**
+		 * @param id
+		 *            the collaborator identifier.
+		 * @return the collaborator or <code>null</code> if it does not exist.
+		 */
+		public Collaborator getCollaborator(long id) {
+			Collaborator collaborator = collaboratorsById.get(id);
+			return collaborator != null ? copy(collaborator) : null;
+		}
+
+		/**
+		 * @param login
+		 *            the collaborator login.
+		 * @return the collaborator or <code>null</code> if no collaborator has
+		 *         exactly this login (the database may be case insensitive).
+		 */
+		public Collaborator getCollaborator(String login) {
+			Collaborator collaborator = collaboratorsByLogin.get(login);
+			return collaborator != null ? copy(collaborator) : null;
+		}
+
+		/**
+		 * @param key
+		 *            the sort key.
+		 * @return the sorted collaborators or <code>null</code> if they have
+		 *         not been loaded yet.
+		 */
+		public Collaborator[] getCollaborators(String key) {
+			Collaborator[] collaborators = sortedCollaborators.get(key);
+			return collaborators != null ? copyAll(collaborators) : null;
+		}
+
+		/**
+		 * Registers a sorted collaborators list.
+		 *
+		 * @param key
+		 *            the sort key.
+		 * @param collaborators
+		 *            the sorted collaborators (read in the database).
+		 */
+		public void putCollaborators(String key, Collaborator[] collaborators) {
+			Collaborator[] shared = new Collaborator[collaborators.length];
+			for (int i = 0; i < collaborators.length; i++) {
+				// Share the snapshot instances
+				shared[i] = collaboratorsById.get(collaborators[i].getId());
+				if (shared[i] == null) {
+					return;
+				}
+			}
+			sortedCollaborators.put(key, shared);
+		}
+
+		/**
+		 * @param id
+		 *            the duration identifier.
+		 * @return the duration or <code>null</code> if it does not exist.
+		 */
+		public Duration getDuration(long id) {
+			Duration duration = durationsById.get(id);
+			return duration != null ? copy(duration) : null;
+		}
+
+		/**
+		 * @param onlyActive
+		 *            <code>true</code> to only return the active durations.
+		 * @return the durations sorted by identifier.
+		 */
+		public Duration[] getDurations(boolean onlyActive) {
+			int count = 0;
+			Duration[] result = new Duration[durations.length];
+			for (Duration duration : durations) {
+				if (!onlyActive || duration.getIsActive()) {
+					result[count++] = copy(duration);
+				}
+			}
+			return Arrays.copyOf(result, count);
+		}
+
+		private static Collaborator[] copyAll(Collaborator[] collaborators) {
+			Collaborator[] result = new Collaborator[collaborators.length];
+			for (int i = 0; i < collaborators.length; i++) {
+				result[i] = copy(collaborators[i]);
+			}
+			return result;
+		}
+
+	}
+
+}
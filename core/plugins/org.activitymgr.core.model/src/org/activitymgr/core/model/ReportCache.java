@@ -0,0 +1,125 @@
+package org.activitymgr.core.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.activitymgr.core.dto.report.Report;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Report results cache.
+ * <p>
+ * Reports are cached by parameters. The cache is invalidated by the model
+ * manager each time a contribution, a task or a collaborator is modified ;
+ * the invalidation is bound to the transactions (see
+ * {@link AbstractTransactionalCache}) : no report is cached while a writer is
+ * pending.
+ * </p>
+ * <p>
+ * The cached reports age is also bounded, as the modifications performed by
+ * other JVMs (other web nodes) do not invalidate the cache.
+ * </p>
+ * <p>
+ * The cached reports are shared : they must not be modified by their users.
+ * </p>
+ */
+public class ReportCache extends AbstractTransactionalCache {
+
+	/** Default cache size */
+	public static final int DEFAULT_SIZE = 20;
+
+	/** Default cached reports max age (in seconds) */
+	public static final int DEFAULT_MAX_AGE = 300;
+
+	/** Cache size (<code>0</code> disables the cache) */
+	@Inject(optional = true)
+	@Named(CoreModelModule.REPORT_CACHE_SIZE)
+	private int size = DEFAULT_SIZE;
+
+	/** Cached reports max age (in seconds) */
+	@Inject(optional = true)
+	@Named(CoreModelModule.REPORT_CACHE_MAX_AGE)
+	private int maxAge = DEFAULT_MAX_AGE;
+
+	/** Cached reports (LRU) */
+	@SuppressWarnings("serial")
+	private final Map<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+			return size() > size;
+		}
+	};
+
+	/**
+	 * Returns a cached report.
+	 *
+	 * @param key
+	 *            the report key (built from the report parameters).
+	 * @return the cached report or <code>null</code> if the report is not
+	 *         cached or is too old.
+	 */
+	public Report get(Object key) {
+		if (size <= 0) {
+			return null;
+		}
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+			if (entry != null
+					&& System.currentTimeMillis() - entry.timestamp > maxAge * 1000l) {
+				entries.remove(key);
+				entry = null;
+			}
+		}
+		hitOrMiss(entry != null);
+		return entry != null ? entry.report : null;
+	}
+
+	/**
+	 * Caches a report.
+	 * <p>
+	 * The report is ignored if the data version has changed while it was
+	 * built or if a writer is pending.
+	 * </p>
+	 *
+	 * @param key
+	 *            the report key.
+	 * @param version
+	 *            the data version read before building the report.
+	 * @param report
+	 *            the report.
+	 */
+	public void put(Object key, long version, Report report) {
+		if (size <= 0) {
+			return;
+		}
+		synchronized (this) {
+			if (isCacheable(version)) {
+				entries.put(key, new Entry(report));
+			}
+		}
+	}
+
+	@Override
+	protected void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Cache entry.
+	 */
+	private static class Entry {
+
+		private final long timestamp = System.currentTimeMillis();
+
+		private final Report report;
+
+		Entry(Report report) {
+			this.report = report;
+		}
+
+	}
+
+}
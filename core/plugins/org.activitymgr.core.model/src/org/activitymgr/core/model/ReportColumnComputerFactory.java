@@ -0,0 +1,262 @@
+package org.activitymgr.core.model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.dto.Task;
+import org.activitymgr.core.dto.misc.TaskSums;
+import org.activitymgr.core.dto.report.ReportItem;
+import org.activitymgr.core.model.impl.report.TaskPathReportColumnComputer;
+import org.activitymgr.core.util.StringHelper;
+
+/**
+ * Report column computers factory.
+ * <p>
+ * Column identifiers (<code>task.&lt;attribute&gt;</code> or
+ * <code>collaborator.&lt;attribute&gt;</code>) are resolved once into typed
+ * accessors, so that no reflective lookup is performed when the cells are
+ * computed. The attributes of the DTO extensions (see
+ * {@link org.activitymgr.core.dto.IDTOFactory}) are read through a method
+ * handle resolved once per DTO class. Budget, initially consumed and estimated
+ * time to complete are read in the task sums (they are summable).
+ * </p>
+ * <p>
+ * Custom computed columns (a consumed / budget ratio for instance) may be
+ * registered with {@link #register(String, IReportColumnComputer)}.
+ * </p>
+ */
+public class ReportColumnComputerFactory {
+
+	public static final String COLLABORATOR_PREFIX = "collaborator.";
+
+	public static final String TASK_PREFIX = "task.";
+
+	/** Task attributes read in the task sums */
+	private static final Map<String, ToLongFunction<TaskSums>> SUMMABLE_ATTRIBUTES = Map.of(
+			IModelMgr.BUDGET_ATTRIBUTE, TaskSums::getBudgetSum,
+			IModelMgr.INITIALLY_CONSUMED_ATTRIBUTE, TaskSums::getInitiallyConsumedSum,
+			IModelMgr.ETC_ATTRIBUTE, TaskSums::getTodoSum);
+
+	/** Task attributes */
+	private static final Map<String, Function<Task, Object>> TASK_ATTRIBUTES = Map.of(
+			"id", Task::getId,
+			IModelMgr.CODE_ATTRIBUTE, Task::getCode,
+			"name", Task::getName,
+			"comment", Task::getComment,
+			"fullPath", Task::getFullPath,
+			"number", Task::getNumber,
+			"numberAsHex", Task::getNumberAsHex,
+			"todo", Task::getTodo,
+			"closed", Task::isClosed,
+			"taskDepth", Task::getTaskDepth);
+
+	/** Collaborator attributes */
+	private static final Map<String, Function<Collaborator, Object>> COLLABORATOR_ATTRIBUTES = Map.of(
+			"id", Collaborator::getId,
+			"login", Collaborator::getLogin,
+			"firstName", Collaborator::getFirstName,
+			"lastName", Collaborator::getLastName,
+			"isActive", Collaborator::getIsActive);
+
+	/** Registered column computers */
+	private final Map<String, IReportColumnComputer> computers = new ConcurrentHashMap<String, IReportColumnComputer>();
+
+	/**
+	 * Default constructor.
+	 */
+	public ReportColumnComputerFactory() {
+		computers.put(TASK_PREFIX + IModelMgr.PATH_ATTRIBUTE, new TaskPathReportColumnComputer());
+	}
+
+	/**
+	 * Registers a custom column computer.
+	 * <p>
+	 * As collaborator columns are also used to order the contributors in the
+	 * database, custom columns identifiers must start with
+	 * {@link #TASK_PREFIX}.
+	 * </p>
+	 *
+	 * @param id
+	 *            the column identifier.
+	 * @param computer
+	 *            the column computer.
+	 */
+	public void register(String id, IReportColumnComputer computer) {
+		if (!id.startsWith(TASK_PREFIX)) {
+			throw new IllegalArgumentException("Custom column identifiers must start with '" + TASK_PREFIX + "'");
+		}
+		computers.put(id, computer);
+	}
+
+	/**
+	 * Returns the computer of a column.
+	 *
+	 * @param id
+	 *            the column identifier.
+	 * @return the column computer.
+	 */
+	public IReportColumnComputer get(String id) {
+		IReportColumnComputer computer = computers.get(id);
+		if (computer == null) {
+			String attribute = id.substring(id.indexOf('.') + 1);
+			String name = StringHelper.camelCaseToPhrase(attribute);
+			if (id.startsWith(TASK_PREFIX)) {
+				ToLongFunction<TaskSums> sumGetter = SUMMABLE_ATTRIBUTES.get(attribute);
+				if (sumGetter != null) {
+					computer = newSumColumn(name, sumGetter);
+				} else {
+					Function<Task, Object> getter = TASK_ATTRIBUTES.get(attribute);
+					computer = newTaskColumn(name, getter != null ? getter
+							: new PropertyGetter<Task>(attribute));
+				}
+			} else if (id.startsWith(COLLABORATOR_PREFIX)) {
+				Function<Collaborator, Object> getter = COLLABORATOR_ATTRIBUTES.get(attribute);
+				computer = newCollaboratorColumn(name, getter != null ? getter
+						: new PropertyGetter<Collaborator>(attribute));
+			} else {
+				throw new IllegalArgumentException("Unknown field type '" + id + "'");
+			}
+		}
+		return computer;
+	}
+
+	/**
+	 * Creates a summable column computer reading the task sums.
+	 *
+	 * @param name
+	 *            the column name.
+	 * @param getter
+	 *            the sum getter.
+	 * @return the column computer.
+	 */
+	public static IReportColumnComputer newSumColumn(String name,
+			ToLongFunction<TaskSums> getter) {
+		return new IReportColumnComputer.Impl(name, true) {
+			@Override
+			public Object compute(ReportItem item) {
+				TaskSums sums = item.getContributedTask();
+				if (sums != null) {
+					long value = getter.applyAsLong(sums);
+					if (value != 0) {
+						return value / 100d;
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Creates a column computer reading the contributed task.
+	 *
+	 * @param name
+	 *            the column name.
+	 * @param getter
+	 *            the task attribute getter.
+	 * @return the column computer.
+	 */
+	public static IReportColumnComputer newTaskColumn(String name,
+			Function<Task, Object> getter) {
+		return new IReportColumnComputer.Impl(name, false) {
+			@Override
+			public Object compute(ReportItem item) {
+				TaskSums sums = item.getContributedTask();
+				return sums != null ? toCellValue(getter.apply(sums.getTask())) : null;
+			}
+		};
+	}
+
+	/**
+	 * Creates a column computer reading the contributor.
+	 *
+	 * @param name
+	 *            the column name.
+	 * @param getter
+	 *            the collaborator attribute getter.
+	 * @return the column computer.
+	 */
+	public static IReportColumnComputer newCollaboratorColumn(String name,
+			Function<Collaborator, Object> getter) {
+		return new IReportColumnComputer.Impl(name, false) {
+			@Override
+			public Object compute(ReportItem item) {
+				// Collaborator may be null in task oriented report with a task
+				// that has no contribution
+				Collaborator contributor = item.getContributor();
+				return contributor != null ? toCellValue(getter.apply(contributor)) : null;
+			}
+		};
+	}
+
+	/**
+	 * Converts an attribute value into a cell value (durations are given in
+	 * hundredths, empty durations are not displayed).
+	 *
+	 * @param value
+	 *            the attribute value.
+	 * @return the cell value.
+	 */
+	private static Object toCellValue(Object value) {
+		if (value instanceof Long) {
+			long l = (Long) value;
+			return l != 0 ? l / 100d : null;
+		}
+		return value != null ? String.valueOf(value) : null;
+	}
+
+	/**
+	 * Reads a DTO extension attribute through a method handle resolved once
+	 * per DTO class.
+	 */
+	private static class PropertyGetter<DTO> extends ClassValue<MethodHandle>
+			implements Function<DTO, Object> {
+
+		private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+		private final String attribute;
+
+		PropertyGetter(String attribute) {
+			this.attribute = attribute;
+		}
+
+		@Override
+		protected MethodHandle computeValue(Class<?> type) {
+			String suffix = Character.toUpperCase(attribute.charAt(0)) + attribute.substring(1);
+			Method method;
+			try {
+				method = type.getMethod("get" + suffix);
+			} catch (NoSuchMethodException e) {
+				try {
+					method = type.getMethod("is" + suffix);
+				} catch (NoSuchMethodException e1) {
+					throw new IllegalStateException("Unknown property '" + attribute + "' on class '" + type.getName() + "'", e1);
+				}
+			}
+			try {
+				return MethodHandles.publicLookup().unreflect(method).asType(GETTER_TYPE);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public Object apply(DTO dto) {
+			try {
+				return (Object) get(dto.getClass()).invokeExact((Object) dto);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new IllegalStateException(t);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,188 @@
+package org.activitymgr.core.model;
+
+import org.activitymgr.core.dao.IReportDAO;
+import org.activitymgr.core.dto.Task;
+import org.activitymgr.core.dto.report.ReportEstimate;
+import org.activitymgr.core.dto.report.ReportStatistics;
+import org.activitymgr.core.util.EpochDays;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Report cost estimator.
+ * <p>
+ * Reports costs are estimated from tables statistics that are computed once
+ * and kept for a while (see {@link CoreModelModule#REPORT_STATISTICS_MAX_AGE}),
+ * so that a report configuration can be validated each time it changes
+ * without requesting the contributions table. The estimates assume that the
+ * tasks and the contributions are evenly distributed ; they are only meant to
+ * detect the expensive configurations.
+ * </p>
+ */
+public class ReportCostEstimator {
+
+	/** Default statistics max age (in seconds) */
+	public static final int DEFAULT_STATISTICS_MAX_AGE = 600;
+
+	/**
+	 * Estimated cost of a contribution read (in nanoseconds). If the report
+	 * is by task, a contribution is read once per ancestor task.
+	 */
+	public static final long CONTRIBUTION_COST = 1500;
+
+	/**
+	 * Estimated cost of a contributions sum (one per row and interval that
+	 * holds contributions, in nanoseconds).
+	 */
+	public static final long SUM_COST = 6000;
+
+	/** Estimated cost of a row (in nanoseconds) */
+	public static final long ROW_COST = 30000;
+
+	/** Estimated cost of a cell (in nanoseconds) */
+	public static final long CELL_COST = 800;
+
+	/** Report DAO */
+	@Inject
+	private IReportDAO reportDAO;
+
+	/** Statistics max age (in seconds) */
+	@Inject(optional = true)
+	@Named(CoreModelModule.REPORT_STATISTICS_MAX_AGE)
+	private int maxAge = DEFAULT_STATISTICS_MAX_AGE;
+
+	/** Current statistics */
+	private volatile ReportStatistics statistics;
+
+	/**
+	 * Returns the tables statistics (they are computed if they are missing or
+	 * too old).
+	 * 
+	 * @return the statistics.
+	 */
+	public ReportStatistics getStatistics() {
+		ReportStatistics current = statistics;
+		if (current == null
+				|| System.currentTimeMillis() - current.getTimestamp() > maxAge * 1000l) {
+			current = reportDAO.getStatistics();
+			statistics = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Drops the current statistics (they will be computed again on the next
+	 * estimate).
+	 */
+	public void invalidate() {
+		statistics = null;
+	}
+
+	/**
+	 * Estimates the cost of a report.
+	 * 
+	 * @param statistics
+	 *            the tables statistics.
+	 * @param fromDay
+	 *            the report first day (epoch day).
+	 * @param toDay
+	 *            the report last day (epoch day, included).
+	 * @param rootTask
+	 *            the report root task (optional).
+	 * @param taskDepth
+	 *            the task depth.
+	 * @param onlyKeepTasksWithContributions
+	 *            <code>true</code> if the report only keeps tasks with
+	 *            contributions.
+	 * @param byContributor
+	 *            <code>true</code> if the report declines contributions by
+	 *            contributors.
+	 * @param contributorCentricMode
+	 *            <code>true</code> if the report is ordered by contributors.
+	 * @param contributorIds
+	 *            contributor identifiers (optional).
+	 * @param columnCount
+	 *            the total columns count.
+	 * @return the estimate.
+	 */
+	public static ReportEstimate estimate(ReportStatistics statistics,
+			int fromDay, int toDay, Task rootTask, int taskDepth,
+			boolean onlyKeepTasksWithContributions, boolean byContributor,
+			boolean contributorCentricMode, long[] contributorIds,
+			int columnCount) {
+		// Share of the contributions that are in the report interval
+		double share = 0;
+		if (statistics.getContributionsCount() > 0) {
+			int firstDay = EpochDays.ofDateKey(statistics.getFirstDateKey());
+			int lastDay = EpochDays.ofDateKey(statistics.getLastDateKey());
+			int overlap = Math.min(toDay, lastDay) - Math.max(fromDay, firstDay) + 1;
+			share = Math.max(0, overlap) / (double) (lastDay - firstDay + 1);
+		}
+
+		// Share of the tasks that are under the root task
+		int rootDepth = rootTask != null ? rootTask.getFullPath().length() / 2 : 0;
+		if (rootTask != null) {
+			share /= Math.max(1, statistics.getTasksCount(rootDepth));
+		}
+		double activities = 0;
+		if (taskDepth != 0) {
+			int lastDepth = taskDepth > 0 ? Math.min(rootDepth + taskDepth,
+					statistics.getMaxTaskDepth()) : statistics.getMaxTaskDepth();
+			// The widest level gives the order of magnitude of the rows count
+			for (int depth = rootDepth + 1; depth <= lastDepth; depth++) {
+				activities = Math.max(activities, statistics.getTasksCount(depth));
+			}
+			if (rootTask != null) {
+				activities = Math.max(1,
+						activities / Math.max(1, statistics.getTasksCount(rootDepth)));
+			}
+		}
+
+		// Share of the contributors
+		long collaboratorsCount = Math.max(1, statistics.getCollaboratorsCount());
+		long contributors = collaboratorsCount;
+		if (contributorIds != null && contributorIds.length > 0) {
+			contributors = Math.min(contributorIds.length, collaboratorsCount);
+			share = share * contributors / collaboratorsCount;
+		}
+		long contributionCount = Math.round(statistics.getContributionsCount() * share);
+
+		// Rows count (a row holds at least a contribution, but rows without
+		// contribution may be added for the tasks)
+		double rows = occupied(taskDepth != 0 ? activities : 1,
+				byContributor ? contributors : 1, contributionCount);
+		if (taskDepth != 0 && !onlyKeepTasksWithContributions
+				&& (!byContributor || !contributorCentricMode)) {
+			rows = Math.max(rows, activities);
+		}
+		long rowCount = Math.max(1, Math.round(rows));
+		long sumCount = Math.round(occupied(rows, toDay - fromDay + 1, contributionCount));
+
+		long readCount = taskDepth != 0 ? contributionCount
+				* Math.max(1, statistics.getMaxTaskDepth()) : contributionCount;
+		long duration = (readCount * CONTRIBUTION_COST + sumCount * SUM_COST
+				+ rowCount * ROW_COST + rowCount * columnCount * CELL_COST) / 1000000;
+		return new ReportEstimate(rowCount, columnCount, contributionCount,
+				duration);
+	}
+
+	/**
+	 * Estimates the count of distinct keys obtained from random contributions
+	 * (each contribution falls in one of the <code>a * b</code> possible
+	 * keys).
+	 * 
+	 * @param a
+	 *            the first key dimension.
+	 * @param b
+	 *            the second key dimension.
+	 * @param contributionCount
+	 *            the contributions count.
+	 * @return the estimated distinct keys count.
+	 */
+	private static double occupied(double a, double b, long contributionCount) {
+		double keys = a * b;
+		return keys > 0 ? keys * -Math.expm1(-contributionCount / keys) : 0;
+	}
+
+}
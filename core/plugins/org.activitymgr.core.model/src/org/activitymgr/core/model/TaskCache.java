@@ -0,0 +1,229 @@
+package org.activitymgr.core.model;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.activitymgr.core.dto.Task;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Application wide tasks cache.
+ * <p>
+ * Tasks are cached by identifier, full path and code path. As a task
+ * modification may change the paths of a whole sub tree, every task
+ * modification invalidates the whole cache. The invalidation is bound to the
+ * transactions (see {@link AbstractTransactionalCache}).
+ * </p>
+ * <p>
+ * The cached tasks age is also bounded, as the modifications performed by
+ * other JVMs (other web nodes sharing the database) do not invalidate the
+ * cache.
+ * </p>
+ */
+public class TaskCache extends AbstractTransactionalCache {
+
+	/** Default cache size */
+	public static final int DEFAULT_SIZE = 5000;
+
+	/** Default cached tasks max age (in seconds) */
+	public static final int DEFAULT_MAX_AGE = 30;
+
+	/** Cache size (<code>0</code> disables the cache) */
+	@Inject(optional = true)
+	@Named(CoreModelModule.TASK_CACHE_SIZE)
+	private int size = DEFAULT_SIZE;
+
+	/** Cached tasks max age (in seconds) */
+	@Inject(optional = true)
+	@Named(CoreModelModule.TASK_CACHE_MAX_AGE)
+	private int maxAge = DEFAULT_MAX_AGE;
+
+	/** Cached tasks by identifier (LRU) */
+	@SuppressWarnings("serial")
+	private final Map<Long, Entry> entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+			if (size() > size) {
+				unregister(eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/** Cached tasks identifiers by full path */
+	private final Map<String, Long> idsByFullPath = new HashMap<String, Long>();
+
+	/** Cached tasks identifiers by code path */
+	private final Map<String, Long> idsByCodePath = new HashMap<String, Long>();
+
+	/**
+	 * @param id
+	 *            the task identifier.
+	 * @return a copy of the cached task or <code>null</code> if the task is not
+	 *         cached.
+	 */
+	public Task get(long id) {
+		Task task;
+		synchronized (this) {
+			Entry entry = getEntry(id);
+			task = entry != null ? entry.task : null;
+		}
+		return hitOrMiss(task);
+	}
+
+	/**
+	 * @param fullPath
+	 *            the task full path.
+	 * @return a copy of the cached task or <code>null</code> if the task is not
+	 *         cached.
+	 */
+	public Task getByFullPath(String fullPath) {
+		return getByKey(idsByFullPath, fullPath);
+	}
+
+	/**
+	 * @param codePath
+	 *            the task code path.
+	 * @return a copy of the cached task or <code>null</code> if the task is not
+	 *         cached.
+	 */
+	public Task getByCodePath(String codePath) {
+		return getByKey(idsByCodePath, codePath);
+	}
+
+	/**
+	 * Caches a task.
+	 * <p>
+	 * The task is ignored if the data version has changed since it has been
+	 * read or if a writer is pending.
+	 * </p>
+	 *
+	 * @param version
+	 *            the data version read before reading the task.
+	 * @param task
+	 *            the task.
+	 */
+	public void put(long version, Task task) {
+		put(version, task, null);
+	}
+
+	/**
+	 * Caches a task with its code path.
+	 *
+	 * @param version
+	 *            the data version read before reading the task.
+	 * @param task
+	 *            the task.
+	 * @param codePath
+	 *            the task code path (may be <code>null</code>).
+	 * @see #put(long, Task)
+	 */
+	public void put(long version, Task task, String codePath) {
+		if (size <= 0 || task == null) {
+			return;
+		}
+		Task copy = copy(task);
+		synchronized (this) {
+			if (isCacheable(version)) {
+				Entry entry = entries.get(task.getId());
+				if (entry != null && codePath == null) {
+					codePath = entry.codePath;
+				}
+				entries.put(task.getId(), new Entry(copy, codePath));
+				idsByFullPath.put(copy.getFullPath(), copy.getId());
+				if (codePath != null) {
+					idsByCodePath.put(codePath, copy.getId());
+				}
+			}
+		}
+	}
+
+	@Override
+	protected void clear() {
+		entries.clear();
+		idsByFullPath.clear();
+		idsByCodePath.clear();
+	}
+
+	@Override
+	public String toString() {
+		int count;
+		synchronized (this) {
+			count = entries.size();
+		}
+		return "TaskCache[size=" + count + ", hits=" + getHitCount()
+				+ ", misses=" + getMissCount() + ", hitRatio=" + getHitRatio()
+				+ "%, version=" + getVersion() + "]";
+	}
+
+	private Task getByKey(Map<String, Long> ids, String key) {
+		Task task = null;
+		synchronized (this) {
+			Long id = ids.get(key);
+			if (id != null) {
+				Entry entry = getEntry(id);
+				if (entry != null) {
+					task = entry.task;
+				} else {
+					ids.remove(key);
+				}
+			}
+		}
+		return hitOrMiss(task);
+	}
+
+	/**
+	 * @param id
+	 *            the task identifier.
+	 * @return the cache entry or <code>null</code> if the task is not cached
+	 *         or if its entry is too old (in which case it is removed).
+	 */
+	private Entry getEntry(long id) {
+		Entry entry = entries.get(id);
+		if (entry != null
+				&& System.currentTimeMillis() - entry.timestamp > maxAge * 1000l) {
+			entries.remove(id);
+			unregister(entry);
+			entry = null;
+		}
+		return entry;
+	}
+
+	private void unregister(Entry entry) {
+		idsByFullPath.remove(entry.task.getFullPath(), entry.task.getId());
+		if (entry.codePath != null) {
+			idsByCodePath.remove(entry.codePath, entry.task.getId());
+		}
+	}
+
+	private Task hitOrMiss(Task task) {
+		if (size <= 0) {
+			return null;
+		}
+		hitOrMiss(task != null);
+		return task != null ? copy(task) : null;
+	}
+
+	/**
+	 * Cache entry.
+	 */
+	private static class Entry {
+
+		private final long timestamp = System.currentTimeMillis();
+
+		private final Task task;
+
+		private final String codePath;
+
+		Entry(Task task, String codePath) {
+			this.task = task;
+			this.codePath = codePath;
+		}
+
+	}
+
+}
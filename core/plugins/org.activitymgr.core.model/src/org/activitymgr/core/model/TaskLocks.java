@@ -0,0 +1,137 @@
+package org.activitymgr.core.model;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.activitymgr.core.util.Strings;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Striped locks used to serialize the task tree modifications in the JVM.
+ * <p>
+ * A lock is taken for the path of the parent task whose sub tasks are
+ * modified (several paths are locked in the stripes order to avoid dead
+ * locks). Modifications in unrelated sub trees may therefore be performed
+ * concurrently. These locks only protect the current JVM : the parent task
+ * row is also locked in the database by the model manager.
+ * </p>
+ * <p>
+ * The database locks are held until the end of the transaction whereas these
+ * locks are released as soon as the modification is done. The model manager
+ * therefore takes the database locks first ; as a modification may still
+ * wait for another database lock (a task number counter for instance) while
+ * holding a stripe, the stripes are acquired with a timeout so that a wait
+ * cycle between two transactions ends with a {@link ModelException}.
+ * </p>
+ */
+public class TaskLocks {
+
+	/** Default stripes count */
+	public static final int DEFAULT_STRIPES = 64;
+
+	/** Default lock timeout (in seconds) */
+	public static final int DEFAULT_TIMEOUT = 10;
+
+	/** Stripes */
+	private final ReentrantLock[] stripes;
+
+	/** Lock timeout (in seconds) */
+	@Inject(optional = true)
+	@Named(CoreModelModule.TASK_LOCK_TIMEOUT)
+	private int timeout = DEFAULT_TIMEOUT;
+
+	/**
+	 * Default constructor.
+	 */
+	public TaskLocks() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * @param stripesCount
+	 *            the number of stripes.
+	 */
+	public TaskLocks(int stripesCount) {
+		this(stripesCount, DEFAULT_TIMEOUT);
+	}
+
+	/**
+	 * @param stripesCount
+	 *            the number of stripes.
+	 * @param timeout
+	 *            the lock timeout (in seconds).
+	 */
+	public TaskLocks(int stripesCount, int timeout) {
+		stripes = new ReentrantLock[stripesCount];
+		for (int i = 0; i < stripesCount; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Locks the given parent task paths.
+	 *
+	 * @param parentPaths
+	 *            the full paths of the parent tasks (<code>""</code> for the
+	 *            root tasks).
+	 * @return the lock to release once the modification is done.
+	 * @throws ModelException
+	 *             thrown if a path could not be locked before the timeout.
+	 */
+	public Lock lock(String... parentPaths) throws ModelException {
+		int[] indexes = new int[parentPaths.length];
+		for (int i = 0; i < parentPaths.length; i++) {
+			indexes[i] = Math.floorMod(parentPaths[i].hashCode(), stripes.length);
+		}
+		Arrays.sort(indexes);
+		int count = 0;
+		for (int i = 0; i < indexes.length; i++) {
+			if (i == 0 || indexes[i] != indexes[i - 1]) {
+				indexes[count++] = indexes[i];
+			}
+		}
+		final ReentrantLock[] locked = new ReentrantLock[count];
+		Lock lock = () -> {
+			for (int i = locked.length - 1; i >= 0; i--) {
+				if (locked[i] != null) {
+					locked[i].unlock();
+				}
+			}
+		};
+		boolean acquired = true;
+		for (int i = 0; i < count && acquired; i++) {
+			try {
+				acquired = stripes[indexes[i]].tryLock(timeout, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				acquired = false;
+			}
+			if (acquired) {
+				locked[i] = stripes[indexes[i]];
+			}
+		}
+		if (!acquired) {
+			lock.release();
+			throw new ModelException(Strings.getString(
+					"ModelMgr.errors.TASK_TREE_LOCK_TIMEOUT", Arrays.toString(parentPaths))); //$NON-NLS-1$
+		}
+		return lock;
+	}
+
+	/**
+	 * Held lock.
+	 */
+	public interface Lock {
+
+		/**
+		 * Releases the lock.
+		 */
+		void release();
+
+	}
+
+}
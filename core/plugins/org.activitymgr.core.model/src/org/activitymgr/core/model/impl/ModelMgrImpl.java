@@ -29,23 +29,36 @@
  */
 package org.activitymgr.core.model.impl;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.GregorianCalendar;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -72,26 +85,37 @@ import org.activitymgr.core.dto.misc.TaskContributionsSums;
 import org.activitymgr.core.dto.misc.TaskSearchFilter;
 import org.activitymgr.core.dto.misc.TaskSums;
 import org.activitymgr.core.dto.report.Report;
+import org.activitymgr.core.dto.report.ReportEstimate;
 import org.activitymgr.core.dto.report.ReportIntervalType;
 import org.activitymgr.core.dto.report.ReportItem;
+import org.activitymgr.core.dto.report.ReportStatistics;
+import org.activitymgr.core.model.CoreModelModule;
 import org.activitymgr.core.model.IModelMgr;
 import org.activitymgr.core.model.IReportColumnComputer;
 import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.model.ReferenceDataCache;
+import org.activitymgr.core.model.ReportCache;
+import org.activitymgr.core.model.ReportColumnComputerFactory;
+import org.activitymgr.core.model.ReportCostEstimator;
+import org.activitymgr.core.model.TaskCache;
+import org.activitymgr.core.model.TaskLocks;
 import org.activitymgr.core.model.XLSModelException;
 import org.activitymgr.core.model.impl.XlsImportHelper.XLSCell;
 import org.activitymgr.core.model.impl.XmlHelper.ModelMgrDelegate;
-import org.activitymgr.core.model.impl.report.ReflectiveReportColumnComputer;
-import org.activitymgr.core.model.impl.report.TaskPathReportColumnComputer;
 import org.activitymgr.core.model.util.Tasks;
 import org.activitymgr.core.orm.query.AscendantOrderByClause;
 import org.activitymgr.core.orm.query.DescendantOrderByClause;
 import org.activitymgr.core.orm.query.InStatement;
 import org.activitymgr.core.orm.query.LikeStatement;
 import org.activitymgr.core.util.DateHelper;
+import org.activitymgr.core.util.EpochDays;
+import org.activitymgr.core.util.ISheetWriter;
+import org.activitymgr.core.util.ISheetWriter.Style;
 import org.activitymgr.core.util.StringFormatException;
 import org.activitymgr.core.util.StringHelper;
 import org.activitymgr.core.util.Strings;
 import org.activitymgr.core.util.WorkbookBuilder;
+import org.activitymgr.core.util.XLSXWriter;
 import org.apache.commons.beanutils.BeanUtilsBean2;
 import org.apache.log4j.Logger;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
@@ -110,6 +134,7 @@ import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 /**
  * Gestionnaire du modèle.
@@ -177,16 +202,35 @@ public class ModelMgrImpl implements IModelMgr {
 	/** Bean factory */
 	@Inject
 	private IDTOFactory factory;
+
+	/** Reports cache */
+	@Inject
+	private ReportCache reportCache;
 	
-	/** Report columns computers map */
-	private Map<String, IReportColumnComputer> defaultReportColumnComputers = new HashMap<String, IReportColumnComputer>();
-	
-	/**
-	 * Default constructor.
-	 */
-	public ModelMgrImpl() {
-		defaultReportColumnComputers.put(ReflectiveReportColumnComputer.TASK_PREFIX + PATH_ATTRIBUTE, new TaskPathReportColumnComputer());
-	}
+	/** Report columns computers factory */
+	@Inject
+	private ReportColumnComputerFactory reportColumnComputerFactory;
+
+	/** Report cost estimator */
+	@Inject
+	private ReportCostEstimator reportCostEstimator;
+
+	/** Tasks cache */
+	@Inject
+	private TaskCache taskCache;
+
+	/** Collaborators and durations cache */
+	@Inject
+	private ReferenceDataCache referenceDataCache;
+
+	/** Task tree locks (by parent task path) */
+	@Inject
+	private TaskLocks taskLocks;
+
+	/** Maximum number of columns of a report */
+	@Inject(optional = true)
+	@Named(CoreModelModule.REPORT_MAX_COLUMNS)
+	private int reportMaxColumns = CoreModelModule.DEFAULT_REPORT_MAX_COLUMNS;
 
 	@Override
 	public boolean tablesExist() {
@@ -195,56 +239,35 @@ public class ModelMgrImpl implements IModelMgr {
 
 	@Override
 	public void createTables() {
+		reportCache.invalidate();
+		taskCache.invalidate();
+		referenceDataCache.invalidate();
+		reportCostEstimator.invalidate();
 		dao.createTables();
 	}
 
-	/**
-	 * Substitue une partie du chemin d'un groupe de tache et de leurs
-	 * sous-taches par un nouvelle valeur.
-	 * <p>
-	 * Cette méthode est utilisée pour déplacer les sous-taches d'une tache qui
-	 * vient d'être déplacée.
-	 * </p>
-	 * 
-	 * @param tx
-	 *            le contexte de transaction.
-	 * @param tasks
-	 *            les taches dont on veut changer le chemin.
-	 * @param oldPathLength
-	 *            la taille de la portion de chemin à changer.
-	 * @param newPath
-	 *            le nouveau chemin.
-	 */
-	private void changeTasksPaths(Task[] tasks, int oldPathLength,
-			String newPath) {
-		// Récupération de la liste des taches
-		int newPathLength = newPath.length();
-		StringBuffer buf = new StringBuffer(newPath);
-		for (Task task : tasks) {
-			log.debug("Updating path of task '" + task.getName() + "'"); //$NON-NLS-1$ //$NON-NLS-2$
-			// Mise à jour des taches filles
-			Task[] subTasks = getSubTasks(task);
-			if (subTasks.length > 0)
-				changeTasksPaths(subTasks, oldPathLength, newPath);
-			// Puis mise à jour de la tache elle-même
-			buf.setLength(newPathLength);
-			buf.append(task.getPath().substring(oldPathLength));
-			log.debug(" - old path : '" + task.getPath() + "'"); //$NON-NLS-1$ //$NON-NLS-2$
-			task.setPath(buf.toString());
-			log.debug(" - new path : '" + task.getPath() + "'"); //$NON-NLS-1$ //$NON-NLS-2$
-			// Mise à jour
-			taskDAO.update(task);
-		}
+	@Override
+	public int rebuildTasksClosure() {
+		reportCache.invalidate();
+		log.info("rebuildTasksClosure()"); //$NON-NLS-1$
+		return taskDAO.rebuildTasksClosure();
+	}
+
+	@Override
+	public int rebuildContributionsSums() {
+		reportCache.invalidate();
+		log.info("rebuildContributionsSums()"); //$NON-NLS-1$
+		return contributionDAO.rebuildTasksSums();
 	}
 
-	private void verify(String errorCode, boolean predicate) throws ModelException {
+	static void verify(String errorCode, boolean predicate) throws ModelException {
 		if (!predicate) {
 			String msgKey = "ModelMgr.errors." + errorCode; //$NON-NLS-1$
 			throw new ModelException(Strings.getString(msgKey));
 		}
 	}
 	
-	private void verify(String errorCode, boolean predicate, Object... details) throws ModelException {
+	static void verify(String errorCode, boolean predicate, Object... details) throws ModelException {
 		if (!predicate) {
 			String msgKey = "ModelMgr.errors." + errorCode; //$NON-NLS-1$
 			throw new ModelException(Strings.getString(msgKey, details));
@@ -283,6 +306,36 @@ public class ModelMgrImpl implements IModelMgr {
 				contribsNb == 0, task.getName(), contribsNb);
 	}
 
+	/**
+	 * Verrouille des taches en base jusqu'à la fin de la transaction et
+	 * vérifie que leurs chemins n'ont pas été modifiés entre-temps.
+	 * <p>
+	 * Les taches sont verrouillées dans l'ordre de leurs chemins complets
+	 * (parents en premier) pour éviter les verrous mortels.
+	 * </p>
+	 * 
+	 * @param tasks
+	 *            les taches à verrouiller (les taches <code>null</code>, ie.
+	 *            la racine, sont ignorées).
+	 * @throws ModelException
+	 *             levé si une tache a été modifiée ou supprimée.
+	 */
+	void lockTasks(Task... tasks) throws ModelException {
+		List<Task> toLock = new ArrayList<Task>(tasks.length);
+		for (Task task : tasks) {
+			if (task != null && !toLock.contains(task)) {
+				toLock.add(task);
+			}
+		}
+		toLock.sort(TASK_PATH_SORTER);
+		for (Task task : toLock) {
+			Task locked = taskDAO.lockTask(task.getId());
+			verify("UNKNOWN_TASK", locked != null, task.getId()); //$NON-NLS-1$
+			verify("TASK_PATH_UPDATE_DETECTED", locked.getPath().equals(task.getPath())); //$NON-NLS-1$
+			verify("TASK_NUMBER_UPDATE_DETECTED", locked.getNumber() == task.getNumber()); //$NON-NLS-1$
+		}
+	}
+
 	/**
 	 * Vérifie que le chemin et le numéro de la tache en base de données
 	 * coincident avec la copie de la tache spécifiée.
@@ -343,6 +396,8 @@ public class ModelMgrImpl implements IModelMgr {
 	@Override
 	public Collaborator createCollaborator(Collaborator collaborator)
 			throws ModelException {
+		reportCache.invalidate();
+		referenceDataCache.invalidate();
 		log.info("createCollaborator(" + collaborator + ")"); //$NON-NLS-1$ //$NON-NLS-2$
 		// Control de l'unicité du login
 		verifyUniqueLogin(collaborator);
@@ -354,6 +409,7 @@ public class ModelMgrImpl implements IModelMgr {
 	@Override
 	public Contribution createContribution(Contribution contribution,
 			boolean updateEtc) throws ModelException {
+		reportCache.invalidate();
 		log.info("createContribution(" + contribution + ")"); //$NON-NLS-1$ //$NON-NLS-2$
 		// La tache ne peut accepter une contribution que
 		// si elle n'admet aucune sous-tache
@@ -365,12 +421,14 @@ public class ModelMgrImpl implements IModelMgr {
 
 		// Contribution creation
 		contribution = contributionDAO.insert(contribution);
+		contributionDAO.updateTasksSums(contribution, contribution.getDurationId(), 1);
 
 		// Faut-il mettre à jour automatiquement le RAF de la tache ?
 		if (updateEtc) {
 			// Mise à jour du RAF de la tache
 			long newEtc = task.getTodo() - contribution.getDurationId();
 			task.setTodo(newEtc > 0 ? newEtc : 0);
+			taskCache.invalidate();
 			taskDAO.update(task);
 		}
 
@@ -378,9 +436,49 @@ public class ModelMgrImpl implements IModelMgr {
 		return contribution;
 	}
 
+	@Override
+	public Contribution[] createContributions(Contribution[] contributions,
+			boolean updateEtc) throws ModelException {
+		reportCache.invalidate();
+		log.info("createContributions(" + contributions.length + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+		// Validation de l'ensemble des contributions avant toute écriture
+		// (chaque tache et chaque durée n'est contrôlée qu'une fois)
+		Map<Long, Task> tasks = new LinkedHashMap<Long, Task>();
+		Set<Long> durations = new HashSet<Long>();
+		for (Contribution contribution : contributions) {
+			if (!tasks.containsKey(contribution.getTaskId())) {
+				verify("TASK_WITH_AT_LEAST_ONE_SUBTASK_CANNOT_ACCEPT_CONTRIBUTIONS", //$NON-NLS-1$ 
+						getSubTasksCount(contribution.getTaskId()) == 0);
+				tasks.put(contribution.getTaskId(), getTask(contribution.getTaskId()));
+			}
+			if (durations.add(contribution.getDurationId())) {
+				verifyExistingDuration(contribution);
+			}
+		}
+
+		// Contributions creation
+		contributions = contributionDAO.insertAll(contributions);
+		contributionDAO.updateTasksSums(contributions, 1);
+
+		// Faut-il mettre à jour automatiquement le RAF des taches ?
+		if (updateEtc) {
+			for (Contribution contribution : contributions) {
+				Task task = tasks.get(contribution.getTaskId());
+				long newEtc = task.getTodo() - contribution.getDurationId();
+				task.setTodo(newEtc > 0 ? newEtc : 0);
+			}
+			taskCache.invalidate();
+			taskDAO.updateAll(tasks.values().toArray(new Task[tasks.size()]));
+		}
+
+		// Retour du résultat
+		return contributions;
+	}
+
 	@Override
 	public Duration createDuration(Duration duration) throws ModelException {
 		log.info("createDuration(" + duration + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+		referenceDataCache.invalidate();
 		// Vérification de l'unicité
 		verify("DUPLICATE_DURATION", !durationExists(duration)); //$NON-NLS-1$
 		verify("NUL_DURATION_FORBIDDEN", duration.getId() != 0); //$NON-NLS-1$
@@ -391,6 +489,8 @@ public class ModelMgrImpl implements IModelMgr {
 
 	@Override
 	public Collaborator createNewCollaborator() {
+		reportCache.invalidate();
+		referenceDataCache.invalidate();
 		// Le login doit être unique => il faut vérifier si
 		// celui-ci n'a pas déja été attribué
 
@@ -416,14 +516,29 @@ public class ModelMgrImpl implements IModelMgr {
 	}
 
 	@Override
-	public synchronized Task createNewTask(Task parentTask) 
+	public Task createNewTask(Task parentTask) 
+			throws ModelException {
+		// The database locks are taken before the task tree lock (see
+		// TaskLocks)
+		lockTasks(parentTask);
+		String taskPath = parentTask != null ? parentTask.getFullPath() : ""; //$NON-NLS-1$
+		TaskLocks.Lock lock = taskLocks.lock(taskPath);
+		try {
+			return doCreateNewTask(parentTask, taskPath);
+		} finally {
+			lock.release();
+		}
+	}
+
+	private Task doCreateNewTask(Task parentTask, String taskPath)
 			throws ModelException {
+		reportCache.invalidate();
+		taskCache.invalidate();
 		// Le code doit être unique => il faut vérifier si
 		// celui-ci n'a pas déja été attribué
 		int idx = 0;
 		boolean unique = false;
 		String newCode = null;
-		String taskPath = parentTask != null ? parentTask.getFullPath() : ""; //$NON-NLS-1$
 		while (!unique) {
 			newCode = "<N" + (idx == 0 ? "" : String.valueOf(idx)) + ">"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 			unique = getTask(taskPath, newCode) == null;
@@ -447,8 +562,24 @@ public class ModelMgrImpl implements IModelMgr {
 	}
 	
 	@Override
-	public synchronized Task createTask(Task parentTask, Task task)
+	public Task createTask(Task parentTask, Task task)
+			throws ModelException {
+		// The database locks are taken before the task tree lock (see
+		// TaskLocks)
+		lockTasks(parentTask);
+		String parentPath = parentTask == null ? "" : parentTask.getFullPath(); //$NON-NLS-1$
+		TaskLocks.Lock lock = taskLocks.lock(parentPath);
+		try {
+			return doCreateTask(parentTask, task);
+		} finally {
+			lock.release();
+		}
+	}
+
+	private Task doCreateTask(Task parentTask, Task task)
 			throws ModelException {
+		reportCache.invalidate();
+		taskCache.invalidate();
 		log.info("createTask(" + parentTask + ", " + task + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		// Une tache ne peut admettre une sous-tache que si elle
 		// n'est pas déja associée à un consommé
@@ -463,11 +594,16 @@ public class ModelMgrImpl implements IModelMgr {
 		task.setPath(parentPath);
 
 		// Génération du numéro de la tâche
-		byte taskNumber = taskDAO.newTaskNumber(parentPath);
+		byte taskNumber = taskDAO.newTaskNumber(parentTask);
 		task.setNumber(taskNumber);
 
-		// Création de la tache
-		return taskDAO.insert(task);
+		// Création de la tache (et de son compteur de sous-taches)
+		task = taskDAO.insert(task);
+		taskDAO.createTaskSequences(new Task[] { task });
+
+		// Mise à jour de la fermeture de l'arborescence
+		taskDAO.updateTaskClosure(task);
+		return task;
 	}
 
 	@Override
@@ -532,9 +668,22 @@ public class ModelMgrImpl implements IModelMgr {
 	@Override
 	public void importFromXML(InputStream in) throws IOException,
 			ParserConfigurationException, SAXException, ModelException {
+		importFromXML(in, false);
+	}
+
+	@Override
+	public void importFromXML(InputStream in, boolean staged) throws IOException,
+			ParserConfigurationException, SAXException, ModelException {
+		reportCache.invalidate();
+		taskCache.invalidate();
+		referenceDataCache.invalidate();
 		try (InputStream src = in) {
 			// Création du gestionnaire de modèle de données
-			ModelMgrDelegate modelMgrDelegate = new XmlModelMgr();
+			StagedXmlModelMgr stagedDelegate = staged ? new StagedXmlModelMgr(
+					this, durationDAO, collaboratorDAO, taskDAO,
+					contributionDAO) : null;
+			ModelMgrDelegate modelMgrDelegate = staged ? stagedDelegate
+					: new XmlModelMgr();
 
 			// Import des données
 			SAXParserFactory saxFactory = SAXParserFactory.newInstance();
@@ -550,10 +699,14 @@ public class ModelMgrImpl implements IModelMgr {
 			// Positionnement du gestionnaire de contenu XML
 			reader.setContentHandler(xmlHelper);
 			// Parsing du fichier
-			InputSource is = new InputSource(src);
+			InputSource is = new InputSource(unzipIfNeeded(src));
 			 // Pour empâcher la levée d'erreur associée à l'URI de la DTD 
 			is.setSystemId(""); //$NON-NLS-1$
 			reader.parse(is);
+			// Ecriture des dernières données en attente
+			if (stagedDelegate != null) {
+				stagedDelegate.flush();
+			}
 
 		} catch (SAXParseException e) {
 			if (e.getCause() instanceof ModelException) {
@@ -566,9 +719,61 @@ public class ModelMgrImpl implements IModelMgr {
 		}
 	}
 
+	/** Taille des buffers utilisés par les imports / exports XML */
+	private static final int XML_EXPORT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Retourne le flux décompressé si le flux XML est compressé (gzip).
+	 * 
+	 * @param in
+	 *            le flux XML.
+	 * @return le flux à lire.
+	 * @throws IOException
+	 *             levé en cas d'incident I/O lors de la lecture du flux.
+	 */
+	private static InputStream unzipIfNeeded(InputStream in) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream(in, XML_EXPORT_BUFFER_SIZE);
+		buffered.mark(2);
+		int magic = buffered.read() | (buffered.read() << 8);
+		buffered.reset();
+		return magic == GZIPInputStream.GZIP_MAGIC
+				? new GZIPInputStream(buffered, XML_EXPORT_BUFFER_SIZE)
+				: buffered;
+	}
+
 	private final static String X_PREFIX = "ModelMgr.xmlexport.comment."; //$NON-NLS-1$
 	@Override
 	public void exportToXML(OutputStream out) throws IOException {
+		exportToXML(out, false);
+	}
+
+	@Override
+	public void exportToXML(OutputStream out, boolean gzip) throws IOException {
+		// Les écritures sont bufferisées et encodées en UTF-8 par blocs
+		GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out,
+				XML_EXPORT_BUFFER_SIZE) : null;
+		Writer writer = new BufferedWriter(new OutputStreamWriter(
+				gzip ? gzipOut : out, StandardCharsets.UTF_8),
+				XML_EXPORT_BUFFER_SIZE);
+		exportToXML(writer);
+		writer.flush();
+		// Le flux compressé est terminé sans fermer le flux de l'appelant
+		if (gzipOut != null) {
+			gzipOut.finish();
+		}
+		out.flush();
+	}
+
+	/**
+	 * Exporte la base de données au format XML.
+	 * 
+	 * @param out
+	 *            le flux d'écriture.
+	 * @throws IOException
+	 *             levé en cas d'incident I/O lors de l'écriture sur le flux de
+	 *             sortie.
+	 */
+	private void exportToXML(Writer out) throws IOException {
 		// Entête XML
 		XmlHelper.println(out, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"); //$NON-NLS-1$
 		XmlHelper.println(out, "<!DOCTYPE model SYSTEM \"activitymgr.dtd\">"); //$NON-NLS-1$
@@ -647,16 +852,19 @@ public class ModelMgrImpl implements IModelMgr {
 			}
 			XmlHelper.endXmlNode(out, "  ", XmlHelper.COLLABORATORS_NODE); //$NON-NLS-1$
 		}
-		// Exportation des taches
+		// Exportation des taches (parcours de l'arbre en une seule requête)
 		Map<Long, String> tasksCodePathMap = new HashMap<Long, String>();
-		exportSubTasksToXML(out, INDENT, null, "", tasksCodePathMap); //$NON-NLS-1$
-		// Exportation des contributions
-		Contribution[] contributions = contributionDAO.getContributions(null, null, null,
-				null);
-		if (contributions.length > 0) {
-			XmlHelper.startXmlNode(out, "  ", XmlHelper.CONTRIBUTIONS_NODE); //$NON-NLS-1$
-			for (int i = 0; i < contributions.length; i++) {
-				Contribution contribution = contributions[i];
+		exportTasksToXML(out, INDENT, tasksCodePathMap);
+		// Exportation des contributions (les contributions sont lues au fil
+		// de l'eau pour ne pas charger toute la table en mémoire)
+		try (Stream<Contribution> contributions = contributionDAO.streamContributions(null, null, null,
+				null)) {
+			Iterator<Contribution> it = contributions.iterator();
+			if (it.hasNext()) {
+				XmlHelper.startXmlNode(out, "  ", XmlHelper.CONTRIBUTIONS_NODE); //$NON-NLS-1$
+			}
+			while (it.hasNext()) {
+				Contribution contribution = it.next();
 				XmlHelper.print(out, "    <"); //$NON-NLS-1$
 				XmlHelper.print(out, XmlHelper.CONTRIBUTION_NODE);
 				XmlHelper.printTextAttribute(out, XmlHelper.YEAR_ATTRIBUTE,
@@ -676,42 +884,53 @@ public class ModelMgrImpl implements IModelMgr {
 						(String) tasksCodePathMap.get(contribution
 								.getTaskId()));
 				XmlHelper.endXmlNode(out, "    ", XmlHelper.CONTRIBUTION_NODE); //$NON-NLS-1$
+				if (!it.hasNext()) {
+					XmlHelper.endXmlNode(out, "  ", XmlHelper.CONTRIBUTIONS_NODE); //$NON-NLS-1$
+				}
 			}
-			XmlHelper.endXmlNode(out, "  ", XmlHelper.CONTRIBUTIONS_NODE); //$NON-NLS-1$
 		}
 		XmlHelper.endXmlNode(out, "", "model"); //$NON-NLS-1$ //$NON-NLS-2$
 		out.flush();
 	}
 
 	/**
-	 * Ecrit les sous taches sous forme de XML dans le flux d'écriture.
+	 * Ecrit les taches sous forme de XML dans le flux d'écriture.
+	 * 
+	 * <p>
+	 * Les taches sont lues au fil de l'eau dans l'ordre de l'arborescence
+	 * (chaque tache est suivie de ses sous taches) ; seuls les chemins de la
+	 * branche courante sont conservés pour construire les chemins de codes.
+	 * </p>
 	 * 
 	 * @param out
 	 *            le flux d'écriture.
 	 * @param indent
 	 *            l'indentation.
-	 * @param parentTask
-	 *            la tache parent.
-	 * @param parentCodePath
-	 *            le chemin de la tache parente.
 	 * @param taskCodesPathMap
-	 *            cache contenant les taches indexées par leur chemin.
+	 *            dictionnaire des chemins de codes indexés par identifiant de
+	 *            tache (alimenté par la méthode).
 	 * @throws IOException
 	 *             levé en cas d'incident I/O lors de l'écriture sur le flux de
 	 *             sortie.
 	 */
-	private void exportSubTasksToXML(OutputStream out, String indent,
-			Task parentTask, String parentCodePath,
+	private void exportTasksToXML(Writer out, String indent,
 			Map<Long, String> taskCodesPathMap) throws IOException {
-		Task[] tasks = getSubTasks(parentTask);
-		if (tasks.length > 0) {
-			// Cas particulier pour la racine
-			if (parentTask == null)
+		// Branche courante : chemins complets et chemins de codes des taches
+		Deque<String[]> branch = new ArrayDeque<String[]>();
+		try (Stream<Task> tasks = taskDAO.streamTasksInTreeOrder(null)) {
+			Iterator<Task> it = tasks.iterator();
+			if (it.hasNext()) {
 				XmlHelper.startXmlNode(out, "  ", XmlHelper.TASKS_NODE); //$NON-NLS-1$
-			for (int i = 0; i < tasks.length; i++) {
-				Task task = tasks[i];
-				XmlHelper.startXmlNode(out, "    ", XmlHelper.TASK_NODE); //$NON-NLS-1$
+			}
+			while (it.hasNext()) {
+				Task task = it.next();
+				while (!branch.isEmpty() && !branch.peek()[0].equals(task.getPath())) {
+					branch.pop();
+				}
+				String parentCodePath = branch.isEmpty() ? "" : branch.peek()[1]; //$NON-NLS-1$
 				String taskCodePath = parentCodePath + "/" + task.getCode(); //$NON-NLS-1$
+				branch.push(new String[] { task.getFullPath(), taskCodePath });
+				XmlHelper.startXmlNode(out, "    ", XmlHelper.TASK_NODE); //$NON-NLS-1$
 				// Enregistrement du chemin dans le dictionnaire de chemins
 				taskCodesPathMap.put(task.getId(), taskCodePath);
 				XmlHelper.printTextNode(out, indent, XmlHelper.PATH_NODE,
@@ -729,12 +948,10 @@ public class ModelMgrImpl implements IModelMgr {
 					XmlHelper.printTextNode(out, indent,
 							XmlHelper.COMMENT_NODE, task.getComment());
 				XmlHelper.endXmlNode(out, "    ", XmlHelper.TASK_NODE); //$NON-NLS-1$
-				exportSubTasksToXML(out, indent, task, taskCodePath,
-						taskCodesPathMap);
+				if (!it.hasNext()) {
+					XmlHelper.endXmlNode(out, "  ", XmlHelper.TASKS_NODE); //$NON-NLS-1$
+				}
 			}
-			// Cas particulier pour la racine
-			if (parentTask == null)
-				XmlHelper.endXmlNode(out, "  ", XmlHelper.TASKS_NODE); //$NON-NLS-1$
 		}
 	}
 
@@ -750,13 +967,23 @@ public class ModelMgrImpl implements IModelMgr {
 
 	@Override
 	public Collaborator getCollaborator(long collaboratorId) {
+		ReferenceDataCache.Snapshot snapshot = referenceDataCache.getSnapshot();
+		if (snapshot != null) {
+			return snapshot.getCollaborator(collaboratorId);
+		}
 		return collaboratorDAO.selectByPK(new Object[] { collaboratorId });
 	}
 
 	@Override
 	public Collaborator getCollaborator(String login) {
-		Collaborator[] collaborators = collaboratorDAO.select(new String[] { "login" }, new Object[] { login }, null, -1);
-		return collaborators.length > 0 ? collaborators[0] : null;
+		ReferenceDataCache.Snapshot snapshot = referenceDataCache.getSnapshot();
+		Collaborator collaborator = snapshot != null ? snapshot.getCollaborator(login) : null;
+		if (collaborator == null) {
+			// The database may be case insensitive
+			Collaborator[] collaborators = collaboratorDAO.select(new String[] { "login" }, new Object[] { login }, null, -1);
+			collaborator = collaborators.length > 0 ? collaborators[0] : null;
+		}
+		return collaborator;
 	}
 
 	@Override
@@ -793,19 +1020,28 @@ public class ModelMgrImpl implements IModelMgr {
 			throw new DAOException(
 					Strings.getString("DbMgr.errors.UNKNOWN_FIELD_INDEX", orderFieldIndex)); //$NON-NLS-1$
 		}
-		Object[] orderByClause = new Object[] { 
-				ascendantSort 
-					? new AscendantOrderByClause(orderName) 
-					: new DescendantOrderByClause(orderName)
-		};
-		if (onlyActive) {
-			return collaboratorDAO.select(
-					new String[] { "isActive" }, 
-					new Object[] { Boolean.TRUE }, 
-					orderByClause, -1);
-		} else {
-			return collaboratorDAO.select(null, null, orderByClause, -1);
+		ReferenceDataCache.Snapshot snapshot = referenceDataCache.getSnapshot();
+		String cacheKey = orderName + (ascendantSort ? "+" : "-") + (onlyActive ? "active" : "all");
+		Collaborator[] collaborators = snapshot != null ? snapshot.getCollaborators(cacheKey) : null;
+		if (collaborators == null) {
+			Object[] orderByClause = new Object[] { 
+					ascendantSort 
+						? new AscendantOrderByClause(orderName) 
+						: new DescendantOrderByClause(orderName)
+			};
+			if (onlyActive) {
+				collaborators = collaboratorDAO.select(
+						new String[] { "isActive" }, 
+						new Object[] { Boolean.TRUE }, 
+						orderByClause, -1);
+			} else {
+				collaborators = collaboratorDAO.select(null, null, orderByClause, -1);
+			}
+			if (snapshot != null) {
+				snapshot.putCollaborators(cacheKey, collaborators);
+			}
 		}
+		return collaborators;
 	}
 
 
@@ -826,6 +1062,15 @@ public class ModelMgrImpl implements IModelMgr {
 		return contributionDAO.getContributionsSum(contributor, task, fromDate, toDate);
 	}
 
+	@Override
+	public long getContributionsSum(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws ModelException {
+		// Control sur la date
+		verifyInterval(fromDay, toDay);
+		// Récupération du total
+		return contributionDAO.getContributionsSum(contributor, task, fromDay, toDay);
+	}
+
 
 	@Override
 	public int getContributionsCount(Collaborator contributor, Task task,
@@ -836,6 +1081,15 @@ public class ModelMgrImpl implements IModelMgr {
 		return contributionDAO.getContributionsCount(contributor, task, fromDate, toDate);
 	}
 
+	@Override
+	public int getContributionsCount(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws ModelException {
+		// Control sur la date
+		verifyInterval(fromDay, toDay);
+		// Récupération du compte
+		return contributionDAO.getContributionsCount(contributor, task, fromDay, toDay);
+	}
+
 	@Override
 	public Contribution[] getContributions(Collaborator contributor, Task task,
 			Calendar fromDate, Calendar toDate) throws 	ModelException {
@@ -852,6 +1106,22 @@ public class ModelMgrImpl implements IModelMgr {
 		return contributionDAO.getContributions(contributor, task, fromDate, toDate);
 	}
 
+	@Override
+	public Contribution[] getContributions(Collaborator contributor, Task task,
+			int fromDay, int toDay) throws ModelException {
+		// Vérification de la tache (le chemin de la tache doit être le bon
+		// pour que le calcul le soit)
+		if (task != null) {
+			verifyTaskPath(task);
+		}
+
+		// Control sur la date
+		verifyInterval(fromDay, toDay);
+
+		// Retour du résultat
+		return contributionDAO.getContributions(contributor, task, fromDay, toDay);
+	}
+
 	@Override
 	public Collaborator[] getContributors(Task task, Calendar fromDate,
 			Calendar toDate) throws ModelException {
@@ -877,13 +1147,17 @@ public class ModelMgrImpl implements IModelMgr {
 				|| !fromDate.getTime().after(toDate.getTime()));
 	}
 
+	private void verifyInterval(int fromDay, int toDay)
+			throws ModelException {
+		verify("FROM_DATE_MUST_BE_BEFORE_TO_DATE", fromDay <= toDay); //$NON-NLS-1$
+	}
+
 	private Map<Long, TaskContributions> createTaskContributions(
-			Collaborator contributor, Task task, Calendar fromDate,
-			Calendar toDate) {
+			Collaborator contributor, Task task, int fromDay, int toDay) {
 		Contribution[] contributions = contributionDAO.getContributions(contributor,
-				task, fromDate, toDate);
+				task, fromDay, toDay);
 		
-		int daysCount = DateHelper.countDaysBetween(fromDate, toDate) + 1;
+		int daysCount = toDay - fromDay + 1;
 		
 		// Rangement des contributions par identifiant de tache
 		// (as the tsk parameter can be omitted => in this case, several
@@ -898,13 +1172,7 @@ public class ModelMgrImpl implements IModelMgr {
 		for (Contribution contribution : contributions) {
 			TaskContributions part = result
 					.computeIfAbsent(contribution.getTaskId(), creator);
-			
-			Calendar contributionDate = new GregorianCalendar(
-					contribution.getYear(), 
-					contribution.getMonth() - 1,
-					contribution.getDay());
-			int idx = DateHelper.countDaysBetween(fromDate, contributionDate);
-			part.getContributions()[idx] = contribution;
+			part.getContributions()[contribution.getEpochDay() - fromDay] = contribution;
 		}
 		return result;
 	}
@@ -920,9 +1188,38 @@ public class ModelMgrImpl implements IModelMgr {
 		// Control sur la date
 		verifyInterval(fromDate, toDate);
 
+		IntervalContributions result = buildIntervalContributions(contributor,
+				task, EpochDays.of(fromDate), EpochDays.of(toDate));
+		result.setFromDate(fromDate);
+		result.setToDate(toDate);
+		return result;
+	}
+
+	@Override
+	public IntervalContributions getIntervalContributions(
+			Collaborator contributor, Task task, int fromDay, int toDay)
+			throws ModelException {
+		// If the contributor is missing, error....
+		verify("CONTRIBUTOR_MUST_BE_SPECIFIED", contributor != null);
+
+		// Control sur la date
+		verifyInterval(fromDay, toDay);
+
+		IntervalContributions result = buildIntervalContributions(contributor,
+				task, fromDay, toDay);
+		result.setFromDate(EpochDays.toCalendar(fromDay));
+		result.setToDate(EpochDays.toCalendar(toDay));
+		return result;
+	}
+
+	/**
+	 * Builds the interval contributions (the interval bounds are not set).
+	 */
+	private IntervalContributions buildIntervalContributions(
+			Collaborator contributor, Task task, int fromDay, int toDay) {
 		// Récupération des contributions
 		Map<Long, TaskContributions> taskContribs = 
-				createTaskContributions(contributor, task, fromDate, toDate);
+				createTaskContributions(contributor, task, fromDay, toDay);
 
 		// Task retrieval and sort
 		Task[] tasks = getTasks(taskContribs.keySet().stream()
@@ -934,8 +1231,6 @@ public class ModelMgrImpl implements IModelMgr {
 
 		// Result building
 		IntervalContributions result = new IntervalContributions();
-		result.setFromDate(fromDate);
-		result.setToDate(toDate);
 		result.setTaskContributions(new TaskContributions[tasks.length]);
 		
 		for (int i = 0; i < tasks.length; i++) {
@@ -953,12 +1248,20 @@ public class ModelMgrImpl implements IModelMgr {
 
 	@Override
 	public Duration[] getDurations() {
+		ReferenceDataCache.Snapshot snapshot = referenceDataCache.getSnapshot();
+		if (snapshot != null) {
+			return snapshot.getDurations(false);
+		}
 		return durationDAO.select(null, null,
 				new Object[] { new AscendantOrderByClause("id") }, -1);
 	}
 
 	@Override
 	public Duration[] getActiveDurations() {
+		ReferenceDataCache.Snapshot snapshot = referenceDataCache.getSnapshot();
+		if (snapshot != null) {
+			return snapshot.getDurations(true);
+		}
 		return durationDAO.select(
 				new String[] { "isActive" }, new Object[] { Boolean.TRUE },
 				new Object[] { new AscendantOrderByClause("id") }, -1);
@@ -966,6 +1269,10 @@ public class ModelMgrImpl implements IModelMgr {
 
 	@Override
 	public Duration getDuration(long durationId) {
+		ReferenceDataCache.Snapshot snapshot = referenceDataCache.getSnapshot();
+		if (snapshot != null) {
+			return snapshot.getDuration(durationId);
+		}
 		return durationDAO.selectByPK(new Object[] { durationId });
 	}
 
@@ -1019,7 +1326,13 @@ public class ModelMgrImpl implements IModelMgr {
 	}
 
 	public Task getTask(long taskId) {
-		return taskDAO.selectByPK(new Object[] { taskId });
+		Task task = taskCache.get(taskId);
+		if (task == null) {
+			long version = taskCache.getVersion();
+			task = taskDAO.selectByPK(new Object[] { taskId });
+			taskCache.put(version, task);
+		}
+		return task;
 	}
 
 	@Override
@@ -1053,9 +1366,13 @@ public class ModelMgrImpl implements IModelMgr {
 		verify("INVALID_TASK_CODE_PATH", codePath.startsWith("/")); //$NON-NLS-1$ 
 
 		// Recherche de la tache
+		Task task = taskCache.getByCodePath(codePath);
+		if (task != null) {
+			return task;
+		}
+		long version = taskCache.getVersion();
 		String subpath = codePath.trim().substring(1);
 		log.debug("Processing task path '" + subpath + "'"); //$NON-NLS-1$ //$NON-NLS-2$
-		Task task = null;
 		while (subpath.length() > 0) {
 			int idx = subpath.indexOf(PATH_SEP);
 			String taskCode = idx >= 0 ? subpath.substring(0, idx) : subpath;
@@ -1065,6 +1382,7 @@ public class ModelMgrImpl implements IModelMgr {
 			verify("UNKNOWN_TASK_CODE_PATH", task != null, codePath);  //$NON-NLS-1$
 		}
 		log.debug("Found " + task); //$NON-NLS-1$
+		taskCache.put(version, task, codePath);
 
 		// Retour du résultat
 		return task;
@@ -1198,6 +1516,8 @@ public class ModelMgrImpl implements IModelMgr {
 
 	@Override
 	public void moveDownTask(Task task) throws ModelException {
+		reportCache.invalidate();
+		taskCache.invalidate();
 		// Le chemin de la tache et son numéro ne doivent pas avoir changés
 		// pour pouvoir invoquer cette méthode (la modification des
 		// attributs
@@ -1217,6 +1537,8 @@ public class ModelMgrImpl implements IModelMgr {
 	@Override
 	public void moveTaskUpOrDown(Task task, int newTaskNumber)
 			throws ModelException {
+		reportCache.invalidate();
+		taskCache.invalidate();
 		// Le chemin de la tache et son numéro ne doivent pas avoir changés
 		// pour pouvoir invoquer cette méthode
 		verifyTaskPath(task);
@@ -1247,8 +1569,26 @@ public class ModelMgrImpl implements IModelMgr {
 	}
 
 	@Override
-	public synchronized void moveTask(Task task, Task destParentTask)
+	public void moveTask(Task task, Task destParentTask)
+			throws ModelException {
+		// Verrouillage en base des taches parentes source et destination,
+		// avant le verrou de l'arborescence (cf. TaskLocks)
+		lockTasks(getParentTask(task), destParentTask, task);
+		String destPath = destParentTask != null 
+				? destParentTask.getFullPath()
+				: ""; //$NON-NLS-1$
+		TaskLocks.Lock lock = taskLocks.lock(task.getPath(), destPath);
+		try {
+			doMoveTask(task, destParentTask, destPath);
+		} finally {
+			lock.release();
+		}
+	}
+
+	private void doMoveTask(Task task, Task destParentTask, String destPath)
 			throws ModelException {
+		reportCache.invalidate();
+		taskCache.invalidate();
 		/**
 		 * Controles d'intégrité.
 		 */
@@ -1280,9 +1620,6 @@ public class ModelMgrImpl implements IModelMgr {
 		// Le code de la tache à déplacer ne doit pas être en conflit
 		// avec un code d'une autre tache fille de la tache parent
 		// de destination
-		String destPath = destParentTask != null 
-				? destParentTask.getFullPath()
-				: ""; //$NON-NLS-1$
 		verify("TASK_CODE_EXIST_AT_DESTINATION", //$NON-NLS-1$
 				getTask(destPath, task.getCode()) == null, task.getCode()); 
 
@@ -1295,17 +1632,25 @@ public class ModelMgrImpl implements IModelMgr {
 		// avant modification de son numéro et de son chemin
 		String initialTaskFullPath = task.getFullPath();
 		Task srcParentTask = getParentTask(task);
-		Task[] subTasksToMove = getSubTasks(task);
+
+		// Les cumuls de la tache sont retirés des taches parentes
+		contributionDAO.propagateTaskSums(task.getId(), true);
 
 		// Déplacement de la tache
-		byte number = taskDAO.newTaskNumber(destPath);
+		byte number = taskDAO.newTaskNumber(destParentTask);
 		task.setPath(destPath);
 		task.setNumber(number);
 		taskDAO.update(task);
 
-		// Déplacement des sous-taches
-		changeTasksPaths(subTasksToMove, initialTaskFullPath.length(),
-				task.getFullPath());
+		// Déplacement des sous-taches (en une seule requête)
+		taskDAO.moveSubTasks(initialTaskFullPath, task.getFullPath());
+
+		// Mise à jour de la fermeture de l'arborescence pour la tache
+		// déplacée et ses sous-taches
+		taskDAO.moveTaskClosure(task, destParentTask);
+
+		// Puis reportés sur les nouvelles taches parentes
+		contributionDAO.propagateTaskSums(task.getId(), false);
 
 		// Reconstruction des numéros de tâches d'où la tâche provenait
 		// et qui a laissé un 'trou' en étant déplacée
@@ -1314,6 +1659,8 @@ public class ModelMgrImpl implements IModelMgr {
 
 	@Override
 	public void moveUpTask(Task task) throws ModelException {
+		reportCache.invalidate();
+		taskCache.invalidate();
 		// Le chemin de la tache et son numéro ne doivent pas avoir changés
 		// pour pouvoir invoquer cette méthode (la modification des
 		// attributs
@@ -1333,6 +1680,10 @@ public class ModelMgrImpl implements IModelMgr {
 	/**
 	 * Reconstruit les numéros de taches pour un chemin donné (chemin complet de
 	 * la tache parent considérée).
+	 * <p>
+	 * La fermeture de l'arborescence (TASK_CLOSURE) étant indexée par
+	 * identifiant de tache, elle n'est pas impactée par la renumérotation.
+	 * </p>
 	 * 
 	 * @param parentTask
 	 *            la tache parent.
@@ -1345,19 +1696,22 @@ public class ModelMgrImpl implements IModelMgr {
 			byte taskNumber = task.getNumber();
 			byte expectedNumber = (byte) (i + 1);
 			if (taskNumber != expectedNumber) {
-				Task[] subTasks = getSubTasks(task);
+				String initialFullPath = task.getFullPath();
 				task.setNumber(expectedNumber);
-				String fullPath = task.getFullPath();
-				changeTasksPaths(subTasks, fullPath.length(), fullPath);
+				taskDAO.moveSubTasks(initialFullPath, task.getFullPath());
 				taskDAO.update(task);
 			}
 		}
+		// Recalage du compteur des numéros de sous-taches
+		taskDAO.rebuildTaskSequences(new Task[] { parentTask });
 	}
 
 
 	@Override
 	public void removeCollaborator(Collaborator collaborator)
 			throws ModelException {
+		reportCache.invalidate();
+		referenceDataCache.invalidate();
 		// Vérification que le collaborateur n'est pas utilisé
 		long contribsNb = getContributionsCount(collaborator, null, null, null);
 		if (contribsNb != 0)
@@ -1373,10 +1727,11 @@ public class ModelMgrImpl implements IModelMgr {
 	@Override
 	public void removeContribution(Contribution contribution,
 			boolean updateEstimatedTimeToComlete) throws ModelException {
+		reportCache.invalidate();
 		// Faut-il mettre à jour automatiquement le RAF de la tache ?
 		if (!updateEstimatedTimeToComlete) {
 			// Suppression de la contribution
-			contributionDAO.delete(contribution);
+			deleteContribution(contribution);
 		} else {
 			// Récupération des éléments de la contribution
 			Collaborator contributor = getCollaborator(contribution
@@ -1384,7 +1739,7 @@ public class ModelMgrImpl implements IModelMgr {
 			Task task = getTask(contribution.getTaskId());
 			// Récupération de la contribution correspondante en base
 			Contribution[] contributions = contributionDAO.getContributions(contributor,
-					task, contribution.getDate(), contribution.getDate());
+					task, contribution.getEpochDay(), contribution.getEpochDay());
 			if (contributions.length == 0) {
 				// Si la contribution n'existait pas, il n'y a rien à faire
 				// de plus
@@ -1400,9 +1755,11 @@ public class ModelMgrImpl implements IModelMgr {
 
 				// Suppression de la contribution
 				contributionDAO.delete(contribution);
+				contributionDAO.updateTasksSums(contributions[0], -contributions[0].getDurationId(), -1);
 
 				// Mise à jour du RAF de la tache
 				task.setTodo(task.getTodo() + contribution.getDurationId());
+				taskCache.invalidate();
 				taskDAO.update(task);
 			}
 		}
@@ -1411,15 +1768,36 @@ public class ModelMgrImpl implements IModelMgr {
 
 	@Override
 	public void removeContributions(Contribution[] contributions) {
+		reportCache.invalidate();
 		// Suppression de la contribution
 		for (Contribution contribution : contributions) {
-			contributionDAO.delete(contribution);
+			deleteContribution(contribution);
+		}
+	}
+
+	/**
+	 * Supprime une contribution et met à jour les cumuls des taches.
+	 * 
+	 * @param contribution
+	 *            la contribution à supprimer.
+	 * @return la contribution supprimée telle qu'elle était en base, ou
+	 *         <code>null</code> si elle n'existait pas.
+	 */
+	private Contribution deleteContribution(Contribution contribution) {
+		Contribution stored = contributionDAO.selectByPK(contribution.getYear(),
+				contribution.getMonth(), contribution.getDay(),
+				contribution.getContributorId(), contribution.getTaskId());
+		if (stored != null) {
+			contributionDAO.delete(stored);
+			contributionDAO.updateTasksSums(stored, -stored.getDurationId(), -1);
 		}
+		return stored;
 	}
 
 
 	@Override
 	public void removeDuration(Duration duration) throws ModelException {
+		referenceDataCache.invalidate();
 		// Vérification de l'existance
 		verify("DURATION_DOES_NOT_EXIST", durationExists(duration)); //$NON-NLS-1$
 
@@ -1432,7 +1810,21 @@ public class ModelMgrImpl implements IModelMgr {
 	}
 
 	@Override
-	public synchronized void removeTask(Task task) throws ModelException {
+	public void removeTask(Task task) throws ModelException {
+		// The database locks are taken before the task tree lock (see
+		// TaskLocks)
+		lockTasks(getParentTask(task), task);
+		TaskLocks.Lock lock = taskLocks.lock(task.getPath());
+		try {
+			doRemoveTask(task);
+		} finally {
+			lock.release();
+		}
+	}
+
+	private void doRemoveTask(Task task) throws ModelException {
+		reportCache.invalidate();
+		taskCache.invalidate();
 		// Vérification de l'adéquation des attributs de la tache avec les
 		// données en base
 		verifyTaskPath(task);
@@ -1445,7 +1837,10 @@ public class ModelMgrImpl implements IModelMgr {
 		// numéros de taches
 		Task parentTask = getParentTask(task);
 
-		// Delete sub tasks
+		// Delete the sub tasks number counters (before the closure entries)
+		taskDAO.deleteTaskSequences(task);
+
+		// Delete sub tasks (TASK_CLOSURE entries are removed by cascade)
 		taskDAO.delete(new String[] { PATH_ATTRIBUTE }, new Object[] { new LikeStatement(task.getFullPath() + "%") });
 
 		// Delete the task
@@ -1470,32 +1865,28 @@ public class ModelMgrImpl implements IModelMgr {
 		String task1InitialFullpath = task1.getFullPath();
 		String task2InitialFullpath = task2.getFullPath();
 
-		// Récupération des taches filles de ces 2 taches
-		Task[] task1subTasks = getSubTasks(task1);
-		Task[] task2subTasks = getSubTasks(task2);
-
 		// Changement des numéros de la tache 1 avec une valeur fictive
 		task1.setNumber((byte) 0);
 		taskDAO.update(task1);
-		changeTasksPaths(task1subTasks, task1InitialFullpath.length(),
-				task1.getFullPath());
+		String task1TemporaryFullpath = task1.getFullPath();
+		taskDAO.moveSubTasks(task1InitialFullpath, task1TemporaryFullpath);
 
 		// Changement des numéros de la tache 2
 		task2.setNumber(task1InitialNumber);
 		taskDAO.update(task2);
-		changeTasksPaths(task2subTasks, task2InitialFullpath.length(),
-				task2.getFullPath());
+		taskDAO.moveSubTasks(task2InitialFullpath, task2.getFullPath());
 
 		// Changement des numéros de la tache 1
 		task1.setNumber(task2InitialNumber);
 		taskDAO.update(task1);
-		changeTasksPaths(task1subTasks, task1InitialFullpath.length(),
-				task1.getFullPath());
+		taskDAO.moveSubTasks(task1TemporaryFullpath, task1.getFullPath());
 	}
 
 	@Override
 	public Collaborator updateCollaborator(Collaborator collaborator)
 			throws ModelException {
+		reportCache.invalidate();
+		referenceDataCache.invalidate();
 		// Control de l'unicité du login
 		verifyUniqueLogin(collaborator);
 
@@ -1505,19 +1896,30 @@ public class ModelMgrImpl implements IModelMgr {
 
 	@Override
 	public Duration updateDuration(Duration duration) {
+		referenceDataCache.invalidate();
 		return durationDAO.update(duration);
 	}
 
 	@Override
 	public Contribution updateContribution(Contribution contribution,
 			boolean updateEstimatedTimeToComlete) throws ModelException {
+		reportCache.invalidate();
 		verifyExistingDuration(contribution);
 
 		Contribution result = null;
 		// Faut-il mettre à jour automatiquement le RAF de la tache ?
 		if (!updateEstimatedTimeToComlete) {
+			// Récupération de la contribution en base
+			Contribution stored = contributionDAO.selectByPK(contribution.getYear(),
+					contribution.getMonth(), contribution.getDay(),
+					contribution.getContributorId(), contribution.getTaskId());
+
 			// Mise à jour des données
 			result = contributionDAO.update(contribution);
+			if (stored != null) {
+				contributionDAO.updateTasksSums(contribution,
+						contribution.getDurationId() - stored.getDurationId(), 0);
+			}
 		} else {
 			// Récupération des éléments de la contribution
 			Collaborator contributor = getCollaborator(contribution
@@ -1525,7 +1927,7 @@ public class ModelMgrImpl implements IModelMgr {
 			Task task = getTask(contribution.getTaskId());
 			// Récupération de la contribution correspondante en base
 			Contribution[] contributions = contributionDAO.getContributions(contributor,
-					task, contribution.getDate(), contribution.getDate());
+					task, contribution.getEpochDay(), contribution.getEpochDay());
 
 			// Si la contribution n'existe pas, c'est qu'il y a
 			// déphasage entre les données de l'appelant et la BDD
@@ -1536,10 +1938,12 @@ public class ModelMgrImpl implements IModelMgr {
 
 			// Mise à jour de la contribution
 			result = contributionDAO.update(contribution);
+			contributionDAO.updateTasksSums(contribution, newDuration - oldDuration, 0);
 
 			// Mise à jour du RAF de la tache
 			long newEtc = task.getTodo() + oldDuration - newDuration;
 			task.setTodo(newEtc > 0 ? newEtc : 0);
+			taskCache.invalidate();
 			taskDAO.update(task);
 			
 		}
@@ -1551,6 +1955,7 @@ public class ModelMgrImpl implements IModelMgr {
 	@Override
 	public Contribution[] changeContributionTask(Contribution[] contributions,
 			Task newContributionTask) throws ModelException {
+		reportCache.invalidate();
 		// La tache ne peut accepter une contribution que
 		// si elle n'admet aucune sous-tache
 		verify("A_TASK_WITH_SUBTASKS_CANNOT_ACCEPT_CONTRIBUTIONS", //$NON-NLS-1$
@@ -1559,9 +1964,10 @@ public class ModelMgrImpl implements IModelMgr {
 		// Mise à jour des identifiants de tâche
 		for (int i = 0; i < contributions.length; i++) {
 			Contribution contribution = contributions[i];
-			contributionDAO.delete(contribution);
+			deleteContribution(contribution);
 			contribution.setTaskId(newContributionTask.getId());
 			contributionDAO.insert(contribution);
+			contributionDAO.updateTasksSums(contribution, contribution.getDurationId(), 1);
 		}
 
 		// Retour de la tache modifiée
@@ -1571,6 +1977,8 @@ public class ModelMgrImpl implements IModelMgr {
 	@Override
 	public Duration updateDuration(Duration duration, Duration newDuration)
 			throws ModelException {
+		reportCache.invalidate();
+		referenceDataCache.invalidate();
 		// Si la nouvelle durée est égale à l'ancienne, il n'y a rien
 		// à faire de plus!...
 		if (!newDuration.equals(duration)) {
@@ -1586,6 +1994,8 @@ public class ModelMgrImpl implements IModelMgr {
 
 	@Override
 	public Task updateTask(Task task) throws ModelException {
+		reportCache.invalidate();
+		taskCache.invalidate();
 		// Le chemin de la tache et son numéro ne doivent pas avoir changés
 		// pour pouvoir invoquer cette méthode (la modification des
 		// attributs
@@ -1604,11 +2014,17 @@ public class ModelMgrImpl implements IModelMgr {
 	}
 
 	private Task getTask(String taskPath, byte taskNumber) {
-		Task[] tasks = taskDAO.select(
-				new String[] { PATH_ATTRIBUTE, "number" }, 
-				new Object[] { taskPath, taskNumber }, 
-				null, -1);
-		return tasks.length > 0 ? tasks[0] : null;
+		Task task = taskCache.getByFullPath(taskPath + StringHelper.toHex(taskNumber));
+		if (task == null) {
+			long version = taskCache.getVersion();
+			Task[] tasks = taskDAO.select(
+					new String[] { PATH_ATTRIBUTE, "number" }, 
+					new Object[] { taskPath, taskNumber }, 
+					null, -1);
+			task = tasks.length > 0 ? tasks[0] : null;
+			taskCache.put(version, task);
+		}
+		return task;
 	}
 
 	@Override
@@ -1636,17 +2052,6 @@ public class ModelMgrImpl implements IModelMgr {
 		return result.toArray(Task[]::new);
 	}
 
-	private static final Comparator<Task> SORTER_BY_PATH = (Task t1, Task t2) -> {
-		String path1 = t1.getFullPath();
-		String path2 = t2.getFullPath();
-		int len = Math.min(path1.length(), path2.length());
-		int c = path1.substring(0, len).compareTo(path2.substring(0, len));
-		return (c != 0) 
-				? c
-				: path1.length() - path2.length();
-	};
-	
-	
 	@Override
 	public byte[] exportToExcel(Long parentTaskId) throws IOException, ModelException {
 		try (Workbook wbk = new HSSFWorkbook()) {
@@ -1677,55 +2082,50 @@ public class ModelMgrImpl implements IModelMgr {
 				cell.setCellStyle(headerCellStyle);
 				cell.setCellValue(columnName);
 			}
-			// Retrieve tasks
-			Task parentTask = parentTaskId != null ? getTask(parentTaskId) : null;
-			Task[] tasks = null;
-			if (parentTaskId == null) {
-				tasks = taskDAO.selectAll();
-			} else {
-				tasks = taskDAO.select(
-						new String[] { PATH_ATTRIBUTE }, 
-						new Object[] { new LikeStatement(parentTask.getFullPath() + "%") }, 
-						null, -1);
-			}
-			// Sort
-			Arrays.sort(tasks, SORTER_BY_PATH);
-			
 			// Output
 			CellStyle bodyCellStyle = wbk.createCellStyle();
 			bodyCellStyle.setBorderBottom(BorderStyle.THIN);
 			bodyCellStyle.setBorderLeft(bodyCellStyle.getBorderBottom());
 			bodyCellStyle.setBorderRight(bodyCellStyle.getBorderBottom());
 			bodyCellStyle.setBorderTop(bodyCellStyle.getBorderBottom());
-			Map<String, String> pathToTaskCodePathMap = new HashMap<String, String>();
-			for (Task task : tasks) {
-				
-				// Compute task code path
-				String taskPath = task.getPath();
-				String parentTaskCodePath = pathToTaskCodePathMap.get(taskPath);
-				String taskCodePath = (parentTaskCodePath != null ? parentTaskCodePath + PATH_SEP : "") + task.getCode();
-				pathToTaskCodePathMap.put(task.getFullPath(), taskCodePath);
-				
-				// Append row
-				Row row = sheet.createRow(sheet.getLastRowNum() + 1);
-				idx = 0;
-				for (Object v : new Object[] {
-						(parentTaskCodePath != null ? parentTaskCodePath : ""),
-						task.getCode(), 
-						task.getName(), 
-						task.getBudget(),
-						task.getInitiallyConsumed(), 
-						task.getTodo(),
-						task.getComment() }) {
-					Cell cell = row.createCell(idx++);
-					if (v != null) {
-						if (v instanceof String) {
-							cell.setCellValue((String)v);
-						} else {
-							cell.setCellValue(((Long) v)/100d);
+			// Current branch : full paths and code paths of the tasks
+			Deque<String[]> branch = new ArrayDeque<String[]>();
+			// Tasks are streamed in tree order (parents come first)
+			Task parentTask = parentTaskId != null ? getTask(parentTaskId) : null;
+			try (Stream<Task> tasks = taskDAO.streamTasksInTreeOrder(parentTask)) {
+				Iterator<Task> it = tasks.iterator();
+				while (it.hasNext()) {
+					Task task = it.next();
+					
+					// Compute task code path
+					while (!branch.isEmpty() && !branch.peek()[0].equals(task.getPath())) {
+						branch.pop();
+					}
+					String parentTaskCodePath = branch.isEmpty() ? null : branch.peek()[1];
+					String taskCodePath = (parentTaskCodePath != null ? parentTaskCodePath + PATH_SEP : "") + task.getCode();
+					branch.push(new String[] { task.getFullPath(), taskCodePath });
+					
+					// Append row
+					Row row = sheet.createRow(sheet.getLastRowNum() + 1);
+					idx = 0;
+					for (Object v : new Object[] {
+							(parentTaskCodePath != null ? parentTaskCodePath : ""),
+							task.getCode(), 
+							task.getName(), 
+							task.getBudget(),
+							task.getInitiallyConsumed(), 
+							task.getTodo(),
+							task.getComment() }) {
+						Cell cell = row.createCell(idx++);
+						if (v != null) {
+							if (v instanceof String) {
+								cell.setCellValue((String)v);
+							} else {
+								cell.setCellValue(((Long) v)/100d);
+							}
 						}
+						cell.setCellStyle(bodyCellStyle);
 					}
-					cell.setCellStyle(bodyCellStyle);
 				}
 			}
 			for (int colIdx = 0 ; colIdx <= 6; colIdx++) {
@@ -1756,6 +2156,8 @@ public class ModelMgrImpl implements IModelMgr {
 	
 	@Override
 	public void importFromExcel(Long parentTaskId, InputStream xls) throws IOException, ModelException {
+		reportCache.invalidate();
+		taskCache.invalidate();
 		final List<String> numericFieldNames = Arrays.asList(BUDGET_ATTRIBUTE, "initiallyConsumed", "todo");
 		final TaskDAOCache taskCache = new TaskDAOCache(taskDAO);
 		final String parentTaskCodePath = parentTaskId == null ? "" : taskCache.getCodePath(parentTaskId);
@@ -1859,48 +2261,31 @@ public class ModelMgrImpl implements IModelMgr {
 		prepareCalendarForReport(start, intervalType);
 
 		// Ensure we have an interval count
-		if (intervalCount == null) {
-			Calendar end = interval != null 
-					? interval[1] 
-					: Calendar.getInstance();
-			prepareCalendarForReport(end, intervalType);
-			end.add(intervalType.getIntType(), 1);
-			
-			// Compute the delay
-			switch (intervalType) {
-			case YEAR :
-				intervalCount = end.get(Calendar.YEAR) - start.get(Calendar.YEAR);
-				break;
-			case MONTH:
-				intervalCount = (end.get(Calendar.YEAR) - start.get(Calendar.YEAR)) * 12 + (end.get(Calendar.MONTH) - start.get(Calendar.MONTH));
-				break;
-			case WEEK:
-				intervalCount = DateHelper.countDaysBetween(start, end) / 7;
-				break;
-			case DAY:
-				intervalCount = DateHelper.countDaysBetween(start, end);
-			}
-		} else if (intervalCount < 0) {
-			throw new ModelException("Invalid interval (negative value is not allowed)");
-		} else if (intervalCount == 0) {
-			throw new ModelException("Invalid interval (null value is not allowed)");
-		}
-		
-		// Column count computation
-		if (maxIntervalCount > 0 && intervalCount >= maxIntervalCount) {
-			throw new ModelException("Too many generated columns :"
-					+ intervalCount
-					+ " (Try to change your report interval type)");
-		}
+		intervalCount = getIntervalCount(start, intervalType, intervalCount,
+				interval != null ? interval[1] : Calendar.getInstance(),
+				maxIntervalCount);
 		
 		// Compute the report
 		if (dryRun) {
 			return null;
 		}
-		return reportDAO.buildReport(start, intervalType, intervalCount,
-				rootTask, taskDepth, onlyKeepTasksWithContributions,
-				byContributor, contributorCentricMode, contributorIds,
-				orderContributorsBy);
+		// Reports are cached by parameters (the columns are not part of the
+		// key as they are only used to render the raw report)
+		List<Object> cacheKey = Arrays.asList(DateHelper.toDateKey(start),
+				intervalType, intervalCount, rootTaskId, taskDepth,
+				onlyKeepTasksWithContributions, byContributor,
+				contributorCentricMode, Arrays.toString(contributorIds),
+				Arrays.toString(orderContributorsBy));
+		Report report = reportCache.get(cacheKey);
+		if (report == null) {
+			long dataVersion = reportCache.getVersion();
+			report = reportDAO.buildReport(start, intervalType, intervalCount,
+					rootTask, taskDepth, onlyKeepTasksWithContributions,
+					byContributor, contributorCentricMode, contributorIds,
+					orderContributorsBy);
+			reportCache.put(cacheKey, dataVersion, report);
+		}
+		return report;
 	}
 
 	@Override
@@ -1912,22 +2297,92 @@ public class ModelMgrImpl implements IModelMgr {
 			String[] columnIds, 
 			boolean includeTotals, boolean dryRun)
 			throws ModelException {
-		Map<String, IReportColumnComputer> reportColumnComputers = new HashMap<String, IReportColumnComputer>(defaultReportColumnComputers); 
+		List<String> collaboratorFields = new ArrayList<String>();
+		IReportColumnComputer[] columns = getReportColumns(columnIds,
+				taskDepth, byContributor, contributorIds, collaboratorFields);
+		return buildReport(
+				start, intervalType, intervalCount,
+				rootTaskId, taskDepth,
+				onlyKeepTasksWithContributions, byContributor,
+				contributorCentricMode, contributorIds,
+				columns,
+				collaboratorFields.toArray(String[]::new),
+				includeTotals, dryRun);
+	}
+
+	@Override
+	public void buildXLSXReport(Calendar start,
+			ReportIntervalType intervalType, Integer intervalCount,
+			Long rootTaskId, int taskDepth,
+			boolean onlyKeepTasksWithContributions, boolean byContributor,
+			boolean contributorCentricMode, long[] contributorIds,
+			String[] columnIds, boolean includeTotals, boolean dryRun,
+			OutputStream out) throws ModelException, IOException {
+		List<String> collaboratorFields = new ArrayList<String>();
+		IReportColumnComputer[] columns = getReportColumns(columnIds,
+				taskDepth, byContributor, contributorIds, collaboratorFields);
+		buildXLSXReport(
+				start, intervalType, intervalCount,
+				rootTaskId, taskDepth,
+				onlyKeepTasksWithContributions, byContributor,
+				contributorCentricMode, contributorIds,
+				columns,
+				collaboratorFields.toArray(String[]::new),
+				includeTotals, dryRun, out);
+	}
+
+	@Override
+	public void buildReport(Calendar start,
+			ReportIntervalType intervalType, Integer intervalCount,
+			Long rootTaskId, int taskDepth,
+			boolean onlyKeepTasksWithContributions, boolean byContributor,
+			boolean contributorCentricMode, long[] contributorIds,
+			String[] columnIds, boolean includeTotals, ISheetWriter out)
+			throws ModelException, IOException {
+		List<String> collaboratorFields = new ArrayList<String>();
+		IReportColumnComputer[] columns = getReportColumns(columnIds,
+				taskDepth, byContributor, contributorIds, collaboratorFields);
+		// Build raw report (HTML and CSV have no columns limit of their own)
+		Report report = doBuildReport(start, intervalType, intervalCount,
+				rootTaskId, taskDepth, onlyKeepTasksWithContributions,
+				byContributor, contributorCentricMode, contributorIds,
+				collaboratorFields.toArray(String[]::new),
+				getMaxIntervalCount(columns.length, Integer.MAX_VALUE), false);
+		writeReport(report, intervalType, columns, includeTotals, out);
+	}
+
+	/**
+	 * Converts column identifiers into column computers and checks them
+	 * against the report parameters.
+	 * 
+	 * @param columnIds
+	 *            the column identifiers.
+	 * @param taskDepth
+	 *            the task depth.
+	 * @param byContributor
+	 *            <code>true</code> if the report declines contributions by
+	 *            contributors.
+	 * @param contributorIds
+	 *            contributor identifiers (optional).
+	 * @param collaboratorFields
+	 *            the list to fill with the collaborator fields (used to order
+	 *            the contributors).
+	 * @return the column computers.
+	 * @throws ModelException
+	 *             thrown if the columns don't match the report parameters.
+	 */
+	private IReportColumnComputer[] getReportColumns(String[] columnIds,
+			int taskDepth, boolean byContributor, long[] contributorIds,
+			List<String> collaboratorFields) throws ModelException {
 		List<IReportColumnComputer> columns = new ArrayList<IReportColumnComputer>();
 		int taskFields = 0;
-		List<String> collaboratorFields = new ArrayList<String>();
 		if (columnIds != null) {
 			for (String columnId : columnIds) {
-				IReportColumnComputer column = reportColumnComputers.get(columnId);
-				if (column == null) {
-					column = new ReflectiveReportColumnComputer(columnId);
-					reportColumnComputers.put(columnId, column);
-				}
-				columns.add(column);
-				if (columnId.startsWith(ReflectiveReportColumnComputer.TASK_PREFIX)) {
+				columns.add(reportColumnComputerFactory.get(columnId));
+				if (columnId.startsWith(ReportColumnComputerFactory.TASK_PREFIX)) {
 					taskFields++;
-				} else if (columnId.startsWith(ReflectiveReportColumnComputer.COLLABORATOR_PREFIX)) {
-					int skip = ReflectiveReportColumnComputer.COLLABORATOR_PREFIX.length();
+				} else if (columnId.startsWith(ReportColumnComputerFactory.COLLABORATOR_PREFIX)) {
+					int skip = ReportColumnComputerFactory.COLLABORATOR_PREFIX.length();
 					collaboratorFields.add(columnId.substring(skip));
 				} else {
 					throw new IllegalArgumentException("Unknown field type '" + columnId + "'");
@@ -1945,15 +2400,7 @@ public class ModelMgrImpl implements IModelMgr {
 				|| contributorIds == null 
 				|| contributorIds.length == 1
 				);
-
-		return buildReport(
-				start, intervalType, intervalCount,
-				rootTaskId, taskDepth,
-				onlyKeepTasksWithContributions, byContributor,
-				contributorCentricMode, contributorIds,
-				columns.toArray(IReportColumnComputer[]::new),
-				collaboratorFields.toArray(String[]::new),
-				includeTotals, dryRun);
+		return columns.toArray(IReportColumnComputer[]::new);
 	}
 
 	@Override
@@ -1967,7 +2414,7 @@ public class ModelMgrImpl implements IModelMgr {
 
 		// In Excel 97 format, it is not possible to have more than 256
 		// columns
-		int maxIntervalCount = 256 - columns.length - 1;
+		int maxIntervalCount = getMaxIntervalCount(columns.length, 256);
 		// Build raw report
 		Report report = doBuildReport(start, intervalType, intervalCount,
 				rootTaskId, taskDepth, onlyKeepTasksWithContributions,
@@ -1981,6 +2428,135 @@ public class ModelMgrImpl implements IModelMgr {
 		}
 
 		// Convert report to XLS
+		WorkbookBuilder wb = new WorkbookBuilder();
+		Workbook workbook = wb.getWorkbook();
+		Sheet sheet = workbook.createSheet("Report");
+		try {
+			writeReport(report, intervalType, columns, includeTotals,
+					wb.createSheetWriter(sheet));
+		} catch (IOException e) {
+			// Can't happen as the workbook is built in memory
+			throw new IllegalStateException(e);
+		}
+
+		// Autosize code & name columns
+		int colIdx = 0;
+		for (@SuppressWarnings("unused")
+		IReportColumnComputer column : columns) {
+			sheet.autoSizeColumn(colIdx++);
+		}
+		// Freeze
+		sheet.createFreezePane(colIdx, 1);
+		for (@SuppressWarnings("unused")
+		Calendar date : report.getDates()) {
+			sheet.setColumnWidth(colIdx, 1900);
+			colIdx++;
+		}
+	
+		return workbook;
+	}
+
+	@Override
+	public void buildXLSXReport(
+			Calendar start, ReportIntervalType intervalType, Integer intervalCount,
+			Long rootTaskId, int taskDepth,
+			boolean onlyKeepTasksWithContributions, boolean byContributor,
+			boolean contributorCentricMode, long[] contributorIds,
+			IReportColumnComputer[] columns, String[] orderContributorsBy,
+			boolean includeTotals, boolean dryRun, OutputStream out)
+			throws ModelException, IOException {
+		// Build raw report
+		int maxIntervalCount = getMaxIntervalCount(columns.length, XLSXWriter.MAX_COLUMNS);
+		Report report = doBuildReport(start, intervalType, intervalCount,
+				rootTaskId, taskDepth, onlyKeepTasksWithContributions,
+				byContributor, contributorCentricMode, contributorIds,
+				orderContributorsBy, maxIntervalCount, dryRun);
+
+		// Stop here if dry run mode
+		if (dryRun) {
+			return;
+		}
+
+		// Stream the report rows ; code & name columns widths are computed
+		// from the first rows
+		XLSXWriter xlsx = new XLSXWriter(out, "Report");
+		xlsx.createFreezePane(columns.length, 1);
+		for (int i = 0; i < report.getDates().size(); i++) {
+			xlsx.setColumnWidth(columns.length + i, 1900);
+		}
+		writeReport(report, intervalType, columns, includeTotals, xlsx);
+		xlsx.finish();
+	}
+
+	@Override
+	public ReportEstimate estimateReport(Calendar start,
+			ReportIntervalType intervalType, Integer intervalCount,
+			Long rootTaskId, int taskDepth,
+			boolean onlyKeepTasksWithContributions, boolean byContributor,
+			boolean contributorCentricMode, long[] contributorIds,
+			int columnCount, boolean includeTotals) throws ModelException {
+		ReportStatistics statistics = reportCostEstimator.getStatistics();
+		Task rootTask = rootTaskId != null ? taskDAO.selectByPK(rootTaskId) : null;
+		boolean noContribution = statistics.getContributionsCount() == 0;
+
+		// Same rules as the report build, but the interval is taken in the
+		// statistics
+		if (start == null) {
+			if (noContribution) {
+				throw new ModelException("No contributions found");
+			}
+			start = DateHelper.fromDateKey(statistics.getFirstDateKey());
+		} else {
+			start = (Calendar) start.clone();
+		}
+		prepareCalendarForReport(start, intervalType);
+		intervalCount = getIntervalCount(start, intervalType, intervalCount,
+				noContribution ? Calendar.getInstance()
+						: DateHelper.fromDateKey(statistics.getLastDateKey()),
+				getMaxIntervalCount(columnCount, XLSXWriter.MAX_COLUMNS));
+		Calendar end = (Calendar) start.clone();
+		end.add(intervalType.getIntType(), intervalCount);
+
+		return ReportCostEstimator.estimate(statistics, EpochDays.of(start),
+				EpochDays.of(end) - 1, rootTask, taskDepth,
+				onlyKeepTasksWithContributions, byContributor,
+				contributorCentricMode, contributorIds, columnCount
+						+ intervalCount + (includeTotals ? 1 : 0));
+	}
+
+	/**
+	 * Returns the maximum number of intervals of a report.
+	 * 
+	 * @param columnCount
+	 *            the number of columns preceding the intervals.
+	 * @param formatMaxColumns
+	 *            the maximum number of columns of the output format.
+	 * @return the maximum number of intervals (the totals column excluded).
+	 */
+	private int getMaxIntervalCount(int columnCount, int formatMaxColumns) {
+		return Math.min(reportMaxColumns, formatMaxColumns) - columnCount - 1;
+	}
+
+	/**
+	 * Writes a report row by row.
+	 * 
+	 * @param report
+	 *            the report.
+	 * @param intervalType
+	 *            the interval type.
+	 * @param columns
+	 *            the columns.
+	 * @param includeTotals
+	 *            <code>true</code> to include a column with row sums and a row
+	 *            with columns sums.
+	 * @param out
+	 *            the sheet writer.
+	 * @throws IOException
+	 *             thrown if an I/O error occurs.
+	 */
+	private void writeReport(Report report, ReportIntervalType intervalType,
+			IReportColumnComputer[] columns, boolean includeTotals,
+			ISheetWriter out) throws IOException {
 		String dateFormat = null;
 		switch (intervalType) {
 		case YEAR:
@@ -1997,36 +2573,26 @@ public class ModelMgrImpl implements IModelMgr {
 			break;
 		}
 		SimpleDateFormat xlsSdf = new SimpleDateFormat(dateFormat);
-		WorkbookBuilder wb = new WorkbookBuilder();
-		Workbook workbook = wb.getWorkbook();
-		Sheet sheet = workbook.createSheet("Report");
-		Row headerRow = sheet.createRow(sheet.getLastRowNum());
-		int colIdx = 0;
+		out.setRowCount(report.getItems().size() + (includeTotals ? 2 : 1));
+		out.newRow();
 		for (IReportColumnComputer column : columns) {
-			wb.asHeaderCellStyl(headerRow.createCell(colIdx++))
-					.setCellValue(column.getName());
+			out.addCell(Style.HEADER, column.getName());
 		}
 
 		Collection<Calendar> dates = report.getDates();
 		for (Calendar date : dates) {
-			String week = xlsSdf.format(date.getTime());
-			wb.asHeaderCellStyl(headerRow.createCell(colIdx))
-				.setCellValue(week);
-			colIdx++;
+			out.addCell(Style.HEADER, xlsSdf.format(date.getTime()));
 		}
 		if (includeTotals) {
-			wb.asHeaderCellStyl(headerRow.createCell(colIdx))
-				.setCellValue("Total");
+			out.addCell(Style.HEADER, "Total");
 		}
 
 		long[] columnSums = new long[dates.size()];
 		ReportItem lastItem = null;
 		for (ReportItem item : report.getItems()) {
 			TaskSums contributedTask = item.getContributedTask();
-			Row row = sheet.createRow(sheet.getLastRowNum() + 1);
-			colIdx = 0;
+			out.newRow();
 			for (IReportColumnComputer column : columns) {
-				Cell cell = wb.asBodyCellStyl(row.createCell(colIdx++));
 				// Summable fields must only appear once and not for each  occurence
 				// For example if a task has 200 as budget, this value must not appear
 				// for every collaborator that contributes to it
@@ -2037,71 +2603,105 @@ public class ModelMgrImpl implements IModelMgr {
 					&& lastItem.getContributedTask().getTask().getId() 
 						== contributedTask.getTask().getId();
 				
-				if (!ignoreCell) {
-					Object cellValue = column.compute(item);
-					if (cellValue instanceof String) {
-						cell.setCellValue((String) cellValue);
-					} else if (cellValue instanceof Double) {
-						cell.setCellValue((Double) cellValue);
-						wb.asBodyRightAlignmentCellStyl(cell);
-					} else if (cellValue instanceof Boolean) {
-						cell.setCellValue((Boolean) cellValue);
-					} else if (cellValue != null) {
-						throw new IllegalStateException(
-								"Unexpected cell type : "
-										+ cellValue.getClass());
-					}
+				Object cellValue = ignoreCell ? null : column.compute(item);
+				if (cellValue == null || cellValue instanceof String
+						|| cellValue instanceof Boolean) {
+					out.addCell(Style.BODY, cellValue);
+				} else if (cellValue instanceof Double) {
+					out.addCell(Style.BODY_RIGHT_ALIGNMENT, cellValue);
+				} else {
+					throw new IllegalStateException(
+							"Unexpected cell type : "
+									+ cellValue.getClass());
 				}
 			}
 			long sum = 0;
 			for (int i = 0; i < dates.size(); i++) {
 				long contributionSum = item.getContributionSum(i);
-				Cell cell = wb.asBodyRightAlignmentCellStyl(row.createCell(colIdx++));
 				if (contributionSum > 0) {
 					sum += contributionSum;
 					columnSums[i] += contributionSum;
-					cell.setCellValue(contributionSum / 100d);
+					out.addCell(Style.BODY_RIGHT_ALIGNMENT, contributionSum / 100d);
+				} else {
+					out.addCell(Style.BODY_RIGHT_ALIGNMENT, null);
 				}
 			}
 			if (includeTotals) {
-				wb.asFooterCellStyle(row.createCell(colIdx++))
-					.setCellValue(sum / 100d);
+				out.addCell(Style.FOOTER, sum / 100d);
 			}
 			lastItem = item;
 		}
 
 		// Footer
 		if (includeTotals) {
-			colIdx = columns.length;
-			Row row = sheet.createRow(sheet.getLastRowNum() + 1);
+			out.newRow();
+			for (int i = 0; i < columns.length; i++) {
+				out.skipCell();
+			}
 			long globalSum = 0;
 			for (int i = 0; i < dates.size(); i++) {
 				long columnSum = columnSums[i];
-				wb.asFooterCellStyle(row.createCell(colIdx++))
-					.setCellValue(columnSum / 100d);
+				out.addCell(Style.FOOTER, columnSum / 100d);
 				globalSum += columnSum;
 			}
-			wb.asFooterCellStyle(row.createCell(colIdx++))
-				.setCellValue(globalSum / 100d);
+			out.addCell(Style.FOOTER, globalSum / 100d);
 		}
-
-		// Autosize code & name columns
-		colIdx = 0;
-		for (@SuppressWarnings("unused")
-		IReportColumnComputer column : columns) {
-			sheet.autoSizeColumn(colIdx++);
+	}
+	
+	/**
+	 * Computes or checks a report interval count.
+	 * 
+	 * @param start
+	 *            the report start (already aligned on the interval type).
+	 * @param intervalType
+	 *            the interval type.
+	 * @param intervalCount
+	 *            the requested interval count (optional).
+	 * @param end
+	 *            the date to cover if no interval count is requested.
+	 * @param maxIntervalCount
+	 *            helps to detect EXCEL overlfows (when used in an EXCEL
+	 *            context).
+	 * @return the interval count.
+	 * @throws ModelException
+	 *             thrown if the interval count is invalid.
+	 */
+	private int getIntervalCount(Calendar start, ReportIntervalType intervalType,
+			Integer intervalCount, Calendar end, int maxIntervalCount)
+			throws ModelException {
+		if (intervalCount == null) {
+			prepareCalendarForReport(end, intervalType);
+			end.add(intervalType.getIntType(), 1);
+			
+			// Compute the delay
+			switch (intervalType) {
+			case YEAR :
+				intervalCount = end.get(Calendar.YEAR) - start.get(Calendar.YEAR);
+				break;
+			case MONTH:
+				intervalCount = (end.get(Calendar.YEAR) - start.get(Calendar.YEAR)) * 12 + (end.get(Calendar.MONTH) - start.get(Calendar.MONTH));
+				break;
+			case WEEK:
+				intervalCount = DateHelper.countDaysBetween(start, end) / 7;
+				break;
+			case DAY:
+				intervalCount = DateHelper.countDaysBetween(start, end);
+			}
+		} else if (intervalCount < 0) {
+			throw new ModelException("Invalid interval (negative value is not allowed)");
+		} else if (intervalCount == 0) {
+			throw new ModelException("Invalid interval (null value is not allowed)");
 		}
-		// Freeze
-		sheet.createFreezePane(colIdx, 1);
-		for (@SuppressWarnings("unused")
-		Calendar date : dates) {
-			sheet.setColumnWidth(colIdx, 1900);
-			colIdx++;
+		
+		// Column count computation
+		if (maxIntervalCount > 0 && intervalCount >= maxIntervalCount) {
+			throw new ModelException("Too many generated columns :"
+					+ intervalCount
+					+ " (Try to change your report interval type)");
 		}
-	
-		return workbook;
+		return intervalCount;
 	}
-	
+
 	private void prepareCalendarForReport(Calendar start, ReportIntervalType intervalType) {
 		switch (intervalType) {
 		case YEAR :
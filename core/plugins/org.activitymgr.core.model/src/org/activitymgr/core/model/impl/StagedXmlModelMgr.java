@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2004-2017, Jean-Francois Brazeau. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ * 
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ * 
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIEDWARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS
+ * OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.activitymgr.core.model.impl;
+
+import static org.activitymgr.core.model.impl.ModelMgrImpl.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.activitymgr.core.dao.ICollaboratorDAO;
+import org.activitymgr.core.dao.IContributionDAO;
+import org.activitymgr.core.dao.IDurationDAO;
+import org.activitymgr.core.dao.ITaskDAO;
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.dto.Contribution;
+import org.activitymgr.core.dto.Duration;
+import org.activitymgr.core.dto.Task;
+import org.activitymgr.core.model.IModelMgr;
+import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.model.impl.XmlHelper.ModelMgrDelegate;
+import org.apache.log4j.Logger;
+
+/**
+ * Délégué d'import XML en deux temps.
+ * 
+ * <p>
+ * Contrairement à l'import standard qui écrit chaque noeud au fil du parsing
+ * (et résout chaque référence par une requête), ce délégué :
+ * <ul>
+ * <li>charge en une fois les durées, collaborateurs et taches existants et
+ * résout les logins et chemins de codes en mémoire,</li>
+ * <li>valide les objets en mémoire,</li>
+ * <li>écrit les durées, collaborateurs et taches par lots JDBC avant la
+ * première contribution, puis les contributions par paquets de
+ * {@value #CONTRIBUTIONS_CHUNK_SIZE}.</li>
+ * </ul>
+ * L'avancement et le débit sont tracés (niveau INFO). L'import devant être
+ * réalisé dans une transaction, une erreur détectée dans un paquet tardif
+ * annule l'ensemble de l'import.
+ * </p>
+ * 
+ * <p>
+ * {@link #flush()} doit être appelé à la fin du parsing.
+ * </p>
+ */
+class StagedXmlModelMgr implements ModelMgrDelegate {
+
+	/** Logger */
+	private static Logger log = Logger.getLogger(StagedXmlModelMgr.class);
+
+	/** Nombre de contributions écrites à la fois */
+	static final int CONTRIBUTIONS_CHUNK_SIZE = 10000;
+
+	/** Fréquence des traces d'avancement (en contributions) */
+	private static final int PROGRESS_LOG_STEP = 100000;
+
+	/** Gestionnaire de modèle */
+	private final ModelMgrImpl modelMgr;
+
+	/** DAOs */
+	private final IDurationDAO durationDAO;
+	private final ICollaboratorDAO collaboratorDAO;
+	private final ITaskDAO taskDAO;
+	private final IContributionDAO contributionDAO;
+
+	/** Durées par identifiant */
+	private final Map<Long, Duration> durations = new HashMap<Long, Duration>();
+
+	/** Collaborateurs par login */
+	private final Map<String, Collaborator> collaborators = new HashMap<String, Collaborator>();
+
+	/** Taches par chemin de codes */
+	private final Map<String, Task> tasksByCodePath = new HashMap<String, Task>();
+
+	/** Chemins de codes des taches */
+	private final Map<Task, String> codePaths = new IdentityHashMap<Task, String>();
+
+	/** Nombre de sous taches par chemin de tache */
+	private final Map<String, Integer> subTasksCounts = new HashMap<String, Integer>();
+
+	/** Chemins des taches existantes dont le compteur est verrouillé */
+	private final Set<String> lockedPaths = new HashSet<String>();
+
+	/** Taches parent par chemin (<code>null</code> pour la racine) */
+	private final Map<String, Task> parentTasks = new HashMap<String, Task>();
+
+	/** Objets en attente d'écriture */
+	private final List<Duration> pendingDurations = new ArrayList<Duration>();
+	private final List<Collaborator> pendingCollaborators = new ArrayList<Collaborator>();
+	private final List<Task> pendingTasks = new ArrayList<Task>();
+	private final Contribution[] pendingContributions = new Contribution[CONTRIBUTIONS_CHUNK_SIZE];
+	private int pendingContributionsCount;
+
+	/** Taches par identifiant (une fois les taches écrites) */
+	private Map<Long, Task> tasksById;
+
+	/** Statistiques */
+	private final long startTime = System.currentTimeMillis();
+	private long contributionsCount;
+
+	/**
+	 * Constructeur par défaut.
+	 * 
+	 * @param modelMgr
+	 *            le gestionnaire de modèle.
+	 * @param durationDAO
+	 *            le DAO des durées.
+	 * @param collaboratorDAO
+	 *            le DAO des collaborateurs.
+	 * @param taskDAO
+	 *            le DAO des taches.
+	 * @param contributionDAO
+	 *            le DAO des contributions.
+	 */
+	StagedXmlModelMgr(ModelMgrImpl modelMgr, IDurationDAO durationDAO,
+			ICollaboratorDAO collaboratorDAO, ITaskDAO taskDAO,
+			IContributionDAO contributionDAO) {
+		this.modelMgr = modelMgr;
+		this.durationDAO = durationDAO;
+		this.collaboratorDAO = collaboratorDAO;
+		this.taskDAO = taskDAO;
+		this.contributionDAO = contributionDAO;
+		// Chargement des données existantes
+		for (Duration duration : durationDAO.selectAll()) {
+			durations.put(duration.getId(), duration);
+		}
+		for (Collaborator collaborator : collaboratorDAO.selectAll()) {
+			collaborators.put(collaborator.getLogin(), collaborator);
+		}
+		Task[] tasks = taskDAO.selectAll();
+		// Le tri par chemin garantit que les parents sont traités en premier
+		Arrays.sort(tasks, Comparator.comparing(Task::getFullPath));
+		Map<String, String> codePathsByFullPath = new HashMap<String, String>();
+		for (Task task : tasks) {
+			String parentCodePath = "".equals(task.getPath()) ? "" : codePathsByFullPath.get(task.getPath()); //$NON-NLS-1$ //$NON-NLS-2$
+			String codePath = parentCodePath + IModelMgr.PATH_SEP + task.getCode();
+			codePathsByFullPath.put(task.getFullPath(), codePath);
+			register(task, codePath);
+		}
+		log.info("Staged XML import : " + durations.size() + " durations, " //$NON-NLS-1$ //$NON-NLS-2$
+				+ collaborators.size() + " collaborators, " + tasks.length //$NON-NLS-1$
+				+ " tasks loaded"); //$NON-NLS-1$
+	}
+
+	@Override
+	public Duration createDuration(Duration duration) throws ModelException {
+		verify("DUPLICATE_DURATION", !durations.containsKey(duration.getId())); //$NON-NLS-1$
+		verify("NUL_DURATION_FORBIDDEN", duration.getId() != 0); //$NON-NLS-1$
+		durations.put(duration.getId(), duration);
+		pendingDurations.add(duration);
+		return duration;
+	}
+
+	@Override
+	public Collaborator createCollaborator(Collaborator collaborator)
+			throws ModelException {
+		verify("NON_UNIQUE_COLLABORATOR_LOGIN", //$NON-NLS-1$
+				!collaborators.containsKey(collaborator.getLogin()),
+				collaborator.getLogin());
+		collaborators.put(collaborator.getLogin(), collaborator);
+		pendingCollaborators.add(collaborator);
+		return collaborator;
+	}
+
+	@Override
+	public Task createTask(Task parentTask, Task task) throws ModelException {
+		String parentPath = ""; //$NON-NLS-1$
+		String parentCodePath = ""; //$NON-NLS-1$
+		if (parentTask != null) {
+			parentPath = parentTask.getFullPath();
+			parentCodePath = codePaths.get(parentTask);
+		}
+		// Avant la première sous tache importée, une tache existante est
+		// verrouillée et vérifiée (cf. ModelMgrImpl.lockTasks), puis son
+		// compteur (ou celui des taches racines) est verrouillé jusqu'à la
+		// fin de la transaction : les créations concurrentes sont
+		// sérialisées et la numérotation repart du compteur en base
+		if ((parentTask == null || parentTask.getId() > 0) && lockedPaths.add(parentPath)) {
+			modelMgr.lockTasks(parentTask);
+			subTasksCounts.put(parentPath, taskDAO.newTaskNumber(parentTask) - 1);
+		}
+		parentTasks.put(parentPath, parentTask);
+		if (parentTask != null) {
+			// Une tache sans sous tache ne peut en accepter une que si elle
+			// n'est associée à aucun consommé
+			if (getSubTasksCount(parentPath) == 0) {
+				if (parentTask.getId() > 0) {
+					modelMgr.checkAcceptsSubtasks(parentTask);
+				} else {
+					verify("NON_NULL_TASK_BUDGET", //$NON-NLS-1$
+							parentTask.getBudget() == 0, parentTask.getName());
+					verify("NON_NULL_TASK_INI_CONS", //$NON-NLS-1$
+							parentTask.getInitiallyConsumed() == 0, parentTask.getName());
+					verify("NON_NULL_TASK_TODO", //$NON-NLS-1$
+							parentTask.getTodo() == 0, parentTask.getName());
+				}
+			}
+		}
+		String codePath = parentCodePath + IModelMgr.PATH_SEP + task.getCode();
+		verify("TASK_CODE_ALREADY_IN_USE", !tasksByCodePath.containsKey(codePath), task.getCode()); //$NON-NLS-1$
+
+		// Le numéro de la tache est calculé en mémoire
+		task.setPath(parentPath);
+		task.setNumber((byte) (getSubTasksCount(parentPath) + 1));
+		register(task, codePath);
+		pendingTasks.add(task);
+		return task;
+	}
+
+	@Override
+	public Contribution createContribution(Contribution contribution)
+			throws ModelException {
+		Task task = tasksById.get(contribution.getTaskId());
+		verify("UNKNOWN_TASK", task != null, contribution.getTaskId()); //$NON-NLS-1$
+		verify("TASK_WITH_AT_LEAST_ONE_SUBTASK_CANNOT_ACCEPT_CONTRIBUTIONS", //$NON-NLS-1$
+				getSubTasksCount(task.getFullPath()) == 0);
+		Duration duration = durations.get(contribution.getDurationId());
+		verify("INVALID_DURATION", duration != null && duration.getIsActive()); //$NON-NLS-1$
+		pendingContributions[pendingContributionsCount++] = contribution;
+		if (pendingContributionsCount == pendingContributions.length) {
+			flushContributions();
+		}
+		return contribution;
+	}
+
+	@Override
+	public Task getTaskByCodePath(String codePath) throws ModelException {
+		verify("INVALID_TASK_CODE_PATH", codePath.startsWith("/")); //$NON-NLS-1$ //$NON-NLS-2$
+		Task task = tasksByCodePath.get(codePath.trim());
+		verify("UNKNOWN_TASK_CODE_PATH", task != null, codePath); //$NON-NLS-1$
+		return task;
+	}
+
+	@Override
+	public Collaborator getCollaborator(String login) {
+		// Les collaborateurs ne sont référencés que par les contributions,
+		// qui suivent les durées, collaborateurs et taches (cf. DTD) : ceux-ci
+		// sont donc écrits avant la résolution de la première contribution
+		flushReferences();
+		return collaborators.get(login);
+	}
+
+	/**
+	 * Ecrit les objets restant en attente et trace les statistiques de
+	 * l'import.
+	 */
+	public void flush() {
+		flushReferences();
+		flushContributions();
+		long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+		log.info("Staged XML import done in " + elapsed + " ms : " //$NON-NLS-1$ //$NON-NLS-2$
+				+ contributionsCount + " contributions (" //$NON-NLS-1$
+				+ (contributionsCount * 1000 / elapsed) + " contributions/s)"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Ecrit par lots les durées, collaborateurs et taches en attente.
+	 */
+	private void flushReferences() {
+		if (!pendingDurations.isEmpty()) {
+			durationDAO.insertAll(pendingDurations.toArray(new Duration[pendingDurations.size()]));
+			log.info("Staged XML import : " + pendingDurations.size() + " durations created"); //$NON-NLS-1$ //$NON-NLS-2$
+			pendingDurations.clear();
+		}
+		if (!pendingCollaborators.isEmpty()) {
+			collaboratorDAO.insertAll(pendingCollaborators.toArray(new Collaborator[pendingCollaborators.size()]));
+			log.info("Staged XML import : " + pendingCollaborators.size() + " collaborators created"); //$NON-NLS-1$ //$NON-NLS-2$
+			pendingCollaborators.clear();
+		}
+		if (!pendingTasks.isEmpty()) {
+			Task[] tasks = taskDAO.insertAll(pendingTasks.toArray(new Task[pendingTasks.size()]));
+			taskDAO.createTaskSequences(tasks);
+			// Recalage des compteurs des taches parent
+			Map<String, Task> parents = new HashMap<String, Task>();
+			for (Task task : pendingTasks) {
+				parents.put(task.getPath(), parentTasks.get(task.getPath()));
+			}
+			taskDAO.rebuildTaskSequences(parents.values().toArray(new Task[parents.size()]));
+			// Mise à jour de la fermeture de l'arborescence à partir des
+			// racines des sous arbres importés
+			Set<String> pendingPaths = new HashSet<String>();
+			for (Task task : pendingTasks) {
+				pendingPaths.add(task.getFullPath());
+			}
+			for (Task task : pendingTasks) {
+				if (!pendingPaths.contains(task.getPath())) {
+					taskDAO.updateTaskClosure(task);
+				}
+			}
+			log.info("Staged XML import : " + pendingTasks.size() + " tasks created"); //$NON-NLS-1$ //$NON-NLS-2$
+			pendingTasks.clear();
+		}
+		if (tasksById == null) {
+			tasksById = new HashMap<Long, Task>();
+			for (Task task : tasksByCodePath.values()) {
+				tasksById.put(task.getId(), task);
+			}
+		}
+	}
+
+	/**
+	 * Ecrit par lots les contributions en attente.
+	 */
+	private void flushContributions() {
+		if (pendingContributionsCount == 0) {
+			return;
+		}
+		Contribution[] contributions = pendingContributionsCount == pendingContributions.length
+				? pendingContributions
+				: Arrays.copyOf(pendingContributions, pendingContributionsCount);
+		contributionDAO.insertAll(contributions);
+		contributionDAO.updateTasksSums(contributions, 1);
+		Arrays.fill(pendingContributions, null);
+		long previousCount = contributionsCount;
+		contributionsCount += pendingContributionsCount;
+		pendingContributionsCount = 0;
+		if (contributionsCount / PROGRESS_LOG_STEP != previousCount / PROGRESS_LOG_STEP) {
+			long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+			log.info("Staged XML import : " + contributionsCount //$NON-NLS-1$
+					+ " contributions imported (" //$NON-NLS-1$
+					+ (contributionsCount * 1000 / elapsed) + " contributions/s)"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Référence une tache.
+	 * 
+	 * @param task
+	 *            la tache.
+	 * @param codePath
+	 *            son chemin de codes.
+	 */
+	private void register(Task task, String codePath) {
+		tasksByCodePath.put(codePath, task);
+		codePaths.put(task, codePath);
+		Integer count = subTasksCounts.get(task.getPath());
+		subTasksCounts.put(task.getPath(), count == null ? 1 : count + 1);
+	}
+
+	/**
+	 * @param taskFullPath
+	 *            le chemin complet d'une tache.
+	 * @return le nombre de sous taches de la tache.
+	 */
+	private int getSubTasksCount(String taskFullPath) {
+		Integer count = subTasksCounts.get(taskFullPath);
+		return count != null ? count : 0;
+	}
+
+}
@@ -1,7 +1,7 @@
 package org.activitymgr.core.model.impl;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.Writer;
 
 import org.activitymgr.core.dao.DAOException;
 import org.activitymgr.core.dto.Collaborator;
@@ -536,11 +536,11 @@ public class XmlHelper implements EntityResolver, ErrorHandler, ContentHandler {
 	 *             levé en cas d'incident I/O lors de l'écriture sur le flux de
 	 *             sortie.
 	 */
-	public static void startXmlNode(OutputStream out, String indent, String name)
+	public static void startXmlNode(Writer out, String indent, String name)
 			throws IOException {
-		print(out, indent);
+		out.write(indent);
 		out.write('<');
-		print(out, name);
+		out.write(name);
 		out.write('>');
 		out.write('\n');
 	}
@@ -558,9 +558,9 @@ public class XmlHelper implements EntityResolver, ErrorHandler, ContentHandler {
 	 *             levé en cas d'incident I/O lors de l'écriture sur le flux de
 	 *             sortie.
 	 */
-	public static void endXmlNode(OutputStream out, String indent, String name)
+	public static void endXmlNode(Writer out, String indent, String name)
 			throws IOException {
-		print(out, indent);
+		out.write(indent);
 		endXmlNode(out, name);
 	}
 
@@ -575,11 +575,11 @@ public class XmlHelper implements EntityResolver, ErrorHandler, ContentHandler {
 	 *             levé en cas d'incident I/O lors de l'écriture sur le flux de
 	 *             sortie.
 	 */
-	public static void endXmlNode(OutputStream out, String name)
+	public static void endXmlNode(Writer out, String name)
 			throws IOException {
 		out.write('<');
 		out.write('/');
-		print(out, name);
+		out.write(name);
 		out.write('>');
 		out.write('\n');
 	}
@@ -599,11 +599,11 @@ public class XmlHelper implements EntityResolver, ErrorHandler, ContentHandler {
 	 *             levé en cas d'incident I/O lors de l'écriture sur le flux de
 	 *             sortie.
 	 */
-	public static void printTextNode(OutputStream out, String indent,
+	public static void printTextNode(Writer out, String indent,
 			String name, String value) throws IOException {
-		print(out, indent);
+		out.write(indent);
 		out.write('<');
-		print(out, name);
+		out.write(name);
 		out.write('>');
 		printTextValue(out, value);
 		endXmlNode(out, name);
@@ -622,13 +622,14 @@ public class XmlHelper implements EntityResolver, ErrorHandler, ContentHandler {
 	 *             levé en cas d'incident I/O lors de l'écriture sur le flux de
 	 *             sortie.
 	 */
-	public static void printTextAttribute(OutputStream out, String name,
+	public static void printTextAttribute(Writer out, String name,
 			String value) throws IOException {
 		out.write(' ');
-		print(out, name);
-		print(out, "=\""); //$NON-NLS-1$
+		out.write(name);
+		out.write('=');
+		out.write('"');
 		printTextValue(out, value);
-		print(out, "\""); //$NON-NLS-1$
+		out.write('"');
 	}
 
 	/**
@@ -643,12 +644,31 @@ public class XmlHelper implements EntityResolver, ErrorHandler, ContentHandler {
 	 *             levé en cas d'incident lors de l'écriture des données sur le
 	 *             flux.
 	 */
-	public static void printTextValue(OutputStream out, String str)
+	public static void printTextValue(Writer out, String str)
 			throws IOException {
-		str = str.replaceAll("&", "&amp;"); //$NON-NLS-1$ //$NON-NLS-2$
-		str = str.replaceAll(">", "&gt;"); //$NON-NLS-1$ //$NON-NLS-2$
-		str = str.replaceAll("<", "&lt;"); //$NON-NLS-1$ //$NON-NLS-2$
-		print(out, str);
+		// Les caractères sont écrits par blocs entre deux caractères spéciaux
+		int start = 0;
+		int length = str.length();
+		for (int i = 0; i < length; i++) {
+			String entity;
+			switch (str.charAt(i)) {
+			case '&':
+				entity = "&amp;"; //$NON-NLS-1$
+				break;
+			case '>':
+				entity = "&gt;"; //$NON-NLS-1$
+				break;
+			case '<':
+				entity = "&lt;"; //$NON-NLS-1$
+				break;
+			default:
+				continue;
+			}
+			out.write(str, start, i - start);
+			out.write(entity);
+			start = i + 1;
+		}
+		out.write(str, start, length - start);
 	}
 
 	/**
@@ -662,8 +682,8 @@ public class XmlHelper implements EntityResolver, ErrorHandler, ContentHandler {
 	 *             levé en cas d'incident lors de l'écriture des données sur le
 	 *             flux.
 	 */
-	public static void print(OutputStream out, String str) throws IOException {
-		out.write(str.getBytes("UTF-8")); //$NON-NLS-1$
+	public static void print(Writer out, String str) throws IOException {
+		out.write(str);
 	}
 
 	/**
@@ -677,7 +697,7 @@ public class XmlHelper implements EntityResolver, ErrorHandler, ContentHandler {
 	 *             levé en cas d'incident lors de l'écriture des données sur le
 	 *             flux.
 	 */
-	public static void println(OutputStream out, String s) throws IOException {
+	public static void println(Writer out, String s) throws IOException {
 		print(out, s);
 		out.write('\n');
 	}
@@ -23,6 +23,9 @@ public class DAOFactory {
 	/** Mapping configuration */
 	private IMappgingConfiguration mappingConfiguration;
 	
+	/** <code>true</code> if the reflective mapping is used */
+	private boolean reflectiveMapping = Boolean.getBoolean(DAOImpl.REFLECTIVE_MAPPING_PROPERTY);
+	
 	/**
 	 * Constructeur par d�faut.
 	 * @param timeZone the time zone to use.
@@ -39,6 +42,16 @@ public class DAOFactory {
 		this.mappingConfiguration = new PropertiesBasedMappingConfiguration(props);
 	}
 	
+	/**
+	 * Constructor.
+	 * @param reflectiveMapping <code>true</code> to use the reflective mapping
+	 * 		instead of the compiled row mappers.
+	 */
+	public DAOFactory(boolean reflectiveMapping) {
+		this();
+		this.reflectiveMapping = reflectiveMapping;
+	}
+	
 	/**
 	 * Retourne l'instance singleton de mappeur de la classe.
 	 * @param theClass la classe mapp�e.
@@ -48,7 +61,7 @@ public class DAOFactory {
 	public synchronized <TYPE> IDAO<TYPE> getDAO(Class<TYPE> theClass) {
 		DAOImpl<TYPE> mapper = (DAOImpl<TYPE>) mappers.get(theClass);
 		if (mapper==null) {
-			mapper = new DAOImpl<TYPE>(mappingConfiguration, theClass);
+			mapper = new DAOImpl<TYPE>(mappingConfiguration, theClass, reflectiveMapping);
 			mappers.put(theClass, mapper);
 		}
 		return mapper;
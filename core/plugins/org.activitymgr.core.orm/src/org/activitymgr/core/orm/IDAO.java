@@ -4,6 +4,7 @@ import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.stream.Stream;
 
 public interface IDAO<TYPE> {
 
@@ -30,10 +31,49 @@ public interface IDAO<TYPE> {
 			Object[] whereClauseAttributeValues, Object[] orderByClauseItems,
 			int maxRows) throws SQLException;
 
+	/**
+	 * Streams the rows matching the given criteria using a forward only,
+	 * read only cursor.
+	 * <p>
+	 * The returned stream must be closed once consumed (this releases the
+	 * underlying statement).
+	 * </p>
+	 */
+	public Stream<TYPE> stream(Connection con, String[] whereClauseAttributeNames,
+			Object[] whereClauseAttributeValues, Object[] orderByClauseItems,
+			int fetchSize) throws SQLException;
+
 	public TYPE update(Connection con, TYPE value) throws SQLException;
 
 	public TYPE insert(Connection con, TYPE value) throws SQLException;
 
+	/**
+	 * Inserts the given instances using JDBC batches of at most
+	 * <code>batchSize</code> rows (a single batch if <code>0</code> or
+	 * negative).
+	 * <p>
+	 * The auto generated keys are read in bulk after each batch and set on
+	 * the instances (when the driver does not return all of them, the rows
+	 * are inserted one by one).
+	 * </p>
+	 */
+	public TYPE[] insertAll(Connection con, TYPE[] values, int batchSize)
+			throws SQLException;
+
+	/**
+	 * Updates the given instances using JDBC batches of at most
+	 * <code>batchSize</code> rows.
+	 */
+	public TYPE[] updateAll(Connection con, TYPE[] values, int batchSize)
+			throws SQLException;
+
+	/**
+	 * Deletes the given instances using JDBC batches of at most
+	 * <code>batchSize</code> rows and returns the deleted rows count.
+	 */
+	public int deleteAll(Connection con, TYPE[] values, int batchSize)
+			throws SQLException;
+
 	public long countAll(Connection con) throws SQLException;
 
 	public long count(Connection con, String[] whereClauseAttributeNames,
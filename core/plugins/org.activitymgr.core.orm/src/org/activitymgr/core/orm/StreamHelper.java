@@ -0,0 +1,95 @@
+package org.activitymgr.core.orm;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Helper allowing to stream the rows of a request instead of loading them in
+ * memory.
+ * <p>
+ * The returned streams hold the underlying statement open : they must be
+ * closed (typically in a <code>try-with-resources</code> block) once consumed.
+ * </p>
+ */
+public class StreamHelper {
+
+	/**
+	 * Row reader.
+	 *
+	 * @param <TYPE>
+	 *            the read type.
+	 */
+	@FunctionalInterface
+	public interface IRowReader<TYPE> {
+
+		/**
+		 * Reads the current row of a result set.
+		 *
+		 * @param rs
+		 *            the result set.
+		 * @return the read value.
+		 * @throws SQLException
+		 *             thrown if a SQL error occurs.
+		 */
+		TYPE read(ResultSet rs) throws SQLException;
+
+	}
+
+	/**
+	 * Executes a request and streams its rows.
+	 * <p>
+	 * The statement is closed when the stream is closed (or if the request
+	 * execution fails). SQL errors that occur while the stream is consumed
+	 * are wrapped in {@link IllegalStateException}s.
+	 * </p>
+	 *
+	 * @param pStmt
+	 *            the statement to execute.
+	 * @param reader
+	 *            the row reader.
+	 * @return the rows stream.
+	 * @throws SQLException
+	 *             thrown if the request execution fails.
+	 */
+	public static <TYPE> Stream<TYPE> stream(final PreparedStatement pStmt,
+			final IRowReader<TYPE> reader) throws SQLException {
+		final ResultSet rs;
+		try {
+			rs = pStmt.executeQuery();
+		} catch (SQLException e) {
+			close(pStmt);
+			throw e;
+		}
+		Spliterator<TYPE> spliterator = new Spliterators.AbstractSpliterator<TYPE>(
+				Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super TYPE> action) {
+				try {
+					if (!rs.next()) {
+						return false;
+					}
+					action.accept(reader.read(rs));
+					return true;
+				} catch (SQLException e) {
+					throw new IllegalStateException("Error while reading result set", e);
+				}
+			}
+		};
+		return StreamSupport.stream(spliterator, false).onClose(
+				() -> close(pStmt));
+	}
+
+	private static void close(PreparedStatement pStmt) {
+		try {
+			pStmt.close();
+		} catch (SQLException ignored) {
+		}
+	}
+
+}
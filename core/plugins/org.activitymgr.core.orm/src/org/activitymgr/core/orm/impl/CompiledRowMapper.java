@@ -0,0 +1,447 @@
+package org.activitymgr.core.orm.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.activitymgr.core.orm.IConverter;
+
+/**
+ * Row mapper generated once for a mapped class.
+ * <p>
+ * Attribute accessors are resolved at startup as <code>MethodHandle</code>s
+ * and the column lists of each kind of request are computed in advance.
+ * Primitive attributes that rely on the default converter are read from and
+ * bound to the JDBC objects directly (no boxing, no converter lookup, no
+ * <code>wasNull()</code> call). Other attributes are delegated to their
+ * converter.
+ * </p>
+ *
+ * @param <TYPE>
+ *            the mapped class.
+ */
+class CompiledRowMapper<TYPE> {
+
+	/** Column mappers by attribute */
+	private final Map<Field, ColumnMapper> columnsByAttribute = new HashMap<Field, ColumnMapper>();
+
+	/** All the columns (select requests) */
+	private final ColumnMapper[] allColumns;
+
+	/** Columns that are not part of the primary key */
+	private final ColumnMapper[] nonPKColumns;
+
+	/** Primary key columns */
+	private final ColumnMapper[] pkColumns;
+
+	/** Columns bound by insert requests */
+	private final ColumnMapper[] insertColumns;
+
+	/** Columns bound by update requests (excluding the where clause) */
+	private final ColumnMapper[] updateColumns;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param attributes
+	 *            the mapped attributes.
+	 * @param pkAttributes
+	 *            the primary key attributes.
+	 * @param autoGeneratedAttribute
+	 *            the auto generated attribute (may be <code>null</code>).
+	 * @param converters
+	 *            the attributes converters.
+	 * @param defaultConverters
+	 *            the default converters by type.
+	 * @throws IllegalAccessException
+	 *             thrown if an attribute cannot be accessed through a method
+	 *             handle.
+	 */
+	CompiledRowMapper(List<Field> attributes, List<Field> pkAttributes,
+			Field autoGeneratedAttribute,
+			Map<Field, IConverter<?>> converters,
+			Map<Class<?>, IConverter<?>> defaultConverters)
+			throws IllegalAccessException {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		List<ColumnMapper> all = new ArrayList<ColumnMapper>();
+		List<ColumnMapper> nonPK = new ArrayList<ColumnMapper>();
+		List<ColumnMapper> insert = new ArrayList<ColumnMapper>();
+		List<ColumnMapper> update = new ArrayList<ColumnMapper>();
+		for (Field attribute : attributes) {
+			IConverter<?> converter = converters.get(attribute);
+			IConverter<?> defaultConverter = defaultConverters.get(attribute.getType());
+			boolean useDefaultConverter = defaultConverter != null
+					&& defaultConverter.getClass().equals(converter.getClass());
+			ColumnMapper column = newColumnMapper(lookup, attribute,
+					useDefaultConverter, converter);
+			columnsByAttribute.put(attribute, column);
+			all.add(column);
+			boolean pk = pkAttributes.contains(attribute);
+			boolean autoGenerated = attribute.equals(autoGeneratedAttribute);
+			if (!pk) {
+				nonPK.add(column);
+			}
+			if (!autoGenerated) {
+				insert.add(column);
+				if (!pk) {
+					update.add(column);
+				}
+			}
+		}
+		List<ColumnMapper> pkList = new ArrayList<ColumnMapper>();
+		for (Field pkAttribute : pkAttributes) {
+			pkList.add(columnsByAttribute.get(pkAttribute));
+		}
+		allColumns = all.toArray(new ColumnMapper[all.size()]);
+		nonPKColumns = nonPK.toArray(new ColumnMapper[nonPK.size()]);
+		pkColumns = pkList.toArray(new ColumnMapper[pkList.size()]);
+		insertColumns = insert.toArray(new ColumnMapper[insert.size()]);
+		updateColumns = update.toArray(new ColumnMapper[update.size()]);
+	}
+
+	/**
+	 * Reads the current row into the given instance.
+	 *
+	 * @param rs
+	 *            the result set.
+	 * @param fromIndex
+	 *            the index of the first column to read.
+	 * @param instance
+	 *            the instance to populate.
+	 * @param includePK
+	 *            whether the primary key columns are part of the result set.
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	void read(ResultSet rs, int fromIndex, TYPE instance, boolean includePK)
+			throws SQLException {
+		ColumnMapper[] columns = includePK ? allColumns : nonPKColumns;
+		try {
+			for (int i = 0; i < columns.length; i++) {
+				columns[i].read(rs, fromIndex + i, instance);
+			}
+		} catch (SQLException | RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads a single column into an instance attribute.
+	 *
+	 * @param rs
+	 *            the result set.
+	 * @param index
+	 *            the column index.
+	 * @param instance
+	 *            the instance to populate.
+	 * @param attribute
+	 *            the attribute to set.
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	void read(ResultSet rs, int index, TYPE instance, Field attribute)
+			throws SQLException {
+		try {
+			columnsByAttribute.get(attribute).read(rs, index, instance);
+		} catch (SQLException | RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Binds the instance attributes to a statement.
+	 *
+	 * @param instance
+	 *            the instance.
+	 * @param pStmt
+	 *            the statement.
+	 * @param includePK
+	 *            whether the primary key attributes must be bound.
+	 * @param includeAutoGenerated
+	 *            whether the auto generated attribute must be bound.
+	 * @return the number of bound parameters.
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	int bind(TYPE instance, PreparedStatement pStmt, boolean includePK,
+			boolean includeAutoGenerated) throws SQLException {
+		ColumnMapper[] columns;
+		if (includeAutoGenerated) {
+			columns = includePK ? allColumns : nonPKColumns;
+		} else {
+			columns = includePK ? insertColumns : updateColumns;
+		}
+		return bind(instance, pStmt, 1, columns);
+	}
+
+	/**
+	 * Binds the instance primary key to a statement.
+	 *
+	 * @param instance
+	 *            the instance.
+	 * @param pStmt
+	 *            the statement.
+	 * @param fromIndex
+	 *            the first parameter index.
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	void bindPK(TYPE instance, PreparedStatement pStmt, int fromIndex)
+			throws SQLException {
+		bind(instance, pStmt, fromIndex, pkColumns);
+	}
+
+	private int bind(TYPE instance, PreparedStatement pStmt, int fromIndex,
+			ColumnMapper[] columns) throws SQLException {
+		try {
+			for (int i = 0; i < columns.length; i++) {
+				columns[i].bind(instance, pStmt, fromIndex + i);
+			}
+			return columns.length;
+		} catch (SQLException | RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static ColumnMapper newColumnMapper(MethodHandles.Lookup lookup,
+			Field attribute, boolean useDefaultConverter,
+			IConverter<?> converter) throws IllegalAccessException {
+		Class<?> type = attribute.getType();
+		// Generic accessors (boxed values handled by the converter)
+		if (!useDefaultConverter || !type.isPrimitive() || type == char.class) {
+			MethodHandle getter = lookup.unreflectGetter(attribute).asType(
+					MethodType.methodType(Object.class, Object.class));
+			MethodHandle setter = lookup.unreflectSetter(attribute).asType(
+					MethodType.methodType(void.class, Object.class, Object.class));
+			@SuppressWarnings("unchecked")
+			IConverter<Object> objectConverter = (IConverter<Object>) converter;
+			return new ObjectColumn(getter, setter, objectConverter,
+					type.isPrimitive() ? defaultPrimitiveValue(type) : null);
+		}
+		// Primitive accessors
+		MethodHandle getter = lookup.unreflectGetter(attribute).asType(
+				MethodType.methodType(type, Object.class));
+		MethodHandle setter = lookup.unreflectSetter(attribute).asType(
+				MethodType.methodType(void.class, Object.class, type));
+		if (type == int.class) {
+			return new IntColumn(getter, setter);
+		} else if (type == long.class) {
+			return new LongColumn(getter, setter);
+		} else if (type == short.class) {
+			return new ShortColumn(getter, setter);
+		} else if (type == byte.class) {
+			return new ByteColumn(getter, setter);
+		} else if (type == boolean.class) {
+			return new BooleanColumn(getter, setter);
+		} else if (type == double.class) {
+			return new DoubleColumn(getter, setter);
+		} else if (type == float.class) {
+			return new FloatColumn(getter, setter);
+		}
+		throw new IllegalArgumentException("Unsupported primitive type " + type);
+	}
+
+	private static Object defaultPrimitiveValue(Class<?> type) {
+		return type.equals(boolean.class) ? (Object) false : (Object) 0;
+	}
+
+	/**
+	 * Column mapper.
+	 */
+	private static abstract class ColumnMapper {
+
+		/** Attribute getter */
+		protected final MethodHandle getter;
+
+		/** Attribute setter */
+		protected final MethodHandle setter;
+
+		ColumnMapper(MethodHandle getter, MethodHandle setter) {
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		abstract void read(ResultSet rs, int index, Object instance) throws Throwable;
+
+		abstract void bind(Object instance, PreparedStatement stmt, int index) throws Throwable;
+
+	}
+
+	/**
+	 * Column mapper delegating to a converter.
+	 */
+	private static final class ObjectColumn extends ColumnMapper {
+
+		private final IConverter<Object> converter;
+
+		private final Object nullValue;
+
+		ObjectColumn(MethodHandle getter, MethodHandle setter,
+				IConverter<Object> converter, Object nullValue) {
+			super(getter, setter);
+			this.converter = converter;
+			this.nullValue = nullValue;
+		}
+
+		@Override
+		void read(ResultSet rs, int index, Object instance) throws Throwable {
+			Object value = converter.readValue(rs, index);
+			if (rs.wasNull() || value == null) {
+				value = nullValue;
+			}
+			setter.invokeExact(instance, value);
+		}
+
+		@Override
+		void bind(Object instance, PreparedStatement stmt, int index) throws Throwable {
+			Object value = (Object) getter.invokeExact(instance);
+			if (value == null) {
+				stmt.setNull(index, converter.getSQLType());
+			} else {
+				converter.bind(stmt, index, value);
+			}
+		}
+
+	}
+
+	private static final class IntColumn extends ColumnMapper {
+
+		IntColumn(MethodHandle getter, MethodHandle setter) {
+			super(getter, setter);
+		}
+
+		@Override
+		void read(ResultSet rs, int index, Object instance) throws Throwable {
+			setter.invokeExact(instance, rs.getInt(index));
+		}
+
+		@Override
+		void bind(Object instance, PreparedStatement stmt, int index) throws Throwable {
+			stmt.setInt(index, (int) getter.invokeExact(instance));
+		}
+
+	}
+
+	private static final class LongColumn extends ColumnMapper {
+
+		LongColumn(MethodHandle getter, MethodHandle setter) {
+			super(getter, setter);
+		}
+
+		@Override
+		void read(ResultSet rs, int index, Object instance) throws Throwable {
+			setter.invokeExact(instance, rs.getLong(index));
+		}
+
+		@Override
+		void bind(Object instance, PreparedStatement stmt, int index) throws Throwable {
+			stmt.setLong(index, (long) getter.invokeExact(instance));
+		}
+
+	}
+
+	private static final class ShortColumn extends ColumnMapper {
+
+		ShortColumn(MethodHandle getter, MethodHandle setter) {
+			super(getter, setter);
+		}
+
+		@Override
+		void read(ResultSet rs, int index, Object instance) throws Throwable {
+			setter.invokeExact(instance, rs.getShort(index));
+		}
+
+		@Override
+		void bind(Object instance, PreparedStatement stmt, int index) throws Throwable {
+			stmt.setShort(index, (short) getter.invokeExact(instance));
+		}
+
+	}
+
+	private static final class ByteColumn extends ColumnMapper {
+
+		ByteColumn(MethodHandle getter, MethodHandle setter) {
+			super(getter, setter);
+		}
+
+		@Override
+		void read(ResultSet rs, int index, Object instance) throws Throwable {
+			setter.invokeExact(instance, rs.getByte(index));
+		}
+
+		@Override
+		void bind(Object instance, PreparedStatement stmt, int index) throws Throwable {
+			stmt.setByte(index, (byte) getter.invokeExact(instance));
+		}
+
+	}
+
+	private static final class BooleanColumn extends ColumnMapper {
+
+		BooleanColumn(MethodHandle getter, MethodHandle setter) {
+			super(getter, setter);
+		}
+
+		@Override
+		void read(ResultSet rs, int index, Object instance) throws Throwable {
+			setter.invokeExact(instance, rs.getBoolean(index));
+		}
+
+		@Override
+		void bind(Object instance, PreparedStatement stmt, int index) throws Throwable {
+			stmt.setBoolean(index, (boolean) getter.invokeExact(instance));
+		}
+
+	}
+
+	private static final class DoubleColumn extends ColumnMapper {
+
+		DoubleColumn(MethodHandle getter, MethodHandle setter) {
+			super(getter, setter);
+		}
+
+		@Override
+		void read(ResultSet rs, int index, Object instance) throws Throwable {
+			setter.invokeExact(instance, rs.getDouble(index));
+		}
+
+		@Override
+		void bind(Object instance, PreparedStatement stmt, int index) throws Throwable {
+			stmt.setDouble(index, (double) getter.invokeExact(instance));
+		}
+
+	}
+
+	private static final class FloatColumn extends ColumnMapper {
+
+		FloatColumn(MethodHandle getter, MethodHandle setter) {
+			super(getter, setter);
+		}
+
+		@Override
+		void read(ResultSet rs, int index, Object instance) throws Throwable {
+			setter.invokeExact(instance, rs.getFloat(index));
+		}
+
+		@Override
+		void bind(Object instance, PreparedStatement stmt, int index) throws Throwable {
+			stmt.setFloat(index, (float) getter.invokeExact(instance));
+		}
+
+	}
+
+}
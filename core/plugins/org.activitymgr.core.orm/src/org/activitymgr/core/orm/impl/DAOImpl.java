@@ -20,9 +20,11 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.activitymgr.core.orm.IConverter;
 import org.activitymgr.core.orm.IDAO;
+import org.activitymgr.core.orm.StreamHelper;
 import org.activitymgr.core.orm.impl.converters.BigDecimalConverter;
 import org.activitymgr.core.orm.impl.converters.BooleanConverter;
 import org.activitymgr.core.orm.impl.converters.ByteConverter;
@@ -48,6 +50,12 @@ import org.apache.log4j.Logger;
 /**
  * Classe peremettant de mapper une classe Java avec une table dans une base
  * de donn�es.
+ * <p>
+ * Rows are read and bound through a compiled row mapper (see
+ * {@link CompiledRowMapper}) unless the
+ * <code>org.activitymgr.core.orm.reflectiveMapping</code> system property is
+ * set to <code>true</code>, in which case the reflective mapping is used.
+ * </p>
  * @author jbrazeau
  * TODO Javadoc
  */
@@ -59,6 +67,9 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 	/** Logger */
 	private static Logger sqlLog = Logger.getLogger("dbClassMapper.logsqlrequests");
 
+	/** System property that disables the compiled row mappers */
+	public static final String REFLECTIVE_MAPPING_PROPERTY = "org.activitymgr.core.orm.reflectiveMapping";
+
 	/** Default converters */
 	private static final Map<Class<?>, IConverter<?>> DEFAULT_CONVERTERS = new HashMap<Class<?>, IConverter<?>>();
 	
@@ -124,6 +135,9 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 	/** Class constructor */
 	private Constructor<TYPE> constructor;
 
+	/** Compiled row mapper (null if the reflective mapping is used) */
+	private CompiledRowMapper<TYPE> rowMapper;
+
 	/**
 	 * Constructeur priv�.
 	 * @param mapping mapping de la classe mapp�e.
@@ -132,6 +146,17 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 	 * 		mapping.
 	 */
 	public DAOImpl(IMappgingConfiguration mapping, Class<TYPE> theClass) {
+		this(mapping, theClass, Boolean.getBoolean(REFLECTIVE_MAPPING_PROPERTY));
+	}
+
+	/**
+	 * Constructor.
+	 * @param mapping the class mapping.
+	 * @param theClass the mapped class.
+	 * @param reflectiveMapping <code>true</code> to use the reflective mapping
+	 * 		instead of the compiled row mapper.
+	 */
+	public DAOImpl(IMappgingConfiguration mapping, Class<TYPE> theClass, boolean reflectiveMapping) {
 		if (log.isDebugEnabled())
 			log.debug("Descriptor loaded");
 		this.mappedClass = theClass;
@@ -196,6 +221,15 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 			}
 	
 		}
+
+		// Row mapper compilation
+		if (!reflectiveMapping) {
+			try {
+				rowMapper = new CompiledRowMapper<TYPE>(attributes, pkAttributes, autoGeneratedAttribute, converters, DEFAULT_CONVERTERS);
+			} catch (IllegalAccessException e) {
+				log.warn("Unable to compile the row mapper of " + theClass.getName() + ", falling back to reflective mapping", e);
+			}
+		}
 		
 		// Construction de la requ�te de s�lection de toute les valeurs
 		// d'un table
@@ -333,11 +367,7 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 		PreparedStatement pStmt = null;
 		try {
 			pStmt = con.prepareStatement(deletWithPKRequest);
-			int parameterIdx = 1;
-			for (Field pkAttribute : pkAttributes) {
-				instanceAttributeToStatementColumn(instance, pkAttribute, pStmt, parameterIdx);
-				parameterIdx++;
-			}
+			instancePKToStatement(instance, pStmt, 1);
 			// Construction du r�sultat
 			boolean deleted = pStmt.executeUpdate()==1;
 
@@ -606,6 +636,35 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see org.activitymgr.core.orm.IDAO#stream(java.sql.Connection, java.lang.String[], java.lang.Object[], java.lang.Object[], int)
+	 */
+	@Override
+	public Stream<TYPE> stream(Connection con,
+			String[] whereClauseAttributeNames,
+			Object[] whereClauseAttributeValues,
+			Object[] orderByClauseItems, int fetchSize) throws SQLException {
+		String request = builSelectRequest(whereClauseAttributeNames, whereClauseAttributeValues, orderByClauseItems, -1);
+		PreparedStatement pStmt = con.prepareStatement(request, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		try {
+			pStmt.setFetchSize(fetchSize);
+			// Binding de la clause where
+			bindAttributeValueToStatement(pStmt, whereClauseAttributeNames, whereClauseAttributeValues);
+		} catch (SQLException e) {
+			pStmt.close();
+			throw e;
+		}
+		return StreamHelper.stream(pStmt, rs -> {
+			try {
+				TYPE newInstance = newInstance();
+				resultSetToInstanceAttributes(rs, newInstance, true);
+				return newInstance;
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("Error while accessing instance attribute", e); 
+			}
+		});
+	}
+
 	@Override
 	public TYPE newInstance() {
 		return ReflectionHelper.newInstance(constructor);
@@ -622,11 +681,7 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 		try {
 			pStmt = con.prepareStatement(updateRequest);
 			int mappedParametersNb = instanceAttributesToStatement(value, pStmt, false, false);
-			int parameterIdx = mappedParametersNb + 1;
-			for (Field pkAttribute : pkAttributes) {
-				instanceAttributeToStatementColumn(value, pkAttribute, pStmt, parameterIdx);
-				parameterIdx++;
-			}
+			instancePKToStatement(value, pStmt, mappedParametersNb + 1);
 			int updated = pStmt.executeUpdate();
 			if (updated!=1)
 				throw new IllegalStateException("Row update failed");
@@ -681,6 +736,130 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see org.activitymgr.core.orm.IDAO#insertAll(java.sql.Connection, TYPE[], int)
+	 */
+	@Override
+	public TYPE[] insertAll(Connection con, TYPE[] values, int batchSize) throws SQLException {
+		// Some drivers (H2) only return the last generated key of a batch : the
+		// rows are then inserted one by one
+		if (autoGeneratedAttribute != null && !supportsBatchGeneratedKeys(con)) {
+			for (TYPE value : values) {
+				insert(con, value);
+			}
+			return values;
+		}
+		int autoGeneratedKeys = autoGeneratedAttribute != null ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
+		int[] updated = executeBatches(con, insertRequest, autoGeneratedKeys, values, batchSize,
+				(value, pStmt) -> instanceAttributesToStatement(value, pStmt, true, false));
+		for (int count : updated) {
+			if (count != 1 && count != Statement.SUCCESS_NO_INFO)
+				throw new IllegalStateException("Row insertion failed");
+		}
+		return values;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.activitymgr.core.orm.IDAO#updateAll(java.sql.Connection, TYPE[], int)
+	 */
+	@Override
+	public TYPE[] updateAll(Connection con, TYPE[] values, int batchSize) throws SQLException {
+		int[] updated = executeBatches(con, updateRequest, Statement.NO_GENERATED_KEYS, values, batchSize,
+				(value, pStmt) -> {
+					int mappedParametersNb = instanceAttributesToStatement(value, pStmt, false, false);
+					instancePKToStatement(value, pStmt, mappedParametersNb + 1);
+				});
+		for (int count : updated) {
+			if (count != 1 && count != Statement.SUCCESS_NO_INFO)
+				throw new IllegalStateException("Row update failed");
+		}
+		return values;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.activitymgr.core.orm.IDAO#deleteAll(java.sql.Connection, TYPE[], int)
+	 */
+	@Override
+	public int deleteAll(Connection con, TYPE[] values, int batchSize) throws SQLException {
+		int[] updated = executeBatches(con, deletWithPKRequest, Statement.NO_GENERATED_KEYS, values, batchSize,
+				(value, pStmt) -> instancePKToStatement(value, pStmt, 1));
+		int deleted = 0;
+		for (int count : updated) {
+			// The driver may not give the affected rows count
+			deleted += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+		}
+		return deleted;
+	}
+
+	/**
+	 * Executes a request for each given instance using JDBC batches.
+	 * @param con the connection.
+	 * @param request the request.
+	 * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} if the
+	 * 		generated keys must be read after each batch.
+	 * @param values the instances.
+	 * @param batchSize the maximum number of rows per batch (all the rows
+	 * 		are sent in a single batch if <code>0</code> or negative).
+	 * @param binder binds an instance to the statement parameters.
+	 * @return the update counts.
+	 * @throws SQLException thrown if a SQL error occurs.
+	 */
+	private int[] executeBatches(Connection con, String request, int autoGeneratedKeys, TYPE[] values, int batchSize, BatchBinder<TYPE> binder) throws SQLException {
+		if (sqlLog.isDebugEnabled())
+			sqlLog.debug("batch(" + values.length + ")=" + request);
+		int[] result = new int[values.length];
+		if (values.length == 0)
+			return result;
+		if (batchSize <= 0)
+			batchSize = values.length;
+		PreparedStatement pStmt = null;
+		try {
+			pStmt = con.prepareStatement(request, autoGeneratedKeys);
+			int batchStart = 0;
+			for (int i = 0; i < values.length; i++) {
+				binder.bind(values[i], pStmt);
+				pStmt.addBatch();
+				if (i + 1 - batchStart == batchSize || i + 1 == values.length) {
+					int[] updated = pStmt.executeBatch();
+					System.arraycopy(updated, 0, result, batchStart, updated.length);
+					if (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) {
+						ResultSet rs = pStmt.getGeneratedKeys();
+						for (int j = batchStart; j <= i; j++) {
+							if (!rs.next())
+								throw new IllegalStateException("Error while retrieving auto generated key");
+							resultSetColumnToInstanceAttribute(rs, 1, values[j], autoGeneratedAttribute);
+						}
+						rs.close();
+					}
+					batchStart = i + 1;
+				}
+			}
+			// Fermeture du statement
+			pStmt.close();
+			pStmt = null;
+
+			// Retour du r�sultat
+			return result;
+		} catch (IllegalArgumentException e) {
+			log.error("Error while accessing instance attribute", e);
+			throw new IllegalStateException("Error while accessing instance attribute", e); 
+		} catch (IllegalAccessException e) {
+			log.error("Error while accessing instance attribute", e);
+			throw new IllegalStateException("Error while accessing instance attribute", e); 
+		}
+		finally {
+			if (pStmt!=null) try { pStmt.close(); } catch (SQLException ignored) {}
+		}
+	}
+
+	/**
+	 * Binds an instance to the parameters of a batched statement.
+	 */
+	@FunctionalInterface
+	private interface BatchBinder<TYPE> {
+		void bind(TYPE value, PreparedStatement pStmt) throws SQLException, IllegalAccessException;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.activitymgr.core.orm.impl.IDbClassMapper#countAll(java.sql.Connection)
 	 */
@@ -742,6 +921,9 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 	private int instanceAttributesToStatement(TYPE instance, PreparedStatement pStmt, boolean includePK, boolean includeAutoGenerated) throws SQLException, IllegalArgumentException, IllegalAccessException {
 		if (log.isDebugEnabled())
 			log.debug("instanceAttributesToStatement(" + instance + ", " + pStmt + ", " + includePK + ", " + includeAutoGenerated + ")");
+		if (rowMapper != null) {
+			return rowMapper.bind(instance, pStmt, includePK, includeAutoGenerated);
+		}
 		int parameterIdx = 1;
 		for (Field attribute : attributes) {
 			if ((includePK || !pkAttributes.contains(attribute)) 
@@ -753,6 +935,19 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 		return parameterIdx-1;
 	}
 
+	private void instancePKToStatement(TYPE instance, PreparedStatement pStmt, int fromIndex) throws SQLException, IllegalArgumentException, IllegalAccessException {
+		if (rowMapper != null) {
+			rowMapper.bindPK(instance, pStmt, fromIndex);
+		}
+		else {
+			int parameterIdx = fromIndex;
+			for (Field pkAttribute : pkAttributes) {
+				instanceAttributeToStatementColumn(instance, pkAttribute, pStmt, parameterIdx);
+				parameterIdx++;
+			}
+		}
+	}
+
 	private void instanceAttributeToStatementColumn(TYPE instance, Field attribute, PreparedStatement pStmt, int parameterIdx) throws SQLException, IllegalArgumentException, IllegalAccessException {
 		Object attributeValue = attribute.get(instance);
 		attributeValueToStatementColumn(attribute, attributeValue, pStmt, parameterIdx);
@@ -767,9 +962,17 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 				Field attribute = getAttributeByName(attributeName);
 				if (attributeValue instanceof AbstractStatement) {
 					if (attributeValue instanceof InStatement) {
-						for (Object value : ((InStatement) attributeValue).getValues()) {
+						InStatement stmt = (InStatement) attributeValue;
+						Object[] values = stmt.getValues();
+						for (Object value : values) {
 							attributeValueToStatementColumn(attribute, value, pStmt, parameterIdx++);
 						}
+						// Padding (see getInParametersCount)
+						if (values.length > 1) {
+							for (int j=values.length; j<getInParametersCount(stmt); j++) {
+								attributeValueToStatementColumn(attribute, values[values.length - 1], pStmt, parameterIdx++);
+							}
+						}
 					}
 					else if (attributeValue instanceof BetweenStatement) {
 						BetweenStatement bs = (BetweenStatement) attributeValue;
@@ -799,6 +1002,23 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 		return parameterIdx;
 	}
 
+	/**
+	 * Returns the number of parameters to generate for a <code>in</code>
+	 * clause.
+	 * <p>
+	 * The number of values is rounded to the next power of two (the extra
+	 * parameters are bound to the last value) so that requests which only
+	 * differ by the number of values share a few SQL shapes and can reuse
+	 * the prepared statements pooled by the connection pool.
+	 * </p>
+	 * @param stmt the <code>in</code> statement.
+	 * @return the parameters count.
+	 */
+	private static int getInParametersCount(InStatement stmt) {
+		int count = stmt.getValues().length;
+		return count <= 1 ? count : Integer.highestOneBit(count - 1) << 1;
+	}
+
 	private Field getAttributeByName(String attributeName) {
 		Field attribute = attributesDictionnary.get(attributeName);
 		if (attribute == null) {
@@ -843,6 +1063,10 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 	}
 
 	private void resultSetToInstanceAttributes(ResultSet rs, int fromIndex, TYPE instance, boolean includePK) throws SQLException, IllegalArgumentException, IllegalAccessException {
+		if (rowMapper != null) {
+			rowMapper.read(rs, fromIndex, instance, includePK);
+			return;
+		}
 		int parameterIdx = fromIndex;
 		for (Field attribute : attributes) {
 			if (includePK || !pkAttributes.contains(attribute)) {
@@ -853,6 +1077,10 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 	}
 	
 	private void resultSetColumnToInstanceAttribute(ResultSet rs, int rsColumnIdx, TYPE instance, Field attribute) throws SQLException, IllegalArgumentException, IllegalAccessException {
+		if (rowMapper != null) {
+			rowMapper.read(rs, rsColumnIdx, instance, attribute);
+			return;
+		}
 		@SuppressWarnings("unchecked")
 		IConverter<Object> converter = (IConverter<Object>) converters.get(attribute);
 		Object attributeValue = converter.readValue(rs, rsColumnIdx);
@@ -949,10 +1177,9 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 						}
 						else {
 							buf.append(" in (");
-							boolean first = true;
-							for (@SuppressWarnings("unused") Object value : stmt.getValues()) {
-								buf.append(first ? "?" : ", ?");
-								first = false;
+							int parametersCount = getInParametersCount(stmt);
+							for (int j=0; j<parametersCount; j++) {
+								buf.append(j == 0 ? "?" : ", ?");
 							}
 							buf.append(")");
 						}
@@ -1050,6 +1277,17 @@ public class DAOImpl<TYPE> implements IDAO<TYPE> {
 		return "HSQL Database Engine".equals(dbName);
 	}
 
+	/**
+	 * Indicates whether the driver returns all the keys generated by a batch
+	 * (H2 only returns the last one).
+	 * @param con the connection.
+	 * @return <code>true</code> if the generated keys of a batch can be read.
+	 * @throws SQLException thrown if a SQL error occurs.
+	 */
+	private static boolean supportsBatchGeneratedKeys(Connection con) throws SQLException {
+		return !"H2".equals(con.getMetaData().getDatabaseProductName());
+	}
+
 
 
 }
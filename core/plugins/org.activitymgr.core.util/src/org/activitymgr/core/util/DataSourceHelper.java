@@ -0,0 +1,158 @@
+package org.activitymgr.core.util;
+
+import java.util.function.Function;
+
+import org.apache.commons.dbcp.BasicDataSource;
+
+/**
+ * Connection pool (commons-dbcp) helper class.
+ * <p>
+ * The pool settings are read through a function that returns the value of a
+ * setting (or <code>null</code> if it is not set) :
+ * </p>
+ * <ul>
+ * <li>sizing : <code>maxActive</code>, <code>maxIdle</code>,
+ * <code>minIdle</code>, <code>initialSize</code>, <code>maxWait</code> (in
+ * milliseconds, <code>-1</code> to wait indefinitely),</li>
+ * <li>validation and eviction : <code>validationQuery</code>,
+ * <code>testOnBorrow</code>, <code>testWhileIdle</code>,
+ * <code>timeBetweenEvictionRunsMillis</code>,
+ * <code>minEvictableIdleTimeMillis</code>,
+ * <code>numTestsPerEvictionRun</code>,</li>
+ * <li>statements pooling (enabled by default) :
+ * <code>poolPreparedStatements</code>,
+ * <code>maxOpenPreparedStatements</code>,</li>
+ * <li>leak detection : <code>removeAbandoned</code>,
+ * <code>removeAbandonedTimeout</code> (in seconds),
+ * <code>logAbandoned</code>.</li>
+ * </ul>
+ */
+public class DataSourceHelper {
+
+	/** Default maximum number of active connections */
+	public static final int DEFAULT_MAX_ACTIVE = 20;
+
+	/** Default minimum number of idle connections */
+	public static final int DEFAULT_MIN_IDLE = 2;
+
+	/** Default maximum wait time for a connection (ms) */
+	public static final long DEFAULT_MAX_WAIT = 30000;
+
+	/** Default idle connections eviction period (ms) */
+	public static final long DEFAULT_EVICTION_PERIOD = 60000;
+
+	/** Default idle time after which a connection may be evicted (ms) */
+	public static final long DEFAULT_MIN_EVICTABLE_IDLE_TIME = 300000;
+
+	/** Default maximum number of pooled statements per connection */
+	public static final int DEFAULT_MAX_OPEN_PREPARED_STATEMENTS = 100;
+
+	/** Default time after which a borrowed connection is abandoned (s) */
+	public static final int DEFAULT_REMOVE_ABANDONED_TIMEOUT = 300;
+
+	/** MySQL validation query */
+	private static final String MYSQL_VALIDATION_QUERY = "select 1"; //$NON-NLS-1$
+
+	/**
+	 * Creates a connection pool.
+	 * <p>
+	 * The connections are not in auto commit mode (nor in read only mode when
+	 * they are borrowed). For MySQL, large results are streamed (server side
+	 * cursors), JDBC batches are sent as multi-row requests, and the
+	 * connections are validated (by default) so that the connections closed
+	 * by the server are not used.
+	 * </p>
+	 *
+	 * @param driver
+	 *            the JDBC driver class name.
+	 * @param url
+	 *            the JDBC url.
+	 * @param user
+	 *            the database user.
+	 * @param password
+	 *            the database password.
+	 * @param poolCfg
+	 *            the pool settings.
+	 * @return the pool.
+	 */
+	public static BasicDataSource createDataSource(String driver,
+			String url, String user, String password,
+			Function<String, String> poolCfg) {
+		BasicDataSource datasource = new BasicDataSource();
+		datasource.setDriverClassName(driver);
+		datasource.setUrl(url);
+		boolean mysql = url.startsWith("jdbc:mysql:"); //$NON-NLS-1$
+		// Let MySQL stream large results (exports, reports) using server side
+		// cursors instead of loading them in memory
+		if (mysql && !url.contains("useCursorFetch")) { //$NON-NLS-1$
+			datasource.addConnectionProperty("useCursorFetch", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		// Let MySQL send the JDBC batches (bulk writes) as multi-row requests
+		if (mysql && !url.contains("rewriteBatchedStatements")) { //$NON-NLS-1$
+			datasource.addConnectionProperty("rewriteBatchedStatements", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		datasource.setUsername(user);
+		datasource.setPassword(password);
+		datasource.setDefaultAutoCommit(false);
+		// The read only mode (used by the reports) must not be kept by the
+		// next borrower of a connection
+		datasource.setDefaultReadOnly(false);
+
+		// Sizing
+		datasource.setMaxActive(getInt(poolCfg, "maxActive", DEFAULT_MAX_ACTIVE)); //$NON-NLS-1$
+		datasource.setMaxIdle(getInt(poolCfg, "maxIdle", datasource.getMaxActive())); //$NON-NLS-1$
+		datasource.setMinIdle(getInt(poolCfg, "minIdle", DEFAULT_MIN_IDLE)); //$NON-NLS-1$
+		datasource.setInitialSize(getInt(poolCfg, "initialSize", 0)); //$NON-NLS-1$
+		datasource.setMaxWait(getLong(poolCfg, "maxWait", DEFAULT_MAX_WAIT)); //$NON-NLS-1$
+
+		// Validation (MySQL closes the connections that stay idle too long)
+		String validationQuery = poolCfg.apply("validationQuery"); //$NON-NLS-1$
+		if (validationQuery == null && mysql) {
+			validationQuery = MYSQL_VALIDATION_QUERY;
+		}
+		if (validationQuery != null && !"".equals(validationQuery.trim())) { //$NON-NLS-1$
+			datasource.setValidationQuery(validationQuery);
+			datasource.setTestOnBorrow(getBoolean(poolCfg, "testOnBorrow", true)); //$NON-NLS-1$
+			datasource.setTestWhileIdle(getBoolean(poolCfg, "testWhileIdle", true)); //$NON-NLS-1$
+		}
+
+		// Eviction of the idle connections (above minIdle)
+		datasource.setTimeBetweenEvictionRunsMillis(getLong(poolCfg,
+				"timeBetweenEvictionRunsMillis", DEFAULT_EVICTION_PERIOD)); //$NON-NLS-1$
+		datasource.setMinEvictableIdleTimeMillis(getLong(poolCfg,
+				"minEvictableIdleTimeMillis", DEFAULT_MIN_EVICTABLE_IDLE_TIME)); //$NON-NLS-1$
+		datasource.setNumTestsPerEvictionRun(getInt(poolCfg,
+				"numTestsPerEvictionRun", datasource.getMaxActive())); //$NON-NLS-1$
+
+		// Statements pooling (the DAOs prepare their statements on each
+		// borrowed connection, the pool lets the next borrowers of the
+		// physical connection reuse them)
+		datasource.setPoolPreparedStatements(getBoolean(poolCfg, "poolPreparedStatements", true)); //$NON-NLS-1$
+		datasource.setMaxOpenPreparedStatements(getInt(poolCfg,
+				"maxOpenPreparedStatements", DEFAULT_MAX_OPEN_PREPARED_STATEMENTS)); //$NON-NLS-1$
+
+		// Leak detection
+		datasource.setRemoveAbandoned(getBoolean(poolCfg, "removeAbandoned", false)); //$NON-NLS-1$
+		datasource.setRemoveAbandonedTimeout(getInt(poolCfg,
+				"removeAbandonedTimeout", DEFAULT_REMOVE_ABANDONED_TIMEOUT)); //$NON-NLS-1$
+		datasource.setLogAbandoned(getBoolean(poolCfg, "logAbandoned", datasource.getRemoveAbandoned())); //$NON-NLS-1$
+
+		return datasource;
+	}
+
+	private static int getInt(Function<String, String> cfg, String key, int defaultValue) {
+		String value = cfg.apply(key);
+		return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+	}
+
+	private static long getLong(Function<String, String> cfg, String key, long defaultValue) {
+		String value = cfg.apply(key);
+		return value != null ? Long.parseLong(value.trim()) : defaultValue;
+	}
+
+	private static boolean getBoolean(Function<String, String> cfg, String key, boolean defaultValue) {
+		String value = cfg.apply(key);
+		return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+	}
+
+}
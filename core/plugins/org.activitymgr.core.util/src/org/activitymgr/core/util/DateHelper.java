@@ -17,52 +17,18 @@ public class DateHelper {
 	 * @return the days count between the two dates.
 	 */
 	public static int countDaysBetween(Calendar date1, Calendar date2) {
-		
-		Calendar from = date1;
-		Calendar to = date2;
-		if (date1.after(date2)) {
-			from = date2;
-			to = date1;
-		}
-		
-		// TODO should be replaced by :
-//		long diff = TimeUnit.DAYS.convert(to.getTimeInMillis() - from.getTimeInMillis(), 
-//				TimeUnit.MILLISECONDS);
-		
-		int y1 = from.get(Calendar.YEAR);
-		int y2 = to.get(Calendar.YEAR);
-		// If both dates are within the same year, we only have to compare
-		// "day of year" fields
-		if (y1 == y2) {
-			return to.get(Calendar.DAY_OF_YEAR)
-					- from.get(Calendar.DAY_OF_YEAR);
-		}
-		// In other cases, we have to increment a cursor to count how many days
-		// there is
-		// between the current date and the 31th Dec. until the current year is
-		// equal to
-		// the target date (because not all years have 365 days, some have
-		// 366!).
-		else {
-			int result = 0;
-			Calendar fromClone = (Calendar) from.clone();
-			while (fromClone.get(Calendar.YEAR) != y2) {
-				// Save current day of year
-				int dayOfYear = fromClone.get(Calendar.DAY_OF_YEAR);
-				// Goto 31th of December
-				fromClone.set(Calendar.MONTH, 11);
-				fromClone.set(Calendar.DAY_OF_MONTH, 31);
-				// Compute days count
-				result += fromClone.get(Calendar.DAY_OF_YEAR) - dayOfYear;
-				// Goto next year (= add one day)
-				fromClone.add(Calendar.DATE, 1);
-				result++;
-			}
-			// Compute last year days count
-			result += to.get(Calendar.DAY_OF_YEAR)
-					- fromClone.get(Calendar.DAY_OF_YEAR);
-			return result;
-		}
+		return countDaysBetween(EpochDays.of(date1), EpochDays.of(date2));
+	}
+
+	/**
+	 * @param epochDay1
+	 *            the first day (see {@link EpochDays}).
+	 * @param epochDay2
+	 *            the second day.
+	 * @return the days count between the two days.
+	 */
+	public static int countDaysBetween(int epochDay1, int epochDay2) {
+		return Math.abs(epochDay2 - epochDay1);
 	}
 
 	/**
@@ -74,10 +40,60 @@ public class DateHelper {
 	 */
 	public static Calendar moveToFirstDayOfWeek(Calendar date) {
 		Calendar dateCursor = (Calendar) date.clone();
-		while (dateCursor.get(Calendar.DAY_OF_WEEK) != Calendar.MONDAY) {
-			dateCursor.add(Calendar.DATE, -1);
-		}
+		int epochDay = EpochDays.of(date);
+		dateCursor.add(Calendar.DATE, EpochDays.getFirstDayOfWeek(epochDay) - epochDay);
 		return dateCursor;
 	}
 
+	/**
+	 * Retourne le premier lundi précédent le jour spécifié.
+	 * 
+	 * @param epochDay
+	 *            le jour (voir {@link EpochDays}).
+	 * @return le premier lundi précédent le jour spécifié.
+	 */
+	public static int moveToFirstDayOfWeek(int epochDay) {
+		return EpochDays.getFirstDayOfWeek(epochDay);
+	}
+
+	/**
+	 * Converts a date into a day key (<code>yyyyMMdd</code> integer, as
+	 * stored in the <code>CTB_DATE_KEY</code> column).
+	 * 
+	 * @param date
+	 *            the date.
+	 * @return the day key.
+	 */
+	public static int toDateKey(Calendar date) {
+		return toDateKey(date.get(Calendar.YEAR), date.get(Calendar.MONTH) + 1,
+				date.get(Calendar.DAY_OF_MONTH));
+	}
+
+	/**
+	 * @param year
+	 *            the year.
+	 * @param month
+	 *            the month (1 to 12).
+	 * @param day
+	 *            the day of month.
+	 * @return the day key.
+	 */
+	public static int toDateKey(int year, int month, int day) {
+		return year * 10000 + month * 100 + day;
+	}
+
+	/**
+	 * Converts a day key (<code>yyyyMMdd</code> integer) into a date.
+	 * 
+	 * @param dateKey
+	 *            the day key.
+	 * @return the date.
+	 */
+	public static Calendar fromDateKey(int dateKey) {
+		Calendar date = Calendar.getInstance();
+		date.clear();
+		date.set(dateKey / 10000, (dateKey / 100) % 100 - 1, dateKey % 100);
+		return date;
+	}
+
 }
@@ -2,6 +2,7 @@ package org.activitymgr.core.util;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 
 public class DbHelper {
 
@@ -40,6 +41,21 @@ public class DbHelper {
 		return dbName.contains("hsql") || dbName.contains("h2"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
+	/**
+	 * Indique si une erreur SQL correspond à la violation d'une contrainte
+	 * d'unicité (ou d'intégrité), par exemple lorsqu'une transaction
+	 * concurrente a inséré la même clé.
+	 * 
+	 * @param e
+	 *            l'erreur SQL.
+	 * @return un booléen indiquant si l'erreur est une violation de contrainte.
+	 */
+	public static boolean isUniqueKeyViolation(SQLException e) {
+		// SQLSTATE de classe 23 : integrity constraint violation
+		return e instanceof SQLIntegrityConstraintViolationException
+				|| (e.getSQLState() != null && e.getSQLState().startsWith("23")); //$NON-NLS-1$
+	}
+
 	/**
 	 * Shutdowns the database.
 	 * 
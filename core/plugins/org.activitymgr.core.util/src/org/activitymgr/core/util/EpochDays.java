@@ -0,0 +1,170 @@
+package org.activitymgr.core.util;
+
+import java.time.LocalDate;
+import java.util.Calendar;
+
+/**
+ * Epoch days helper class.
+ * <p>
+ * A day is represented by a primitive <code>int</code> : the number of days
+ * since 1970-01-01 (the same value as {@link LocalDate#toEpochDay()}). Days
+ * can therefore be compared, subtracted or used as array indexes directly,
+ * and no object is allocated to convert them from or into their year, month
+ * and day fields.
+ * </p>
+ * <p>
+ * {@link Calendar} and {@link LocalDate} conversions are provided for the
+ * APIs that still use them.
+ * </p>
+ */
+public class EpochDays {
+
+	/** Days count in a 400 years cycle */
+	private static final int DAYS_PER_CYCLE = 146097;
+
+	/** Days from 0000-03-01 to 1970-01-01 */
+	private static final int DAYS_0000_TO_1970 = 719468;
+
+	/**
+	 * @param year
+	 *            the year.
+	 * @param month
+	 *            the month (1 to 12).
+	 * @param day
+	 *            the day of month.
+	 * @return the epoch day.
+	 */
+	public static int of(int year, int month, int day) {
+		// Years start in march so that the leap day is the last one
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * DAYS_PER_CYCLE + dayOfEra - DAYS_0000_TO_1970;
+	}
+
+	/**
+	 * @param date
+	 *            the date.
+	 * @return the epoch day of the date (in the date time zone).
+	 */
+	public static int of(Calendar date) {
+		return of(date.get(Calendar.YEAR), date.get(Calendar.MONTH) + 1,
+				date.get(Calendar.DAY_OF_MONTH));
+	}
+
+	/**
+	 * @param date
+	 *            the date.
+	 * @return the epoch day.
+	 */
+	public static int of(LocalDate date) {
+		return (int) date.toEpochDay();
+	}
+
+	/**
+	 * @param dateKey
+	 *            the day key (<code>yyyyMMdd</code> integer).
+	 * @return the epoch day.
+	 */
+	public static int ofDateKey(int dateKey) {
+		return of(dateKey / 10000, (dateKey / 100) % 100, dateKey % 100);
+	}
+
+	/**
+	 * @param epochDay
+	 *            the epoch day.
+	 * @return the day key (<code>yyyyMMdd</code> integer, as stored in the
+	 *         <code>CTB_DATE_KEY</code> column).
+	 */
+	public static int toDateKey(int epochDay) {
+		int z = epochDay + DAYS_0000_TO_1970;
+		int era = (z >= 0 ? z : z - DAYS_PER_CYCLE + 1) / DAYS_PER_CYCLE;
+		int dayOfEra = z - era * DAYS_PER_CYCLE;
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int mp = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		return DateHelper.toDateKey(year, month, day);
+	}
+
+	/**
+	 * @param epochDay
+	 *            the epoch day.
+	 * @return the year.
+	 */
+	public static int getYear(int epochDay) {
+		return toDateKey(epochDay) / 10000;
+	}
+
+	/**
+	 * @param epochDay
+	 *            the epoch day.
+	 * @return the month (1 to 12).
+	 */
+	public static int getMonth(int epochDay) {
+		return (toDateKey(epochDay) / 100) % 100;
+	}
+
+	/**
+	 * @param epochDay
+	 *            the epoch day.
+	 * @return the day of month.
+	 */
+	public static int getDay(int epochDay) {
+		return toDateKey(epochDay) % 100;
+	}
+
+	/**
+	 * @param epochDay
+	 *            the epoch day.
+	 * @return the day of week (1 for monday to 7 for sunday).
+	 */
+	public static int getDayOfWeek(int epochDay) {
+		// 1970-01-01 was a thursday
+		return Math.floorMod(epochDay + 3, 7) + 1;
+	}
+
+	/**
+	 * @param epochDay
+	 *            the epoch day.
+	 * @return the monday preceding the given day (or the day itself if it is
+	 *         a monday).
+	 */
+	public static int getFirstDayOfWeek(int epochDay) {
+		return epochDay - getDayOfWeek(epochDay) + 1;
+	}
+
+	/**
+	 * @param epochDay
+	 *            the epoch day.
+	 * @return the date (in the default time zone).
+	 */
+	public static Calendar toCalendar(int epochDay) {
+		return DateHelper.fromDateKey(toDateKey(epochDay));
+	}
+
+	/**
+	 * @param epochDay
+	 *            the epoch day.
+	 * @return the date.
+	 */
+	public static LocalDate toLocalDate(int epochDay) {
+		return LocalDate.ofEpochDay(epochDay);
+	}
+
+	/**
+	 * @param epochDay
+	 *            the epoch day.
+	 * @return the day in <code>yyyyMMdd</code> format.
+	 */
+	public static String toString(int epochDay) {
+		String str = String.valueOf(toDateKey(epochDay));
+		// Years before 1000 are padded
+		return str.length() < 8 ? "00000000".substring(str.length()) + str : str;
+	}
+
+}
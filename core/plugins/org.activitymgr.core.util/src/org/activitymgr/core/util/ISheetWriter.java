@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2004-2017, Jean-Francois Brazeau. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIEDWARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS
+ * OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.activitymgr.core.util;
+
+import java.io.IOException;
+
+/**
+ * Row by row sheet writer.
+ */
+public interface ISheetWriter {
+
+	/** Cell styles */
+	public static enum Style {
+		BODY, BODY_RIGHT_ALIGNMENT, HEADER, FOOTER
+	}
+
+	/**
+	 * Starts a new row.
+	 *
+	 * @throws IOException
+	 *             thrown if an I/O error occurs.
+	 */
+	void newRow() throws IOException;
+
+	/**
+	 * Adds a cell to the current row.
+	 *
+	 * @param style
+	 *            the cell style.
+	 * @param value
+	 *            the cell value (<code>String</code>, <code>Number</code>,
+	 *            <code>Boolean</code> or <code>null</code> for an empty cell).
+	 * @throws IOException
+	 *             thrown if an I/O error occurs.
+	 */
+	void addCell(Style style, Object value) throws IOException;
+
+	/**
+	 * Skips a cell in the current row (no cell is created).
+	 *
+	 * @throws IOException
+	 *             thrown if an I/O error occurs.
+	 */
+	void skipCell() throws IOException;
+
+	/**
+	 * Gives the number of rows that are going to be written. Called once
+	 * before the first row (allows to track the progress).
+	 *
+	 * @param rowCount
+	 *            the rows count.
+	 * @throws IOException
+	 *             thrown if an I/O error occurs.
+	 */
+	default void setRowCount(int rowCount) throws IOException {
+	}
+
+}
@@ -0,0 +1,243 @@
+package org.activitymgr.core.util;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp.BasicDataSource;
+
+/**
+ * Connection pool wrapper that measures the connections acquisition.
+ * <p>
+ * Gives the pool state (active and idle connections, threads waiting for a
+ * connection) and the wait time percentiles, computed on the most recent
+ * acquisitions.
+ * </p>
+ */
+public class InstrumentedDataSource implements DataSource {
+
+	/** Default number of wait times kept to compute the percentiles */
+	public static final int DEFAULT_SAMPLES = 1024;
+
+	/** The pool */
+	private final BasicDataSource pool;
+
+	/** Threads waiting for a connection */
+	private final AtomicInteger waiters = new AtomicInteger();
+
+	/** Acquisitions counter */
+	private final AtomicLong acquisitions = new AtomicLong();
+
+	/** Failed acquisitions counter (pool exhausted or database failure) */
+	private final AtomicLong failures = new AtomicLong();
+
+	/** Most recent wait times (in microseconds, circular buffer) */
+	private final long[] waitTimes;
+
+	/** Next wait time index */
+	private int next;
+
+	/** Wait times count (up to the buffer size) */
+	private int count;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param pool
+	 *            the pool.
+	 */
+	public InstrumentedDataSource(BasicDataSource pool) {
+		this(pool, DEFAULT_SAMPLES);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool
+	 *            the pool.
+	 * @param samples
+	 *            the number of wait times kept to compute the percentiles.
+	 */
+	public InstrumentedDataSource(BasicDataSource pool, int samples) {
+		this.pool = pool;
+		this.waitTimes = new long[samples];
+	}
+
+	/**
+	 * @return the pool.
+	 */
+	public BasicDataSource getPool() {
+		return pool;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		waiters.incrementAndGet();
+		long start = System.nanoTime();
+		try {
+			Connection con = pool.getConnection();
+			acquisitions.incrementAndGet();
+			return con;
+		} catch (SQLException | RuntimeException e) {
+			failures.incrementAndGet();
+			throw e;
+		} finally {
+			waiters.decrementAndGet();
+			record((System.nanoTime() - start) / 1000);
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password)
+			throws SQLException {
+		return pool.getConnection(username, password);
+	}
+
+	private synchronized void record(long waitTime) {
+		waitTimes[next] = waitTime;
+		next = (next + 1) % waitTimes.length;
+		if (count < waitTimes.length) {
+			count++;
+		}
+	}
+
+	/**
+	 * @return the number of borrowed connections.
+	 */
+	public int getActiveCount() {
+		return pool.getNumActive();
+	}
+
+	/**
+	 * @return the number of idle connections.
+	 */
+	public int getIdleCount() {
+		return pool.getNumIdle();
+	}
+
+	/**
+	 * @return the maximum number of borrowed connections.
+	 */
+	public int getMaxActive() {
+		return pool.getMaxActive();
+	}
+
+	/**
+	 * @return the number of threads waiting for a connection.
+	 */
+	public int getWaitersCount() {
+		return waiters.get();
+	}
+
+	/**
+	 * @return the number of acquired connections.
+	 */
+	public long getAcquisitionsCount() {
+		return acquisitions.get();
+	}
+
+	/**
+	 * @return the number of failed acquisitions.
+	 */
+	public long getFailuresCount() {
+		return failures.get();
+	}
+
+	/**
+	 * @param percentiles
+	 *            the percentiles (from 0 to 100).
+	 * @return the wait times of the most recent acquisitions at the given
+	 *         percentiles (in microseconds, <code>0</code> if no connection
+	 *         has been acquired yet).
+	 */
+	public long[] getWaitTimePercentiles(double... percentiles) {
+		long[] sorted;
+		synchronized (this) {
+			sorted = Arrays.copyOf(waitTimes, count);
+		}
+		Arrays.sort(sorted);
+		long[] result = new long[percentiles.length];
+		if (sorted.length > 0) {
+			for (int i = 0; i < percentiles.length; i++) {
+				int idx = (int) Math.ceil(percentiles[i] / 100 * sorted.length) - 1;
+				result[i] = sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Resets the statistics.
+	 */
+	public synchronized void resetStatistics() {
+		acquisitions.set(0);
+		failures.set(0);
+		next = 0;
+		count = 0;
+	}
+
+	@Override
+	public String toString() {
+		long[] p = getWaitTimePercentiles(50, 95, 99);
+		return "InstrumentedDataSource[active=" + getActiveCount() + "/" + getMaxActive() //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", idle=" + getIdleCount() + ", waiters=" + getWaitersCount() //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", acquisitions=" + getAcquisitionsCount() + ", failures=" + getFailuresCount() //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", wait(us) p50=" + p[0] + ", p95=" + p[1] + ", p99=" + p[2] + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	/**
+	 * Closes the pool.
+	 *
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	public void close() throws SQLException {
+		pool.close();
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return pool.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		pool.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		pool.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return pool.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return pool.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || pool.isWrapperFor(iface);
+	}
+
+}
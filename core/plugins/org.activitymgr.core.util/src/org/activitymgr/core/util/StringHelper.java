@@ -33,7 +33,6 @@ import java.io.InputStream;
 import java.io.LineNumberReader;
 import java.io.StringReader;
 import java.math.BigDecimal;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 
@@ -60,9 +59,6 @@ public class StringHelper extends StringUtils {
 		'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M',
 		'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V' };
 
-	/** Formatteur de date */
-	private static SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd"); //$NON-NLS-1$
-
 	/**
 	 * Convertit un octet en hexadécimal.
 	 * 
@@ -142,7 +138,7 @@ public class StringHelper extends StringUtils {
 	 * @return la date convertie.
 	 */
 	public static String toYYYYMMDD(Calendar cal) {
-		return sdf.format(cal.getTime());
+		return EpochDays.toString(EpochDays.of(cal));
 	}
 
 	/**
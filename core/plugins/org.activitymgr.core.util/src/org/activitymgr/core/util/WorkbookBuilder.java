@@ -34,6 +34,8 @@ import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.FillPatternType;
 import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 
 public class WorkbookBuilder {
@@ -102,4 +104,61 @@ public class WorkbookBuilder {
 		cell.setCellStyle(footerCellStyle);
 		return cell;
 	}
+
+	/**
+	 * Returns a row by row writer appending rows to the given sheet.
+	 * 
+	 * @param sheet
+	 *            the sheet (must be empty).
+	 * @return the writer.
+	 */
+	public ISheetWriter createSheetWriter(final Sheet sheet) {
+		return new ISheetWriter() {
+			
+			private Row row;
+			
+			private int colIdx;
+
+			@Override
+			public void newRow() {
+				row = sheet.createRow(row == null ? 0 : row.getRowNum() + 1);
+				colIdx = 0;
+			}
+
+			@Override
+			public void addCell(Style style, Object value) {
+				Cell cell = row.createCell(colIdx++);
+				switch (style) {
+				case BODY:
+					asBodyCellStyl(cell);
+					break;
+				case BODY_RIGHT_ALIGNMENT:
+					asBodyRightAlignmentCellStyl(cell);
+					break;
+				case HEADER:
+					asHeaderCellStyl(cell);
+					break;
+				case FOOTER:
+					asFooterCellStyle(cell);
+					break;
+				}
+				if (value instanceof String) {
+					cell.setCellValue((String) value);
+				} else if (value instanceof Number) {
+					cell.setCellValue(((Number) value).doubleValue());
+				} else if (value instanceof Boolean) {
+					cell.setCellValue((Boolean) value);
+				} else if (value != null) {
+					throw new IllegalArgumentException("Unexpected cell type : "
+							+ value.getClass());
+				}
+			}
+
+			@Override
+			public void skipCell() {
+				colIdx++;
+			}
+
+		};
+	}
 }
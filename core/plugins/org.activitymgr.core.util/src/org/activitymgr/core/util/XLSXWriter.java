@@ -0,0 +1,430 @@
+/*
+ * Copyright (c) 2004-2017, Jean-Francois Brazeau. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIEDWARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS
+ * OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.activitymgr.core.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streaming single sheet Excel (<code>.xlsx</code>) writer.
+ * <p>
+ * Rows are written to the output stream as soon as they are complete, only a
+ * small window of leading rows is kept in memory in order to compute the
+ * columns width (which must be written before the rows in the sheet).
+ * </p>
+ * <p>
+ * Cell styles are the same as the ones of the {@link WorkbookBuilder}. Strings
+ * are written inline (no shared strings table).
+ * </p>
+ */
+public class XLSXWriter implements ISheetWriter {
+
+	/** Max columns count */
+	public static final int MAX_COLUMNS = 16384;
+
+	/** Max rows count */
+	public static final int MAX_ROWS = 1048576;
+
+	/** Default number of leading rows used to compute columns widths */
+	public static final int DEFAULT_WINDOW_SIZE = 100;
+
+	/** Max column width (in 1/256th of a character) */
+	private static final int MAX_COLUMN_WIDTH = 255 * 256;
+
+	/** Zip output stream */
+	private final ZipOutputStream zip;
+
+	/** Sheet writer */
+	private final Writer out;
+
+	/** Sheet name */
+	private final String sheetName;
+
+	/** Number of rows to keep before writing the sheet header */
+	private final int windowSize;
+
+	/** Buffered rows (until the sheet header is written) */
+	private List<String> window = new ArrayList<String>();
+
+	/** Current row */
+	private StringBuilder row;
+
+	/** Current row index */
+	private int rowIdx = -1;
+
+	/** Current column index */
+	private int colIdx;
+
+	/** Columns widths (explicit or computed from the window) */
+	private int[] widths = new int[16];
+
+	/** Explicit columns widths flags */
+	private boolean[] explicitWidths = new boolean[16];
+
+	/** Frozen columns count */
+	private int frozenColumns;
+
+	/** Frozen rows count */
+	private int frozenRows;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param out
+	 *            the output stream.
+	 * @param sheetName
+	 *            the sheet name.
+	 * @throws IOException
+	 *             thrown if an I/O error occurs.
+	 */
+	public XLSXWriter(OutputStream out, String sheetName) throws IOException {
+		this(out, sheetName, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param out
+	 *            the output stream.
+	 * @param sheetName
+	 *            the sheet name.
+	 * @param windowSize
+	 *            the number of leading rows used to compute columns widths.
+	 * @throws IOException
+	 *             thrown if an I/O error occurs.
+	 */
+	public XLSXWriter(OutputStream out, String sheetName, int windowSize) throws IOException {
+		this.zip = new ZipOutputStream(out);
+		this.out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+		this.sheetName = sheetName;
+		this.windowSize = windowSize;
+		writePackageParts();
+	}
+
+	/**
+	 * Sets a column width (otherwise it is computed from the leading rows).
+	 *
+	 * @param column
+	 *            the column index.
+	 * @param width
+	 *            the width in 1/256th of a character.
+	 */
+	public void setColumnWidth(int column, int width) {
+		checkHeaderNotWritten();
+		ensureColumnCapacity(column);
+		widths[column] = Math.min(width, MAX_COLUMN_WIDTH);
+		explicitWidths[column] = true;
+	}
+
+	/**
+	 * Freezes the leading columns and rows.
+	 *
+	 * @param colSplit
+	 *            the frozen columns count.
+	 * @param rowSplit
+	 *            the frozen rows count.
+	 */
+	public void createFreezePane(int colSplit, int rowSplit) {
+		checkHeaderNotWritten();
+		this.frozenColumns = colSplit;
+		this.frozenRows = rowSplit;
+	}
+
+	@Override
+	public void newRow() throws IOException {
+		endRow();
+		if (++rowIdx >= MAX_ROWS) {
+			throw new IllegalStateException("Too many rows (max=" + MAX_ROWS + ")");
+		}
+		row = new StringBuilder(256);
+		row.append("<row r=\"").append(rowIdx + 1).append("\">");
+		colIdx = 0;
+	}
+
+	@Override
+	public void addCell(Style style, Object value) {
+		checkColumn();
+		row.append("<c r=\"");
+		appendColumnName(row, colIdx);
+		row.append(rowIdx + 1).append("\" s=\"").append(style.ordinal() + 1).append('"');
+		String text = null;
+		if (value == null) {
+			row.append("/>");
+		} else if (value instanceof String) {
+			text = (String) value;
+			row.append(" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+			appendEscaped(row, text);
+			row.append("</t></is></c>");
+		} else if (value instanceof Number) {
+			double d = ((Number) value).doubleValue();
+			text = d == Math.rint(d) && Math.abs(d) < 1e15 ? String.valueOf((long) d) : String.valueOf(d);
+			row.append("><v>").append(text).append("</v></c>");
+		} else if (value instanceof Boolean) {
+			text = (Boolean) value ? "TRUE" : "FALSE";
+			row.append(" t=\"b\"><v>").append((Boolean) value ? '1' : '0').append("</v></c>");
+		} else {
+			throw new IllegalArgumentException("Unexpected cell type : " + value.getClass());
+		}
+		// Columns widths are computed using the leading rows only
+		if (text != null && window != null) {
+			ensureColumnCapacity(colIdx);
+			if (!explicitWidths[colIdx]) {
+				widths[colIdx] = Math.max(widths[colIdx], Math.min((text.length() + 2) * 256, MAX_COLUMN_WIDTH));
+			}
+		}
+		colIdx++;
+	}
+
+	@Override
+	public void skipCell() {
+		checkColumn();
+		colIdx++;
+	}
+
+	/**
+	 * Completes the document. The underlying output stream is not closed.
+	 *
+	 * @throws IOException
+	 *             thrown if an I/O error occurs.
+	 */
+	public void finish() throws IOException {
+		endRow();
+		if (window != null) {
+			writeSheetHeader();
+		}
+		out.write("</sheetData></worksheet>");
+		out.flush();
+		zip.closeEntry();
+		zip.finish();
+	}
+
+	private void endRow() throws IOException {
+		if (row != null) {
+			row.append("</row>");
+			if (window != null) {
+				window.add(row.toString());
+				if (window.size() >= windowSize) {
+					writeSheetHeader();
+				}
+			} else {
+				out.write(row.toString());
+			}
+			row = null;
+		}
+	}
+
+	private void writeSheetHeader() throws IOException {
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+		out.write("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+				+ "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">");
+		out.write("<sheetViews><sheetView workbookViewId=\"0\">");
+		if (frozenColumns > 0 || frozenRows > 0) {
+			StringBuilder pane = new StringBuilder("<pane");
+			if (frozenColumns > 0) {
+				pane.append(" xSplit=\"").append(frozenColumns).append('"');
+			}
+			if (frozenRows > 0) {
+				pane.append(" ySplit=\"").append(frozenRows).append('"');
+			}
+			pane.append(" topLeftCell=\"");
+			appendColumnName(pane, frozenColumns);
+			pane.append(frozenRows + 1).append("\" activePane=\"")
+					.append(frozenRows == 0 ? "topRight" : (frozenColumns == 0 ? "bottomLeft" : "bottomRight"))
+					.append("\" state=\"frozen\"/>");
+			out.write(pane.toString());
+		}
+		out.write("</sheetView></sheetViews>");
+		out.write("<sheetFormatPr defaultRowHeight=\"15\"/>");
+		// Consecutive columns with the same width share the same definition
+		StringBuilder cols = new StringBuilder();
+		for (int i = 0; i < widths.length; i++) {
+			if (widths[i] > 0) {
+				int min = i;
+				while (i + 1 < widths.length && widths[i + 1] == widths[min]) {
+					i++;
+				}
+				cols.append("<col min=\"").append(min + 1).append("\" max=\"").append(i + 1)
+						.append("\" width=\"").append(widths[min] / 256d).append("\" customWidth=\"1\"/>");
+			}
+		}
+		if (cols.length() > 0) {
+			out.write("<cols>");
+			out.write(cols.toString());
+			out.write("</cols>");
+		}
+		out.write("<sheetData>");
+		for (String bufferedRow : window) {
+			out.write(bufferedRow);
+		}
+		window = null;
+	}
+
+	private void writePackageParts() throws IOException {
+		writeEntry("[Content_Types].xml",
+				"<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+				+ "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+				+ "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+				+ "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+				+ "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+				+ "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+				+ "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+				+ "</Types>");
+		writeEntry("_rels/.rels",
+				"<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+				+ "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+				+ "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+				+ "</Relationships>");
+		StringBuilder name = new StringBuilder();
+		appendEscaped(name, sheetName);
+		writeEntry("xl/workbook.xml",
+				"<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+				+ "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+				+ "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+				+ "<sheets><sheet name=\"" + name + "\" sheetId=\"1\" r:id=\"rId1\"/></sheets>"
+				+ "</workbook>");
+		writeEntry("xl/_rels/workbook.xml.rels",
+				"<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+				+ "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+				+ "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+				+ "<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>"
+				+ "</Relationships>");
+		// Same styles as WorkbookBuilder (indexes follow the Style enum)
+		writeEntry("xl/styles.xml",
+				"<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+				+ "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+				+ "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+				+ "<fills count=\"4\">"
+				+ "<fill><patternFill patternType=\"none\"/></fill>"
+				+ "<fill><patternFill patternType=\"gray125\"/></fill>"
+				+ "<fill><patternFill patternType=\"solid\"><fgColor rgb=\"FF969696\"/></patternFill></fill>"
+				+ "<fill><patternFill patternType=\"solid\"><fgColor rgb=\"FFC0C0C0\"/></patternFill></fill>"
+				+ "</fills>"
+				+ "<borders count=\"2\">"
+				+ "<border><left/><right/><top/><bottom/><diagonal/></border>"
+				+ "<border><left style=\"thin\"/><right style=\"thin\"/><top style=\"thin\"/><bottom style=\"thin\"/><diagonal/></border>"
+				+ "</borders>"
+				+ "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+				+ "<cellXfs count=\"5\">"
+				+ "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+				+ "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"1\" xfId=\"0\" applyBorder=\"1\"/>"
+				+ "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"1\" xfId=\"0\" applyBorder=\"1\" applyAlignment=\"1\"><alignment horizontal=\"right\"/></xf>"
+				+ "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"2\" borderId=\"1\" xfId=\"0\" applyFill=\"1\" applyBorder=\"1\" applyAlignment=\"1\"><alignment horizontal=\"left\"/></xf>"
+				+ "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"3\" borderId=\"1\" xfId=\"0\" applyFill=\"1\" applyBorder=\"1\" applyAlignment=\"1\"><alignment horizontal=\"right\"/></xf>"
+				+ "</cellXfs>"
+				+ "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+				+ "</styleSheet>");
+		// The sheet is written last (streamed)
+		zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+	}
+
+	private void writeEntry(String name, String content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(content.getBytes(StandardCharsets.UTF_8));
+		zip.closeEntry();
+	}
+
+	private void checkColumn() {
+		if (row == null) {
+			throw new IllegalStateException("No current row");
+		}
+		if (colIdx >= MAX_COLUMNS) {
+			throw new IllegalStateException("Too many columns (max=" + MAX_COLUMNS + ")");
+		}
+	}
+
+	private void checkHeaderNotWritten() {
+		if (window == null) {
+			throw new IllegalStateException("Sheet header has already been written");
+		}
+	}
+
+	private void ensureColumnCapacity(int column) {
+		if (column >= widths.length) {
+			int length = Math.max(column + 1, widths.length * 2);
+			int[] newWidths = new int[length];
+			System.arraycopy(widths, 0, newWidths, 0, widths.length);
+			widths = newWidths;
+			boolean[] newExplicitWidths = new boolean[length];
+			System.arraycopy(explicitWidths, 0, newExplicitWidths, 0, explicitWidths.length);
+			explicitWidths = newExplicitWidths;
+		}
+	}
+
+	/**
+	 * Appends a column name (<code>A</code>, <code>B</code>, ...,
+	 * <code>AA</code>, ...).
+	 *
+	 * @param sb
+	 *            the target buffer.
+	 * @param column
+	 *            the column index.
+	 */
+	private static void appendColumnName(StringBuilder sb, int column) {
+		int start = sb.length();
+		column++;
+		while (column > 0) {
+			column--;
+			sb.insert(start, (char) ('A' + column % 26));
+			column /= 26;
+		}
+	}
+
+	private static void appendEscaped(StringBuilder sb, String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '<':
+				sb.append("&lt;");
+				break;
+			case '>':
+				sb.append("&gt;");
+				break;
+			case '&':
+				sb.append("&amp;");
+				break;
+			case '"':
+				sb.append("&quot;");
+				break;
+			default:
+				// Control characters are not allowed in XML 1.0
+				if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+					sb.append(c);
+				}
+			}
+		}
+	}
+
+}
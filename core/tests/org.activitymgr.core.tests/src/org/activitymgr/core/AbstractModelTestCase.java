@@ -5,15 +5,21 @@ import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
 
+import javax.sql.DataSource;
+
 import org.activitymgr.core.dto.IDTOFactory;
 import org.activitymgr.core.model.CoreModelModule;
 import org.activitymgr.core.model.IModelMgr;
+import org.activitymgr.core.model.ModelCaches;
 import org.activitymgr.core.util.DbHelper;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.log4j.PropertyConfigurator;
@@ -98,6 +104,7 @@ public abstract class AbstractModelTestCase extends TestCase implements
 
 		// Retrieve model manager instance
 		final IModelMgr modelMgr = injector.getInstance(IModelMgr.class);
+		final ModelCaches modelCaches = injector.getInstance(ModelCaches.class);
 		this.modelMgr = (IModelMgr) Proxy.newProxyInstance(
 				AbstractModelTestCase.class.getClassLoader(),
 				new Class<?>[] { IModelMgr.class }, 
@@ -109,6 +116,8 @@ public abstract class AbstractModelTestCase extends TestCase implements
 					} catch (InvocationTargetException t) {
 						tx.rollback();
 						throw t.getCause();
+					} finally {
+						modelCaches.transactionEnded(tx);
 					}
 				});
 
@@ -148,6 +157,13 @@ public abstract class AbstractModelTestCase extends TestCase implements
 		return injector;
 	}
 
+	/**
+	 * @return the tests data source.
+	 */
+	protected static DataSource getDataSource() {
+		return datasource;
+	}
+
 	@Override
 	public Connection get() {
 		return tx;
@@ -166,6 +182,23 @@ public abstract class AbstractModelTestCase extends TestCase implements
 		return injector.getInstance(IDTOFactory.class);
 	}
 
+	/**
+	 * @param parentId
+	 *            the parent task identifier (0 for the root tasks).
+	 * @return the sub tasks number counter of the task (<code>null</code> if
+	 *         it does not exist).
+	 * @throws SQLException
+	 *             thrown if a SQL exception occurs.
+	 */
+	protected Integer getTaskSequence(long parentId) throws SQLException {
+		try (PreparedStatement pStmt = get().prepareStatement(
+				"select tsq_number from TASK_SEQUENCE where tsq_parent=?")) {
+			pStmt.setLong(1, parentId);
+			ResultSet rs = pStmt.executeQuery();
+			return rs.next() ? rs.getInt(1) : null;
+		}
+	}
+
 	protected Calendar cal(int year, int month, int day) {
 		Calendar start = Calendar.getInstance(Locale.FRANCE);
 		start.set(Calendar.YEAR, year);
@@ -1,10 +1,20 @@
 package org.activitymgr.core;
 
+import java.sql.SQLException;
+
+import org.activitymgr.core.dao.ICollaboratorDAO;
 import org.activitymgr.core.dto.Collaborator;
 import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.orm.DAOFactory;
+import org.activitymgr.core.orm.IDAO;
+
+import com.google.inject.Inject;
 
 public class CollaboratorsTest extends AbstractModelTestCase {
 
+	@Inject
+	private ICollaboratorDAO collaboratorDAO;
+
 	public void testGetList() {
 		getModelMgr().getCollaborators();
 	}
@@ -34,6 +44,61 @@ public class CollaboratorsTest extends AbstractModelTestCase {
 		assertNull(_collaborator);
 	}
 
+	public void testBatchInsertUpdateDelete() {
+		Collaborator[] collaborators = new Collaborator[5];
+		for (int i = 0; i < collaborators.length; i++) {
+			collaborators[i] = getFactory().newCollaborator();
+			collaborators[i].setFirstName("First name " + i);
+			collaborators[i].setLastName("Last name " + i);
+			collaborators[i].setLogin("batch" + i);
+		}
+		// Les identifiants générés doivent être récupérés
+		collaboratorDAO.insertAll(collaborators);
+		for (Collaborator collaborator : collaborators) {
+			assertTrue(collaborator.getId() > 0);
+			assertEquals(collaborator.getLogin(), collaboratorDAO.selectByPK(collaborator.getId()).getLogin());
+		}
+		for (Collaborator collaborator : collaborators) {
+			collaborator.setIsActive(true);
+		}
+		collaboratorDAO.updateAll(collaborators);
+		assertTrue(collaboratorDAO.selectByPK(collaborators[3].getId()).getIsActive());
+		assertEquals(collaborators.length, collaboratorDAO.deleteAll(collaborators));
+		assertNull(collaboratorDAO.selectByPK(collaborators[0].getId()));
+	}
+
+	public void testMappingModes() throws SQLException {
+		// Les deux modes de mapping doivent donner le même résultat
+		for (boolean reflectiveMapping : new boolean[] { false, true }) {
+			IDAO<Collaborator> dao = new DAOFactory(reflectiveMapping).getDAO(Collaborator.class);
+			Collaborator collaborator = getFactory().newCollaborator();
+			collaborator.setFirstName("First name");
+			collaborator.setLastName("Last name");
+			collaborator.setLogin("mapping" + reflectiveMapping);
+			collaborator.setIsActive(true);
+			collaborator = dao.insert(get(), collaborator);
+			assertTrue(collaborator.getId() > 0);
+
+			// Lecture par clé primaire puis par critère
+			Collaborator _collaborator = dao.selectByPK(get(), collaborator.getId());
+			assertEquals(collaborator.getFirstName(), _collaborator.getFirstName());
+			assertEquals(collaborator.getLastName(), _collaborator.getLastName());
+			assertEquals(collaborator.getLogin(), _collaborator.getLogin());
+			assertTrue(_collaborator.getIsActive());
+			Collaborator[] collaborators = dao.select(get(), new String[] { "login" },
+					new Object[] { collaborator.getLogin() }, null, -1);
+			assertEquals(1, collaborators.length);
+			assertEquals(collaborator.getId(), collaborators[0].getId());
+
+			// Mise à jour puis suppression
+			collaborator.setIsActive(false);
+			dao.update(get(), collaborator);
+			assertFalse(dao.selectByPK(get(), collaborator.getId()).getIsActive());
+			assertTrue(dao.delete(get(), collaborator));
+			assertNull(dao.selectByPK(get(), collaborator.getId()));
+		}
+	}
+
 	public void testUniqueLogin() throws ModelException {
 		Collaborator collaborator = getFactory().newCollaborator();
 		collaborator.setFirstName("First name");
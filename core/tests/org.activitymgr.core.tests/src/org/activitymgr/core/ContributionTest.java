@@ -1,18 +1,34 @@
 package org.activitymgr.core;
 
+import java.sql.Connection;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.GregorianCalendar;
 import java.util.Iterator;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import org.activitymgr.core.dao.IContributionDAO;
 import org.activitymgr.core.dto.Collaborator;
 import org.activitymgr.core.dto.Contribution;
 import org.activitymgr.core.dto.Duration;
 import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.dto.misc.IntervalContributions;
 import org.activitymgr.core.dto.misc.TaskContributions;
+import org.activitymgr.core.dto.misc.TaskContributionsSums;
+import org.activitymgr.core.model.CoreModelModule;
+import org.activitymgr.core.model.IModelMgr;
 import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.util.DateHelper;
+import org.activitymgr.core.util.EpochDays;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
 
 public class ContributionTest extends AbstractModelTestCase {
 
@@ -207,6 +223,19 @@ public class ContributionTest extends AbstractModelTestCase {
 		assertEquals(1, cs.length);
 		assertEquals(cs[0], c);
 
+		// Same search with epoch days
+		int epochDay = EpochDays.of(cal);
+		ic = getModelMgr().getIntervalContributions(col1, task111, epochDay - 1, epochDay + 1);
+		assertEquals(EpochDays.toCalendar(epochDay - 1), ic.getFromDate());
+		assertEquals(1, ic.getTaskContributions().length);
+		cs = ic.getTaskContributions()[0].getContributions();
+		assertEquals(3, cs.length);
+		assertNull(cs[0]);
+		assertEquals(c, cs[1]);
+		assertNull(cs[2]);
+		assertEquals(epochDay, c.getEpochDay());
+		assertEquals(c.getDurationId(), getModelMgr().getContributionsSum(col1, task111, epochDay, epochDay));
+
 		// Vérification de la mise à jour du RAF de la tache en base
 		long oldEtc = task111.getTodo();
 		task111 = getModelMgr().getTask(task111.getId());
@@ -230,6 +259,54 @@ public class ContributionTest extends AbstractModelTestCase {
 		removeSampleObjects();
 	}
 
+	public void testCreateContributions() throws ModelException {
+		// Création des taches de test
+		createSampleObjects(false);
+		try {
+			// Saisie d'une semaine
+			Calendar cal = new GregorianCalendar(2005, 5, 13);
+			Contribution[] week = new Contribution[5];
+			for (int i = 0; i < week.length; i++) {
+				week[i] = getFactory().newContribution();
+				week[i].setContributorId(col1.getId());
+				week[i].setDurationId(duration1.getId());
+				week[i].setTaskId(task111.getId());
+				week[i].setDate(cal);
+				cal.add(Calendar.DATE, 1);
+			}
+			week[1].setTaskId(task112.getId());
+			week[3].setTaskId(task112.getId());
+
+			// Une tache admettant des sous taches invalide toute la semaine
+			week[4].setTaskId(task11.getId());
+			try {
+				getModelMgr().createContributions(week, true);
+				fail("A tasks that admits sub tasks must not accept a contribution");
+			} catch (ModelException expected) {
+			}
+			assertEquals(0, getModelMgr().getContributionsCount(col1, rootTask, null, null));
+
+			// Création de la semaine
+			week[4].setTaskId(task111.getId());
+			getModelMgr().createContributions(week, true);
+			assertEquals(5, getModelMgr().getContributionsCount(col1, rootTask, null, null));
+			assertEquals(300, getModelMgr().getContributionsSum(col1, task111, null, null));
+			assertEquals(200, getModelMgr().getContributionsSum(col1, task112, null, null));
+			checkTasksSums(new Task[] { rootTask, task1, task11, task111, task112 }, null, null);
+
+			// Vérification de la mise à jour du RAF des taches
+			assertEquals(task111.getTodo() - 300, getModelMgr().getTask(task111.getId()).getTodo());
+			assertEquals(0, getModelMgr().getTask(task112.getId()).getTodo());
+
+			getModelMgr().removeContributions(week);
+			assertEquals(0, getModelMgr().getContributionsCount(col1, rootTask, null, null));
+		}
+		finally {
+			// Suppression des taches de test
+			removeSampleObjects();
+		}
+	}
+
 	public void testRemove() throws ModelException {
 		// Création des taches de test
 		createSampleObjects(false);
@@ -384,6 +461,43 @@ public class ContributionTest extends AbstractModelTestCase {
 		removeSampleObjects();
 	}
 
+	public void testStreamContributions() throws ModelException {
+		// Création des taches de test
+		createSampleObjects(true);
+		try {
+			IContributionDAO contributionDAO = getInjector().getInstance(IContributionDAO.class);
+			Calendar cal = new GregorianCalendar(c1.getYear(), c1.getMonth() - 1,
+					c1.getDay());
+			Object[][] criteria = new Object[][] {
+					{ null, null, null, null },
+					{ null, rootTask, null, null },
+					{ null, task111, null, null },
+					{ col1, task111, null, null },
+					{ null, rootTask, cal, cal },
+					{ null, rootTask, cal, null },
+			};
+			for (Object[] c : criteria) {
+				Contribution[] expected = getModelMgr().getContributions(
+						(Collaborator) c[0], (Task) c[1], (Calendar) c[2], (Calendar) c[3]);
+				try (Stream<Contribution> stream = contributionDAO.streamContributions(
+						(Collaborator) c[0], (Task) c[1], (Calendar) c[2], (Calendar) c[3])) {
+					assertTrue(Arrays.equals(expected, stream.toArray(Contribution[]::new)));
+				}
+			}
+	
+			// Même chose avec l'API générique
+			try (Stream<Contribution> stream = contributionDAO.stream(
+					new String[] { "contributorId" }, new Object[] { col1.getId() }, null)) {
+				assertEquals(getModelMgr().getContributions(col1, null, null, null).length,
+						stream.count());
+			}
+		}
+		finally {
+			// Suppression des taches de test
+			removeSampleObjects();
+		}
+	}
+
 	public void testChangeContributionsTask() throws ModelException {
 		// Création des taches de test
 		createSampleObjects(true);
@@ -406,6 +520,192 @@ public class ContributionTest extends AbstractModelTestCase {
 		removeSampleObjects();
 	}
 
+	public void testTasksSums() throws ModelException {
+		// Création des taches de test
+		createSampleObjects(true);
+		try {
+			checkTasksSums();
+
+			// Mise à jour d'une contribution
+			c2.setDurationId(duration2.getId());
+			getModelMgr().updateContribution(c2, false);
+			checkTasksSums();
+
+			// Déplacement d'une tache ayant des contributions
+			getModelMgr().moveTask(task111, task1);
+			task1 = getModelMgr().getTask(task1.getId());
+			task11 = getModelMgr().getTask(task11.getId());
+			task111 = getModelMgr().getTask(task111.getId());
+			task112 = getModelMgr().getTask(task112.getId());
+			checkTasksSums();
+
+			// La reconstruction doit produire le même résultat
+			assertTrue(getModelMgr().rebuildContributionsSums() > 0);
+			checkTasksSums();
+
+			// Suppression d'une contribution
+			getModelMgr().removeContribution(c3, false);
+			c3 = null;
+			checkTasksSums();
+		}
+		finally {
+			// Suppression des taches de test
+			removeSampleObjects();
+		}
+	}
+
+	public void testInvertedIntervalTasksSums() throws ModelException {
+		// Création des taches de test
+		createSampleObjects(false);
+		Contribution[] contributions = new Contribution[2];
+		try {
+			// Contributions in partial months of the interval
+			contributions[0] = newContribution(new GregorianCalendar(2024, 2, 20));
+			contributions[1] = newContribution(new GregorianCalendar(2024, 1, 5));
+
+			// Interval whose bounds are inverted and in different months
+			Calendar from = new GregorianCalendar(2024, 2, 15);
+			Calendar to = new GregorianCalendar(2024, 1, 10);
+			for (Task task : new Task[] { rootTask, task11, task111 }) {
+				TaskContributionsSums sums = getModelMgr().getTaskSums(task.getId(), from, to).getContributionsSums();
+				assertEquals(0, sums.getConsumedSum());
+				assertEquals(0, sums.getContributionsNb());
+			}
+			assertEquals(2, getModelMgr().getTaskSums(task111.getId(), new GregorianCalendar(2024, 1, 1),
+					new GregorianCalendar(2024, 2, 31)).getContributionsSums().getContributionsNb());
+		}
+		finally {
+			// Suppression des taches de test
+			for (Contribution contribution : contributions) {
+				if (contribution != null) {
+					getModelMgr().removeContribution(contribution, false);
+				}
+			}
+			removeSampleObjects();
+		}
+	}
+
+	public void testContributionsInterval() throws ModelException {
+		assertNull(getModelMgr().getContributionsInterval(null));
+		// Création des taches de test
+		createSampleObjects(true);
+		try {
+			assertInterval(c1, c3, getModelMgr().getContributionsInterval(null));
+			assertInterval(c1, c3, getModelMgr().getContributionsInterval(rootTask.getId()));
+			assertInterval(c1, c3, getModelMgr().getContributionsInterval(task111.getId()));
+			assertInterval(c2, c2, getModelMgr().getContributionsInterval(task112.getId()));
+			assertNull(getModelMgr().getContributionsInterval(task2.getId()));
+		}
+		finally {
+			// Suppression des taches de test
+			removeSampleObjects();
+		}
+	}
+
+	private void assertInterval(Contribution first, Contribution last, Calendar[] interval) {
+		assertNotNull(interval);
+		assertEquals(first.getDateKey(), DateHelper.toDateKey(interval[0]));
+		assertEquals(last.getDateKey(), DateHelper.toDateKey(interval[1]));
+	}
+
+	public void testConcurrentTasksSums() throws Exception {
+		// Création des taches de test
+		createSampleObjects(false);
+		Contribution[] contributions = new Contribution[2];
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (Connection con1 = getDataSource().getConnection();
+				Connection con2 = getDataSource().getConnection()) {
+			IModelMgr modelMgr1 = newModelMgr(con1);
+			IModelMgr modelMgr2 = newModelMgr(con2);
+			Calendar date = new GregorianCalendar(2024, 3, 10);
+
+			// 1st contribution of the day under the shared ancestors (not
+			// committed yet)
+			contributions[0] = modelMgr1.createContribution(buildContribution(task111, date), false);
+
+			// A concurrent transaction adds the 1st contribution of the same
+			// day under the same ancestors
+			Future<Contribution> future = executor.submit(() -> {
+				Contribution c = modelMgr2.createContribution(buildContribution(task112, date), false);
+				con2.commit();
+				return c;
+			});
+			Thread.sleep(200);
+			con1.commit();
+			contributions[1] = future.get(30, TimeUnit.SECONDS);
+
+			// No delta is lost
+			for (Task task : new Task[] { rootTask, task1, task11 }) {
+				TaskContributionsSums sums = getModelMgr().getTaskSums(task.getId(), date, date).getContributionsSums();
+				assertEquals(2, sums.getContributionsNb());
+				assertEquals(2 * duration1.getId(), sums.getConsumedSum());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+			// Suppression des taches de test
+			for (Contribution contribution : contributions) {
+				if (contribution != null) {
+					getModelMgr().removeContribution(contribution, false);
+				}
+			}
+			removeSampleObjects();
+		}
+	}
+
+	private IModelMgr newModelMgr(final Connection con) {
+		return Guice.createInjector(new CoreModelModule(), new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(Connection.class).toInstance(con);
+			}
+		}).getInstance(IModelMgr.class);
+	}
+
+	private Contribution buildContribution(Task task, Calendar date) {
+		Contribution c = getFactory().newContribution();
+		c.setTaskId(task.getId());
+		c.setContributorId(col1.getId());
+		c.setDurationId(duration1.getId());
+		c.setDate(date);
+		return c;
+	}
+
+	private Contribution newContribution(Calendar date) throws ModelException {
+		Contribution c = getFactory().newContribution();
+		c.setTaskId(task111.getId());
+		c.setContributorId(col1.getId());
+		c.setDurationId(duration1.getId());
+		c.setDate(date);
+		return getModelMgr().createContribution(c, false);
+	}
+
+	private void checkTasksSums() throws ModelException {
+		Task[] tasks = new Task[] { rootTask, task1, task11, task111, task112, task2 };
+		Calendar start = (Calendar) c1.getDate().clone();
+		start.add(Calendar.DATE, -40);
+		checkTasksSums(tasks, null, null);
+		for (int i = 0; i < 100; i += 9) {
+			Calendar from = (Calendar) start.clone();
+			from.add(Calendar.DATE, i);
+			checkTasksSums(tasks, from, null);
+			checkTasksSums(tasks, null, from);
+			for (int j = 0; j < 70; j += 11) {
+				Calendar to = (Calendar) from.clone();
+				to.add(Calendar.DATE, j);
+				checkTasksSums(tasks, from, to);
+			}
+		}
+	}
+
+	private void checkTasksSums(Task[] tasks, Calendar from, Calendar to) throws ModelException {
+		for (Task task : tasks) {
+			TaskContributionsSums sums = getModelMgr().getTaskSums(task.getId(), from, to).getContributionsSums();
+			assertEquals(getModelMgr().getContributionsSum(null, task, from, to), sums.getConsumedSum());
+			assertEquals(getModelMgr().getContributionsCount(null, task, from, to), sums.getContributionsNb());
+		}
+	}
+
 	public void testCountDaysWhenYearHasMoreThan365Days() throws ModelException {
 		// Création des taches de test
 		createSampleObjects(true);
@@ -0,0 +1,129 @@
+package org.activitymgr.core;
+
+import java.sql.PreparedStatement;
+
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.dto.Duration;
+import org.activitymgr.core.model.CoreModelModule;
+import org.activitymgr.core.model.IModelMgr;
+import org.activitymgr.core.model.ModelCaches;
+import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.model.ReferenceDataCache;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.name.Names;
+
+public class ReferenceDataCacheTest extends AbstractModelTestCase {
+
+	@Inject
+	private ModelCaches modelCaches;
+
+	@Inject
+	private ReferenceDataCache referenceDataCache;
+
+	public void testCollaborators() throws ModelException {
+		Collaborator collaborator = getModelMgr().createNewCollaborator();
+		collaborator.setLogin("jdoe");
+		collaborator = getModelMgr().updateCollaborator(collaborator);
+		referenceDataCache.resetStatistics();
+
+		// Loads the snapshot
+		assertEquals("jdoe", getModelMgr().getCollaborator(collaborator.getId()).getLogin());
+		assertEquals(1, referenceDataCache.getMissCount());
+
+		// Served from the snapshot (copies are returned)
+		Collaborator byLogin = getModelMgr().getCollaborator("jdoe");
+		assertEquals(collaborator.getId(), byLogin.getId());
+		byLogin.setFirstName("Modified");
+		assertFalse("Modified".equals(getModelMgr().getCollaborator(collaborator.getId()).getFirstName()));
+		assertEquals(1, getModelMgr().getActiveCollaborators(Collaborator.LOGIN_FIELD_IDX, true).length);
+		assertEquals(1, getModelMgr().getActiveCollaborators(Collaborator.LOGIN_FIELD_IDX, true).length);
+		assertEquals(1, referenceDataCache.getMissCount());
+		assertEquals(4, referenceDataCache.getHitCount());
+
+		// Updates replace the snapshot
+		byLogin.setIsActive(false);
+		getModelMgr().updateCollaborator(byLogin);
+		assertEquals("Modified", getModelMgr().getCollaborator(collaborator.getId()).getFirstName());
+		assertEquals(0, getModelMgr().getActiveCollaborators(Collaborator.LOGIN_FIELD_IDX, true).length);
+		getModelMgr().removeCollaborator(byLogin);
+		assertNull(getModelMgr().getCollaborator(collaborator.getId()));
+		assertNull(getModelMgr().getCollaborator("jdoe"));
+	}
+
+	public void testDurations() throws ModelException {
+		Duration duration = getFactory().newDuration();
+		duration.setId(25);
+		getModelMgr().createDuration(duration);
+		assertEquals(1, getModelMgr().getActiveDurations().length);
+
+		// Deactivation
+		duration.setIsActive(false);
+		getModelMgr().updateDuration(duration);
+		assertEquals(0, getModelMgr().getActiveDurations().length);
+		assertEquals(1, getModelMgr().getDurations().length);
+		assertFalse(getModelMgr().getDuration(25).getIsActive());
+	}
+
+	public void testRollbackLeavesNoStaleSnapshot() throws Exception {
+		Collaborator collaborator = getModelMgr().createNewCollaborator();
+		collaborator.setLogin("jdoe");
+		collaborator = getModelMgr().updateCollaborator(collaborator);
+		assertNotNull(getModelMgr().getCollaborator("jdoe"));
+
+		// Update the collaborator in a transaction that is rolled back (the
+		// model manager is used without its transactional wrapper)
+		IModelMgr modelMgr = getInjector().getInstance(IModelMgr.class);
+		collaborator.setLogin("rolledback");
+		modelMgr.updateCollaborator(collaborator);
+		assertEquals("rolledback", modelMgr.getCollaborator(collaborator.getId()).getLogin());
+		assertEquals(0, modelMgr.getCollaborators().length - 1);
+		get().rollback();
+		modelCaches.transactionEnded(get());
+
+		// The uncommitted data must not have been cached
+		assertEquals("jdoe", getModelMgr().getCollaborator(collaborator.getId()).getLogin());
+		assertEquals("jdoe", getModelMgr().getCollaborators()[0].getLogin());
+		assertNull(getModelMgr().getCollaborator("rolledback"));
+	}
+
+	public void testDisabled() {
+		ReferenceDataCache cache = new ReferenceDataCache();
+		getInjector().createChildInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bindConstant().annotatedWith(Names.named(CoreModelModule.REFERENCE_DATA_CACHE_ENABLED)).to(false);
+			}
+		}).injectMembers(cache);
+		assertNull(cache.getSnapshot());
+		assertNotNull(referenceDataCache.getSnapshot());
+	}
+
+	public void testMaxAge() throws Exception {
+		Collaborator collaborator = getModelMgr().createNewCollaborator();
+		collaborator.setLogin("jdoe");
+		collaborator = getModelMgr().updateCollaborator(collaborator);
+		ReferenceDataCache cache = new ReferenceDataCache();
+		getInjector().createChildInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bindConstant().annotatedWith(Names.named(CoreModelModule.REFERENCE_DATA_CACHE_MAX_AGE)).to(0);
+			}
+		}).injectMembers(cache);
+		assertTrue(cache.getSnapshot().getCollaborator("jdoe").getIsActive());
+
+		// Deactivation by another node (which does not invalidate this
+		// node's caches)
+		try (PreparedStatement pStmt = get().prepareStatement(
+				"update COLLABORATOR set clb_is_active=? where clb_login=?")) {
+			pStmt.setBoolean(1, false);
+			pStmt.setString(2, "jdoe");
+			pStmt.executeUpdate();
+		}
+		get().commit();
+		Thread.sleep(10);
+		assertFalse(cache.getSnapshot().getCollaborator("jdoe").getIsActive());
+	}
+
+}
@@ -3,15 +3,23 @@ package org.activitymgr.core;
 import org.activitymgr.core.dao.ITaskDAO;
 import org.activitymgr.core.dao.TaskDAOCache;
 import org.activitymgr.core.dto.Task;
+import org.activitymgr.core.model.CoreModelModule;
+import org.activitymgr.core.model.IModelMgr;
 import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.model.TaskCache;
 
+import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
+import com.google.inject.name.Names;
 
 public class TaskCacheTest extends AbstractModelTestCase {
 	
 	@Inject
 	private ITaskDAO taskDAO;
 
+	@Inject
+	private TaskCache taskCache;
+
 	/** Taches de test */
 	private Task rootTask;
 	private Task task1;
@@ -55,6 +63,108 @@ public class TaskCacheTest extends AbstractModelTestCase {
 		}
 	}
 	
+	public void testSharedCache() throws ModelException {
+		createSampleTasks();
+		try {
+			taskCache.resetStatistics();
+
+			// By identifier
+			Task task = getModelMgr().getTask(task112.getId());
+			assertEquals("Task 112", task.getName());
+			assertEquals(1, taskCache.getHitCount());
+			
+			// Returned tasks are copies
+			task.setName("Modified");
+			assertEquals("Task 112", getModelMgr().getTask(task112.getId()).getName());
+			
+			// By full path (parent task)
+			Task parent = getModelMgr().getParentTask(task112);
+			assertEquals(task11.getId(), parent.getId());
+			long hits = taskCache.getHitCount();
+			assertEquals(task11.getId(), getModelMgr().getParentTask(task112).getId());
+			assertEquals(hits + 1, taskCache.getHitCount());
+			
+			// By code path
+			assertEquals(task112.getId(), getModelMgr().getTaskByCodePath("/RT/T1/T11/T112").getId());
+			hits = taskCache.getHitCount();
+			assertEquals(task112.getId(), getModelMgr().getTaskByCodePath("/RT/T1/T11/T112").getId());
+			assertEquals(hits + 1, taskCache.getHitCount());
+
+			// Updates invalidate the cache
+			task.setCode("U112");
+			getModelMgr().updateTask(task);
+			assertEquals("Modified", getModelMgr().getTask(task112.getId()).getName());
+			assertEquals(task112.getId(), getModelMgr().getTaskByCodePath("/RT/T1/T11/U112").getId());
+			
+			// Moves invalidate the cache
+			getModelMgr().moveTask(task, rootTask);
+			assertEquals(rootTask.getFullPath(), getModelMgr().getTask(task.getId()).getPath());
+			assertEquals(task.getId(), getModelMgr().getTaskByCodePath("/RT/U112").getId());
+			assertEquals(rootTask.getId(), getModelMgr().getParentTask(getModelMgr().getTask(task.getId())).getId());
+		}
+		finally {
+			removeSampleTasks();
+		}
+	}
+
+	public void testMaxAge() throws Exception {
+		TaskCache cache = new TaskCache();
+		getInjector().createChildInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bindConstant().annotatedWith(Names.named(CoreModelModule.TASK_CACHE_MAX_AGE)).to(0);
+			}
+		}).injectMembers(cache);
+		Task task = getFactory().newTask();
+		task.setId(1);
+		task.setPath("");
+		task.setNumber((byte) 1);
+		task.setCode("T1");
+		cache.put(cache.getVersion(), task, "/T1");
+		taskCache.put(taskCache.getVersion(), task, "/T1");
+		Thread.sleep(10);
+
+		// Expired entries (the task may have been modified by another node)
+		assertNull(cache.get(1));
+		assertNull(cache.getByFullPath(task.getFullPath()));
+		assertNull(cache.getByCodePath("/T1"));
+		assertNotNull(taskCache.get(1));
+	}
+
+	public void testRollbackLeavesNoStaleEntry() throws Exception {
+		createSampleTasks();
+		try {
+			assertEquals("Task 2", getModelMgr().getTask(task2.getId()).getName());
+
+			// Update the task in a transaction that is rolled back (the model
+			// manager is used without its transactional wrapper)
+			IModelMgr modelMgr = getInjector().getInstance(IModelMgr.class);
+			Task task = modelMgr.getTask(task2.getId());
+			task.setName("Rolled back");
+			modelMgr.updateTask(task);
+			assertEquals("Rolled back", modelMgr.getTask(task2.getId()).getName());
+			assertEquals("Rolled back", modelMgr.getTaskByCodePath("/RT/T2").getName());
+			get().rollback();
+			taskCache.transactionEnded(get());
+
+			// The uncommitted data must not have been cached
+			assertEquals("Task 2", getModelMgr().getTask(task2.getId()).getName());
+			assertEquals("Task 2", getModelMgr().getTaskByCodePath("/RT/T2").getName());
+			
+			// A task read before a concurrent modification is not cached
+			long version = taskCache.getVersion();
+			Task read = modelMgr.getTask(task1.getId());
+			modelMgr.updateTask(read);
+			get().rollback();
+			taskCache.transactionEnded(get());
+			taskCache.put(version, read);
+			assertNull(taskCache.get(task1.getId()));
+		}
+		finally {
+			removeSampleTasks();
+		}
+	}
+
 	private void createSampleTasks() throws ModelException {
 		// Création des tâches de test
 		rootTask = getModelMgr().createNewTask(null);
@@ -0,0 +1,201 @@
+package org.activitymgr.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.activitymgr.core.dto.Task;
+import org.activitymgr.core.model.CoreModelModule;
+import org.activitymgr.core.model.IModelMgr;
+import org.activitymgr.core.model.ModelCaches;
+import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.model.TaskLocks;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+public class TaskLocksTest extends AbstractModelTestCase {
+
+	private static final int THREADS = 4;
+
+	private static final int OPERATIONS = 10;
+
+	private ExecutorService executor;
+
+	private TaskLocks locks;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		executor = Executors.newFixedThreadPool(THREADS);
+		locks = new TaskLocks(TaskLocks.DEFAULT_STRIPES, 1);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		executor.shutdownNow();
+		super.tearDown();
+	}
+
+	public void testUnrelatedPaths() throws Exception {
+		TaskLocks.Lock lock = locks.lock("01");
+		try {
+			// Another sub tree may be modified concurrently
+			executor.submit(() -> {
+				locks.lock("02").release();
+				return null;
+			}).get(5, TimeUnit.SECONDS);
+		} finally {
+			lock.release();
+		}
+	}
+
+	public void testSamePath() throws Exception {
+		Future<?> future;
+		TaskLocks.Lock lock = locks.lock("01");
+		try {
+			future = executor.submit(() -> {
+				locks.lock("01").release();
+				return null;
+			});
+			try {
+				future.get(200, TimeUnit.MILLISECONDS);
+				fail("The same sub tree must not be modified concurrently");
+			} catch (TimeoutException expected) {
+			}
+		} finally {
+			lock.release();
+		}
+		future.get(5, TimeUnit.SECONDS);
+	}
+
+	public void testTimeout() throws Exception {
+		TaskLocks.Lock lock = locks.lock("01", "02");
+		try {
+			executor.submit(() -> {
+				locks.lock("03", "01").release();
+				return null;
+			}).get(5, TimeUnit.SECONDS);
+			fail("The lock must not be acquired");
+		} catch (ExecutionException expected) {
+			assertTrue(expected.getCause() instanceof ModelException);
+		} finally {
+			lock.release();
+		}
+		// The stripes that had been acquired must have been released
+		executor.submit(() -> {
+			locks.lock("03").release();
+			return null;
+		}).get(5, TimeUnit.SECONDS);
+	}
+
+	public void testNoDeadLock() throws Exception {
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 0; i < THREADS; i++) {
+			final String[] paths = i % 2 == 0 ? new String[] { "01", "02" } : new String[] { "02", "01" };
+			futures.add(executor.submit(() -> {
+				for (int j = 0; j < 1000; j++) {
+					locks.lock(paths).release();
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get(10, TimeUnit.SECONDS);
+		}
+	}
+
+	public void testConcurrentModifications() throws Exception {
+		// One sub tree per thread
+		List<Task> roots = new ArrayList<Task>();
+		for (int i = 0; i < THREADS; i++) {
+			roots.add(getModelMgr().createTask(null, newTask("R" + i)));
+		}
+
+		// Each thread uses its own transactions
+		final ThreadLocal<Connection> tx = new ThreadLocal<Connection>();
+		Injector injector = Guice.createInjector(new CoreModelModule(), new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(Connection.class).toProvider(new Provider<Connection>() {
+					@Override
+					public Connection get() {
+						return tx.get();
+					}
+				});
+			}
+		});
+		final IModelMgr target = injector.getInstance(IModelMgr.class);
+		final ModelCaches caches = injector.getInstance(ModelCaches.class);
+		final IModelMgr modelMgr = (IModelMgr) Proxy.newProxyInstance(
+				TaskLocksTest.class.getClassLoader(),
+				new Class<?>[] { IModelMgr.class },
+				(proxy, method, args) -> {
+					Connection con = tx.get();
+					try {
+						Object result = method.invoke(target, args);
+						con.commit();
+						return result;
+					} catch (InvocationTargetException t) {
+						con.rollback();
+						throw t.getCause();
+					} finally {
+						caches.transactionEnded(con);
+					}
+				});
+
+		// Each thread creates tasks in its sub tree and moves them
+		List<Future<int[]>> futures = new ArrayList<Future<int[]>>();
+		for (final Task root : roots) {
+			futures.add(executor.submit(() -> {
+				try (Connection con = getDataSource().getConnection()) {
+					tx.set(con);
+					Task source = modelMgr.createTask(root, newTask("S"));
+					Task dest = modelMgr.createTask(root, newTask("D"));
+					for (int j = 0; j < OPERATIONS; j++) {
+						Task task = modelMgr.createTask(source, newTask("T" + j));
+						modelMgr.moveTask(task, dest);
+					}
+					return new int[] {
+							modelMgr.getSubTasksCount(source.getId()),
+							modelMgr.getSubTasksCount(dest.getId()) };
+				} finally {
+					tx.remove();
+				}
+			}));
+		}
+		for (Future<int[]> future : futures) {
+			int[] counts = future.get(60, TimeUnit.SECONDS);
+			assertEquals(0, counts[0]);
+			assertEquals(OPERATIONS, counts[1]);
+		}
+
+		// The tasks numbers are consistent
+		for (Task root : roots) {
+			Task dest = getModelMgr().getSubTasks(root.getId())[1];
+			Task[] subTasks = getModelMgr().getSubTasks(dest.getId());
+			assertEquals(OPERATIONS, subTasks.length);
+			for (int j = 0; j < OPERATIONS; j++) {
+				assertEquals(j + 1, subTasks[j].getNumber());
+			}
+		}
+	}
+
+	private Task newTask(String code) {
+		Task task = getFactory().newTask();
+		task.setCode(code);
+		task.setName("Task " + code);
+		return task;
+	}
+
+}
@@ -1,8 +1,13 @@
 package org.activitymgr.core;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.activitymgr.core.dto.Collaborator;
 import org.activitymgr.core.dto.Contribution;
@@ -300,6 +305,165 @@ public class TaskTest extends AbstractModelTestCase {
 		});
 	}
 
+	public void testCreateUnderMovedParent() throws Exception {
+		withSampleTasks(() -> {
+			// La tache 2 doit pouvoir accepter des sous-taches
+			task2.setBudget(0);
+			task2.setInitiallyConsumed(0);
+			task2.setTodo(0);
+			task2 = getModelMgr().updateTask(task2);
+
+			// The parent task is moved by another user
+			Task staleTask11 = getModelMgr().getTask(task11.getId());
+			getModelMgr().moveTask(task11, task2);
+
+			// The parent task is locked and verified before the creation
+			Task newTask = getFactory().newTask();
+			newTask.setCode("T113");
+			try {
+				getModelMgr().createTask(staleTask11, newTask);
+				fail("A task must not be created under a parent task whose path has changed");
+			} catch (ModelException expected) {
+			}
+			assertEquals(2, getModelMgr().getSubTasksCount(task11.getId()));
+		});
+	}
+
+	public void testMoveSubTree() throws Exception {
+		withSampleTasks(() -> {
+			// La tache 2 doit pouvoir accepter des sous-taches
+			task2.setBudget(0);
+			task2.setInitiallyConsumed(0);
+			task2.setTodo(0);
+			task2 = getModelMgr().updateTask(task2);
+
+			// Déplacement de la tache 1 (et de ses sous-taches) sous la
+			// tache 2, qui est ensuite renumérotée
+			getModelMgr().moveTask(task1, task2);
+
+			// Rechargement des taches qui ont été mises à jour
+			task1 = getModelMgr().getTask(task1.getId());
+			task2 = getModelMgr().getTask(task2.getId());
+			task11 = getModelMgr().getTask(task11.getId());
+			task111 = getModelMgr().getTask(task111.getId());
+			task112 = getModelMgr().getTask(task112.getId());
+
+			// Controls
+			assertEquals((byte) 1, task2.getNumber());
+			assertEquals(rootTask.getFullPath(), task2.getPath());
+			assertEquals(task2.getFullPath(), task1.getPath());
+			assertEquals(task1.getFullPath(), task11.getPath());
+			assertEquals(task11.getFullPath(), task111.getPath());
+			assertEquals(task11.getFullPath(), task112.getPath());
+			assertEquals(task112.getId(), getModelMgr().getTaskByCodePath("/RT/T2/T1/T11/T112").getId());
+
+			// La fermeture de l'arborescence doit être identique à celle
+			// obtenue par reconstruction
+			Set<String> closure = getTasksClosure();
+			assertTrue(closure.contains(task2.getId() + ">" + task112.getId() + ":3"));
+			assertEquals(closure.size(), getModelMgr().rebuildTasksClosure());
+			assertEquals(closure, getTasksClosure());
+		});
+	}
+
+	public void testTasksClosure() throws Exception {
+		withSampleTasks(() -> {
+			// Chaque tache est associée à elle même et à ses parents
+			Set<String> closure = getTasksClosure();
+			assertEquals(16, closure.size());
+			assertTrue(closure.contains(rootTask.getId() + ">" + task111.getId() + ":3"));
+			assertTrue(closure.contains(task111.getId() + ">" + task111.getId() + ":0"));
+
+			// Déplacement d'une tache
+			getModelMgr().moveTask(task111, task1);
+			closure = getTasksClosure();
+			assertEquals(15, closure.size());
+			assertFalse(closure.contains(task11.getId() + ">" + task111.getId() + ":1"));
+			assertTrue(closure.contains(task1.getId() + ">" + task111.getId() + ":1"));
+			assertTrue(closure.contains(rootTask.getId() + ">" + task111.getId() + ":2"));
+			assertTrue(closure.contains(rootTask.getId() + ">" + task112.getId() + ":3"));
+
+			// La reconstruction doit produire le même résultat
+			assertEquals(closure.size(), getModelMgr().rebuildTasksClosure());
+			assertEquals(closure, getTasksClosure());
+
+			// Suppression d'une tache
+			task11 = getModelMgr().getTask(task11.getId());
+			task112 = getModelMgr().getTask(task112.getId());
+			getModelMgr().removeTask(task112);
+			closure = getTasksClosure();
+			assertEquals(11, closure.size());
+		});
+	}
+
+	private Set<String> getTasksClosure() throws SQLException {
+		Set<String> result = new HashSet<String>();
+		try (PreparedStatement pStmt = get().prepareStatement(
+				"select tcl_ancestor, tcl_descendant, tcl_depth from TASK_CLOSURE")) {
+			ResultSet rs = pStmt.executeQuery();
+			while (rs.next()) {
+				result.add(rs.getLong(1) + ">" + rs.getLong(2) + ":" + rs.getInt(3));
+			}
+		}
+		return result;
+	}
+
+	public void testTaskNumbers() throws Exception {
+		withSampleTasks(() -> {
+			// Le numéro libéré par la suppression est réattribué
+			getModelMgr().removeTask(task111);
+			Task task113 = getFactory().newTask();
+			task113.setCode("T113");
+			task113.setName("Task 113");
+			task113 = getModelMgr().createTask(task11, task113);
+			assertEquals((byte) 2, task113.getNumber());
+			assertEquals(Integer.valueOf(2), getTaskSequence(task11.getId()));
+
+			// Les compteurs absents (base existante) sont recréés
+			try (PreparedStatement pStmt = get().prepareStatement("delete from TASK_SEQUENCE")) {
+				pStmt.executeUpdate();
+			}
+			Task task114 = getFactory().newTask();
+			task114.setCode("T114");
+			task114.setName("Task 114");
+			task114 = getModelMgr().createTask(task11, task114);
+			assertEquals((byte) 3, task114.getNumber());
+			assertEquals(Integer.valueOf(3), getTaskSequence(task11.getId()));
+
+			// Taches racines
+			Task rootTask2 = getModelMgr().createNewTask(null);
+			assertEquals((byte) 2, rootTask2.getNumber());
+			assertEquals(Integer.valueOf(2), getTaskSequence(0));
+		});
+	}
+
+	public void testTaskSequences() throws Exception {
+		// Compteur des taches racines créé avec les tables
+		assertNotNull(getTaskSequence(0));
+		withSampleTasks(() -> {
+			// Les compteurs sont créés avec les taches
+			assertEquals(Integer.valueOf(2), getTaskSequence(task11.getId()));
+			assertEquals(Integer.valueOf(0), getTaskSequence(task111.getId()));
+
+			// Et supprimés avec elles (sous-taches comprises)
+			getModelMgr().removeTask(task11);
+			assertNull(getTaskSequence(task11.getId()));
+			assertNull(getTaskSequence(task111.getId()));
+			assertNull(getTaskSequence(task112.getId()));
+			// Le compteur de la tache parent est recalé
+			assertEquals(Integer.valueOf(0), getTaskSequence(task1.getId()));
+
+			// Les numéros sont attribués à partir du compteur
+			try (PreparedStatement pStmt = get().prepareStatement(
+					"update TASK_SEQUENCE set tsq_number=5 where tsq_parent=0")) {
+				pStmt.executeUpdate();
+			}
+			Task rootTask2 = getModelMgr().createNewTask(null);
+			assertEquals((byte) 6, rootTask2.getNumber());
+			assertEquals(Integer.valueOf(6), getTaskSequence(0));
+		});
+	}
+
 	public void testSubTasksSum() throws Exception {
 		// Création des taches de test
 		withSampleTasks(() -> {
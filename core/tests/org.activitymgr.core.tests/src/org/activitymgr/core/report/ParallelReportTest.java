@@ -0,0 +1,70 @@
+package org.activitymgr.core.report;
+
+import java.util.Calendar;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.activitymgr.core.dao.IReportDAO;
+import org.activitymgr.core.dto.Task;
+import org.activitymgr.core.dto.report.ReportIntervalType;
+import org.activitymgr.core.model.CoreModelModule;
+import org.activitymgr.core.model.ModelException;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Module;
+import com.google.inject.name.Names;
+
+/**
+ * Runs the report tests in parallel mode (the expected reports are those
+ * produced by a single request).
+ */
+public class ParallelReportTest extends ReportTest {
+
+	@Override
+	protected List<Module> getGuiceModules() {
+		List<Module> modules = super.getGuiceModules();
+		modules.add(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bindConstant().annotatedWith(Names.named(CoreModelModule.REPORT_PARALLELISM)).to(3);
+				bind(DataSource.class).toInstance(getDataSource());
+			}
+		});
+		return modules;
+	}
+
+	public void testSameReportsAsSerialMode() throws ModelException {
+		IReportDAO parallel = getInjector().getInstance(IReportDAO.class);
+		IReportDAO serial = Guice.createInjector(super.getGuiceModules()).getInstance(IReportDAO.class);
+		Task[] rootTasks = new Task[] { null, getModelMgr().getTaskByCodePath("/PR") };
+		long[][] contributorIds = new long[][] { null, new long[] { getModelMgr().getCollaborator("jdoe").getId() } };
+		for (ReportIntervalType intervalType : ReportIntervalType.values()) {
+			Calendar start = cal(2016, 11, 28);
+			if (intervalType == ReportIntervalType.MONTH || intervalType == ReportIntervalType.YEAR) {
+				start.set(Calendar.DATE, 1);
+			}
+			if (intervalType == ReportIntervalType.YEAR) {
+				start.set(Calendar.MONTH, 0);
+			}
+			for (Task rootTask : rootTasks) {
+				for (int taskDepth = 0; taskDepth <= 3; taskDepth++) {
+					for (int flags = 0; flags < 8; flags++) {
+						for (long[] ids : contributorIds) {
+							boolean onlyKeepTasksWithContributions = (flags & 1) != 0;
+							boolean byContributor = (flags & 2) != 0;
+							boolean contributorCentricMode = (flags & 4) != 0;
+							String expected = serial.buildReport(start, intervalType, 20, rootTask, taskDepth,
+									onlyKeepTasksWithContributions, byContributor, contributorCentricMode, ids, null).toString();
+							String actual = parallel.buildReport(start, intervalType, 20, rootTask, taskDepth,
+									onlyKeepTasksWithContributions, byContributor, contributorCentricMode, ids, null).toString();
+							assertEquals(intervalType + "/" + rootTask + "/" + taskDepth + "/" + flags, expected, actual);
+						}
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+package org.activitymgr.core.report;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.activitymgr.core.AbstractModelTestCase;
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.dto.Contribution;
+import org.activitymgr.core.dto.Duration;
+import org.activitymgr.core.dto.Task;
+import org.activitymgr.core.dto.misc.TaskSums;
+import org.activitymgr.core.dto.report.ReportIntervalType;
+import org.activitymgr.core.dto.report.ReportItem;
+import org.activitymgr.core.model.IReportColumnComputer;
+import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.model.ReportColumnComputerFactory;
+import org.activitymgr.core.util.ISheetWriter;
+
+public class ReportColumnComputerFactoryTest extends AbstractModelTestCase {
+
+	private Collaborator collaborator;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		Task task = getFactory().newTask();
+		task.setCode("T1");
+		task.setName("Task 1");
+		task.setBudget(400);
+		task.setInitiallyConsumed(100);
+		task = getModelMgr().createTask(null, task);
+		collaborator = getModelMgr().createNewCollaborator();
+		collaborator.setLogin("jdoe");
+		collaborator = getModelMgr().updateCollaborator(collaborator);
+		Duration duration = getFactory().newDuration();
+		duration.setId(100);
+		duration = getModelMgr().createDuration(duration);
+		Contribution contribution = getFactory().newContribution();
+		contribution.setDate(cal(2017, 1, 2));
+		contribution.setContributorId(collaborator.getId());
+		contribution.setDurationId(duration.getId());
+		contribution.setTaskId(task.getId());
+		getModelMgr().createContribution(contribution, false);
+	}
+
+	public void testColumns() throws ModelException, IOException {
+		List<List<Object>> rows = buildReport("task.path", "task.name",
+				"task.budget", "task.initiallyConsumed", "task.etc",
+				"task.closed", "task.number", "collaborator.login",
+				"collaborator.isActive");
+		assertEquals(2, rows.size());
+		assertEquals(List.of("Path", "Name", "Budget", "Initially Consumed",
+				"Etc", "Closed", "Number", "Login", "Is Active", "02/01"),
+				rows.get(0));
+		List<Object> row = rows.get(1);
+		assertEquals("/T1", row.get(0));
+		assertEquals("Task 1", row.get(1));
+		assertEquals(4d, row.get(2));
+		assertEquals(1d, row.get(3));
+		// Empty durations are not displayed
+		assertNull(row.get(4));
+		assertEquals("false", row.get(5));
+		assertEquals("1", row.get(6));
+		assertEquals("jdoe", row.get(7));
+		assertEquals("true", row.get(8));
+		assertEquals(1d, row.get(9));
+	}
+
+	public void testCustomColumn() throws ModelException, IOException {
+		ReportColumnComputerFactory factory = getInjector().getInstance(ReportColumnComputerFactory.class);
+		factory.register("task.consumedRatio", new IReportColumnComputer.Impl("Consumed ratio", false) {
+			@Override
+			public Object compute(ReportItem item) {
+				TaskSums sums = item.getContributedTask();
+				return sums.getBudgetSum() != 0 ? (double) sums.getInitiallyConsumedSum() / sums.getBudgetSum() : null;
+			}
+		});
+		List<List<Object>> rows = buildReport("task.code", "task.consumedRatio");
+		assertEquals("Consumed ratio", rows.get(0).get(1));
+		assertEquals(0.25d, rows.get(1).get(1));
+		try {
+			factory.register("collaborator.custom", factory.get("task.name"));
+			fail("Custom collaborator columns should be rejected");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public void testUnknownColumns() throws ModelException, IOException {
+		ReportColumnComputerFactory factory = getInjector().getInstance(ReportColumnComputerFactory.class);
+		try {
+			factory.get("contribution.date");
+			fail("Unknown field types should be rejected");
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			buildReport("task.unknown");
+			fail("Unknown attributes should be rejected");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	private List<List<Object>> buildReport(String... columnIds) throws ModelException, IOException {
+		final List<List<Object>> rows = new ArrayList<List<Object>>();
+		Calendar start = cal(2017, 1, 2);
+		getModelMgr().buildReport(start, ReportIntervalType.DAY, 1, null, 1,
+				true, columnIds[columnIds.length - 1].startsWith("collaborator."),
+				false, null, columnIds, false, new ISheetWriter() {
+					@Override
+					public void newRow() {
+						rows.add(new ArrayList<Object>());
+					}
+
+					@Override
+					public void addCell(Style style, Object value) {
+						rows.get(rows.size() - 1).add(value);
+					}
+
+					@Override
+					public void skipCell() {
+						rows.get(rows.size() - 1).add(null);
+					}
+				});
+		return rows;
+	}
+
+}
@@ -0,0 +1,131 @@
+package org.activitymgr.core.report;
+
+import java.util.Calendar;
+
+import org.activitymgr.core.AbstractModelTestCase;
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.dto.Contribution;
+import org.activitymgr.core.dto.Duration;
+import org.activitymgr.core.dto.Task;
+import org.activitymgr.core.dto.report.ReportEstimate;
+import org.activitymgr.core.dto.report.ReportIntervalType;
+import org.activitymgr.core.dto.report.ReportStatistics;
+import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.model.ReportCostEstimator;
+import org.activitymgr.core.util.EpochDays;
+
+public class ReportCostEstimatorTest extends AbstractModelTestCase {
+
+	public void testNoContribution() throws ModelException {
+		try {
+			getModelMgr().estimateReport(null, ReportIntervalType.MONTH, null,
+					null, 1, false, false, false, null, 2, true);
+			fail("A start date is required without contribution");
+		} catch (ModelException expected) {
+		}
+		ReportEstimate estimate = getModelMgr().estimateReport(cal(2017, 1, 1),
+				ReportIntervalType.MONTH, 3, null, 1, false, false, false,
+				null, 2, true);
+		assertEquals(0, estimate.getContributionCount());
+		assertEquals(2 + 3 + 1, estimate.getColumnCount());
+	}
+
+	public void testInvalidParameters() throws ModelException {
+		try {
+			getModelMgr().estimateReport(cal(2017, 1, 1), ReportIntervalType.DAY,
+					-1, null, 1, false, false, false, null, 2, true);
+			fail("Negative interval count should be rejected");
+		} catch (ModelException expected) {
+		}
+		try {
+			getModelMgr().estimateReport(cal(2017, 1, 1), ReportIntervalType.DAY,
+					20000, null, 1, false, false, false, null, 2, true);
+			fail("Too many columns should be rejected");
+		} catch (ModelException expected) {
+		}
+	}
+
+	public void testEstimate() throws ModelException {
+		// 2 root tasks with 2 sub tasks each, 2 collaborators contributing to
+		// the first sub task every day in january
+		Task first = null;
+		for (int i = 0; i < 2; i++) {
+			Task parent = newTask(null, "P" + i);
+			for (int j = 0; j < 2; j++) {
+				Task task = newTask(parent, "T" + i + j);
+				if (first == null) {
+					first = task;
+				}
+			}
+		}
+		Duration duration = getFactory().newDuration();
+		duration.setId(100);
+		duration = getModelMgr().createDuration(duration);
+		for (int c = 0; c < 2; c++) {
+			Collaborator collaborator = getModelMgr().createNewCollaborator();
+			for (int day = 1; day <= 31; day++) {
+				Contribution contribution = getFactory().newContribution();
+				contribution.setDate(cal(2017, 1, day));
+				contribution.setContributorId(collaborator.getId());
+				contribution.setDurationId(duration.getId());
+				contribution.setTaskId(first.getId());
+				getModelMgr().createContribution(contribution, false);
+			}
+		}
+
+		// Automatic interval
+		ReportEstimate estimate = getModelMgr().estimateReport(null,
+				ReportIntervalType.DAY, null, null, 2, false, true, false,
+				null, 3, false);
+		assertEquals(62, estimate.getContributionCount());
+		assertEquals(3 + 31, estimate.getColumnCount());
+		// Every task appears, the contributed one with 2 contributors
+		assertTrue(estimate.getRowCount() >= 4 && estimate.getRowCount() <= 8);
+
+		// Half of the contributions are in the interval, and half of the tasks
+		// are under the root task
+		estimate = getModelMgr().estimateReport(cal(2017, 1, 17),
+				ReportIntervalType.DAY, 31, getModelMgr().getTaskByCodePath("/P0").getId(),
+				1, true, false, false, null, 3, false);
+		assertEquals(15, estimate.getContributionCount());
+
+		// Statistics are cached
+		ReportCostEstimator estimator = getInjector().getInstance(ReportCostEstimator.class);
+		ReportStatistics statistics = estimator.getStatistics();
+		assertSame(statistics, estimator.getStatistics());
+		assertEquals(62, statistics.getContributionsCount());
+		assertEquals(2, statistics.getCollaboratorsCount());
+		assertEquals(2, statistics.getMaxTaskDepth());
+		assertEquals(4, statistics.getTasksCount(2));
+		getModelMgr().createNewCollaborator();
+		assertEquals(2, estimator.getStatistics().getCollaboratorsCount());
+		estimator.invalidate();
+		assertEquals(3, estimator.getStatistics().getCollaboratorsCount());
+	}
+
+	public void testLargeReport() {
+		ReportStatistics statistics = new ReportStatistics();
+		statistics.setContributionsCount(10000000);
+		statistics.setFirstDateKey(20100101);
+		statistics.setLastDateKey(20191231);
+		statistics.setCollaboratorsCount(1000);
+		statistics.setTasksCountByDepth(new long[] { 10, 100, 1000, 10000 });
+		Calendar start = cal(2010, 1, 1);
+		int from = EpochDays.of(start);
+		ReportEstimate small = ReportCostEstimator.estimate(statistics, from,
+				from, null, 1, false, false, false, null, 3);
+		ReportEstimate large = ReportCostEstimator.estimate(statistics, from,
+				from + 3652, null, 4, false, true, false, null, 3 + 3653);
+		assertEquals(10, small.getRowCount());
+		assertTrue(large.getRowCount() > 1000000);
+		assertTrue(small.getDuration() < large.getDuration() / 1000);
+	}
+
+	private Task newTask(Task parent, String code) throws ModelException {
+		Task task = getFactory().newTask();
+		task.setCode(code);
+		task.setName(code);
+		return getModelMgr().createTask(parent, task);
+	}
+
+}
@@ -0,0 +1,74 @@
+package org.activitymgr.core.report;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import org.activitymgr.core.AbstractModelTestCase;
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.dto.Task;
+import org.activitymgr.core.dto.misc.TaskSums;
+import org.activitymgr.core.dto.report.Report;
+import org.activitymgr.core.dto.report.ReportIntervalType;
+import org.activitymgr.core.dto.report.ReportItem;
+
+public class ReportDataTest extends AbstractModelTestCase {
+
+	public void testRows() {
+		Report report = new Report(new GregorianCalendar(2017, 0, 2),
+				ReportIntervalType.DAY, 3, null, 2, true, false);
+		int parent = report.addTask(newTaskSums("P"), -1);
+		int child1 = report.addTask(newTaskSums("C1"), parent);
+		int child2 = report.addTask(newTaskSums("C2"), parent);
+		Collaborator contributor = getFactory().newCollaborator();
+		// Enough rows to span several contribution sums blocks
+		for (int i = 0; i < 300; i++) {
+			int row = report.addRow(contributor, i % 2 == 0 ? child1 : child2);
+			report.addToContributionSum(row, i % 3, i);
+		}
+
+		List<ReportItem> items = report.getItems();
+		assertEquals(300, items.size());
+		ReportItem item = items.get(299);
+		assertSame(report.getTask(child2), item.getContributedTask());
+		assertSame(contributor, item.getContributor());
+		assertEquals(Arrays.asList(report.getTask(parent).getTask(),
+				report.getTask(child2).getTask()), item.getTasks());
+		assertEquals(0, item.getContributionSum(0));
+		assertEquals(299, item.getContributionSum(2));
+		item.addToContributionSum(0, 1);
+		assertEquals(1, report.getContributionSum(299, 0));
+		// Rows are not mixed up when the storage grows
+		for (int i = 0; i < 299; i++) {
+			assertEquals(i, items.get(i).getContributionSum(i % 3));
+			assertEquals(0, items.get(i).getContributionSum((i + 1) % 3));
+		}
+
+		assertEquals(3, report.getDates().size());
+		Calendar last = report.getDates().toArray(new Calendar[3])[2];
+		assertEquals(4, last.get(Calendar.DATE));
+		try {
+			report.addToContributionSum(0, 3, 1);
+			fail("Interval index is out of bounds");
+		} catch (IndexOutOfBoundsException expected) {
+		}
+	}
+
+	public void testRowWithoutTask() {
+		Report report = new Report(new GregorianCalendar(2017, 0, 2),
+				ReportIntervalType.MONTH, 1, null, 0, true, false);
+		ReportItem item = report.getItems().get(report.addRow(null, -1));
+		assertNull(item.getContributedTask());
+		assertTrue(item.getTasks().isEmpty());
+	}
+
+	private TaskSums newTaskSums(String code) {
+		Task task = getFactory().newTask();
+		task.setCode(code);
+		TaskSums sums = new TaskSums();
+		sums.setTask(task);
+		return sums;
+	}
+
+}
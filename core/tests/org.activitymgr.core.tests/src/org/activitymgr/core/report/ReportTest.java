@@ -9,12 +9,19 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.sql.DataSource;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.activitymgr.core.AbstractModelTestCase;
@@ -25,9 +32,18 @@ import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.dto.report.Report;
 import org.activitymgr.core.dto.report.ReportIntervalType;
 import org.activitymgr.core.dto.report.ReportItem;
+import org.activitymgr.core.model.CoreModelModule;
+import org.activitymgr.core.model.IModelMgr;
+import org.activitymgr.core.model.ModelCaches;
 import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.model.ReportCache;
+import org.activitymgr.core.util.ISheetWriter;
 import org.xml.sax.SAXException;
 
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.name.Names;
+
 public class ReportTest extends AbstractModelTestCase {
 	
 	private static final OutputStream NULL_OUTPUT = new OutputStream() {
@@ -85,8 +101,10 @@ public class ReportTest extends AbstractModelTestCase {
 	public void testReportWithoutStartNorContributions() throws IOException {
 		try {
 			IContributionDAO cDAO = getInjector().getInstance(IContributionDAO.class);
-			// Remove all contributions
+			// Remove all contributions (and their sums, which give the
+			// contributions interval)
 			cDAO.delete(null, null);
+			cDAO.rebuildTasksSums();
 			// Launch a report that is expected to fail
 			doBuildReport(
 					null, // no start date 
@@ -106,6 +124,196 @@ public class ReportTest extends AbstractModelTestCase {
 		}
 	}
 	
+	public void testReportCache() throws ModelException {
+		ReportCache reportCache = getInjector().getInstance(ReportCache.class);
+		Calendar start = (Calendar) sampleDataStart.clone();
+		Report report = doBuildReport(start, ReportIntervalType.WEEK, 2, null, 2, false, true, null, true);
+		reportCache.resetStatistics();
+		
+		// Same parameters : the cached report is returned
+		assertSame(report, doBuildReport(start, ReportIntervalType.WEEK, 2, null, 2, false, true, null, true));
+		assertEquals(1, reportCache.getHitCount());
+		assertEquals(0, reportCache.getMissCount());
+		
+		// Other parameters : the report is built
+		assertTrue(report != doBuildReport(start, ReportIntervalType.WEEK, 3, null, 2, false, true, null, true));
+		assertEquals(1, reportCache.getMissCount());
+		
+		// A contribution creation invalidates the cache
+		Contribution ctb = getFactory().newContribution();
+		Calendar date = (Calendar) start.clone();
+		date.add(Calendar.DATE, 1);
+		ctb.setDate(date);
+		ctb.setContributorId(jdoe.getId());
+		ctb.setDurationId(100);
+		ctb.setTaskId(getModelMgr().getTaskByCodePath("/PR/PA/SPE").getId());
+		getModelMgr().createContribution(ctb, false);
+		Report newReport = doBuildReport(start, ReportIntervalType.WEEK, 2, null, 2, false, true, null, true);
+		assertTrue(report != newReport);
+		assertFalse(report.toString().equals(newReport.toString()));
+		assertEquals(2, reportCache.getMissCount());
+	}
+
+	public void testRollbackLeavesNoStaleReport() throws Exception {
+		ReportCache reportCache = getInjector().getInstance(ReportCache.class);
+		Calendar start = (Calendar) sampleDataStart.clone();
+		Report report = doBuildReport(start, ReportIntervalType.WEEK, 2, null, 2, false, true, null, true);
+
+		// Create a contribution in a transaction that is rolled back (the
+		// model manager is used without its transactional wrapper)
+		IModelMgr modelMgr = getInjector().getInstance(IModelMgr.class);
+		Contribution ctb = getFactory().newContribution();
+		Calendar date = (Calendar) start.clone();
+		date.add(Calendar.DATE, 1);
+		ctb.setDate(date);
+		ctb.setContributorId(jdoe.getId());
+		ctb.setDurationId(100);
+		ctb.setTaskId(modelMgr.getTaskByCodePath("/PR/PA/SPE").getId());
+		modelMgr.createContribution(ctb, false);
+		Report uncommitted = modelMgr.buildReport(start, ReportIntervalType.WEEK, 2, null, 2, false, true, true, null);
+		assertFalse(report.toString().equals(uncommitted.toString()));
+		reportCache.resetStatistics();
+		// No report is cached while the writer is pending
+		assertTrue(uncommitted != modelMgr.buildReport(start, ReportIntervalType.WEEK, 2, null, 2, false, true, true, null));
+		assertEquals(0, reportCache.getHitCount());
+		get().rollback();
+		getInjector().getInstance(ModelCaches.class).transactionEnded(get());
+
+		// The uncommitted data must not have been cached
+		Report newReport = doBuildReport(start, ReportIntervalType.WEEK, 2, null, 2, false, true, null, true);
+		assertEquals(report.toString(), newReport.toString());
+		assertEquals(0, reportCache.getHitCount());
+	}
+
+	public void testParallelReport() throws Exception {
+		Calendar start = (Calendar) sampleDataStart.clone();
+		Report report = getModelMgr().buildReport(start, ReportIntervalType.WEEK, 2, null, 2, false, true, false, null);
+
+		// Read only transaction : the root tasks sub trees are computed
+		// with the report data source
+		AtomicInteger acquisitions = new AtomicInteger();
+		IModelMgr modelMgr = newParallelModelMgr(countingDataSource(acquisitions, false));
+		get().setReadOnly(true);
+		try {
+			// H2 ignores the connection read only mode
+			if (get().isReadOnly()) {
+				assertEquals(report.toString(), modelMgr.buildReport(start, ReportIntervalType.WEEK, 2, null, 2, false, true, false, null).toString());
+				assertEquals(2, acquisitions.get());
+
+				// No available connection : the report is built with a
+				// single request
+				acquisitions.set(0);
+				modelMgr = newParallelModelMgr(countingDataSource(acquisitions, true));
+				assertEquals(report.toString(), modelMgr.buildReport(start, ReportIntervalType.WEEK, 2, null, 2, false, true, false, null).toString());
+				assertEquals(1, acquisitions.get());
+			}
+		} finally {
+			get().rollback();
+			get().setReadOnly(false);
+		}
+
+		// Read write transaction : the report is built with a single request
+		acquisitions.set(0);
+		modelMgr = newParallelModelMgr(countingDataSource(acquisitions, false));
+		assertEquals(report.toString(), modelMgr.buildReport(start, ReportIntervalType.WEEK, 2, null, 2, false, true, false, null).toString());
+		assertEquals(0, acquisitions.get());
+	}
+
+	private IModelMgr newParallelModelMgr(final DataSource reportDataSource) {
+		return Guice.createInjector(new CoreModelModule(), new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(Connection.class).toProvider(ReportTest.this);
+				bindConstant().annotatedWith(Names.named(CoreModelModule.REPORT_PARALLELISM)).to(2);
+				bindConstant().annotatedWith(Names.named(CoreModelModule.REPORT_CACHE_SIZE)).to(0);
+				bind(DataSource.class).annotatedWith(Names.named(CoreModelModule.REPORT_DATA_SOURCE)).toInstance(reportDataSource);
+			}
+		}).getInstance(IModelMgr.class);
+	}
+
+	private DataSource countingDataSource(final AtomicInteger acquisitions, final boolean exhausted) {
+		return (DataSource) Proxy.newProxyInstance(ReportTest.class.getClassLoader(),
+				new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+					if ("getConnection".equals(method.getName())) {
+						acquisitions.incrementAndGet();
+						if (exhausted) {
+							throw new SQLException("Pool exhausted");
+						}
+					}
+					try {
+						return method.invoke(getDataSource(), args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+	public void testReportRows() throws IOException, ModelException {
+		final List<List<Object>> rows = new ArrayList<List<Object>>();
+		Calendar start = (Calendar) sampleDataStart.clone();
+		getModelMgr().buildReport(start, ReportIntervalType.WEEK, 2, null, 1,
+				false, true, false, null,
+				new String[] { "task.path", "collaborator.login" }, true,
+				new ISheetWriter() {
+					@Override
+					public void newRow() {
+						rows.add(new ArrayList<Object>());
+					}
+					@Override
+					public void addCell(Style style, Object value) {
+						rows.get(rows.size() - 1).add(value);
+					}
+					@Override
+					public void skipCell() {
+						rows.get(rows.size() - 1).add("<skipped>");
+					}
+				});
+		Report report = doBuildReport(start, ReportIntervalType.WEEK, 2, null,
+				1, false, true, null, false);
+		// Header, items & totals
+		assertEquals(report.getItems().size() + 2, rows.size());
+		List<Object> header = rows.get(0);
+		assertEquals(Arrays.asList("Path", "Login"), header.subList(0, 2));
+		assertEquals(5, header.size());
+		assertEquals("Total", header.get(4));
+		// 2 weeks * 2 collaborators * 5 days
+		List<Object> totals = rows.get(rows.size() - 1);
+		assertEquals("<skipped>", totals.get(0));
+		assertEquals(20d, totals.get(totals.size() - 1));
+	}
+
+	public void testReportMaxColumns() throws IOException, ModelException {
+		IModelMgr modelMgr = Guice.createInjector(new CoreModelModule(), new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(Connection.class).toProvider(ReportTest.this);
+				bindConstant().annotatedWith(Names.named(CoreModelModule.REPORT_MAX_COLUMNS)).to(5);
+			}
+		}).getInstance(IModelMgr.class);
+		ISheetWriter out = new ISheetWriter() {
+			@Override
+			public void newRow() {
+			}
+			@Override
+			public void addCell(Style style, Object value) {
+			}
+			@Override
+			public void skipCell() {
+			}
+		};
+		String[] columnIds = new String[] { "task.path", "collaborator.login" };
+		// 2 columns + 1 interval + totals
+		modelMgr.buildReport((Calendar) sampleDataStart.clone(), ReportIntervalType.WEEK, 1, null, 1,
+				false, true, false, null, columnIds, true, out);
+		// The limit also applies to the HTML and CSV reports
+		try {
+			modelMgr.buildReport((Calendar) sampleDataStart.clone(), ReportIntervalType.WEEK, 2, null, 1,
+					false, true, false, null, columnIds, true, out);
+			fail("Too many columns should be rejected");
+		} catch (ModelException expected) {
+		}
+	}
+
 	public void testReportFilteredByCollaborator() throws IOException, ModelException {
 		doTestReport();
 	}
@@ -1,8 +1,20 @@
 package org.activitymgr.core.report;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.activitymgr.core.AbstractModelTestCase;
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.dto.Contribution;
+import org.activitymgr.core.dto.Duration;
+import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.dto.report.ReportIntervalType;
 import org.activitymgr.core.model.ModelException;
 
@@ -44,4 +56,63 @@ public class XLSReportTest extends AbstractModelTestCase {
 		}
 	}
 
+	public void testXLSXReport() throws ModelException, IOException {
+		Calendar start = cal(2017, 1, 1);
+		Task task = getFactory().newTask();
+		task.setCode("T1");
+		task.setName("Task <1>");
+		task = getModelMgr().createTask(null, task);
+		Collaborator collaborator = getModelMgr().createNewCollaborator();
+		Duration duration = getFactory().newDuration();
+		duration.setId(100);
+		duration = getModelMgr().createDuration(duration);
+		Contribution contribution = getFactory().newContribution();
+		Calendar date = cal(2017, 10, 1);
+		contribution.setDate(date);
+		contribution.setContributorId(collaborator.getId());
+		contribution.setDurationId(duration.getId());
+		contribution.setTaskId(task.getId());
+		getModelMgr().createContribution(contribution, false);
+
+		// No 256 columns limit (2 task columns + 365 days + total)
+		getModelMgr().buildXLSXReport(start, ReportIntervalType.DAY, 365, null,
+				1, false, false, false, null,
+				new String[] { "task.path", "task.name" }, true, true, null);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		getModelMgr().buildXLSXReport(start, ReportIntervalType.DAY, 365, null,
+				1, false, false, false, null,
+				new String[] { "task.path", "task.name" }, true, false, out);
+		Map<String, String> entries = new HashMap<String, String>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+			ZipEntry entry = null;
+			while ((entry = zip.getNextEntry()) != null) {
+				entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+		assertTrue(entries.containsKey("[Content_Types].xml"));
+		assertTrue(entries.containsKey("xl/workbook.xml"));
+		assertTrue(entries.containsKey("xl/styles.xml"));
+		String sheet = entries.get("xl/worksheets/sheet1.xml");
+		assertNotNull(sheet);
+		// Header, task and totals rows
+		assertEquals(3, sheet.split("<row ").length - 1);
+		// Last header cell (368th column)
+		assertTrue(sheet.contains("<c r=\"ND1\" s=\"3\" t=\"inlineStr\"><is><t xml:space=\"preserve\">Total</t></is></c>"));
+		assertTrue(sheet.contains("Task &lt;1&gt;"));
+		// Contribution on the 274th day (01/10/2017)
+		assertTrue(sheet.contains("<c r=\"JP2\" s=\"2\"><v>1</v></c>"));
+		assertTrue(sheet.contains("<pane xSplit=\"2\" ySplit=\"1\" topLeftCell=\"C2\""));
+
+		try {
+			// Overflow
+			getModelMgr().buildXLSXReport(start, ReportIntervalType.DAY, 20000,
+					null, 1, false, false, false, null,
+					new String[] { "task.path" }, true, true, null);
+			fail("An overflow should have occured");
+		}
+		catch (ModelException e) {
+
+		}
+	}
+
 }
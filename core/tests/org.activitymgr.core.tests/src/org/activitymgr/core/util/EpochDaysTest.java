@@ -0,0 +1,50 @@
+package org.activitymgr.core.util;
+
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import junit.framework.TestCase;
+
+public class EpochDaysTest extends TestCase {
+
+	public void testSameAsLocalDate() {
+		for (LocalDate date = LocalDate.of(1600, 1, 1); date.getYear() < 2500; date = date.plusDays(1)) {
+			int epochDay = EpochDays.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+			assertEquals(date.toString(), date.toEpochDay(), epochDay);
+			assertEquals(date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth(),
+					EpochDays.toDateKey(epochDay));
+			assertEquals(date.getDayOfWeek().getValue(), EpochDays.getDayOfWeek(epochDay));
+		}
+	}
+
+	public void testFirstDayOfWeek() {
+		// 2017-01-02 is a monday
+		int monday = EpochDays.of(2017, 1, 2);
+		for (int i = 0; i < 7; i++) {
+			assertEquals(monday, EpochDays.getFirstDayOfWeek(monday + i));
+			assertEquals(monday, DateHelper.moveToFirstDayOfWeek(monday + i));
+		}
+		assertEquals(monday - 7, EpochDays.getFirstDayOfWeek(monday - 1));
+		Calendar sunday = new GregorianCalendar(2017, 0, 8);
+		assertEquals(new GregorianCalendar(2017, 0, 2), DateHelper.moveToFirstDayOfWeek(sunday));
+	}
+
+	public void testCalendar() {
+		Calendar date = new GregorianCalendar(2016, 1, 29, 23, 59);
+		int epochDay = EpochDays.of(date);
+		assertEquals(20160229, EpochDays.toDateKey(epochDay));
+		assertEquals(2016, EpochDays.getYear(epochDay));
+		assertEquals(2, EpochDays.getMonth(epochDay));
+		assertEquals(29, EpochDays.getDay(epochDay));
+		assertEquals(new GregorianCalendar(2016, 1, 29), EpochDays.toCalendar(epochDay));
+		assertEquals(366, DateHelper.countDaysBetween(new GregorianCalendar(2017, 0, 1), new GregorianCalendar(2016, 0, 1)));
+	}
+
+	public void testToString() {
+		assertEquals("20170102", EpochDays.toString(EpochDays.of(2017, 1, 2)));
+		assertEquals("09991231", EpochDays.toString(EpochDays.of(999, 12, 31)));
+		assertEquals("20161231", StringHelper.toYYYYMMDD(new GregorianCalendar(2016, 11, 31)));
+	}
+
+}
@@ -0,0 +1,93 @@
+package org.activitymgr.core.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.dbcp.BasicDataSource;
+
+import junit.framework.TestCase;
+
+public class InstrumentedDataSourceTest extends TestCase {
+
+	private static final String URL = "jdbc:h2:mem:pooltest";
+
+	private Map<String, String> poolCfg = new HashMap<String, String>();
+
+	public void testDefaultConfiguration() {
+		BasicDataSource pool = DataSourceHelper.createDataSource(
+				"com.mysql.jdbc.Driver", "jdbc:mysql://localhost/db", "user", "pwd", poolCfg::get);
+		assertEquals(DataSourceHelper.DEFAULT_MAX_ACTIVE, pool.getMaxActive());
+		assertEquals(DataSourceHelper.DEFAULT_MIN_IDLE, pool.getMinIdle());
+		assertEquals(DataSourceHelper.DEFAULT_MAX_WAIT, pool.getMaxWait());
+		// MySQL connections are validated
+		assertEquals("select 1", pool.getValidationQuery());
+		assertTrue(pool.getTestOnBorrow());
+		assertTrue(pool.isPoolPreparedStatements());
+		assertEquals(DataSourceHelper.DEFAULT_MAX_OPEN_PREPARED_STATEMENTS,
+				pool.getMaxOpenPreparedStatements());
+		assertFalse(pool.getRemoveAbandoned());
+	}
+
+	public void testConfiguration() {
+		poolCfg.put("maxActive", "5");
+		poolCfg.put("maxWait", "1000");
+		poolCfg.put("validationQuery", "select 1");
+		poolCfg.put("testOnBorrow", "false");
+		poolCfg.put("poolPreparedStatements", "false");
+		poolCfg.put("removeAbandoned", "true");
+		poolCfg.put("removeAbandonedTimeout", "60");
+		BasicDataSource pool = DataSourceHelper.createDataSource(
+				"org.h2.Driver", URL, "sa", "", poolCfg::get);
+		assertEquals(5, pool.getMaxActive());
+		assertEquals(5, pool.getMaxIdle());
+		assertEquals(1000, pool.getMaxWait());
+		assertEquals("select 1", pool.getValidationQuery());
+		assertFalse(pool.getTestOnBorrow());
+		assertTrue(pool.getTestWhileIdle());
+		assertFalse(pool.isPoolPreparedStatements());
+		assertTrue(pool.getRemoveAbandoned());
+		assertEquals(60, pool.getRemoveAbandonedTimeout());
+		assertTrue(pool.getLogAbandoned());
+	}
+
+	public void testMetrics() throws SQLException {
+		InstrumentedDataSource datasource = new InstrumentedDataSource(
+				DataSourceHelper.createDataSource("org.h2.Driver", URL, "sa", "", poolCfg::get), 2);
+		try {
+			assertEquals(0, datasource.getWaitTimePercentiles(50)[0]);
+			for (int i = 0; i < 3; i++) {
+				try (Connection con = datasource.getConnection()) {
+					assertFalse(con.getAutoCommit());
+				}
+			}
+			assertEquals(3, datasource.getAcquisitionsCount());
+			assertEquals(0, datasource.getFailuresCount());
+			assertEquals(0, datasource.getWaitersCount());
+			long[] percentiles = datasource.getWaitTimePercentiles(0, 50, 100);
+			assertTrue(percentiles[0] <= percentiles[1]);
+			assertTrue(percentiles[1] <= percentiles[2]);
+
+			datasource.resetStatistics();
+			assertEquals(0, datasource.getAcquisitionsCount());
+			assertEquals(0, datasource.getWaitTimePercentiles(100)[0]);
+		} finally {
+			datasource.close();
+		}
+	}
+
+	public void testFailure() throws SQLException {
+		InstrumentedDataSource datasource = new InstrumentedDataSource(
+				DataSourceHelper.createDataSource("unknown.Driver", URL, "sa", "", poolCfg::get));
+		try {
+			datasource.getConnection();
+			fail("The driver does not exist");
+		} catch (SQLException expected) {
+		}
+		assertEquals(0, datasource.getAcquisitionsCount());
+		assertEquals(1, datasource.getFailuresCount());
+		assertEquals(0, datasource.getWaitersCount());
+	}
+
+}
@@ -142,6 +142,46 @@ public class XmlTest extends AbstractModelTestCase {
 	}
 	
 	public void testExportAndImport() throws ModelException, IOException, ParserConfigurationException, SAXException {
+		exportAndImport(false, false);
+	}
+
+	public void testStagedExportAndImport() throws ModelException, IOException, ParserConfigurationException, SAXException {
+		exportAndImport(true, false);
+	}
+
+	public void testGzipExportAndImport() throws ModelException, IOException, ParserConfigurationException, SAXException {
+		exportAndImport(true, true);
+	}
+
+	public void testStagedImportUnderExistingTask() throws Exception {
+		Task parentTask = getFactory().newTask();
+		parentTask.setCode("Par");
+		parentTask.setName("Parent name");
+		parentTask = getModelMgr().createTask(null, parentTask);
+		Task task1 = getFactory().newTask();
+		task1.setCode("T1");
+		task1.setName("Task 1");
+		task1 = getModelMgr().createTask(parentTask, task1);
+
+		// Import d'une sous tache de la tache existante
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<!DOCTYPE model SYSTEM \"activitymgr.dtd\">\n"
+				+ "<model><tasks><task><path>/Par/T2</path><name>Task 2</name></task></tasks></model>";
+		getModelMgr().importFromXML(new ByteArrayInputStream(xml.getBytes("UTF-8")), true);
+
+		// Le numéro a été attribué par le compteur de la tache parent
+		Task task2 = getModelMgr().getTaskByCodePath("/Par/T2");
+		assertEquals((byte) 2, task2.getNumber());
+		assertEquals(Integer.valueOf(2), getTaskSequence(parentTask.getId()));
+		assertEquals(Integer.valueOf(0), getTaskSequence(task2.getId()));
+
+		// Suppression des objets de test
+		getModelMgr().removeTask(task2);
+		getModelMgr().removeTask(task1);
+		getModelMgr().removeTask(parentTask);
+	}
+
+	private void exportAndImport(boolean staged, boolean gzip) throws ModelException, IOException, ParserConfigurationException, SAXException {
 		// Création des objets de test
 		Duration duration = getFactory().newDuration();
 		duration.setId(100);
@@ -178,6 +218,11 @@ public class XmlTest extends AbstractModelTestCase {
 		String export = out.toString();
 		log.debug("export :");
 		log.debug(export);
+		if (gzip) {
+			out = new ByteArrayOutputStream();
+			getModelMgr().exportToXML(out, true);
+			out.close();
+		}
 
 		// Supression des objets de test
 		getModelMgr().removeContribution(contribution, true);
@@ -187,7 +232,7 @@ public class XmlTest extends AbstractModelTestCase {
 		getModelMgr().removeDuration(duration);
 
 		// Réimportation
-		getModelMgr().importFromXML(new ByteArrayInputStream(out.toByteArray()));
+		getModelMgr().importFromXML(new ByteArrayInputStream(out.toByteArray()), staged);
 		
 		// Nouvel export puis comparaison
 		out = new ByteArrayOutputStream();
@@ -2,8 +2,11 @@
 drop view if exists CONTRIBUTION_VIEW;
 
 -- tables
+drop table if exists CONTRIBUTION_SUMS;
 drop table if exists CONTRIBUTION;
 drop table if exists DURATION;
+drop table if exists TASK_SEQUENCE;
+drop table if exists TASK_CLOSURE;
 drop table if exists TASK;
 drop table if exists COLLABORATOR;
 
@@ -0,0 +1,57 @@
+-- Fermeture transitive de l'arbre des taches
+create table TASK_CLOSURE (
+	TCL_ANCESTOR     integer(8) not null,
+	TCL_DESCENDANT   integer(8) not null,
+	TCL_DEPTH        integer(3) not null,
+    index TCL_DESCENDANT_IDX (TCL_DESCENDANT, TCL_DEPTH),
+    constraint TCL_PK primary key (TCL_ANCESTOR, TCL_DESCENDANT),
+    constraint TCL_ANCESTOR_FK foreign key (TCL_ANCESTOR) references TASK (TSK_ID) on delete cascade,
+    constraint TCL_DESCENDANT_FK foreign key (TCL_DESCENDANT) references TASK (TSK_ID) on delete cascade
+) engine=innodb;
+
+-- Initial backfill (IModelMgr.rebuildTasksClosure() does the same and may be used to repair the table)
+insert into TASK_CLOSURE (TCL_ANCESTOR, TCL_DESCENDANT, TCL_DEPTH)
+	select ancestor.TSK_ID, descendant.TSK_ID, (length(descendant.TSK_PATH) - length(ancestor.TSK_PATH)) / 2
+	from TASK ancestor, TASK descendant
+	where concat(descendant.TSK_PATH, descendant.TSK_NUMBER) like concat(ancestor.TSK_PATH, ancestor.TSK_NUMBER, '%');
+
+-- Cumuls des contributions par tache (et taches parentes)
+-- CSM_MONTH : annee*100 + mois, CSM_DAY : jour (0 pour le mois)
+create table CONTRIBUTION_SUMS (
+	CSM_TASK          integer(8) not null,
+	CSM_MONTH         integer(6) not null,
+	CSM_DAY           integer(2) not null,
+	CSM_SUM           bigint     not null,
+	CSM_COUNT         integer(8) not null,
+    constraint CSM_PK primary key (CSM_TASK, CSM_MONTH, CSM_DAY),
+    constraint CSM_TASK_FK foreign key (CSM_TASK) references TASK (TSK_ID) on delete cascade
+) engine=innodb;
+
+-- Initial backfill (IModelMgr.rebuildContributionsSums() does the same and may be used to repair the table)
+insert into CONTRIBUTION_SUMS (CSM_TASK, CSM_MONTH, CSM_DAY, CSM_SUM, CSM_COUNT)
+	select TCL_ANCESTOR, CTB_YEAR*100 + CTB_MONTH, CTB_DAY, sum(CTB_DURATION), count(CTB_DURATION)
+	from CONTRIBUTION join TASK_CLOSURE on TCL_DESCENDANT = CTB_TASK
+	group by TCL_ANCESTOR, CTB_YEAR, CTB_MONTH, CTB_DAY;
+insert into CONTRIBUTION_SUMS (CSM_TASK, CSM_MONTH, CSM_DAY, CSM_SUM, CSM_COUNT)
+	select TCL_ANCESTOR, CTB_YEAR*100 + CTB_MONTH, 0, sum(CTB_DURATION), count(CTB_DURATION)
+	from CONTRIBUTION join TASK_CLOSURE on TCL_DESCENDANT = CTB_TASK
+	group by TCL_ANCESTOR, CTB_YEAR, CTB_MONTH;
+
+-- Clé de date des contributions (yyyyMMdd) indexée
+alter table CONTRIBUTION add CTB_DATE_KEY integer(8) not null default 0;
+update CONTRIBUTION set CTB_DATE_KEY = CTB_YEAR*10000 + CTB_MONTH*100 + CTB_DAY;
+alter table CONTRIBUTION alter CTB_DATE_KEY drop default;
+create index CTB_DATE_KEY_IDX on CONTRIBUTION (CTB_DATE_KEY, CTB_CONTRIBUTOR, CTB_TASK, CTB_DURATION);
+
+-- Compteurs des numeros de sous-taches par tache parent (TSQ_PARENT : 0 pour les taches racines)
+-- Les compteurs sont crees avec les taches et initialises au nombre de sous-taches
+create table TASK_SEQUENCE (
+	TSQ_PARENT       integer(8) not null,
+	TSQ_NUMBER       integer(3) not null,
+    constraint TSQ_PK primary key (TSQ_PARENT)
+) engine=innodb;
+insert into TASK_SEQUENCE (TSQ_PARENT, TSQ_NUMBER) select 0, count(*) from TASK where TSK_PATH='';
+insert into TASK_SEQUENCE (TSQ_PARENT, TSQ_NUMBER)
+	select T.TSK_ID, count(S.TSK_ID) from TASK T
+	left join TASK S on S.TSK_PATH=concat(T.TSK_PATH, T.TSK_NUMBER)
+	group by T.TSK_ID;
@@ -46,6 +46,7 @@ import org.activitymgr.core.dto.Duration;
 import org.activitymgr.core.dto.IDTOFactory;
 import org.activitymgr.core.model.IModelMgr;
 import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.util.DataSourceHelper;
 import org.activitymgr.core.util.DbHelper;
 import org.activitymgr.core.util.Strings;
 import org.activitymgr.ui.rcp.util.SafeRunner;
@@ -674,13 +675,12 @@ public class DatabaseUI implements ModifyListener {
 		store.setValue(PreferenceManager.JDBC_USER, jdbcUser);
 		store.setValue(PreferenceManager.JDBC_PASSWORD, jdbcPassword);
 
-		// Changement des paramètres de connexion
-		datasource = new BasicDataSource();
-		datasource.setDriverClassName(jdbcDriver);
-		datasource.setUrl(jdbcUrl);
-		datasource.setUsername(jdbcUser);
-		datasource.setPassword(jdbcPassword);
-		datasource.setDefaultAutoCommit(false);
+		// Changement des paramètres de connexion (le pool est paramétrable
+		// par les propriétés système activitymgr.jdbc.pool.*, cf.
+		// DataSourceHelper)
+		datasource = DataSourceHelper.createDataSource(jdbcDriver, jdbcUrl,
+				jdbcUser, jdbcPassword,
+				key -> System.getProperty("activitymgr.jdbc.pool." + key)); //$NON-NLS-1$
 
 		// Test de l'existence du modèle en base
 		boolean dbModelOk = modelMgr.tablesExist();
@@ -858,9 +858,10 @@ public class DatabaseUI implements ModifyListener {
 									parent.getShell(),
 									Strings.getString("DatabaseUI.labels.CONFIRMATION"), //$NON-NLS-1$
 									Strings.getString("DatabaseUI.questions.OVERWRITE_CONFIRMATION"))) { //$NON-NLS-1$
-				FileOutputStream out = new FileOutputStream(xmlFile);
-				modelMgr.exportToXML(out);
-				out.close();
+				// Les fichiers '.gz' sont compressés
+				try (FileOutputStream out = new FileOutputStream(xmlFile)) {
+					modelMgr.exportToXML(out, fileName.toLowerCase().endsWith(".gz")); //$NON-NLS-1$
+				}
 				// Popup d'info de fin de traitement
 				MessageDialog
 						.openInformation(
@@ -917,7 +918,7 @@ public class DatabaseUI implements ModifyListener {
 			}
 			// Importation des données
 			FileInputStream in = new FileInputStream(xmlFile);
-			modelMgr.importFromXML(in);
+			modelMgr.importFromXML(in, true);
 			in.close();
 			// Notification de fikn de chargement (équivalent ouverture BDD)
 			Iterator<IDbStatusListener> it = listeners.iterator();
@@ -36,6 +36,7 @@ import java.sql.SQLException;
 import org.activitymgr.core.dto.IDTOFactory;
 import org.activitymgr.core.model.CoreModelModule;
 import org.activitymgr.core.model.IModelMgr;
+import org.activitymgr.core.model.ModelCaches;
 import org.activitymgr.core.util.Strings;
 import org.activitymgr.ui.rcp.DatabaseUI.IDbStatusListener;
 import org.activitymgr.ui.rcp.util.UITechException;
@@ -214,6 +215,7 @@ public class MainView extends ViewPart {
 						// Release the transaction
 						dbTxs.remove();
 						if (tx != null) {
+							injector.getInstance(ModelCaches.class).transactionEnded(tx);
 							tx.close();
 						}
 					}
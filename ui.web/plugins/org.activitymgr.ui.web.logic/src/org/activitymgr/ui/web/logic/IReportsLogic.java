@@ -22,6 +22,8 @@ public interface IReportsLogic extends ILogic<IReportsLogic.View> {
 
 	void onIntervalCountChanged(int intervalCount);
 
+	void onPoll();
+
 	public interface View extends ILogic.IView<IReportsLogic> {
 		
 		void initialize(boolean advancedMode);
@@ -64,6 +66,17 @@ public interface IReportsLogic extends ILogic<IReportsLogic.View> {
 
 		void setRowContentConfigurationEnabled(boolean includeTaskAttrs);
 
+		void setReportJobStatus(String status);
+
+		/**
+		 * Enables the polling (the logic is notified periodically).
+		 * 
+		 * @param interval
+		 *            the polling interval in milliseconds (<code>-1</code>
+		 *            disables the polling).
+		 */
+		void setPollInterval(int interval);
+
 
 	}
 
@@ -12,11 +12,15 @@ import java.util.Properties;
 
 import javax.sql.DataSource;
 
+import org.activitymgr.core.dao.AbstractDAOImpl;
+import org.activitymgr.core.dao.CoreDAOModule;
 import org.activitymgr.core.dto.Collaborator;
 import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.model.CoreModelModule;
 import org.activitymgr.core.model.IModelMgr;
 import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.util.DataSourceHelper;
+import org.activitymgr.core.util.InstrumentedDataSource;
 import org.activitymgr.ui.web.logic.impl.CollaboratorsCellLogicFatory;
 import org.activitymgr.ui.web.logic.impl.ContributionsCellLogicFatory;
 import org.activitymgr.ui.web.logic.impl.TasksCellLogicFatory;
@@ -26,6 +30,7 @@ import org.activitymgr.ui.web.logic.impl.internal.ContributionsTabLogicImpl;
 import org.activitymgr.ui.web.logic.impl.internal.CopyTaskPathButtonLogic;
 import org.activitymgr.ui.web.logic.impl.internal.DefaultConstraintsValidator;
 import org.activitymgr.ui.web.logic.impl.internal.NewContributionTaskButtonLogic;
+import org.activitymgr.ui.web.logic.impl.internal.ReportJobManager;
 import org.activitymgr.ui.web.logic.impl.internal.ReportsTabLogicImpl;
 import org.activitymgr.ui.web.logic.impl.internal.TasksTabLogicImpl;
 import org.activitymgr.ui.web.logic.impl.internal.ThreadLocalizedDbTransactionProviderImpl;
@@ -47,9 +52,13 @@ import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
 import com.google.inject.multibindings.MapBinder;
 import com.google.inject.multibindings.Multibinder;
+import com.google.inject.name.Names;
 
 public class LogicModule extends AbstractModule {
 
+	/** Default wait time for a parallel report connection (ms) */
+	private static final long DEFAULT_REPORT_POOL_MAX_WAIT = 1000;
+
 	private static final IFeatureAccessManager DEFAULT_FEATURE_ACCESS_MANAGER = new IFeatureAccessManager() {
 		@Override
 		public boolean hasAccessToTab(Collaborator collaborator, String tab) {
@@ -90,12 +99,51 @@ public class LogicModule extends AbstractModule {
 
 		// Install core module
 		install(new CoreModelModule());
+		bindConstant().annotatedWith(Names.named(CoreDAOModule.FETCH_SIZE)).to(
+				cfg.getInt("activitymgr.jdbc.fetchSize", AbstractDAOImpl.DEFAULT_FETCH_SIZE));
+		bindConstant().annotatedWith(Names.named(CoreModelModule.DAO_BATCH_SIZE)).to(
+				cfg.getInt("activitymgr.jdbc.batchSize", CoreModelModule.DEFAULT_DAO_BATCH_SIZE));
+		bindConstant().annotatedWith(Names.named(CoreModelModule.REPORT_ENGINE)).to(
+				cfg.get("activitymgr.report.engine", CoreModelModule.SQL_REPORT_ENGINE));
+		int reportParallelism = cfg.getInt("activitymgr.report.parallelism", CoreModelModule.DEFAULT_REPORT_PARALLELISM);
+		bindConstant().annotatedWith(Names.named(CoreModelModule.REPORT_PARALLELISM)).to(reportParallelism);
+		bindConstant().annotatedWith(Names.named(CoreModelModule.REPORT_CACHE_SIZE)).to(
+				cfg.getInt("activitymgr.report.cacheSize", CoreModelModule.DEFAULT_REPORT_CACHE_SIZE));
+		bindConstant().annotatedWith(Names.named(CoreModelModule.REPORT_CACHE_MAX_AGE)).to(
+				cfg.getInt("activitymgr.report.cacheMaxAge", CoreModelModule.DEFAULT_REPORT_CACHE_MAX_AGE));
+		bindConstant().annotatedWith(Names.named(CoreModelModule.REPORT_STATISTICS_MAX_AGE)).to(
+				cfg.getInt("activitymgr.report.statisticsMaxAge", CoreModelModule.DEFAULT_REPORT_STATISTICS_MAX_AGE));
+		bindConstant().annotatedWith(Names.named(CoreModelModule.REPORT_MAX_COLUMNS)).to(
+				cfg.getInt("activitymgr.report.maxColumns", CoreModelModule.DEFAULT_REPORT_MAX_COLUMNS));
+		bindConstant().annotatedWith(Names.named(CoreModelModule.TASK_CACHE_SIZE)).to(
+				cfg.getInt("activitymgr.task.cacheSize", CoreModelModule.DEFAULT_TASK_CACHE_SIZE));
+		bindConstant().annotatedWith(Names.named(CoreModelModule.TASK_CACHE_MAX_AGE)).to(
+				cfg.getInt("activitymgr.task.cacheMaxAge", CoreModelModule.DEFAULT_TASK_CACHE_MAX_AGE));
+		bindConstant().annotatedWith(Names.named(CoreModelModule.REFERENCE_DATA_CACHE_ENABLED)).to(
+				cfg.getBoolean("activitymgr.referenceData.cacheEnabled", CoreModelModule.DEFAULT_REFERENCE_DATA_CACHE_ENABLED));
+		bindConstant().annotatedWith(Names.named(CoreModelModule.REFERENCE_DATA_CACHE_MAX_AGE)).to(
+				cfg.getInt("activitymgr.referenceData.cacheMaxAge", CoreModelModule.DEFAULT_REFERENCE_DATA_CACHE_MAX_AGE));
+		bindConstant().annotatedWith(Names.named(CoreModelModule.TASK_LOCK_TIMEOUT)).to(
+				cfg.getInt("activitymgr.task.lockTimeout", CoreModelModule.DEFAULT_TASK_LOCK_TIMEOUT));
 		
 		// Create the datasource
-		final ThreadLocalizedDbTransactionProviderImpl dbTxProvider = new ThreadLocalizedDbTransactionProviderImpl(createDataSource(cfg));
+		InstrumentedDataSource dataSource = createDataSource(cfg);
+		bind(DataSource.class).toInstance(dataSource);
+		bind(InstrumentedDataSource.class).toInstance(dataSource);
+		final ThreadLocalizedDbTransactionProviderImpl dbTxProvider = new ThreadLocalizedDbTransactionProviderImpl(dataSource);
 		bind(ThreadLocalizedDbTransactionProviderImpl.class).toInstance(dbTxProvider);
 		bind(Connection.class).toProvider(() -> dbTxProvider.get().getTx());
 		
+		// Dedicated datasource for the parallel reports (the partitions
+		// connections are tracked like the report job connection)
+		if (reportParallelism > 1) {
+			bind(DataSource.class).annotatedWith(Names.named(CoreModelModule.REPORT_DATA_SOURCE)).toInstance(
+					dbTxProvider.wrap(createReportDataSource(cfg, reportParallelism)));
+		}
+
+		// Background report jobs
+		bind(ReportJobManager.class).in(Singleton.class);
+		
 		// Default SPI implementations
 		bind(IFeatureAccessManager.class).toInstance(DEFAULT_FEATURE_ACCESS_MANAGER);
 		bind(IAuthenticatorExtension.class).to(DefaultAuthenticatorExtension.class).in(Singleton.class);
@@ -136,16 +184,47 @@ public class LogicModule extends AbstractModule {
 		cvBinder.addBinding().to(DefaultConstraintsValidator.class);
 	}
 	
-	private DataSource createDataSource(IConfiguration cfg) {
-		BasicDataSource datasource = new BasicDataSource();
+	private InstrumentedDataSource createDataSource(IConfiguration cfg) {
 		IConfiguration jdbcCfg = cfg.getScoped("activitymgr.jdbc", null);
-		datasource.setDriverClassName(jdbcCfg.get("driver", "com.mysql.jdbc.Driver"));
-		datasource.setUrl(jdbcCfg.get("url", "jdbc:mysql://localhost:3306/taskmgr_db"));
-		datasource.setUsername(jdbcCfg.get("user", "taskmgr"));
-		datasource.setPassword(jdbcCfg.get("password", "taskmgr"));
-		datasource.setDefaultAutoCommit(false);
+		// Pool settings (activitymgr.jdbc.pool.maxActive, ...), see DataSourceHelper
+		IConfiguration poolCfg = jdbcCfg.getScoped("pool", null);
+		BasicDataSource datasource = DataSourceHelper.createDataSource(
+				jdbcCfg.get("driver", "com.mysql.jdbc.Driver"),
+				jdbcCfg.get("url", "jdbc:mysql://localhost:3306/taskmgr_db"),
+				jdbcCfg.get("user", "taskmgr"),
+				jdbcCfg.get("password", "taskmgr"),
+				poolCfg::get);
+		return new InstrumentedDataSource(datasource);
+	}
 
-		return datasource;
+	private DataSource createReportDataSource(IConfiguration cfg, int parallelism) {
+		IConfiguration jdbcCfg = cfg.getScoped("activitymgr.jdbc", null);
+		// Pool settings (activitymgr.report.pool.maxActive, ...) : the pool is
+		// bounded by the parallelism and the report is built with a single
+		// request if no connection is available promptly
+		IConfiguration poolCfg = cfg.getScoped("activitymgr.report.pool", null);
+		return DataSourceHelper.createDataSource(
+				jdbcCfg.get("driver", "com.mysql.jdbc.Driver"),
+				jdbcCfg.get("url", "jdbc:mysql://localhost:3306/taskmgr_db"),
+				jdbcCfg.get("user", "taskmgr"),
+				jdbcCfg.get("password", "taskmgr"),
+				key -> {
+					String value = poolCfg.get(key);
+					if (value == null) {
+						switch (key) {
+						case "maxActive":
+							value = String.valueOf(parallelism);
+							break;
+						case "minIdle":
+							value = "0";
+							break;
+						case "maxWait":
+							value = String.valueOf(DEFAULT_REPORT_POOL_MAX_WAIT);
+							break;
+						}
+					}
+					return value;
+				});
 	}
 
 	private boolean attempToLoadConfiguration(Properties props, File cfgFolder) {
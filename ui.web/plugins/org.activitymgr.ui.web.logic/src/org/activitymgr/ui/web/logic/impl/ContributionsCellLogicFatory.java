@@ -17,6 +17,7 @@ import org.activitymgr.core.dto.misc.IntervalContributions;
 import org.activitymgr.core.dto.misc.TaskContributions;
 import org.activitymgr.core.model.IModelMgr;
 import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.util.EpochDays;
 import org.activitymgr.core.util.StringFormatException;
 import org.activitymgr.core.util.StringHelper;
 import org.activitymgr.ui.web.logic.Align;
@@ -181,12 +182,9 @@ public class ContributionsCellLogicFatory implements IContributionsCellLogicFact
 		// Recherche des taches déclarées pour cet utilisateur pour:
 		//  - la semaine courante
 		//  - la semaine passée pour réafficher automatiquement
-		Calendar fromDate = (Calendar) firstDayOfWeek.clone();
-		fromDate.add(Calendar.DATE, -7);
-		Calendar toDate = (Calendar) firstDayOfWeek.clone();
-		toDate.add(Calendar.DATE, 6);
+		int monday = EpochDays.of(firstDayOfWeek);
 		IntervalContributions intervalContributions = modelMgr.getIntervalContributions(contributor, null, 
-				fromDate, toDate);
+				monday - 7, monday + 6);
 		TaskContributions[] weekContributions = intervalContributions.getTaskContributions();
 		
 		// The result contains the contributions of the previous
@@ -3,21 +3,37 @@ package org.activitymgr.ui.web.logic.impl.internal;
 import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.util.Stack;
+import java.util.function.UnaryOperator;
 
 public class DbTransactionContext {
 	
 	private Connection tx;
 	
+	private UnaryOperator<Connection> connectionWrapper;
+	
 	private Stack<Method> calls = new Stack<Method>();
 	
 	public DbTransactionContext(Connection con) {
-		tx = con;
+		this(con, UnaryOperator.identity());
+	}
+	
+	public DbTransactionContext(Connection con, UnaryOperator<Connection> connectionWrapper) {
+		this.tx = connectionWrapper.apply(con);
+		this.connectionWrapper = connectionWrapper;
 	}
 	
 	public Connection getTx() {
 		return tx;
 	}
 	
+	/**
+	 * @return the wrapper applied to the context connection (also applied to
+	 *         the other connections used on behalf of this context).
+	 */
+	public UnaryOperator<Connection> getConnectionWrapper() {
+		return connectionWrapper;
+	}
+	
 	public Stack<Method> getCalls() {
 		return calls;
 	}
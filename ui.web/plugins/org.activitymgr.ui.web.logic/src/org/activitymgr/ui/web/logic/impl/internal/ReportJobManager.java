@@ -0,0 +1,450 @@
+package org.activitymgr.ui.web.logic.impl.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.util.ISheetWriter;
+import org.activitymgr.core.util.XLSXWriter;
+import org.activitymgr.ui.web.logic.IConfiguration;
+import org.apache.log4j.Logger;
+
+import com.google.inject.Inject;
+
+/**
+ * Background report jobs manager.
+ * <p>
+ * Reports are built by a bounded pool of worker threads, each job using its
+ * own database connection (and not the one of the UI request that submitted
+ * it). Results are written in XLSX format in temporary files that are kept
+ * until they expire.
+ * </p>
+ * <p>
+ * The configuration keys (prefixed by <code>activitymgr.report.jobs.</code>)
+ * are :
+ * <ul>
+ * <li><code>threads</code> : the number of worker threads,</li>
+ * <li><code>queueSize</code> : the maximum number of pending jobs,</li>
+ * <li><code>maxPerUser</code> : the maximum number of pending or running jobs
+ * per user,</li>
+ * <li><code>retention</code> : the time (in minutes) during which a finished
+ * job and its result are kept,</li>
+ * <li><code>dir</code> : the temporary files directory.</li>
+ * </ul>
+ * </p>
+ */
+public class ReportJobManager {
+
+	/** Logger */
+	private static Logger log = Logger.getLogger(ReportJobManager.class);
+
+	/** Job status */
+	public static enum Status {
+		QUEUED, RUNNING, DONE, FAILED, CANCELLED
+	}
+
+	/**
+	 * Report job task.
+	 */
+	public static interface IReportJobTask {
+
+		/**
+		 * Writes the report.
+		 *
+		 * @param out
+		 *            the sheet writer.
+		 * @throws ModelException
+		 *             thrown if a model violation occurs.
+		 * @throws IOException
+		 *             thrown if an I/O error occurs.
+		 */
+		void run(ISheetWriter out) throws ModelException, IOException;
+
+	}
+
+	/** Thread counter (used to name the threads) */
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	/** Transaction provider */
+	@Inject
+	private ThreadLocalizedDbTransactionProviderImpl dbTxProvider;
+
+	/** Executor */
+	private final ThreadPoolExecutor executor;
+
+	/** Max running or pending jobs per user */
+	private final int maxPerUser;
+
+	/** Finished jobs retention (in milliseconds) */
+	private final long retention;
+
+	/** Temporary files directory */
+	private final File dir;
+
+	/** Jobs by identifier */
+	private final Map<String, ReportJob> jobs = new ConcurrentHashMap<String, ReportJob>();
+
+	@Inject
+	public ReportJobManager(IConfiguration cfg) {
+		IConfiguration jobsCfg = cfg.getScoped("activitymgr.report.jobs", null);
+		int threads = jobsCfg.getInt("threads", 2);
+		executor = new ThreadPoolExecutor(threads, threads, 0L,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+						jobsCfg.getInt("queueSize", 20)), r -> {
+					Thread thread = new Thread(r, "report-job-"
+							+ THREAD_COUNTER.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		maxPerUser = jobsCfg.getInt("maxPerUser", 2);
+		retention = jobsCfg.getInt("retention", 60) * 60000l;
+		dir = new File(jobsCfg.get("dir", System.getProperty("java.io.tmpdir")));
+	}
+
+	/**
+	 * Submits a report job.
+	 *
+	 * @param ownerId
+	 *            the identifier of the collaborator that submits the job.
+	 * @param columnCount
+	 *            the number of columns preceding the contributions columns.
+	 * @param task
+	 *            the task that writes the report.
+	 * @return the job.
+	 * @throws ModelException
+	 *             thrown if the user already has too many jobs or if the
+	 *             queue is full.
+	 */
+	public synchronized ReportJob submit(long ownerId, int columnCount,
+			IReportJobTask task) throws ModelException {
+		purge();
+		int userJobs = 0;
+		for (ReportJob job : jobs.values()) {
+			if (job.ownerId == ownerId && !job.isFinished()) {
+				userJobs++;
+			}
+		}
+		if (userJobs >= maxPerUser) {
+			throw new ModelException("Too many reports are already being built (max=" + maxPerUser + ")");
+		}
+		ReportJob job = new ReportJob(ownerId, columnCount, task);
+		try {
+			job.future = executor.submit(() -> execute(job));
+		} catch (RejectedExecutionException e) {
+			throw new ModelException("The reports queue is full, please retry later");
+		}
+		jobs.put(job.id, job);
+		log.info("Report job " + job.id + " submitted by collaborator " + ownerId);
+		return job;
+	}
+
+	/**
+	 * Returns a job.
+	 *
+	 * @param id
+	 *            the job identifier.
+	 * @return the job or <code>null</code> if it doesn't exist (or has
+	 *         expired).
+	 */
+	public ReportJob getJob(String id) {
+		purge();
+		return id != null ? jobs.get(id) : null;
+	}
+
+	/**
+	 * Cancels a job.
+	 * <p>
+	 * A pending job is simply removed from the queue. The statements of a
+	 * running job are cancelled, and the job stops before writing the next
+	 * row.
+	 * </p>
+	 *
+	 * @param job
+	 *            the job to cancel.
+	 */
+	public void cancel(ReportJob job) {
+		synchronized (job) {
+			if (job.isFinished()) {
+				return;
+			}
+			job.cancelled = true;
+			if (job.status == Status.QUEUED) {
+				job.future.cancel(false);
+				executor.remove((Runnable) job.future);
+				job.finish(Status.CANCELLED, null);
+				return;
+			}
+		}
+		job.cancelStatements();
+	}
+
+	/**
+	 * Removes the expired jobs (and deletes their result).
+	 */
+	private void purge() {
+		long now = System.currentTimeMillis();
+		for (Iterator<ReportJob> it = jobs.values().iterator(); it.hasNext();) {
+			ReportJob job = it.next();
+			if (job.isFinished() && now - job.endTime > retention) {
+				it.remove();
+				if (job.file != null) {
+					job.file.delete();
+				}
+			}
+		}
+	}
+
+	private void execute(ReportJob job) {
+		synchronized (job) {
+			if (job.status != Status.QUEUED) {
+				return;
+			}
+			job.status = Status.RUNNING;
+		}
+		boolean ctxReleased = true;
+		File file = null;
+		try {
+			DbTransactionContext ctx = dbTxProvider.newCtx(job::track);
+			ctxReleased = false;
+			// Reports are read only (which also allows to build them with
+			// several connections, see the report parallelism)
+			ctx.getTx().setReadOnly(true);
+			file = File.createTempFile("am-report-", ".xlsx", dir);
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+				XLSXWriter xlsx = new XLSXWriter(out, "Report");
+				xlsx.createFreezePane(job.columnCount, 1);
+				job.task.run(new ProgressSheetWriter(job, xlsx));
+				xlsx.finish();
+			}
+			// Reports are read only
+			ctx.getTx().rollback();
+			dbTxProvider.release();
+			ctxReleased = true;
+			job.finish(Status.DONE, file);
+			log.info("Report job " + job.id + " done in "
+					+ (job.endTime - job.startTime) + " ms");
+		} catch (Throwable t) {
+			if (file != null) {
+				file.delete();
+			}
+			if (job.cancelled) {
+				log.info("Report job " + job.id + " cancelled");
+				job.finish(Status.CANCELLED, null);
+			} else {
+				log.error("Report job " + job.id + " failed", t);
+				job.message = t.getMessage();
+				job.finish(Status.FAILED, null);
+			}
+		} finally {
+			if (!ctxReleased) {
+				// Release the transaction (last attempt to close)
+				try {
+					dbTxProvider.release();
+				} catch (Throwable ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Report job.
+	 */
+	public static class ReportJob {
+
+		private final String id = UUID.randomUUID().toString();
+
+		private final long ownerId;
+
+		private final int columnCount;
+
+		private final IReportJobTask task;
+
+		private final long startTime = System.currentTimeMillis();
+
+		private final Set<Statement> statements = Collections
+				.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Statement, Boolean>()));
+
+		private volatile Future<?> future;
+
+		private volatile Status status = Status.QUEUED;
+
+		private volatile boolean cancelled;
+
+		private volatile int rowCount;
+
+		private volatile int writtenRows;
+
+		private volatile String message;
+
+		private volatile File file;
+
+		private volatile long endTime;
+
+		ReportJob(long ownerId, int columnCount, IReportJobTask task) {
+			this.ownerId = ownerId;
+			this.columnCount = columnCount;
+			this.task = task;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public long getOwnerId() {
+			return ownerId;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return the progress (in percent) or <code>-1</code> if it is not
+		 *         known yet (the report data is being retrieved).
+		 */
+		public int getProgress() {
+			int count = rowCount;
+			return count > 0 ? writtenRows * 100 / count : -1;
+		}
+
+		/**
+		 * @return the error message if the job has failed.
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		/**
+		 * @return the result file if the job is done.
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		public boolean isFinished() {
+			Status s = status;
+			return s == Status.DONE || s == Status.FAILED || s == Status.CANCELLED;
+		}
+
+		private synchronized void finish(Status status, File file) {
+			this.file = file;
+			this.endTime = System.currentTimeMillis();
+			this.status = status;
+			statements.clear();
+		}
+
+		/**
+		 * Wraps the job connection in order to track the statements it
+		 * creates.
+		 */
+		private Connection track(Connection con) {
+			return (Connection) Proxy.newProxyInstance(
+					ReportJobManager.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+						try {
+							Object result = method.invoke(con, args);
+							if (result instanceof Statement) {
+								statements.add((Statement) result);
+							}
+							return result;
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+
+		private void cancelStatements() {
+			List<Statement> toCancel;
+			synchronized (statements) {
+				toCancel = new ArrayList<Statement>(statements);
+			}
+			for (Statement stmt : toCancel) {
+				try {
+					if (!stmt.isClosed()) {
+						stmt.cancel();
+					}
+				} catch (SQLException e) {
+					log.debug("Statement cancellation failure", e);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Sheet writer that tracks the job progress, stops the job if it is
+	 * cancelled, and sets the contributions columns width once the header
+	 * has been written.
+	 */
+	private static class ProgressSheetWriter implements ISheetWriter {
+
+		private final ReportJob job;
+
+		private final XLSXWriter out;
+
+		private int headerCells;
+
+		ProgressSheetWriter(ReportJob job, XLSXWriter out) {
+			this.job = job;
+			this.out = out;
+		}
+
+		@Override
+		public void setRowCount(int rowCount) throws IOException {
+			job.rowCount = rowCount;
+		}
+
+		@Override
+		public void newRow() throws IOException {
+			if (job.cancelled) {
+				throw new CancellationException();
+			}
+			if (job.writtenRows == 1) {
+				for (int i = job.columnCount; i < headerCells; i++) {
+					out.setColumnWidth(i, 1900);
+				}
+			}
+			out.newRow();
+			job.writtenRows++;
+		}
+
+		@Override
+		public void addCell(Style style, Object value) throws IOException {
+			if (job.writtenRows == 1) {
+				headerCells++;
+			}
+			out.addCell(style, value);
+		}
+
+		@Override
+		public void skipCell() throws IOException {
+			out.skipCell();
+		}
+
+	}
+
+}
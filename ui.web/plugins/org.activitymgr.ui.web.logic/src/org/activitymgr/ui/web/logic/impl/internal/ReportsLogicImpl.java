@@ -31,7 +31,6 @@ package org.activitymgr.ui.web.logic.impl.internal;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -47,28 +46,29 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
 import java.util.stream.Stream;
 
 import org.activitymgr.core.dto.Collaborator;
 import org.activitymgr.core.dto.IDTOFactory;
 import org.activitymgr.core.dto.Task;
+import org.activitymgr.core.dto.report.ReportEstimate;
 import org.activitymgr.core.dto.report.ReportIntervalType;
+import org.activitymgr.core.model.IModelMgr;
 import org.activitymgr.core.model.ModelException;
 import org.activitymgr.core.util.DateHelper;
 import org.activitymgr.core.util.StringHelper;
-import org.activitymgr.ui.web.logic.IDownloadButtonLogic;
+import org.activitymgr.ui.web.logic.IConfiguration;
 import org.activitymgr.ui.web.logic.IReportsLogic;
 import org.activitymgr.ui.web.logic.IStandardButtonLogic;
 import org.activitymgr.ui.web.logic.impl.AbstractLogicImpl;
-import org.activitymgr.ui.web.logic.impl.AbstractSafeDownloadButtonLogicImpl;
 import org.activitymgr.ui.web.logic.impl.AbstractSafeStandardButtonLogicImpl;
 import org.activitymgr.ui.web.logic.impl.AbstractSafeTwinSelectFieldLogic;
 import org.activitymgr.ui.web.logic.impl.AbstractSafeTwinSelectFieldLogic.IDTOInfosProvider;
 import org.activitymgr.ui.web.logic.impl.ExternalContentDialogLogicImpl;
+import org.activitymgr.ui.web.logic.impl.internal.ReportJobManager.ReportJob;
 import org.activitymgr.ui.web.logic.impl.internal.services.AbstractReportServiceLogic;
+import org.activitymgr.ui.web.logic.impl.internal.services.ReportJobServiceLogic;
 import org.apache.commons.beanutils.BeanUtils;
-import org.apache.poi.ss.usermodel.Workbook;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -105,6 +105,11 @@ public class ReportsLogicImpl extends AbstractLogicImpl<IReportsLogic.View>
 
 	private static final String SERVICE_REPORT_HTML_URI = "/service/report/html";
 
+	private static final String SERVICE_REPORT_JOB_URI = "/service/report/job";
+
+	/** Report jobs status polling interval (in milliseconds) */
+	private static final int REPORT_JOB_POLL_INTERVAL = 1000;
+
 	private static final SimpleDateFormat YYYYMMDD_SDF = new SimpleDateFormat("yyyyMMdd");
 
 	private static final String TASK = Task.class.getSimpleName().toLowerCase();
@@ -152,6 +157,18 @@ public class ReportsLogicImpl extends AbstractLogicImpl<IReportsLogic.View>
 	@Inject
 	private IDTOFactory dtoFactory;
 
+	@Inject
+	private ReportJobManager jobManager;
+
+	@Inject
+	private IConfiguration configuration;
+
+	/** Estimated duration above which a warning is displayed (in seconds) */
+	private final int reportWarningDuration;
+
+	/** Estimated duration above which a report is refused (in seconds) */
+	private final int reportMaxDuration;
+
 	private ReportIntervalType intervalType = ReportIntervalType.MONTH;
 
 	private ReportIntervalBoundsMode intervalBoundsMode = ReportIntervalBoundsMode.AUTOMATIC;
@@ -176,7 +193,11 @@ public class ReportsLogicImpl extends AbstractLogicImpl<IReportsLogic.View>
 	
 	private boolean onlyKeepTaskWithContributions;
 
-	private IDownloadButtonLogic download;
+	private IStandardButtonLogic build;
+
+	private IStandardButtonLogic cancel;
+
+	private ReportJob job;
 
 	private boolean advancedMode;
 
@@ -194,6 +215,9 @@ public class ReportsLogicImpl extends AbstractLogicImpl<IReportsLogic.View>
 			final boolean advancedMode) {
 		super(parent);
 		this.advancedMode = advancedMode;
+		IConfiguration reportCfg = configuration.getScoped("activitymgr.report", null);
+		reportWarningDuration = reportCfg.getInt("warningDuration", 30);
+		reportMaxDuration = reportCfg.getInt("maxDuration", 600);
 
 		// Initialize view
 		getView().initialize(advancedMode);
@@ -266,12 +290,16 @@ public class ReportsLogicImpl extends AbstractLogicImpl<IReportsLogic.View>
 		dialogPreview = createReportButton("Preview (dialog)", 
 				() -> showPreview(false));
 		
-		download = createFileReportButton("Build report",
-				out -> buildReport(false).write(out),
-				() -> "am-report-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + ".xls");
+		// Reports are built in background
+		build = createReportButton("Build report", 
+				() -> submitReportJob());
+		cancel = createReportButton("Cancel report", 
+				() -> cancelReportJob());
+		cancel.getView().setEnabled(false);
 		
 		Stream.of(
-			download, 
+			build, 
+			cancel, 
 			dialogPreview, 
 			fullPreview, 
 			reset)
@@ -290,23 +318,7 @@ public class ReportsLogicImpl extends AbstractLogicImpl<IReportsLogic.View>
 		};
 	}
 	
-	private IDownloadButtonLogic createFileReportButton(String label, ContextExec<OutputStream> task, Callable<String> filename) {
-		return new AbstractSafeDownloadButtonLogicImpl(
-				this, label, null, null) {
-			@Override
-			protected byte[] unsafeGetContent() throws Exception {
-				ByteArrayOutputStream out = new ByteArrayOutputStream();
-				task.accept(out);
-				return out.toByteArray();
-			}
-			@Override
-			protected String unsafeGetFileName() throws Exception {
-				return filename.call();
-			}
-		};
-	}
 
-	
 	private void restoreDefaultValues() {
 		intervalType = ReportIntervalType.MONTH;
 		intervalBoundsMode = ReportIntervalBoundsMode.AUTOMATIC;
@@ -701,7 +713,8 @@ public class ReportsLogicImpl extends AbstractLogicImpl<IReportsLogic.View>
 
 			getView().setOnlyKeepTaskWithContributions(
 					onlyKeepTaskWithContributions);
-			buildReport(true);
+			// Cost estimate (also validates the configuration)
+			checkReportCost();
 			setReportButtonsEnabled(true);
 			// Notify
 			onReportConfigurationChanged(toJson());
@@ -721,14 +734,94 @@ public class ReportsLogicImpl extends AbstractLogicImpl<IReportsLogic.View>
 	}
 
 	private void setReportButtonsEnabled(boolean enabled) {
-		download.getView().setEnabled(enabled);
+		build.getView().setEnabled(enabled);
 		dialogPreview.getView().setEnabled(enabled);
 		fullPreview.getView().setEnabled(enabled);
 	}
 
-	private Workbook buildReport(boolean dryRun) throws ModelException {
+	private void submitReportJob() throws ModelException {
+		ReportParameters params = prepareReportParameters();
+		Calendar start = (Calendar) this.start.clone();
+		String[] columnIds = params.getColumnIds().toArray(String[]::new);
+		// The report is built by a worker thread (which has its own
+		// transaction)
+		IModelMgr modelMgr = getModelMgr();
+		job = jobManager.submit(
+				getContext().getConnectedCollaborator().getId(),
+				columnIds.length,
+				out -> modelMgr.buildReport(
+						start, // Start date
+						params.getIntervalType(), // Interval type
+						params.getIntervalCount(), // Interval count
+						params.getRootTaskId(), // Root task id
+						params.getTaskDepth(), // Task tree depth
+						// Only keep tasks  with contributions
+						params.isOnlyKeepTasksWithContributions(),
+						// Include collaborators
+						params.isByContributor(),
+						// Collaborators centric  mode
+						params.isContributorCentricMode(),
+						params.getContributorIds(), // Contributor ids
+						columnIds, // Column ids
+						true, out));
+		cancel.getView().setEnabled(true);
+		getView().setPollInterval(REPORT_JOB_POLL_INTERVAL);
+		updateReportJobStatus();
+	}
+
+	private void cancelReportJob() {
+		if (job != null) {
+			jobManager.cancel(job);
+			updateReportJobStatus();
+		}
+	}
+
+	@Override
+	public void onPoll() {
+		if (job != null) {
+			updateReportJobStatus();
+		}
+	}
+
+	private void updateReportJobStatus() {
+		switch (job.getStatus()) {
+		case QUEUED:
+			getView().setReportJobStatus("Report queued...");
+			break;
+		case RUNNING:
+			int progress = job.getProgress();
+			getView().setReportJobStatus(progress < 0 ? "Retrieving report data..."
+					: "Writing report (" + progress + "%)...");
+			break;
+		case DONE:
+			getView().setReportJobStatus("");
+			getRoot().getView().openExternalUrl(
+					SERVICE_REPORT_JOB_URI + "?"
+							+ ReportJobServiceLogic.JOB_ID_PARAMETER + "="
+							+ job.getId() + "&v-uiId=0");
+			break;
+		case FAILED:
+			getView().setReportJobStatus("");
+			getView().setErrorMessage(job.getMessage());
+			break;
+		case CANCELLED:
+			getView().setReportJobStatus("Report cancelled");
+		}
+		if (job.isFinished()) {
+			job = null;
+			cancel.getView().setEnabled(false);
+			getView().setPollInterval(-1);
+		}
+	}
+
+	/**
+	 * Estimates the report cost from the database statistics (the
+	 * contributions are not requested), and refuses or warns about the
+	 * expensive reports.
+	 */
+	private void checkReportCost() throws ModelException {
 		ReportParameters params = prepareReportParameters();
-		Workbook report = getModelMgr().buildReport(
+		ReportEstimate estimate = getModelMgr().estimateReport(
 			start, // Start date
 			params.getIntervalType(), // Interval type
 			params.getIntervalCount(), // Interval count
@@ -741,10 +834,18 @@ public class ReportsLogicImpl extends AbstractLogicImpl<IReportsLogic.View>
 			 // Collaborators centric  mode
 			params.isContributorCentricMode(),
 			params.getContributorIds(), // Contributor ids
-			// Column ids
-			params.getColumnIds().toArray(String[]::new), 
-			true, dryRun);
-		return report;
+			params.getColumnIds().size(), // Column count
+			true);
+		String description = "about " + estimate.getRowCount() + " rows x "
+				+ estimate.getColumnCount() + " columns, "
+				+ Math.max(1, estimate.getDuration() / 1000) + "s";
+		if (estimate.getDuration() > reportMaxDuration * 1000l) {
+			throw new ModelException("Report is too large (" + description
+					+ "), try to reduce the interval or the task depth");
+		}
+		if (estimate.getDuration() > reportWarningDuration * 1000l) {
+			getView().setErrorMessage("Large report (" + description + ")");
+		}
 	}
 
 	private ReportParameters prepareReportParameters() throws ModelException {
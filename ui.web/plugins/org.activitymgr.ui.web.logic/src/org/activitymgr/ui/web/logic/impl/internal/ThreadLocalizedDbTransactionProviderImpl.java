@@ -1,9 +1,16 @@
 package org.activitymgr.ui.web.logic.impl.internal;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.function.UnaryOperator;
 
 import javax.sql.DataSource;
 
+import org.activitymgr.core.model.ModelCaches;
+
+import com.google.inject.Inject;
 import com.google.inject.Provider;
 
 public class ThreadLocalizedDbTransactionProviderImpl implements Provider<DbTransactionContext> {
@@ -12,23 +19,73 @@ public class ThreadLocalizedDbTransactionProviderImpl implements Provider<DbTran
 
 	private ThreadLocal<DbTransactionContext> transactions = new ThreadLocal<DbTransactionContext>();
 
+	/** Model caches (notified of the transactions end) */
+	@Inject
+	private ModelCaches modelCaches;
+
 	public ThreadLocalizedDbTransactionProviderImpl(DataSource ds) {
 		this.ds = ds;
 	}
 
 	public DbTransactionContext newCtx() throws SQLException {
+		return newCtx(UnaryOperator.identity());
+	}
+
+	/**
+	 * Opens a database context for the current thread.
+	 * 
+	 * @param connectionWrapper
+	 *            wrapper applied to the connection (allows to track the
+	 *            statements in order to cancel them for example).
+	 * @return the database context.
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	public DbTransactionContext newCtx(UnaryOperator<Connection> connectionWrapper) throws SQLException {
 		DbTransactionContext dbTransactionContext = transactions.get();
 		if (dbTransactionContext != null) {
 			throw new IllegalStateException("Previous database context not released for the current thread");
 		}
-		dbTransactionContext = new DbTransactionContext(ds.getConnection());
+		dbTransactionContext = new DbTransactionContext(ds.getConnection(), connectionWrapper);
 		transactions.set(dbTransactionContext);
 		return dbTransactionContext;
 	}
 	
+	/**
+	 * Wraps a data source so that the connections borrowed by a thread having
+	 * a database context are wrapped like the context connection (the
+	 * statements of the parallel reports are tracked like those of the
+	 * report job for instance).
+	 * 
+	 * @param dataSource
+	 *            the data source to wrap.
+	 * @return the wrapped data source.
+	 */
+	public DataSource wrap(DataSource dataSource) {
+		return (DataSource) Proxy.newProxyInstance(
+				ThreadLocalizedDbTransactionProviderImpl.class.getClassLoader(),
+				new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+					try {
+						Object result = method.invoke(dataSource, args);
+						DbTransactionContext ctx = transactions.get();
+						if (result instanceof Connection && ctx != null) {
+							result = ctx.getConnectionWrapper().apply((Connection) result);
+						}
+						return result;
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
 	public void release() throws SQLException {
-		transactions.get().getTx().close();
-		transactions.remove();
+		Connection tx = transactions.get().getTx();
+		try {
+			tx.close();
+		} finally {
+			modelCaches.transactionEnded(tx);
+			transactions.remove();
+		}
 	}
 
 	@Override
@@ -1,6 +1,8 @@
 package org.activitymgr.ui.web.logic.impl.internal.services;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.text.NumberFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -10,10 +12,10 @@ import org.activitymgr.core.dto.Task;
 import org.activitymgr.core.dto.report.ReportIntervalType;
 import org.activitymgr.core.model.IModelMgr;
 import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.util.ISheetWriter;
 import org.activitymgr.ui.web.logic.IReportsTabLogic;
 import org.activitymgr.ui.web.logic.impl.AbstractServiceWithAuthenticationLogic;
 import org.activitymgr.ui.web.logic.spi.IFeatureAccessManager;
-import org.apache.poi.ss.usermodel.Workbook;
 
 import com.google.inject.Inject;
 
@@ -31,6 +33,11 @@ public abstract class AbstractReportServiceLogic extends
 	public static final String INTERVAL_TYPE_PARAMETER = "intervalType";
 	public static final String START_PARAMETER = "start";
 	public static final String OMIT_TOTALS_PARAMETER = "omitTotals";
+	public static final String DECIMAL_SEPARATOR_PARAMETER = "decimalSeparator";
+
+	protected static enum DecimalSeparator {
+		COMMA, DOT;
+	}
 
 	@Inject
 	private IModelMgr modelMgr;
@@ -46,106 +53,191 @@ public abstract class AbstractReportServiceLogic extends
 		boolean advancedParametersAllowed = featureAccessManager
 				.hasAccessToTab(connected, IReportsTabLogic.ADVANCED_REPORTS_ID);
 
-		Calendar start = null;
+		ReportBuilder report = new ReportBuilder();
 		String startParam = parameters.getParameter(START_PARAMETER);
 		if (startParam != null) {
 			SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
-			start = Calendar.getInstance();
+			report.start = Calendar.getInstance();
 			try {
-				start.setTime(sdf.parse(startParam));
+				report.start.setTime(sdf.parse(startParam));
 			} catch (ParseException e) {
 				throw new IllegalArgumentException("start date is invalid", e);
 			}
 		}
 
-		ReportIntervalType intervalType = ReportIntervalType.MONTH;
 		String intervalTypeParam = parameters.getParameter(INTERVAL_TYPE_PARAMETER);
 		if (intervalTypeParam != null) {
-			intervalType = ReportIntervalType.valueOf(intervalTypeParam);
+			report.intervalType = ReportIntervalType.valueOf(intervalTypeParam);
 		}
 
-		Integer intervalCount = null;
 		String intervalCountParam = parameters.getParameter(INTERVAL_COUNT_PARAMETER);
 		if (intervalCountParam != null) {
-			intervalCount = Integer.parseInt(intervalCountParam);
+			report.intervalCount = Integer.parseInt(intervalCountParam);
 		}
 
-		Long rootTaskId = null;
 		String rootTaskParam = parameters.getParameter(ROOT_TASK_PARAMETER);
 		if (rootTaskParam != null && !"".equals(rootTaskParam)) {
 			Task rootTask = modelMgr.getTaskByCodePath(rootTaskParam);
 			if (rootTask != null) {
-				rootTaskId = rootTask.getId();
+				report.rootTaskId = rootTask.getId();
 			}
 		}
 
-		int taskDepth = 1;
 		String taskDepthParam = parameters.getParameter(TASK_DEPTH_PARAMETER);
 		if (taskDepthParam != null) {
-			taskDepth = Integer.parseInt(taskDepthParam);
+			report.taskDepth = Integer.parseInt(taskDepthParam);
 		}
 
-		boolean onlyKeepTasksWithContributions = true;
 		if (advancedParametersAllowed) {
-			onlyKeepTasksWithContributions = !"false"
+			report.onlyKeepTasksWithContributions = !"false"
 					.equals(parameters
 							.getParameter(ONLY_KEEP_TASKS_WITH_CONTRIBUTIONS_PARAMETER));
 		}
 
-		boolean byContributor = false;
 		if (advancedParametersAllowed) {
 			String byContributorParam = parameters
 					.getParameter(BY_CONTRIBUTOR_PARAMETER);
-			byContributor = byContributorParam == null
+			report.byContributor = byContributorParam == null
 					|| "true".equals(byContributorParam);
 		}
 
-		boolean contributorCentricMode = false;
 		if (advancedParametersAllowed) {
-			contributorCentricMode = "true".equals(parameters
+			report.contributorCentricMode = "true".equals(parameters
 				.getParameter(CONTRIBUTOR_CENTRIC_MODE_PARAMETER));
 		}
 
-		long[] contributorIds = null;
 		String contributorIdsParam = parameters
 				.getParameter(CONTRIBUTOR_IDS_PARAMETERS);
 		if (!advancedParametersAllowed || contributorIdsParam == null) {
-			contributorIds = new long[] { connected.getId() };
+			report.contributorIds = new long[] { connected.getId() };
 		} else {
 			if (contributorIdsParam != null) {
 				if ("*".equals(contributorIdsParam)) {
-					contributorIds = null;
+					report.contributorIds = null;
 				} else {
 					String[] values = contributorIdsParam.split(",");
-					contributorIds = new long[values.length];
+					report.contributorIds = new long[values.length];
 					for (int i = 0; i < values.length; i++) {
-						contributorIds[i] = Long.parseLong(values[i]);
+						report.contributorIds[i] = Long.parseLong(values[i]);
 					}
 				}
 			}
 		}
 
-		String[] columnIds = null;
 		String columnIdStr = parameters.getParameter(COLUMN_IDS_PARAMETER);
 		if (!advancedParametersAllowed || columnIdStr == null
 				|| "".equals(columnIdStr.trim())) {
-			columnIds = new String[] { "task.path", "task.name" };
+			report.columnIds = new String[] { "task.path", "task.name" };
 		} else {
-			columnIds = parameters.getListParameter(COLUMN_IDS_PARAMETER);
+			report.columnIds = parameters.getListParameter(COLUMN_IDS_PARAMETER);
 		}
 
 		String omitTotalsParameter = parameters.getParameter(OMIT_TOTALS_PARAMETER);
-		boolean includeTotals = (omitTotalsParameter == null)
+		report.includeTotals = (omitTotalsParameter == null)
 				|| (!"true".equals(omitTotalsParameter));
 
-		Workbook xls = modelMgr.buildReport(start, intervalType, intervalCount,
-				rootTaskId, taskDepth, onlyKeepTasksWithContributions,
-				byContributor, contributorCentricMode, contributorIds,
-				columnIds, includeTotals, false);
-		doService(connected, parameters, response, xls);
+		doService(connected, parameters, response, report);
 	}
 
 	protected abstract void doService(Collaborator connected, Request request,
-			Response response, Workbook report) throws IOException;
+			Response response, ReportBuilder report) throws ModelException,
+			IOException;
+
+	/**
+	 * @param request
+	 *            the request.
+	 * @return the requested decimal separator or <code>null</code> if the
+	 *         default one must be used.
+	 */
+	protected static DecimalSeparator getDecimalSeparator(Request request) {
+		String decimalSeparatorParam = request
+				.getParameter(DECIMAL_SEPARATOR_PARAMETER);
+		DecimalSeparator decimalSeparator = null;
+		if (decimalSeparatorParam != null) {
+			decimalSeparator = DecimalSeparator.valueOf(decimalSeparatorParam
+					.trim().toUpperCase());
+		}
+		return decimalSeparator;
+	}
+
+	/**
+	 * Formats a number.
+	 * 
+	 * @param value
+	 *            the value to format.
+	 * @param decimalSeparator
+	 *            the decimal separator to use (optional).
+	 * @return the formatted number.
+	 */
+	protected static String format(double value,
+			DecimalSeparator decimalSeparator) {
+		String formatted = NumberFormat.getNumberInstance().format(value);
+		if (decimalSeparator != null) {
+			switch (decimalSeparator) {
+			case COMMA:
+				formatted = formatted.replace('.', ',');
+				break;
+			case DOT:
+				formatted = formatted.replace(',', '.');
+				break;
+			}
+		}
+		return formatted;
+	}
+
+	/**
+	 * Builds the report requested through the service parameters.
+	 */
+	protected class ReportBuilder {
+
+		private Calendar start;
+		private ReportIntervalType intervalType = ReportIntervalType.MONTH;
+		private Integer intervalCount;
+		private Long rootTaskId;
+		private int taskDepth = 1;
+		private boolean onlyKeepTasksWithContributions = true;
+		private boolean byContributor;
+		private boolean contributorCentricMode;
+		private long[] contributorIds;
+		private String[] columnIds;
+		private boolean includeTotals;
+
+		/**
+		 * Writes the report row by row.
+		 * 
+		 * @param out
+		 *            the sheet writer.
+		 * @throws ModelException
+		 *             thrown if a model violation occurs.
+		 * @throws IOException
+		 *             thrown if an I/O error occurs.
+		 */
+		public void toRows(ISheetWriter out) throws ModelException,
+				IOException {
+			modelMgr.buildReport(start, intervalType, intervalCount,
+					rootTaskId, taskDepth, onlyKeepTasksWithContributions,
+					byContributor, contributorCentricMode, contributorIds,
+					columnIds, includeTotals, out);
+		}
+
+		/**
+		 * Streams the report in Excel 2007 format.
+		 * 
+		 * @param out
+		 *            the output stream.
+		 * @throws ModelException
+		 *             thrown if a model violation occurs.
+		 * @throws IOException
+		 *             thrown if an I/O error occurs.
+		 */
+		public void toXLSX(OutputStream out) throws ModelException,
+				IOException {
+			modelMgr.buildXLSXReport(start, intervalType, intervalCount,
+					rootTaskId, taskDepth, onlyKeepTasksWithContributions,
+					byContributor, contributorCentricMode, contributorIds,
+					columnIds, includeTotals, false, out);
+		}
+
+	}
 
 }
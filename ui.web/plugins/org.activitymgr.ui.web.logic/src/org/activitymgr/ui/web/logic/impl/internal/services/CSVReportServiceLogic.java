@@ -0,0 +1,119 @@
+package org.activitymgr.ui.web.logic.impl.internal.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.util.ISheetWriter;
+
+public class CSVReportServiceLogic extends AbstractReportServiceLogic {
+
+	@Override
+	public String getPath() {
+		return "/report/csv";
+	}
+
+	@Override
+	protected void doService(Collaborator connected, Request request,
+			Response response, ReportBuilder report) throws ModelException,
+			IOException {
+		// With a comma as decimal separator, fields are separated by
+		// semicolons
+		DecimalSeparator decimalSeparator = getDecimalSeparator(request);
+		response.setContentType("text/csv; charset=UTF-8");
+		SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS");
+		String name = "am-report-" + sdf.format(new Date()) + ".csv";
+		response.addHeader("Content-Disposition", "attachment; filename="
+				+ name);
+		CSVSheetWriter out = new CSVSheetWriter(response,
+				decimalSeparator == DecimalSeparator.COMMA);
+		report.toRows(out);
+		out.finish();
+	}
+
+	/**
+	 * Writes the report rows in CSV format (RFC 4180).
+	 * <p>
+	 * Nothing is written before the first row, so that an error can still be
+	 * sent if the report parameters are invalid. The response is flushed after
+	 * the header row so that the client gets the first bytes immediately.
+	 * </p>
+	 */
+	private static class CSVSheetWriter implements ISheetWriter {
+
+		private final Response response;
+
+		private final boolean decimalComma;
+
+		private final char separator;
+
+		private Writer w;
+
+		private int rowIdx = -1;
+
+		private int colIdx;
+
+		CSVSheetWriter(Response response, boolean decimalComma) {
+			this.response = response;
+			this.decimalComma = decimalComma;
+			this.separator = decimalComma ? ';' : ',';
+		}
+
+		@Override
+		public void newRow() throws IOException {
+			if (w == null) {
+				w = new BufferedWriter(new OutputStreamWriter(
+						response.getOutputStream(), StandardCharsets.UTF_8));
+			} else {
+				w.write("\r\n");
+				// Send the header row as soon as possible
+				if (rowIdx == 0) {
+					w.flush();
+				}
+			}
+			rowIdx++;
+			colIdx = 0;
+		}
+
+		@Override
+		public void addCell(Style style, Object value) throws IOException {
+			skipCell();
+			if (value instanceof Number) {
+				String formatted = BigDecimal
+						.valueOf(((Number) value).doubleValue())
+						.stripTrailingZeros().toPlainString();
+				w.write(decimalComma ? formatted.replace('.', ',') : formatted);
+			} else if (value != null) {
+				String str = String.valueOf(value);
+				if (str.indexOf(separator) >= 0 || str.indexOf('"') >= 0
+						|| str.indexOf('\n') >= 0 || str.indexOf('\r') >= 0) {
+					str = '"' + str.replace("\"", "\"\"") + '"';
+				}
+				w.write(str);
+			}
+		}
+
+		@Override
+		public void skipCell() throws IOException {
+			if (colIdx++ > 0) {
+				w.write(separator);
+			}
+		}
+
+		void finish() throws IOException {
+			if (w != null) {
+				w.write("\r\n");
+				w.flush();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,72 @@
+package org.activitymgr.ui.web.logic.impl.internal.services;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.util.InstrumentedDataSource;
+import org.activitymgr.ui.web.logic.impl.AbstractServiceWithAuthenticationLogic;
+
+import com.google.gson.JsonObject;
+import com.google.inject.Inject;
+
+/**
+ * Connection pool metrics service (JSON format).
+ * <p>
+ * Gives the active, idle and maximum connections count, the number of
+ * threads waiting for a connection, the acquisitions and failures counters
+ * and the wait time percentiles (in microseconds) of the most recent
+ * acquisitions. The statistics are reset with <code>action=reset</code>.
+ * </p>
+ */
+public class DataSourceMetricsServiceLogic extends AbstractServiceWithAuthenticationLogic {
+
+	public static final String ACTION_PARAMETER = "action";
+
+	public static final String RESET_ACTION = "reset";
+
+	@Inject
+	private InstrumentedDataSource dataSource;
+
+	@Override
+	public String getPath() {
+		return "/metrics/datasource";
+	}
+
+	@Override
+	protected void doService(Collaborator connected, Request request,
+			Response response) throws ModelException, IOException {
+		String action = request.getParameter(ACTION_PARAMETER);
+		if (action != null && !RESET_ACTION.equals(action)) {
+			response.sendError(400, "Unknown action '" + action + "'");
+			return;
+		}
+		long[] waitTimes = dataSource.getWaitTimePercentiles(50, 95, 99, 100);
+		JsonObject json = new JsonObject();
+		json.addProperty("active", dataSource.getActiveCount());
+		json.addProperty("idle", dataSource.getIdleCount());
+		json.addProperty("maxActive", dataSource.getMaxActive());
+		json.addProperty("waiters", dataSource.getWaitersCount());
+		json.addProperty("acquisitions", dataSource.getAcquisitionsCount());
+		json.addProperty("failures", dataSource.getFailuresCount());
+		JsonObject waitTime = new JsonObject();
+		waitTime.addProperty("p50", waitTimes[0]);
+		waitTime.addProperty("p95", waitTimes[1]);
+		waitTime.addProperty("p99", waitTimes[2]);
+		waitTime.addProperty("max", waitTimes[3]);
+		json.add("waitTimeMicros", waitTime);
+		if (RESET_ACTION.equals(action)) {
+			dataSource.resetStatistics();
+		}
+		response.setContentType("application/json; charset=UTF-8");
+		response.addHeader("Cache-Control", "no-cache");
+		Writer w = new OutputStreamWriter(response.getOutputStream(),
+				StandardCharsets.UTF_8);
+		w.write(json.toString());
+		w.flush();
+	}
+
+}
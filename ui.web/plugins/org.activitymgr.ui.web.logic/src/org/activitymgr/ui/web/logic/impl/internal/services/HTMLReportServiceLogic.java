@@ -1,28 +1,17 @@
 package org.activitymgr.ui.web.logic.impl.internal.services;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.text.NumberFormat;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import org.activitymgr.core.dto.Collaborator;
-import org.apache.poi.hssf.util.HSSFColor;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.CellType;
-import org.apache.poi.ss.usermodel.Color;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
+import org.activitymgr.core.model.ModelException;
+import org.activitymgr.core.util.ISheetWriter;
 
 public class HTMLReportServiceLogic extends AbstractReportServiceLogic {
 
-	private static enum DecimalSeparator {
-		COMMA, DOT;
-	}
-
-	public static final String DECIMAL_SEPARATOR_PARAMETER = "decimalSeparator";
-
 	@Override
 	public String getPath() {
 		return "/report/html";
@@ -30,16 +19,11 @@ public class HTMLReportServiceLogic extends AbstractReportServiceLogic {
 
 	@Override
 	protected void doService(Collaborator connected, Request request,
-			Response response, Workbook report) throws IOException {
+			Response response, ReportBuilder report) throws ModelException,
+			IOException {
 
 		// Retrieve decimal separator
-		String decimalSeparatorParam = request
-				.getParameter(DECIMAL_SEPARATOR_PARAMETER);
-		DecimalSeparator decimalSeparator = null;
-		if (decimalSeparatorParam != null) {
-			decimalSeparator = DecimalSeparator.valueOf(decimalSeparatorParam
-					.trim().toUpperCase());
-		}
+		DecimalSeparator decimalSeparator = getDecimalSeparator(request);
 
 		// Set response content type
 		response.setContentType("text/html");
@@ -53,101 +37,112 @@ public class HTMLReportServiceLogic extends AbstractReportServiceLogic {
 		response.addHeader("Cache-Control", "max-age=0");
 		response.addHeader("Pragma", "public");
 
-		// Output the table
-		StringWriter sw = new StringWriter();
-		PrintWriter pw = new PrintWriter(sw);
-		pw.println("<html>");
-		pw.println("<head>");
-		pw.println("<title>Activity Manager Report</title>");
-		/*
-		 * Prevents EXCEL from caching the page see
-		 * https://blogs.technet.microsoft
-		 * .com/the_microsoft_excel_support_team_blog
-		 * /2011/11/15/cannot-download-
-		 * the-information-you-requested-executing-web-query-from-excel/
-		 */
-		pw.println("<http-equiv=\"PRAGMA\" content=\"NO-CACHE\">");
-		pw.println("<meta charset='UTF-8'>");
-		pw.println("</head>");
-		pw.println("<body>");
-		pw.println("<table border='1' cellspacing='0' cellpadding='0'>");
-		Sheet sheet = report.getSheetAt(0);
-		for (int r = 0; r <= sheet.getLastRowNum(); r++) {
-			Row row = sheet.getRow(r);
-			pw.println("<tr>");
-			for (int c = 0; c < row.getLastCellNum(); c++) {
-				Cell cell = row.getCell(c);
-				if (cell == null) {
-					pw.println("  <td></td>");
-				} else {
-					CellStyle style = cell.getCellStyle();
-					pw.print("  <td");
-					Color bgColor = style.getFillForegroundColorColor();
-
-					if (bgColor instanceof HSSFColor
-							&& HSSFColor.HSSFColorPredefined.AUTOMATIC.getIndex()
-								!= style.getFillForegroundColor()) {
-						pw.print(" bgcolor='#");
-						pw.print(((HSSFColor) bgColor).getHexString());
-						pw.print("'");
-					}
-					pw.print(" align='");
-					switch (style.getAlignment()) {
-					case CENTER:
-						pw.print("center");
-						break;
-					case RIGHT:
-						pw.print("right");
-						break;
-					default:
-						pw.print("left");
-					}
-					pw.print("'");
-					pw.print(">");
-					CellType cellType = cell.getCellType();
-					if (cellType == CellType.FORMULA) {
-						cellType = cell.getCachedFormulaResultType();
-					}
-					switch (cellType) {
-					case BLANK:
-						break;
-					case BOOLEAN:
-						pw.print(cell.getBooleanCellValue());
-						break;
-					case ERROR:
-						pw.print("#ERROR");
-						break;
-					case NUMERIC:
-						String formatted = NumberFormat.getNumberInstance()
-								.format(cell.getNumericCellValue());
-						if (decimalSeparator != null) {
-							switch (decimalSeparator) {
-							case COMMA:
-								formatted = formatted.replace('.', ',');
-								break;
-							case DOT:
-								formatted = formatted.replace(',', '.');
-								break;
-							}
-						}
-						pw.print(formatted);
-						break;
-					case STRING:
-						String str = cell.getStringCellValue();
-						if (str != null) {
-							str = str.replaceAll("<", "&lt;");
-							str = str.replaceAll(">", "&gt;");
-						}
-						pw.print(str);
-					}
-					pw.println("</td>");
+		// Output the table (rows are directly written in the response)
+		HTMLSheetWriter out = new HTMLSheetWriter(response, decimalSeparator);
+		report.toRows(out);
+		out.finish();
+	}
+
+	/**
+	 * Writes the report rows in a HTML table.
+	 * <p>
+	 * The page header is only written with the first row, so that an error
+	 * can still be sent if the report parameters are invalid. The response is
+	 * flushed after the header row so that the client gets the first bytes
+	 * immediately.
+	 * </p>
+	 */
+	private static class HTMLSheetWriter implements ISheetWriter {
+
+		private final Response response;
+
+		private final DecimalSeparator decimalSeparator;
+
+		private Writer pw;
+
+		private int rowIdx = -1;
+
+		HTMLSheetWriter(Response response, DecimalSeparator decimalSeparator) {
+			this.response = response;
+			this.decimalSeparator = decimalSeparator;
+		}
+
+		@Override
+		public void newRow() throws IOException {
+			if (pw == null) {
+				pw = new BufferedWriter(new OutputStreamWriter(
+						response.getOutputStream(), StandardCharsets.UTF_8));
+				pw.write("<html>\n");
+				pw.write("<head>\n");
+				pw.write("<title>Activity Manager Report</title>\n");
+				/*
+				 * Prevents EXCEL from caching the page see
+				 * https://blogs.technet.microsoft
+				 * .com/the_microsoft_excel_support_team_blog
+				 * /2011/11/15/cannot-download-
+				 * the-information-you-requested-executing-web-query-from-excel/
+				 */
+				pw.write("<http-equiv=\"PRAGMA\" content=\"NO-CACHE\">\n");
+				pw.write("<meta charset='UTF-8'>\n");
+				pw.write("</head>\n");
+				pw.write("<body>\n");
+				pw.write("<table border='1' cellspacing='0' cellpadding='0'>\n");
+			} else {
+				pw.write("</tr>\n");
+				// Send the header row as soon as possible
+				if (rowIdx == 0) {
+					pw.flush();
 				}
 			}
-			pw.println("</tr>");
+			pw.write("<tr>\n");
+			rowIdx++;
+		}
+
+		@Override
+		public void addCell(Style style, Object value) throws IOException {
+			pw.write("  <td");
+			switch (style) {
+			case HEADER:
+				pw.write(" bgcolor='#969696' align='left'");
+				break;
+			case FOOTER:
+				pw.write(" bgcolor='#c0c0c0' align='right'");
+				break;
+			case BODY_RIGHT_ALIGNMENT:
+				pw.write(" align='right'");
+				break;
+			case BODY:
+				pw.write(" align='left'");
+			}
+			pw.write(">");
+			if (value instanceof Number) {
+				pw.write(format(((Number) value).doubleValue(), decimalSeparator));
+			} else if (value instanceof String) {
+				String str = (String) value;
+				str = str.replaceAll("<", "&lt;");
+				str = str.replaceAll(">", "&gt;");
+				pw.write(str);
+			} else if (value != null) {
+				pw.write(String.valueOf(value));
+			}
+			pw.write("</td>\n");
 		}
-		pw.println("</table>");
-		pw.println("</body>");
-		pw.println("</html>");
-		response.getOutputStream().write(sw.toString().getBytes("UTF-8"));
+
+		@Override
+		public void skipCell() throws IOException {
+			pw.write("  <td></td>\n");
+		}
+
+		void finish() throws IOException {
+			if (pw != null) {
+				pw.write("</tr>\n");
+				pw.write("</table>\n");
+				pw.write("</body>\n");
+				pw.write("</html>\n");
+				pw.flush();
+			}
+		}
+
 	}
+
 }
@@ -19,6 +19,12 @@ public class RESTServicesModule extends AbstractModule {
 				.in(Singleton.class);
 		restBinder.addBinding().to(HTMLReportServiceLogic.class)
 				.in(Singleton.class);
+		restBinder.addBinding().to(CSVReportServiceLogic.class)
+				.in(Singleton.class);
+		restBinder.addBinding().to(ReportJobServiceLogic.class)
+				.in(Singleton.class);
+		restBinder.addBinding().to(DataSourceMetricsServiceLogic.class)
+				.in(Singleton.class);
 	}
 
 }
@@ -0,0 +1,88 @@
+package org.activitymgr.ui.web.logic.impl.internal.services;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.activitymgr.core.dto.Collaborator;
+import org.activitymgr.core.model.ModelException;
+import org.activitymgr.ui.web.logic.impl.AbstractServiceWithAuthenticationLogic;
+import org.activitymgr.ui.web.logic.impl.internal.ReportJobManager;
+import org.activitymgr.ui.web.logic.impl.internal.ReportJobManager.ReportJob;
+import org.activitymgr.ui.web.logic.impl.internal.ReportJobManager.Status;
+
+import com.google.gson.JsonObject;
+import com.google.inject.Inject;
+
+/**
+ * Background report jobs service.
+ * <p>
+ * Gives the status of a job (<code>action=status</code>, in JSON format),
+ * cancels it (<code>action=cancel</code>) or downloads its result (default
+ * action). A job is only visible to the collaborator that has submitted it.
+ * </p>
+ */
+public class ReportJobServiceLogic extends AbstractServiceWithAuthenticationLogic {
+
+	public static final String JOB_ID_PARAMETER = "id";
+
+	public static final String ACTION_PARAMETER = "action";
+
+	public static final String STATUS_ACTION = "status";
+
+	public static final String CANCEL_ACTION = "cancel";
+
+	public static final String DOWNLOAD_ACTION = "download";
+
+	@Inject
+	private ReportJobManager jobManager;
+
+	@Override
+	public String getPath() {
+		return "/report/job";
+	}
+
+	@Override
+	protected void doService(Collaborator connected, Request request,
+			Response response) throws ModelException, IOException {
+		ReportJob job = jobManager.getJob(request.getParameter(JOB_ID_PARAMETER));
+		if (job == null || job.getOwnerId() != connected.getId()) {
+			response.sendError(404, "Unknown report job");
+			return;
+		}
+		String action = request.getParameter(ACTION_PARAMETER);
+		if (action == null || DOWNLOAD_ACTION.equals(action)) {
+			if (job.getStatus() != Status.DONE) {
+				response.sendError(409, "Report job is not done (" + job.getStatus() + ")");
+				return;
+			}
+			response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+			response.addHeader("Content-Disposition", "attachment; filename="
+					+ job.getFile().getName());
+			Files.copy(job.getFile().toPath(), response.getOutputStream());
+		} else {
+			if (CANCEL_ACTION.equals(action)) {
+				jobManager.cancel(job);
+			} else if (!STATUS_ACTION.equals(action)) {
+				response.sendError(400, "Unknown action '" + action + "'");
+				return;
+			}
+			JsonObject json = new JsonObject();
+			json.addProperty("id", job.getId());
+			json.addProperty("status", String.valueOf(job.getStatus()));
+			json.addProperty("progress", job.getProgress());
+			if (job.getMessage() != null) {
+				json.addProperty("message", job.getMessage());
+			}
+			response.setContentType("application/json; charset=UTF-8");
+			response.addHeader("Cache-Control", "no-cache");
+			Writer w = new OutputStreamWriter(response.getOutputStream(),
+					StandardCharsets.UTF_8);
+			w.write(json.toString());
+			w.flush();
+		}
+	}
+
+}
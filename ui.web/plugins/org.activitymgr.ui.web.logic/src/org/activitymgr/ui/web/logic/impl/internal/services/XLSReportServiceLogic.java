@@ -5,7 +5,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import org.activitymgr.core.dto.Collaborator;
-import org.apache.poi.ss.usermodel.Workbook;
+import org.activitymgr.core.model.ModelException;
 
 public class XLSReportServiceLogic extends AbstractReportServiceLogic {
 
@@ -16,12 +16,14 @@ public class XLSReportServiceLogic extends AbstractReportServiceLogic {
 
 	@Override
 	protected void doService(Collaborator connected, Request request,
-			Response response, Workbook report) throws IOException {
-		response.setContentType("application/vnd.ms-excel");
+			Response response, ReportBuilder report) throws ModelException,
+			IOException {
+		response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
 		SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS");
-		String name = "am-report-" + sdf.format(new Date()) + ".xls";
+		String name = "am-report-" + sdf.format(new Date()) + ".xlsx";
 		response.addHeader("Content-Disposition", "attachment; filename="
 				+ name);
-		report.write(response.getOutputStream());
+		// The report is streamed (the workbook is not built in memory)
+		report.toXLSX(response.getOutputStream());
 	}
 }
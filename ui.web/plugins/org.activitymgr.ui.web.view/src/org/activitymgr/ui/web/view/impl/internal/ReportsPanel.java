@@ -39,6 +39,7 @@ import org.activitymgr.ui.web.view.impl.dialogs.PopupDateFieldWithParser;
 
 import com.google.inject.Inject;
 import com.vaadin.data.Property.ValueChangeListener;
+import com.vaadin.event.UIEvents.PollListener;
 import com.vaadin.shared.ui.label.ContentMode;
 import com.vaadin.ui.Alignment;
 import com.vaadin.ui.Button;
@@ -50,6 +51,7 @@ import com.vaadin.ui.Image;
 import com.vaadin.ui.Label;
 import com.vaadin.ui.OptionGroup;
 import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
 
 @SuppressWarnings("serial")
 public class ReportsPanel extends GridLayout implements IReportsLogic.View {
@@ -66,6 +68,7 @@ public class ReportsPanel extends GridLayout implements IReportsLogic.View {
 	private Label statusLabel;
 	private Image warningIcon;
 	private HorizontalLayout reportButtonsLayout;
+	private Label reportJobStatusLabel;
 	private CheckBox onlyKeepTasksWithContribsCheckbox;
 	private Button decreaseTaskDepthButton;
 	private Button increaseTaskDepthButton;
@@ -75,6 +78,7 @@ public class ReportsPanel extends GridLayout implements IReportsLogic.View {
 	private TextField intervalCountTextField;
 	private IReportsLogic logic;
 	private IResourceCache resourceCache;
+	private final PollListener pollListener = event -> logic.onPoll();
 
 	@Inject
 	public ReportsPanel(IResourceCache resourceCache) {
@@ -125,9 +129,10 @@ public class ReportsPanel extends GridLayout implements IReportsLogic.View {
 		addComponent(reportButtonsLayout);
 		reportButtonsLayout.setWidth(100, Unit.PERCENTAGE);
 				
-		Label leftAlign = new Label("");
-		reportButtonsLayout.addComponent(leftAlign);
-		reportButtonsLayout.setExpandRatio(leftAlign, 100);
+		// The report job status is left aligned
+		reportJobStatusLabel = new Label("");
+		reportButtonsLayout.addComponent(reportJobStatusLabel);
+		reportButtonsLayout.setExpandRatio(reportJobStatusLabel, 100);
 
 		createStatusPanel();
 	}
@@ -460,6 +465,23 @@ public class ReportsPanel extends GridLayout implements IReportsLogic.View {
 		}
 	}
 
+	@Override
+	public void setReportJobStatus(String status) {
+		reportJobStatusLabel.setValue(status);
+	}
+
+	@Override
+	public void setPollInterval(int interval) {
+		UI ui = getUI();
+		if (ui != null) {
+			ui.removePollListener(pollListener);
+			if (interval > 0) {
+				ui.addPollListener(pollListener);
+			}
+			ui.setPollInterval(interval);
+		}
+	}
+
 	@Override
 	public void setRowContentConfigurationEnabled(boolean enabled) {
 		decreaseTaskDepthButton.setEnabled(enabled);